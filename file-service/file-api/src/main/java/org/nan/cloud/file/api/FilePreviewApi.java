@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 /**
  * 文件预览API接口
  */
@@ -35,6 +37,18 @@ public interface FilePreviewApi {
             HttpServletRequest request,
             HttpServletResponse response);
 
+    @GetMapping(prefix + "/manifest")
+    ResponseEntity<?> previewManifest(
+            @RequestParam List<String> ids,
+
+            @RequestParam(required = false) Integer w,
+
+            @RequestParam(required = false) Integer h,
+
+            @RequestParam(required = false, defaultValue = "1.0") Double t,
+
+            HttpServletRequest request);
+
     @GetMapping(prefix + "/stream/{fileId}")
     ResponseEntity<?> streamFile(
             @PathVariable String fileId,
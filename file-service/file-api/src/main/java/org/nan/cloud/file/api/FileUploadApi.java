@@ -12,8 +12,10 @@ import org.springframework.web.multipart.MultipartFile;
  * 
  * 功能说明：
  * - 支持单文件异步上传
+ * - 支持分片上传与断点续传（init / chunk / complete）
  * - 文件类型验证和安全检查
  * - 上传进度实时推送
+ * - 文件删除（释放存储内容）
  * 
  * @author LedDeviceCloudPlatform Team
  * @since 1.0.0
@@ -52,5 +54,76 @@ public interface FileUploadApi {
     @GetMapping(prefix + "/supported-types")
     SupportedFileTypesResponse getSupportedFileTypes();
 
+    /**
+     * 初始化分片上传会话
+     * 
+     * @param request 分片上传初始化参数
+     * @return 分片上传会话信息
+     */
+    @PostMapping(prefix + "/chunk/init")
+    ChunkUploadSessionResponse initChunkUpload(@RequestBody ChunkUploadInitRequest request);
+
+    /**
+     * 上传单个分片，分片之间可以并行上传，重复上传同一分片会覆盖旧数据
+     * 
+     * @param uploadId 上传会话ID
+     * @param chunkNumber 分片编号（从0开始）
+     * @param chunk 分片数据
+     * @return 分片上传会话信息
+     */
+    @PutMapping(prefix + "/chunk/{uploadId}/{chunkNumber}")
+    ChunkUploadSessionResponse uploadChunk(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(description = "分片编号") @PathVariable Integer chunkNumber,
+            @Parameter(description = "分片数据") @RequestParam("chunk") MultipartFile chunk);
+
+    /**
+     * 查询分片上传会话状态（断点续传）
+     * 
+     * @param uploadId 上传会话ID
+     * @return 分片上传会话信息
+     */
+    @GetMapping(prefix + "/chunk/{uploadId}")
+    ChunkUploadSessionResponse getChunkUploadStatus(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId);
+
+    /**
+     * 完成分片上传，服务端异步合并分片并进入常规上传处理流程
+     * 
+     * @param uploadId 上传会话ID
+     * @return 任务初始化响应
+     */
+    @PostMapping(prefix + "/chunk/{uploadId}/complete")
+    TaskInitResponse completeChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId);
+
+    /**
+     * 取消分片上传，清理已上传的分片
+     * 
+     * @param uploadId 上传会话ID
+     */
+    @DeleteMapping(prefix + "/chunk/{uploadId}")
+    void abortChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId);
+
+    /**
+     * 删除文件，释放对存储内容的引用
+     * 
+     * @param fileId 文件ID
+     * @return 文件存在且被删除返回true
+     */
+    @DeleteMapping(prefix + "/file/{fileId}")
+    boolean deleteFile(
+            @Parameter(description = "文件ID") @PathVariable String fileId);
+
+    /**
+     * 批量删除文件
+     * 
+     * @param request 批量删除请求
+     * @return 批量删除结果
+     */
+    @PostMapping(prefix + "/file/batch-delete")
+    BatchFileDeleteResponse batchDeleteFiles(@RequestBody BatchFileDeleteRequest request);
+
 
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package org.nan.cloud.file.api;
 
 import org.nan.cloud.file.api.dto.TranscodingPresetResponse;
+import org.nan.cloud.file.api.dto.TranscodingQueueStatusResponse;
 import org.nan.cloud.file.api.dto.TranscodingTaskRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 
 public interface TranscodeApi {
 
@@ -17,4 +19,10 @@ public interface TranscodeApi {
 
     @GetMapping(prefix + "/presets/{id}/parameters")
     TranscodingTaskRequest.TranscodingParameters getPresetParameters(@PathVariable("id") String id);
+
+    @PostMapping(prefix + "/tasks/{taskId}/cancel")
+    Boolean cancelTask(@PathVariable("taskId") String taskId);
+
+    @GetMapping(prefix + "/queue/status")
+    TranscodingQueueStatusResponse getQueueStatus();
 }
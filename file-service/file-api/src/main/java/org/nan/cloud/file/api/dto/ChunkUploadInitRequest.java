@@ -0,0 +1,58 @@
+package org.nan.cloud.file.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 分片上传初始化请求DTO
+ * 组织ID、用户ID通过InvocationContextHolder获取
+ * 
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Data
+@Schema(description = "分片上传初始化请求")
+public class ChunkUploadInitRequest {
+
+    @Schema(description = "原始文件名", example = "宣传视频.mp4", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "文件名不能为空")
+    private String filename;
+
+    @Schema(description = "文件总大小（字节）", example = "2147483648", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long fileSize;
+
+    @Schema(description = "期望的分片大小（字节），为空时使用服务端默认值", example = "8388608")
+    private Long chunkSize;
+
+    @Schema(description = "文件MIME类型", example = "video/mp4")
+    private String contentType;
+
+    @Schema(description = "目标文件夹ID", example = "folder001")
+    private String folderId;
+
+    @Schema(description = "目标用户组根目录", example = "12")
+    private Long ugid;
+
+    @Schema(description = "素材名称", example = "宣传视频")
+    @Size(max = 200, message = "素材名称不能超过200个字符")
+    private String materialName;
+
+    @Schema(description = "文件描述", example = "宣传视频素材")
+    @Size(max = 500, message = "文件描述不能超过500个字符")
+    private String description;
+
+    /* =================== 业务填充用户认证数据 ======================== */
+
+    @Schema(hidden = true)
+    private Long oid;
+
+    @Schema(hidden = true)
+    private Long uid;
+}
@@ -0,0 +1,54 @@
+package org.nan.cloud.file.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分片上传会话响应
+ * 
+ * 初始化、上传分片和断点续传查询共用该响应，
+ * 前端根据uploadedChunks跳过已完成的分片
+ * 
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "分片上传会话响应")
+public class ChunkUploadSessionResponse {
+
+    @Schema(description = "上传会话ID")
+    private String uploadId;
+
+    @Schema(description = "原始文件名")
+    private String filename;
+
+    @Schema(description = "文件总大小（字节）")
+    private Long fileSize;
+
+    @Schema(description = "分片大小（字节）")
+    private Long chunkSize;
+
+    @Schema(description = "总分片数")
+    private Integer totalChunks;
+
+    @Schema(description = "已上传的分片编号（从0开始）")
+    private List<Integer> uploadedChunks;
+
+    @Schema(description = "会话状态", example = "UPLOADING")
+    private String status;
+
+    @Schema(description = "合并任务ID（complete之后可用）")
+    private String taskId;
+
+    @Schema(description = "会话创建时间")
+    private LocalDateTime createTime;
+}
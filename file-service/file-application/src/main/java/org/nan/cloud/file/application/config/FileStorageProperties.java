@@ -56,6 +56,34 @@ public class FileStorageProperties {
     @NestedConfigurationProperty
     private Thumbnail thumbnail = new Thumbnail();
 
+    /**
+     * 流式传输配置
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private Streaming streaming = new Streaming();
+
+    /**
+     * 素材搜索配置
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private Search search = new Search();
+
+    /**
+     * 进度共享存储配置
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private ProgressStore progressStore = new ProgressStore();
+
+    /**
+     * VSN生成调度配置
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private VsnGeneration vsnGeneration = new VsnGeneration();
+
     /**
      * 存储配置
      */
@@ -115,6 +143,79 @@ public class FileStorageProperties {
              * 最大文件大小（字节）
              */
             private long maxFileSize = 5368709120L; // 5GB
+
+            /**
+             * 上传暂存时是否同时计算SHA-256（MD5始终计算）
+             */
+            private boolean sha256Enabled = false;
+
+            /**
+             * 是否启用内容寻址存储（相同内容只保存一份，按引用计数回收）
+             */
+            private boolean contentAddressed = true;
+
+            /**
+             * 无引用内容的回收宽限期（分钟）
+             */
+            private int gcGraceMinutes = 60;
+
+            /**
+             * 内容引用与文件记录的核对间隔（分钟），修复上传或删除中断留下的不一致
+             */
+            private int refReconcileIntervalMinutes = 360;
+
+            /**
+             * 存储统计对账：每轮扫描的最大文件数
+             */
+            private int statsScanBatchSize = 2000;
+
+            /**
+             * 存储统计对账：两轮扫描之间的间隔（毫秒），与批大小共同限制扫描速率
+             */
+            private long statsScanTickMillis = 1000;
+
+            /**
+             * 存储统计对账：全量对账周期（小时）
+             */
+            private long statsScanIntervalHours = 24;
+
+            /**
+             * 分片上传配置
+             */
+            @Valid
+            @NestedConfigurationProperty
+            private Chunk chunk = new Chunk();
+        }
+
+        /**
+         * 分片上传配置
+         */
+        @Data
+        public static class Chunk {
+            /**
+             * 分片临时目录，为空时使用 tempPath/chunks
+             */
+            private String path;
+
+            /**
+             * 默认分片大小（字节）
+             */
+            private long defaultChunkSize = 8 * 1024 * 1024; // 8MB
+
+            /**
+             * 最小分片大小（字节）
+             */
+            private long minChunkSize = 1024 * 1024; // 1MB
+
+            /**
+             * 最大分片大小（字节）
+             */
+            private long maxChunkSize = 64 * 1024 * 1024; // 64MB
+
+            /**
+             * 未完成会话的过期时间（小时）
+             */
+            private int sessionExpireHours = 24;
         }
 
         /**
@@ -167,6 +268,10 @@ public class FileStorageProperties {
         @NestedConfigurationProperty
         private Queue queue = new Queue();
 
+        @Valid
+        @NestedConfigurationProperty
+        private Progress progress = new Progress();
+
         private List<Preset> presets;
 
         @Data
@@ -184,9 +289,40 @@ public class FileStorageProperties {
 
         @Data
         public static class Queue {
+            /**
+             * 并发转码上限，实际并发还受CPU预算（CPU核数 / ffmpeg线程数）限制
+             */
             private int maxConcurrentTasks = 3;
             private int maxQueueSize = 100;
             private boolean priorityEnabled = true;
+
+            /**
+             * 优先级老化时间（秒）：排队每满该时长，有效优先级加1，避免低优先级任务饿死
+             */
+            private long priorityAgingSeconds = 60;
+        }
+
+        @Data
+        public static class Progress {
+            /**
+             * 进度推送的最小百分比变化
+             */
+            private int minPercentDelta = 5;
+
+            /**
+             * 两次进度推送的最小间隔（毫秒）
+             */
+            private long minIntervalMillis = 1000;
+
+            /**
+             * 进度有变化时的最长推送间隔（毫秒），变化不足百分比阈值时按此间隔推送
+             */
+            private long maxIntervalMillis = 10000;
+
+            /**
+             * 批量合并推送的周期（毫秒）
+             */
+            private long flushIntervalMillis = 1000;
         }
 
         @Data
@@ -254,7 +390,50 @@ public class FileStorageProperties {
         @Valid
         @NestedConfigurationProperty
         private Video video = new Video();
-        
+
+        /**
+         * 缩略图缓存配置
+         */
+        @Valid
+        @NestedConfigurationProperty
+        private Cache cache = new Cache();
+
+        /**
+         * 缩略图缓存配置
+         */
+        @Data
+        public static class Cache {
+            /**
+             * 缩略图信息缓存最多保存的缩略图条数，按文件的缩略图数量加权
+             */
+            private long metadataMaxEntries = 100_000;
+
+            /**
+             * 按需生成缩略图的内存缓存上限（字节），按图片字节数加权淘汰
+             */
+            private long memoryMaxBytes = 64L * 1024 * 1024; // 64MB
+
+            /**
+             * 单个缩略图进入内存缓存的大小上限（字节），更大的只保存在磁盘
+             */
+            private int maxEntryBytes = 512 * 1024; // 512KB
+
+            /**
+             * 是否启用磁盘缓存，生成时直接写入磁盘
+             */
+            private boolean diskEnabled = true;
+
+            /**
+             * 磁盘缓存目录，为空时使用缩略图存储目录下的.render-cache
+             */
+            private String diskPath;
+
+            /**
+             * 磁盘缓存上限（字节），超出后淘汰最久未访问的文件
+             */
+            private long diskMaxBytes = 1024L * 1024 * 1024; // 1GB
+        }
+
         /**
          * 视频缩略图配置
          */
@@ -274,6 +453,155 @@ public class FileStorageProperties {
              * 是否启用GPU硬件加速
              */
             private boolean gpuAcceleration = false;
+
+            /**
+             * 同时打开的视频解码器上限（含空闲复用的解码器），限制堆外内存占用
+             */
+            private int maxConcurrentDecoders = 4;
+
+            /**
+             * 空闲解码器保留时间（秒），超时关闭
+             */
+            private long decoderIdleSeconds = 60;
+
+            /**
+             * 等待解码器的超时时间（毫秒）
+             */
+            private long decoderAcquireTimeoutMillis = 30000;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 流式传输配置
+     */
+    @Data
+    public static class Streaming {
+        /**
+         * 范围缓存分段大小（字节），热点数据按固定大小分段映射
+         */
+        private int segmentSize = 4 * 1024 * 1024; // 4MB
+
+        /**
+         * 范围缓存最大映射字节数，超出后按LRU淘汰
+         */
+        private long segmentCacheMaxBytes = 512L * 1024 * 1024; // 512MB
+
+        /**
+         * 初始并发传输上限，运行时根据磁盘吞吐在[min, ceiling]之间自适应调整
+         */
+        private int maxConcurrentTransfers = 20;
+
+        /**
+         * 自适应调整的并发下限
+         */
+        private int minConcurrentTransfers = 4;
+
+        /**
+         * 自适应调整的并发上限
+         */
+        private int maxConcurrentTransfersCeiling = 64;
+
+        /**
+         * 排队等待许可的超时时间（毫秒），超时返回429
+         */
+        private long queueTimeoutMillis = 10000;
+
+        /**
+         * 最大排队请求数，超出直接返回429
+         */
+        private int maxQueuedRequests = 1000;
+
+        /**
+         * 许可发放后未开始读取的回收时间（秒）
+         */
+        private long leaseOpenTimeoutSeconds = 60;
+
+        /**
+         * 受信任的反向代理地址，只有来自这些地址的请求才采信X-Forwarded-For识别客户端
+         */
+        private List<String> trustedProxies = List.of("127.0.0.1", "0:0:0:0:0:0:0:1");
+    }
+
+    /**
+     * 素材搜索配置
+     */
+    @Data
+    public static class Search {
+        /**
+         * 是否启用本地素材搜索索引，关闭后搜索返回空结果
+         */
+        private boolean enabled = true;
+
+        /**
+         * 增量同步间隔（秒）
+         */
+        private long refreshIntervalSeconds = 30;
+
+        /**
+         * 全量重建间隔（分钟），回收已删除文档并同步core-service中物理删除的素材
+         */
+        private long rebuildIntervalMinutes = 60;
+
+        /**
+         * 每批从数据库读取的素材数
+         */
+        private int batchSize = 5000;
+    }
+
+    /**
+     * 进度共享存储配置
+     *
+     * 上传进度、分片进度和任务上下文在本地内存中读写，异步批量复制到Redis哈希，
+     * 供其他实例读取
+     */
+    @Data
+    public static class ProgressStore {
+        /**
+         * 是否复制到Redis，关闭后仅本实例可见
+         */
+        private boolean replicationEnabled = true;
+
+        /**
+         * 复制间隔（毫秒），即其他实例读取进度的最大延迟
+         */
+        private long flushIntervalMillis = 500;
+
+        /**
+         * 单次管道写入的最大条目数
+         */
+        private int batchSize = 500;
+
+        /**
+         * Redis中进度记录的过期时间（分钟）
+         */
+        private long ttlMinutes = 120;
+    }
+
+    /**
+     * VSN生成调度配置
+     *
+     * 不同节目由工作线程并行生成，同一节目排队中的请求只保留最新版本
+     */
+    @Data
+    public static class VsnGeneration {
+        /**
+         * 并行生成的工作线程数
+         */
+        private int workerThreads = 2;
+
+        /**
+         * 等待生成的节目数上限，达到上限时消费线程阻塞等待
+         */
+        private int maxPendingPrograms = 200;
+
+        /**
+         * 消费线程等待空位的最长时间（秒），超时后消息重新入队
+         */
+        private long acceptTimeoutSeconds = 30;
+
+        /**
+         * 停机时等待进行中和排队中生成任务的最长时间（秒）
+         */
+        private long shutdownTimeoutSeconds = 60;
+    }
+}
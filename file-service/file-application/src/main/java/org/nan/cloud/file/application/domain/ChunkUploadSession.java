@@ -0,0 +1,141 @@
+package org.nan.cloud.file.application.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传会话领域模型
+ * 
+ * 会话信息随分片一起持久化在本地磁盘，服务重启后仍可断点续传
+ * 
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkUploadSession {
+
+    /**
+     * 上传会话ID
+     */
+    private String uploadId;
+
+    /**
+     * 预分配的文件ID
+     */
+    private String fileId;
+
+    /**
+     * 合并阶段的任务ID（complete之后才有值）
+     */
+    private String taskId;
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * MIME类型
+     */
+    private String contentType;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private long fileSize;
+
+    /**
+     * 分片大小（字节）
+     */
+    private long chunkSize;
+
+    /**
+     * 总分片数
+     */
+    private int totalChunks;
+
+    /**
+     * 组织ID
+     */
+    private Long oid;
+
+    /**
+     * 用户ID
+     */
+    private Long uid;
+
+    /**
+     * 目标用户组
+     */
+    private Long ugid;
+
+    /**
+     * 目标文件夹ID
+     */
+    private String folderId;
+
+    /**
+     * 素材名称
+     */
+    private String materialName;
+
+    /**
+     * 文件描述
+     */
+    private String description;
+
+    /**
+     * 会话状态
+     */
+    private SessionStatus status;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 计算指定分片的期望大小，最后一个分片可能小于chunkSize
+     */
+    public long expectedChunkSize(int chunkNumber) {
+        if (chunkNumber < 0 || chunkNumber >= totalChunks) {
+            throw new IllegalArgumentException("分片编号超出范围: " + chunkNumber);
+        }
+        long offset = chunkNumber * chunkSize;
+        return Math.min(chunkSize, fileSize - offset);
+    }
+
+    /**
+     * 会话是否仍可接收分片
+     */
+    public boolean isAcceptingChunks() {
+        return status == SessionStatus.UPLOADING;
+    }
+
+    /**
+     * 会话状态枚举
+     */
+    public enum SessionStatus {
+        UPLOADING("分片上传中"),
+        ASSEMBLING("合并中"),
+        COMPLETED("已完成"),
+        FAILED("失败");
+
+        private final String description;
+
+        SessionStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
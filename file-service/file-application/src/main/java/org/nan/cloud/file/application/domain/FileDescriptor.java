@@ -0,0 +1,53 @@
+package org.nan.cloud.file.application.domain;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 文件描述符
+ *
+ * 流式传输和预览所需的不可变文件信息快照，由FileInfoRepository按文件ID缓存，
+ * 文件信息更新或删除时失效。热点请求只读取描述符，不再访问数据库。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Value
+@Builder
+public class FileDescriptor {
+
+    /**
+     * 文件唯一标识
+     */
+    String fileId;
+
+    /**
+     * 存储路径（相对存储根目录）
+     */
+    String storagePath;
+
+    /**
+     * 文件大小（字节）
+     */
+    long fileSize;
+
+    /**
+     * MIME类型
+     */
+    String mimeType;
+
+    /**
+     * 原始文件名
+     */
+    String originalFilename;
+
+    /**
+     * 强ETag，基于内容MD5，内容不变则ETag不变
+     */
+    String etag;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    long lastModified;
+}
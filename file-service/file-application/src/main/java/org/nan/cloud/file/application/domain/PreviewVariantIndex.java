@@ -0,0 +1,245 @@
+package org.nan.cloud.file.application.domain;
+
+import lombok.Value;
+import org.nan.cloud.common.basic.domain.MaterialMetadata;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 预生成缩略图索引
+ *
+ * 单个文件全部预生成缩略图的不可变快照，由MaterialMetadataRepository按文件ID缓存，
+ * 缩略图信息更新时失效。构建时完成URL编码、视频帧时间解析和版本计算，
+ * 预览请求只在少量变体上做整数比较，不再读取元数据或解析路径。
+ *
+ * 版本由内容MD5和各缩略图的路径、尺寸、大小计算，缩略图重新生成后版本改变：
+ * - etag：强ETag，缩略图集合不变则不变
+ * - 变体URL带版本参数，同一URL的内容不会改变，可按immutable长期缓存
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Value
+public class PreviewVariantIndex {
+
+    /**
+     * 未指定尺寸时选择的主缩略图尺寸
+     */
+    private static final int PRIMARY_SIZE = 300;
+
+    /**
+     * 非主缩略图的匹配评分惩罚，与尺寸差异相加
+     */
+    private static final int NON_PRIMARY_PENALTY = 5;
+
+    /**
+     * 文件唯一标识
+     */
+    String fileId;
+
+    /**
+     * 元数据ID
+     */
+    String metadataId;
+
+    /**
+     * 强ETag（含引号）
+     */
+    String etag;
+
+    /**
+     * 有访问URL的缩略图，保持元数据中的顺序
+     */
+    List<Variant> variants;
+
+    /**
+     * 视频截帧缩略图（文件名带时间标识），非视频文件为空
+     */
+    List<Variant> frames;
+
+    /**
+     * 未指定尺寸时返回的缩略图
+     */
+    Variant defaultVariant;
+
+    /**
+     * 单个缩略图
+     */
+    @Value
+    public static class Variant {
+        int width;
+        int height;
+        boolean primary;
+        /**
+         * 视频帧时间点（秒），非截帧为null
+         */
+        Double timeOffset;
+        /**
+         * 已编码且带版本参数的访问URL
+         */
+        String url;
+    }
+
+    /**
+     * 是否有可重定向的缩略图
+     */
+    public boolean isEmpty() {
+        return variants.isEmpty();
+    }
+
+    /**
+     * 选择最匹配的缩略图
+     *
+     * 视频且指定时间点时选择时间最接近的截帧；否则未指定尺寸时选择主缩略图，
+     * 指定尺寸时选择宽高差之和最小的缩略图，主缩略图优先。评分相同时取靠前的。
+     *
+     * @return 无可用缩略图时返回null
+     */
+    public Variant resolve(Integer width, Integer height, Double timeOffset) {
+        if (timeOffset != null && !frames.isEmpty()) {
+            Variant best = null;
+            double bestDiff = Double.MAX_VALUE;
+            for (Variant frame : frames) {
+                double diff = Math.abs(frame.timeOffset - timeOffset);
+                if (diff < bestDiff) {
+                    best = frame;
+                    bestDiff = diff;
+                }
+            }
+            return best;
+        }
+        if (width == null && height == null) {
+            return defaultVariant;
+        }
+
+        int reqWidth = width != null ? width : PRIMARY_SIZE;
+        int reqHeight = height != null ? height : PRIMARY_SIZE;
+        Variant best = null;
+        long bestScore = Long.MAX_VALUE;
+        for (Variant variant : variants) {
+            long score = (long) Math.abs(variant.width - reqWidth) + Math.abs(variant.height - reqHeight)
+                    + (variant.primary ? 0 : NON_PRIMARY_PENALTY);
+            if (score < bestScore) {
+                best = variant;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 由素材元数据构建索引
+     */
+    public static PreviewVariantIndex of(MaterialMetadata metadata) {
+        List<MaterialMetadata.ThumbnailInfo> thumbnails = metadata.getThumbnails() != null
+                ? metadata.getThumbnails().getAllThumbnails() : null;
+        MaterialMetadata.FileBasicInfo basicInfo = metadata.getBasicInfo();
+        boolean video = basicInfo != null && (
+                (basicInfo.getMimeType() != null && basicInfo.getMimeType().toLowerCase().startsWith("video/"))
+                        || "VIDEO".equalsIgnoreCase(basicInfo.getFileType()));
+
+        MessageDigest digest = sha256();
+        update(digest, basicInfo != null ? basicInfo.getMd5Hash() : null);
+        if (metadata.getThumbnails() != null && metadata.getThumbnails().getGeneratedAt() != null) {
+            update(digest, metadata.getThumbnails().getGeneratedAt().toString());
+        }
+        List<MaterialMetadata.ThumbnailInfo> usable = new ArrayList<>();
+        if (thumbnails != null) {
+            for (MaterialMetadata.ThumbnailInfo thumbnail : thumbnails) {
+                if (thumbnail.getStorageUrl() == null || thumbnail.getStorageUrl().isBlank()) {
+                    continue;
+                }
+                usable.add(thumbnail);
+                update(digest, thumbnail.getStorageUrl());
+                update(digest, thumbnail.getWidth() + "x" + thumbnail.getHeight() + ":" + thumbnail.getFileSize());
+            }
+        }
+        String version = HexFormat.of().formatHex(digest.digest(), 0, 8);
+
+        List<Variant> variants = new ArrayList<>(usable.size());
+        List<Variant> frames = new ArrayList<>();
+        Variant defaultVariant = null;
+        for (MaterialMetadata.ThumbnailInfo thumbnail : usable) {
+            int width = thumbnail.getWidth() != null ? thumbnail.getWidth() : PRIMARY_SIZE;
+            int height = thumbnail.getHeight() != null ? thumbnail.getHeight() : PRIMARY_SIZE;
+            boolean primary = Boolean.TRUE.equals(thumbnail.getIsPrimary());
+            Double timeOffset = video ? extractTimeOffset(thumbnail.getStoragePath()) : null;
+            Variant variant = new Variant(width, height, primary, timeOffset,
+                    versionedUrl(thumbnail.getStorageUrl(), version));
+            variants.add(variant);
+            if (timeOffset != null) {
+                frames.add(variant);
+            }
+            boolean primarySized = thumbnail.getWidth() != null && thumbnail.getWidth() == PRIMARY_SIZE
+                    && thumbnail.getHeight() != null && thumbnail.getHeight() == PRIMARY_SIZE;
+            if (defaultVariant == null && (primary || primarySized)) {
+                defaultVariant = variant;
+            }
+        }
+        if (defaultVariant == null) {
+            defaultVariant = variants.isEmpty() ? null : variants.get(0);
+        }
+
+        return new PreviewVariantIndex(metadata.getFileId(), metadata.getId(), "\"" + version + "\"",
+                List.copyOf(variants), List.copyOf(frames), defaultVariant);
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 编码URL（保留路径和协议分隔符，空格编码为%20）并追加版本参数
+     */
+    private static String versionedUrl(String storageUrl, String version) {
+        String encoded = URLEncoder.encode(storageUrl, StandardCharsets.UTF_8)
+                .replace("%2F", "/")
+                .replace("%3A", ":")
+                .replace("+", "%20");
+        return encoded + "?v=" + version;
+    }
+
+    /**
+     * 从截帧文件名中解析时间点，例如 xxx_300x300_t5s.jpg → 5.0
+     *
+     * @return 不是截帧文件名时返回null
+     */
+    private static Double extractTimeOffset(String path) {
+        if (path == null) {
+            return null;
+        }
+        // 时间标识在文件名末尾，从后查找，避免原文件名中的"_t"干扰
+        int tIndex = path.lastIndexOf("_t");
+        if (tIndex == -1) {
+            return null;
+        }
+        int sIndex = path.indexOf("s.", tIndex);
+        if (sIndex == -1) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(path.substring(tIndex + 2, sIndex));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
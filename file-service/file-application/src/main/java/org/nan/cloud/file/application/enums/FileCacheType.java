@@ -112,6 +112,20 @@ public enum FileCacheType {
      */
     PREVIEW_DATA("file:preview:data", Duration.ofMinutes(30), false, true),
     
+    // ==================== VSN生成缓存 ====================
+    
+    /**
+     * VSN产物缓存 - 内容指纹对应的已生成VSN文件，内容未变化时直接复用
+     * 键模式：org:{orgId}:file:vsn:artifact:{programId}:{fingerprint}
+     */
+    VSN_ARTIFACT("file:vsn:artifact", Duration.ofDays(7), true, true),
+
+    /**
+     * VSN内容指纹缓存 - 节目内容版本对应的内容指纹，重复请求无需读取页面即可定位产物
+     * 键模式：org:{orgId}:file:vsn:fingerprint:{programId}:{contentId}:{version}:{updatedTime}
+     */
+    VSN_FINGERPRINT("file:vsn:fingerprint", Duration.ofDays(7), true, true),
+    
     // ==================== 统计与配额缓存 ====================
     
     /**
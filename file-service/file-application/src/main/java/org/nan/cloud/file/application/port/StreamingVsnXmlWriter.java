@@ -1,5 +1,6 @@
 package org.nan.cloud.file.application.port;
 
+import org.nan.cloud.program.document.ProgramPage;
 import org.nan.cloud.program.document.VsnProgram;
 
 import java.io.OutputStream;
@@ -10,14 +11,96 @@ import java.util.List;
  * 直接写入到输出流，避免大文件在内存中完整存在
  */
 public interface StreamingVsnXmlWriter {
-    
+
+    /**
+     * 页面来源
+     * 按节目顺序逐页提供页面，写出时只持有当前页，节目对象本身可以不加载页面
+     */
+    @FunctionalInterface
+    interface PageSource {
+
+        /**
+         * 依次访问指定节目的页面
+         *
+         * @param programIndex 节目在列表中的下标
+         * @param program 节目（可能不含页面）
+         * @param visitor 页面访问者
+         */
+        void forEachPage(int programIndex, VsnProgram program, PageVisitor visitor) throws Exception;
+
+        /**
+         * 使用节目对象中已加载的页面
+         */
+        static PageSource inMemory() {
+            return (programIndex, program, visitor) -> {
+                if (program.getPages() != null) {
+                    for (ProgramPage page : program.getPages()) {
+                        visitor.visit(page);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * 页面访问者
+     */
+    @FunctionalInterface
+    interface PageVisitor {
+        void visit(ProgramPage page) throws Exception;
+    }
+
+    /**
+     * 写出结果
+     *
+     * @param bytes 写入的字节数
+     * @param fingerprint 写出内容的指纹，与{@link #fingerprint(List, PageSource)}一致
+     */
+    record WriteResult(long bytes, String fingerprint) {
+    }
+
     /**
      * 将VSN程序列表以流式方式写入输出流
-     * 
+     *
      * @param programs VSN程序列表
      * @param outputStream 输出流
      * @return 写入的字节数
      * @throws Exception 写入异常
      */
-    long writeToStream(List<VsnProgram> programs, OutputStream outputStream) throws Exception;
-}
\ No newline at end of file
+    default long writeToStream(List<VsnProgram> programs, OutputStream outputStream) throws Exception {
+        return writeToStream(programs, PageSource.inMemory(), outputStream).bytes();
+    }
+
+    /**
+     * 按页面来源逐页写入输出流，同时计算内容指纹
+     *
+     * @param programs VSN程序列表（页面由pages提供）
+     * @param pages 页面来源
+     * @param outputStream 输出流
+     * @return 写入字节数和内容指纹
+     * @throws Exception 写入或读取页面异常
+     */
+    WriteResult writeToStream(List<VsnProgram> programs, PageSource pages, OutputStream outputStream) throws Exception;
+
+    /**
+     * 计算VSN程序列表的内容指纹
+     * 指纹由写出的标签和值决定，内容相同的节目指纹相同，生成的VSN文件也相同
+     *
+     * @param programs VSN程序列表
+     * @return SHA-256十六进制指纹
+     * @throws Exception 计算异常
+     */
+    default String fingerprint(List<VsnProgram> programs) throws Exception {
+        return fingerprint(programs, PageSource.inMemory());
+    }
+
+    /**
+     * 按页面来源逐页计算内容指纹
+     *
+     * @param programs VSN程序列表（页面由pages提供）
+     * @param pages 页面来源
+     * @return SHA-256十六进制指纹
+     * @throws Exception 计算或读取页面异常
+     */
+    String fingerprint(List<VsnProgram> programs, PageSource pages) throws Exception;
+}
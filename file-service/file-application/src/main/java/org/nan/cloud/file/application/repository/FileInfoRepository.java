@@ -1,5 +1,6 @@
 package org.nan.cloud.file.application.repository;
 
+import org.nan.cloud.file.application.domain.FileDescriptor;
 import org.nan.cloud.file.application.domain.FileInfo;
 
 import java.time.LocalDateTime;
@@ -32,6 +33,15 @@ public interface FileInfoRepository {
      */
     Optional<FileInfo> findByFileId(String fileId);
 
+    /**
+     * 根据文件ID获取文件描述符（带本地缓存）
+     * 供流式传输和预览等高频读取场景使用，文件信息更新或删除时缓存失效
+     * 
+     * @param fileId 文件ID
+     * @return 文件描述符，如果不存在返回空
+     */
+    Optional<FileDescriptor> findDescriptorByFileId(String fileId);
+
     /**
      * 更新元数据关系
      * @param fileId
@@ -164,6 +174,14 @@ public interface FileInfoRepository {
      */
     boolean deleteByFileId(String fileId);
 
+    /**
+     * 查找指向同一存储路径的有效文件ID（秒传的多个fileId共享同一存储内容）
+     * 
+     * @param storagePath 存储路径
+     * @return 未删除的文件ID列表
+     */
+    List<String> findFileIdsByStoragePath(String storagePath);
+
     /**
      * 批量软删除文件
      * 
@@ -1,6 +1,11 @@
 package org.nan.cloud.file.application.repository;
 
 import org.nan.cloud.common.basic.domain.MaterialMetadata;
+import org.nan.cloud.file.application.domain.PreviewVariantIndex;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * 素材元数据存储库接口
@@ -78,4 +83,20 @@ public interface MaterialMetadataRepository {
      * @return 是否更新成功
      */
     boolean updateAnalysisStatus(String fileId, String status, String errorMessage);
+
+    /**
+     * 根据文件ID获取预生成缩略图索引
+     *
+     * @param fileId 文件ID
+     * @return 缩略图索引，元数据不存在时为空
+     */
+    Optional<PreviewVariantIndex> findPreviewIndexByFileId(String fileId);
+
+    /**
+     * 批量获取预生成缩略图索引，未缓存的文件合并为一次查询
+     *
+     * @param fileIds 文件ID集合
+     * @return 文件ID -> 缩略图索引，不包含元数据不存在的文件
+     */
+    Map<String, PreviewVariantIndex> findPreviewIndexesByFileIds(Collection<String> fileIds);
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package org.nan.cloud.file.application.repository;
 
 import org.nan.cloud.program.document.ProgramContent;
+import org.nan.cloud.program.document.ProgramPage;
+
+import java.util.stream.Stream;
 
 /**
  * 节目内容仓储接口（Mongo）
@@ -9,5 +12,20 @@ import org.nan.cloud.program.document.ProgramContent;
 public interface ProgramContentRepository {
     ProgramContent findById(String contentId);
     ProgramContent findByProgramId(Long programId);
-}
 
+    /**
+     * 读取节目内容概要：VSN节目只含Information等节目头，不含页面、原始数据和VSN XML
+     * 包含版本号和更新时间，用于识别内容版本
+     *
+     * @return 不存在时返回null
+     */
+    ProgramContent findHeaderByProgramId(Long programId);
+
+    /**
+     * 按顺序流式读取指定VSN节目的页面，游标分批拉取，调用方负责关闭
+     *
+     * @param contentId 节目内容ID
+     * @param programIndex VSN节目下标
+     */
+    Stream<ProgramPage> streamVsnPages(String contentId, int programIndex);
+}
@@ -124,6 +124,21 @@ public interface CacheService {
      * @param pattern 匹配模式，支持通配符
      */
     void evictByPattern(String pattern);
+
+    /**
+     * 设置缓存值并关联标签，之后可按标签整组删除
+     * @param key 缓存键
+     * @param value 缓存值
+     * @param ttl 过期时间
+     * @param tags 标签，如组织ID
+     */
+    void putWithTags(String key, Object value, Duration ttl, Collection<String> tags);
+
+    /**
+     * 删除标签关联的全部缓存
+     * @param tag 标签
+     */
+    void evictByTag(String tag);
     
     /**
      * 检查缓存是否存在
@@ -0,0 +1,130 @@
+package org.nan.cloud.file.application.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.nan.cloud.file.application.domain.ChunkUploadSession;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 分片存储服务接口
+ * 
+ * 负责分片上传过程中的服务端状态：
+ * - 会话信息持久化（重启后可恢复）
+ * - 分片原子写入（支持并行上传和重复上传）
+ * - 流式合并分片并在写入时同步计算哈希
+ * 
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public interface ChunkStorageService {
+
+    /**
+     * 创建分片上传会话
+     * 
+     * @param session 会话信息
+     */
+    void createSession(ChunkUploadSession session);
+
+    /**
+     * 加载分片上传会话
+     * 
+     * @param uploadId 上传会话ID
+     * @return 会话信息，不存在返回null
+     */
+    ChunkUploadSession loadSession(String uploadId);
+
+    /**
+     * 更新分片上传会话
+     * 
+     * @param session 会话信息
+     */
+    void updateSession(ChunkUploadSession session);
+
+    /**
+     * 原子地将会话从上传中切换为合并中并绑定任务ID
+     * 
+     * 同一会话的并发complete请求只有一个能切换成功
+     * 
+     * @param uploadId 上传会话ID
+     * @param taskId 合并任务ID
+     * @return 切换成功后的会话；会话不存在或不处于上传中（已被其他请求切换）返回null
+     */
+    ChunkUploadSession beginAssembling(String uploadId, String taskId);
+
+    /**
+     * 写入单个分片，写入完成后原子可见
+     * 
+     * @param session 会话信息
+     * @param chunkNumber 分片编号（从0开始）
+     * @param inputStream 分片数据
+     * @return 写入的字节数
+     */
+    long writeChunk(ChunkUploadSession session, int chunkNumber, InputStream inputStream);
+
+    /**
+     * 获取已完成的分片编号（升序）
+     * 
+     * @param uploadId 上传会话ID
+     * @return 分片编号列表
+     */
+    List<Integer> listUploadedChunks(String uploadId);
+
+    /**
+     * 按顺序流式合并所有分片，写入的同时计算MD5
+     * 
+     * @param session 会话信息
+     * @param listener 合并进度监听，可为null
+     * @return 合并结果
+     */
+    AssembleResult assemble(ChunkUploadSession session, AssembleProgressListener listener);
+
+    /**
+     * 删除会话及其全部分片
+     * 
+     * @param uploadId 上传会话ID
+     */
+    void deleteSession(String uploadId);
+
+    /**
+     * 清理过期的分片上传会话
+     * 
+     * 没有会话文件的目录只在最后修改时间也已过期时清理，避免误删正在创建的会话
+     * 
+     * @param expireHours 过期时间（小时）
+     * @return 清理的会话数量
+     */
+    int cleanupExpiredSessions(int expireHours);
+
+    /**
+     * 合并进度监听
+     */
+    @FunctionalInterface
+    interface AssembleProgressListener {
+        void onChunkAssembled(int chunkNumber, long assembledBytes);
+    }
+
+    /**
+     * 合并结果
+     */
+    @Getter
+    @AllArgsConstructor
+    class AssembleResult {
+        /**
+         * 合并后的临时文件
+         */
+        private final Path assembledFile;
+
+        /**
+         * 合并后文件大小
+         */
+        private final long size;
+
+        /**
+         * 合并时同步计算的MD5
+         */
+        private final String md5Hash;
+    }
+}
@@ -145,6 +145,8 @@ public interface CircuitBreakerService {
         double getFailureRateThreshold();   // 失败率阈值
         int getMinimumRequests();           // 最小请求数
         Duration getSlidingWindowSize();    // 滑动窗口大小
+
+        default int getMaxConcurrentCalls() { return 0; }  // 舱壁并发上限，0表示不限制
     }
     
     /**
@@ -159,6 +161,7 @@ public interface CircuitBreakerService {
         Duration getAverageResponseTime();
         long getCircuitBreakerOpenCount();
         java.time.LocalDateTime getLastStateChange();
+        long getBulkheadRejectedRequests();     // 舱壁满时拒绝的请求数
     }
     
     /**
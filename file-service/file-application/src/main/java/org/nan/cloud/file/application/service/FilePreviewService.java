@@ -6,6 +6,7 @@ import org.nan.cloud.file.application.domain.FileInfo;
 import org.springframework.http.ResponseEntity;
 
 import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
 
 /**
  * 文件预览服务接口
@@ -16,6 +17,7 @@ import jakarta.servlet.http.HttpServletResponse;
  * - GIF：支持动画帧提取和静态预览
  * - 支持缩放、格式转换、质量调整
  * - 304缓存支持，跨域配置
+ * - 批量预览清单：一次解析多个文件的预生成缩略图URL和ETag
  * 
  * @author LedDeviceCloudPlatform Team
  * @since 1.0.0
@@ -47,6 +49,18 @@ public interface FilePreviewService {
      */
     void handleDownloadRequest(DownloadRequest request, HttpServletResponse response);
 
+    /**
+     * 处理批量预览清单请求
+     *
+     * 为素材网格等批量场景一次返回多个文件的预生成缩略图地址，
+     * 客户端直接加载带版本的URL，无预生成缩略图的文件再走单文件预览接口。
+     * 清单ETag与If-None-Match相同时返回304。
+     *
+     * @param request 清单请求参数
+     * @return 清单响应（含缓存头）
+     */
+    ResponseEntity<PreviewManifest> handleManifestRequest(ManifestRequest request);
+
     /**
      * 获取文件基础信息
      * 
@@ -123,6 +137,64 @@ public interface FilePreviewService {
         private String ifNoneMatch;
     }
 
+    /**
+     * 批量预览清单请求参数
+     */
+    @Data
+    @Builder
+    class ManifestRequest {
+        /** 文件ID列表 */
+        private List<String> fileIds;
+
+        /** 期望宽度（像素） */
+        private Integer width;
+
+        /** 期望高度（像素） */
+        private Integer height;
+
+        /** 视频时间点（秒） */
+        @Builder.Default
+        private Double timeOffset = 1.0;
+
+        /** If-None-Match头 */
+        private String ifNoneMatch;
+    }
+
+    /**
+     * 批量预览清单
+     */
+    @Data
+    @Builder
+    class PreviewManifest {
+        /** 有预生成缩略图的文件，按请求顺序 */
+        private List<ManifestItem> items;
+
+        /** 无预生成缩略图的文件ID，需走单文件预览接口 */
+        private List<String> missing;
+    }
+
+    /**
+     * 清单中单个文件的缩略图
+     */
+    @Data
+    @Builder
+    class ManifestItem {
+        /** 文件ID */
+        private String fileId;
+
+        /** 带版本的缩略图URL，内容不变，可长期缓存 */
+        private String url;
+
+        /** 缩略图强ETag */
+        private String etag;
+
+        /** 缩略图宽度 */
+        private Integer width;
+
+        /** 缩略图高度 */
+        private Integer height;
+    }
+
     /**
      * 流式播放请求参数
      */
@@ -135,6 +207,9 @@ public interface FilePreviewService {
         /** Range请求头 */
         private String rangeHeader;
         
+        /** 客户端标识（受信任代理转发的客户端地址或远端地址），用于传输准入公平排队 */
+        private String clientId;
+        
         /** 用户代理 */
         private String userAgent;
         
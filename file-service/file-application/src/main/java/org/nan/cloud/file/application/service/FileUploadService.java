@@ -8,6 +8,8 @@ import org.springframework.web.multipart.MultipartFile;
  * 
  * 提供文件上传相关的业务逻辑处理：
  * - 单文件异步上传
+ * - 分片上传与断点续传
+ * - 文件删除（释放存储内容引用）
  * - 文件验证和安全检查
  * - 上传进度跟踪
  * - 存储策略选择
@@ -66,4 +68,67 @@ public interface FileUploadService {
      * @return 存在的文件信息，不存在返回null
      */
     FileUploadResponse checkFileExists(String md5Hash, String organizationId);
-}
\ No newline at end of file
+
+    /**
+     * 初始化分片上传会话
+     * 
+     * @param request 分片上传初始化参数（已填充组织和用户信息）
+     * @return 分片上传会话信息
+     */
+    ChunkUploadSessionResponse initChunkUpload(ChunkUploadInitRequest request);
+
+    /**
+     * 上传单个分片
+     * 
+     * @param uploadId 上传会话ID
+     * @param chunkNumber 分片编号（从0开始）
+     * @param chunk 分片数据
+     * @param oid 当前组织ID，用于校验会话归属
+     * @return 分片上传会话信息
+     */
+    ChunkUploadSessionResponse uploadChunk(String uploadId, int chunkNumber, MultipartFile chunk, Long oid);
+
+    /**
+     * 查询分片上传会话状态（断点续传）
+     * 
+     * @param uploadId 上传会话ID
+     * @param oid 当前组织ID，用于校验会话归属
+     * @return 分片上传会话信息
+     */
+    ChunkUploadSessionResponse getChunkUploadStatus(String uploadId, Long oid);
+
+    /**
+     * 完成分片上传，异步合并分片并执行常规上传处理
+     * 
+     * @param uploadId 上传会话ID
+     * @param oid 当前组织ID，用于校验会话归属
+     * @return 任务初始化响应
+     */
+    TaskInitResponse completeChunkUpload(String uploadId, Long oid);
+
+    /**
+     * 取消分片上传
+     * 
+     * @param uploadId 上传会话ID
+     * @param oid 当前组织ID，用于校验会话归属
+     */
+    void abortChunkUpload(String uploadId, Long oid);
+
+    /**
+     * 删除文件：软删除文件记录和素材元数据，扣减组织存储用量，并释放对存储内容的引用
+     * 
+     * @param fileId 文件ID
+     * @param oid 当前组织ID，用于校验文件归属
+     * @return 文件存在且由本次调用删除返回true
+     */
+    boolean deleteFile(String fileId, Long oid);
+
+    /**
+     * 批量删除文件，单个文件失败不影响其他文件
+     * 
+     * @param request 批量删除请求
+     * @param oid 当前组织ID，用于校验文件归属
+     * @return 批量删除结果
+     */
+    BatchFileDeleteResponse batchDeleteFiles(BatchFileDeleteRequest request, Long oid);
+}
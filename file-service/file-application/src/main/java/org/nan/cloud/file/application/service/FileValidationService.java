@@ -6,6 +6,7 @@ import org.nan.cloud.file.api.dto.SupportedFileTypesResponse;
 import org.nan.cloud.file.api.enums.FileType;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -64,6 +65,17 @@ public interface FileValidationService {
      */
     boolean validateFileSecurity(MultipartFile file);
 
+    /**
+     * 验证已落盘文件的内容安全性（分片合并后的文件）
+     * 
+     * 与上传文件使用相同的文件头检查：可执行文件检测和扩展名一致性
+     * 
+     * @param file 本地文件
+     * @param filename 原始文件名
+     * @return 验证结果
+     */
+    FileValidationResult validateContent(Path file, String filename);
+
     /**
      * 检测文件的真实MIME类型
      * 
@@ -5,6 +5,10 @@ import lombok.Setter;
 import org.nan.cloud.file.api.dto.FileUploadRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
 /**
  * 文件存储服务接口
  * 
@@ -37,6 +41,75 @@ public interface StorageService {
      */
     String store(MultipartFile file, String fileId);
 
+    /**
+     * 存储服务端已落盘的本地文件（如分片合并结果），存储后源文件不再保留
+     * 
+     * @param sourceFile 本地源文件
+     * @param originalFilename 原始文件名
+     * @param fileId 文件ID
+     * @return 存储路径
+     */
+    String store(Path sourceFile, String originalFilename, String fileId);
+
+    /**
+     * 单遍暂存上传数据：流式写入存储侧暂存区的同时计算哈希
+     * 
+     * 内存占用只与缓冲区大小有关，与文件大小无关。暂存文件与存储目录位于同一文件系统，
+     * 后续通过 {@link #store(Path, String, String)} 以重命名方式入库，或通过 {@link #discardStaged(StagedFile)} 丢弃
+     * 
+     * @param inputStream 上传数据流
+     * @param fileId 文件ID
+     * @return 暂存文件信息
+     */
+    StagedFile stage(InputStream inputStream, String fileId);
+
+    /**
+     * 按内容存储暂存文件，并记录fileId对该内容的引用
+     * 
+     * 启用内容寻址时相同内容只保留一份，存储路径由哈希决定；未启用时等同于 {@link #store(Path, String, String)}
+     * 
+     * @param stagedFile 暂存文件信息（必须已计算MD5）
+     * @param originalFilename 原始文件名
+     * @param fileId 文件ID
+     * @return 存储路径
+     */
+    String storeContent(StagedFile stagedFile, String originalFilename, String fileId);
+
+    /**
+     * 为已存储的内容增加引用（秒传场景）
+     * 
+     * @param storagePath 存储路径
+     * @param fileId 新的引用方文件ID
+     * @return 是否为内容寻址存储且引用添加成功
+     */
+    boolean retainContent(String storagePath, String fileId);
+
+    /**
+     * 释放fileId对内容的引用，引用归零的内容由后台垃圾回收删除
+     * 
+     * @param storagePath 存储路径
+     * @param fileId 引用方文件ID
+     * @return 是否释放成功
+     */
+    boolean releaseContent(String storagePath, String fileId);
+
+    /**
+     * 判断存储路径是否为内容寻址存储（按引用计数回收）
+     * 
+     * 非内容寻址的路径没有引用记录，秒传记录会共享同一物理文件
+     * 
+     * @param storagePath 存储路径
+     * @return 是否为内容寻址存储
+     */
+    boolean isContentAddressed(String storagePath);
+
+    /**
+     * 丢弃暂存文件（如秒传命中时）
+     * 
+     * @param stagedFile 暂存文件信息
+     */
+    void discardStaged(StagedFile stagedFile);
+
 
     /**
      * 生成文件访问URL
@@ -120,6 +193,32 @@ public interface StorageService {
      */
     StorageStatistics getStorageStatistics();
 
+    /**
+     * 获取组织的存储用量（逻辑用量，共享内容按引用计算）
+     * 
+     * @param organizationId 组织ID
+     * @return 存储统计信息，availableSpace固定为0
+     */
+    StorageStatistics getStorageStatistics(String organizationId);
+
+    /**
+     * 获取组织按月份和文件类型划分的存储用量
+     * 
+     * @param organizationId 组织ID
+     * @return 用量分桶列表
+     */
+    List<UsageBucket> getUsageBuckets(String organizationId);
+
+    /**
+     * 记录组织存储用量变化，上传完成时传正值，删除时传负值
+     * 
+     * @param organizationId 组织ID
+     * @param fileType 文件类型
+     * @param fileDelta 文件数变化
+     * @param sizeDelta 字节数变化
+     */
+    void recordUsage(String organizationId, String fileType, long fileDelta, long sizeDelta);
+
     /**
      * 获取当前存储策略类型
      * 
@@ -161,6 +260,42 @@ public interface StorageService {
         }
     }
 
+    /**
+     * 暂存文件信息
+     */
+    @Getter
+    class StagedFile {
+        private final Path path;
+        private final long size;
+        private final String md5Hash;
+        private final String sha256Hash;
+
+        public StagedFile(Path path, long size, String md5Hash, String sha256Hash) {
+            this.path = path;
+            this.size = size;
+            this.md5Hash = md5Hash;
+            this.sha256Hash = sha256Hash;
+        }
+    }
+
+    /**
+     * 存储用量分桶
+     */
+    @Getter
+    class UsageBucket {
+        private final String dateBucket;
+        private final String fileType;
+        private final long fileCount;
+        private final long totalSize;
+
+        public UsageBucket(String dateBucket, String fileType, long fileCount, long totalSize) {
+            this.dateBucket = dateBucket;
+            this.fileType = fileType;
+            this.fileCount = fileCount;
+            this.totalSize = totalSize;
+        }
+    }
+
     /**
      * 存储统计信息
      */
@@ -34,9 +34,10 @@ public interface StreamingService {
      * @param fileId 文件ID
      * @param rangeStart 范围开始位置（字节，可选）
      * @param rangeEnd 范围结束位置（字节，可选）
+     * @param clientId 客户端标识，用于传输准入的公平排队（为空时按内部调用处理）
      * @return ResponseEntity包含文件资源和响应头
      */
-    ResponseEntity<Resource> streamDownload(String fileId, Long rangeStart, Long rangeEnd);
+    ResponseEntity<Resource> streamDownload(String fileId, Long rangeStart, Long rangeEnd, String clientId);
     
     /**
      * 异步流式下载
@@ -45,9 +46,10 @@ public interface StreamingService {
      * @param fileId 文件ID
      * @param rangeStart 范围开始位置
      * @param rangeEnd 范围结束位置
+     * @param clientId 客户端标识
      * @return CompletableFuture包装的ResponseEntity
      */
-    CompletableFuture<ResponseEntity<Resource>> streamDownloadAsync(String fileId, Long rangeStart, Long rangeEnd);
+    CompletableFuture<ResponseEntity<Resource>> streamDownloadAsync(String fileId, Long rangeStart, Long rangeEnd, String clientId);
     
     /**
      * 获取文件读取通道
@@ -76,11 +78,11 @@ public interface StreamingService {
     StreamingStatistics getStreamingStatistics();
     
     /**
-     * 预加载文件到内存（小文件）
-     * 将小文件预加载到内存缓存中，提升访问速度
+     * 预加载文件
+     * 将文件开头的数据预热到本地范围缓存中，提升首次播放和拖动的响应速度
      * 
      * @param fileId 文件ID
-     * @param maxSize 最大预加载大小（字节）
+     * @param maxSize 最大预加载大小（字节），超过该大小的文件不预加载
      * @return 是否成功预加载
      */
     boolean preloadFile(String fileId, long maxSize);
@@ -94,6 +96,15 @@ public interface StreamingService {
      */
     double getTransferProgress(String transferId);
     
+    /**
+     * 获取传输速率
+     * 按实际已传输字节和传输时长计算
+     * 
+     * @param transferId 传输ID（响应头X-Transfer-Id）
+     * @return 传输速率（字节/秒），传输不存在时返回0
+     */
+    double getTransferRate(String transferId);
+    
     /**
      * 取消传输
      * 取消正在进行的文件传输
@@ -40,6 +40,15 @@ public interface ThumbnailService {
      */
     ThumbnailResult generateVideoThumbnail(FileInfo fileInfo, double timeOffset);
 
+    /**
+     * 为视频文件生成多个时间点的缩略图，所有时间点共用一次解码会话
+     * 
+     * @param fileInfo 文件信息
+     * @param timeOffsets 截取时间偏移列表（秒）
+     * @return 生成的缩略图信息
+     */
+    ThumbnailResult generateVideoThumbnails(FileInfo fileInfo, List<Double> timeOffsets);
+
     /**
      * 异步生成缩略图
      * 
@@ -0,0 +1,27 @@
+package org.nan.cloud.file.application.service;
+
+import org.nan.cloud.file.api.dto.TranscodingQueueStatusResponse;
+
+/**
+ * 转码任务调度服务
+ *
+ * 转码作业由调度器按CPU预算限制并发执行，本接口提供取消和队列状态查询。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public interface TranscodingTaskService {
+
+    /**
+     * 取消转码任务：排队中的任务直接出队，执行中的任务终止ffmpeg进程
+     *
+     * @param taskId 任务ID
+     * @return 任务存在并已取消返回true
+     */
+    boolean cancelTask(String taskId);
+
+    /**
+     * 获取转码队列状态
+     */
+    TranscodingQueueStatusResponse getQueueStatus();
+}
@@ -2,7 +2,9 @@ package org.nan.cloud.file.application.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.domain.FileDescriptor;
 import org.nan.cloud.file.application.domain.FileInfo;
+import org.nan.cloud.file.application.domain.PreviewVariantIndex;
 import org.nan.cloud.file.application.service.FilePreviewService;
 import org.nan.cloud.common.basic.exception.BaseException;
 import org.nan.cloud.common.basic.exception.ExceptionEnum;
@@ -11,7 +13,6 @@ import org.nan.cloud.file.application.service.StreamingService;
 import org.nan.cloud.file.application.repository.FileInfoRepository;
 import org.nan.cloud.file.application.service.ThumbnailService;
 import org.nan.cloud.file.application.repository.MaterialMetadataRepository;
-import org.nan.cloud.common.basic.domain.MaterialMetadata;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,11 +21,18 @@ import org.springframework.util.StringUtils;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 文件预览服务实现类
@@ -35,6 +43,8 @@ import java.util.List;
  * 3. 缓存管理：本地缓存 + HTTP缓存策略
  * 4. 错误处理：优雅降级和用户友好提示
  * 5. 性能优化：并发处理和资源管理
+ * 6. 预生成缩略图：按文件缓存的缩略图索引（{@link PreviewVariantIndex}）解析重定向地址和ETag，
+ *    批量清单一次解析整页素材
  * 
  * @author LedDeviceCloudPlatform Team
  * @since 1.0.0
@@ -69,6 +79,11 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     private static final String EXPOSED_HEADERS = "Content-Length, Content-Range, Content-Type, ETag, Last-Modified";
     private static final int PREFLIGHT_MAX_AGE = 86400; // 预检请求缓存24小时
 
+    // 📋 批量清单配置
+    private static final int MAX_MANIFEST_FILES = 200; // 单次清单最多文件数
+    private static final String MANIFEST_CACHE_CONTROL = "private, no-cache"; // 每次用ETag协商，缩略图更新后立即可见
+    private static final String PREGENERATED_CACHE_CONTROL = "public, max-age=604800, s-maxage=2592000, immutable";
+
     @Override
     public void handlePreviewRequest(PreviewRequest request, HttpServletResponse response) {
         long startTime = System.currentTimeMillis();
@@ -78,7 +93,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
             PreviewRequest normalizedRequest = normalizePreviewRequest(request);
             
             // 🔍 获取文件信息
-            org.nan.cloud.file.application.domain.FileInfo fileInfo = getFileInfoInternal(normalizedRequest.getFileId());
+            FileDescriptor fileInfo = getFileInfoInternal(normalizedRequest.getFileId());
             if (fileInfo == null) {
                 throw new BaseException(ExceptionEnum.FILE_NOT_FOUND, 
                     "File not found: " + normalizedRequest.getFileId(), HttpStatus.NOT_FOUND);
@@ -125,7 +140,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     @Override
     public ResponseEntity<?> handleStreamRequest(StreamRequest request, HttpServletResponse response) {
         // 🔍 获取文件信息
-        FileInfo fileInfo = getFileInfoInternal(request.getFileId());
+        FileDescriptor fileInfo = getFileInfoInternal(request.getFileId());
         if (fileInfo == null) {
             throw new BaseException(ExceptionEnum.FILE_NOT_FOUND, 
                 "File not found: " + request.getFileId(), HttpStatus.NOT_FOUND);
@@ -155,7 +170,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
             }
             
             // 使用NIO流式服务处理
-            ResponseEntity<?> streamResponse = streamingService.streamDownload(request.getFileId(), rangeStart, rangeEnd);
+            ResponseEntity<?> streamResponse = streamingService.streamDownload(request.getFileId(), rangeStart, rangeEnd, request.getClientId());
             
             // 由于streamDownload返回ResponseEntity<Resource>，我们需要适配
             return streamResponse;
@@ -169,7 +184,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     @Override
     public void handleDownloadRequest(DownloadRequest request, HttpServletResponse response) {
         // 🔍 获取文件信息
-        org.nan.cloud.file.application.domain.FileInfo fileInfo = getFileInfoInternal(request.getFileId());
+        FileDescriptor fileInfo = getFileInfoInternal(request.getFileId());
         if (fileInfo == null) {
             throw new BaseException(ExceptionEnum.FILE_NOT_FOUND, 
                 "File not found: " + request.getFileId(), HttpStatus.NOT_FOUND);
@@ -181,13 +196,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
             setDownloadHeaders(fileInfo, request.getForceAttachment(), response);
             
             // 📁 输出文件内容
-            var fileInfoOpt = fileInfoRepository.findByFileId(request.getFileId());
-            if (fileInfoOpt.isEmpty()) {
-                throw new BaseException(ExceptionEnum.FILE_NOT_FOUND, 
-                    "文件信息未找到: " + request.getFileId(), HttpStatus.NOT_FOUND);
-            }
-            String storagePath = fileInfoOpt.get().getStoragePath();
-            try (InputStream inputStream = getInputStreamFromStoragePath(storagePath);
+            try (InputStream inputStream = getInputStreamFromStoragePath(fileInfo.getStoragePath());
                  OutputStream outputStream = response.getOutputStream()) {
                 
                 inputStream.transferTo(outputStream);
@@ -204,15 +213,85 @@ public class FilePreviewServiceImpl implements FilePreviewService {
         }
     }
 
+    @Override
+    public ResponseEntity<PreviewManifest> handleManifestRequest(ManifestRequest request) {
+        Set<String> fileIds = new LinkedHashSet<>();
+        if (request.getFileIds() != null) {
+            for (String fileId : request.getFileIds()) {
+                if (StringUtils.hasText(fileId)) {
+                    fileIds.add(fileId.trim());
+                }
+            }
+        }
+        if (fileIds.size() > MAX_MANIFEST_FILES) {
+            throw new BaseException(ExceptionEnum.PARAM_PARAMETER_EXCEPTION,
+                "Too many files in manifest: " + fileIds.size() + " > " + MAX_MANIFEST_FILES, HttpStatus.BAD_REQUEST);
+        }
+
+        Integer width = normalizeSize(request.getWidth());
+        Integer height = normalizeSize(request.getHeight());
+        Double timeOffset = normalizeTimeOffset(request.getTimeOffset());
+
+        // 🔍 一次取出全部文件的缩略图索引，未缓存的合并为一次查询
+        Map<String, PreviewVariantIndex> indexes = fileIds.isEmpty()
+                ? Map.of() : materialMetadataRepository.findPreviewIndexesByFileIds(fileIds);
+
+        List<ManifestItem> items = new ArrayList<>(fileIds.size());
+        List<String> missing = new ArrayList<>();
+        MessageDigest digest = sha256();
+        digest.update((width + "x" + height + "@" + timeOffset).getBytes(StandardCharsets.UTF_8));
+        for (String fileId : fileIds) {
+            PreviewVariantIndex index = indexes.get(fileId);
+            PreviewVariantIndex.Variant variant = index != null ? index.resolve(width, height, timeOffset) : null;
+            if (variant == null) {
+                missing.add(fileId);
+                digest.update((byte) 0);
+                digest.update(fileId.getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            items.add(ManifestItem.builder()
+                    .fileId(fileId)
+                    .url(variant.getUrl())
+                    .etag(index.getEtag())
+                    .width(variant.getWidth())
+                    .height(variant.getHeight())
+                    .build());
+            digest.update((byte) 1);
+            digest.update(fileId.getBytes(StandardCharsets.UTF_8));
+            digest.update(variant.getUrl().getBytes(StandardCharsets.UTF_8));
+        }
+        String etag = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+
+        // ⚡ 清单未变化时只返回304
+        if (etag.equals(StringUtils.hasText(request.getIfNoneMatch()) ? request.getIfNoneMatch().trim() : null)) {
+            log.debug("预览清单未变化 - 文件数: {}, ETag: {}", fileIds.size(), etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.ETAG, etag)
+                    .header(HttpHeaders.CACHE_CONTROL, MANIFEST_CACHE_CONTROL)
+                    .build();
+        }
+
+        log.debug("预览清单解析完成 - 文件数: {}, 命中: {}, 缺失: {}", fileIds.size(), items.size(), missing.size());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.CACHE_CONTROL, MANIFEST_CACHE_CONTROL)
+                .body(PreviewManifest.builder().items(items).missing(missing).build());
+    }
+
     @Override
     public FileInfo getFileInfo(String fileId) {
-        return getFileInfoInternal(fileId);
+        try {
+            return fileInfoRepository.findByFileId(fileId).orElse(null);
+        } catch (Exception e) {
+            log.error("获取文件信息失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage(), e);
+            return null;
+        }
     }
 
     @Override
     public boolean isPreviewSupported(String fileId) {
         try {
-            org.nan.cloud.file.application.domain.FileInfo fileInfo = getFileInfoInternal(fileId);
+            FileDescriptor fileInfo = getFileInfoInternal(fileId);
             if (fileInfo == null) {
                 return false;
             }
@@ -229,7 +308,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     @Override
     public String getFileMimeType(String fileId) {
         try {
-            org.nan.cloud.file.application.domain.FileInfo fileInfo = getFileInfoInternal(fileId);
+            FileDescriptor fileInfo = getFileInfoInternal(fileId);
             return fileInfo != null ? fileInfo.getMimeType() : null;
         } catch (Exception e) {
             log.warn("获取文件MIME类型失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
@@ -354,19 +433,20 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     }
 
     /**
-     * 获取文件信息（内部方法）
+     * 获取文件描述符（内部方法）
+     * 预览和流式请求只需要不可变的描述信息，走本地缓存，预热后不访问数据库
      */
-    private FileInfo getFileInfoInternal(String fileId) {
+    private FileDescriptor getFileInfoInternal(String fileId) {
         try {
-            // 🔍 通过FileInfoRepository获取文件信息
-            var fileInfoOpt = fileInfoRepository.findByFileId(fileId);
-            if (fileInfoOpt.isEmpty()) {
+            // 🔍 通过FileInfoRepository获取文件描述符
+            var descriptorOpt = fileInfoRepository.findDescriptorByFileId(fileId);
+            if (descriptorOpt.isEmpty()) {
                 log.warn("文件不存在或无法访问 - 文件ID: {}", fileId);
                 return null;
             }
             
-            // 返回文件信息
-            return fileInfoOpt.get();
+            // 返回文件描述符
+            return descriptorOpt.get();
             
         } catch (Exception e) {
             log.error("获取文件信息失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage(), e);
@@ -377,7 +457,16 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 处理缓存控制
      */
-    private boolean handleCacheControl(PreviewRequest request, FileInfo fileInfo, HttpServletResponse response) {
+    private boolean handleCacheControl(PreviewRequest request, FileDescriptor fileInfo, HttpServletResponse response) {
+        // 🔍 有预生成缩略图时ETag取自缩略图索引，客户端持有相同版本直接返回304
+        PreviewVariantIndex index = findPreviewIndex(request.getFileId());
+        if (index != null && !index.isEmpty() && StringUtils.hasText(request.getIfNoneMatch())
+                && index.getEtag().equals(request.getIfNoneMatch().trim())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            setPreGeneratedCacheHeaders(response, request.getFileId(), index.getEtag());
+            return true;
+        }
+
         // 🔍 检查客户端缓存有效性
         if (isClientCacheValid(request, request.getFileId(), true)) {
             sendNotModifiedResponse(response, request.getFileId(), true);
@@ -390,7 +479,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 处理图片预览
      */
-    private void handleImagePreview(PreviewRequest request, org.nan.cloud.file.application.domain.FileInfo fileInfo, HttpServletResponse response) throws IOException {
+    private void handleImagePreview(PreviewRequest request, FileDescriptor fileInfo, HttpServletResponse response) throws IOException {
         log.debug("处理图片预览 - 文件ID: {}, 尺寸: {}x{}", 
                  request.getFileId(), request.getWidth(), request.getHeight());
         
@@ -419,7 +508,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 处理视频预览（截帧）
      */
-    private void handleVideoPreview(PreviewRequest request, org.nan.cloud.file.application.domain.FileInfo fileInfo, HttpServletResponse response) throws IOException {
+    private void handleVideoPreview(PreviewRequest request, FileDescriptor fileInfo, HttpServletResponse response) throws IOException {
         log.debug("处理视频截帧 - 文件ID: {}, 时间: {}s", 
                  request.getFileId(), request.getTimeOffset());
         
@@ -449,7 +538,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 获取图片预览流
      */
-    private InputStream getImagePreviewStream(PreviewRequest request, org.nan.cloud.file.application.domain.FileInfo fileInfo) {
+    private InputStream getImagePreviewStream(PreviewRequest request, FileDescriptor fileInfo) {
         try {
             log.debug("生成图片预览 - 文件ID: {}, 目标尺寸: {}x{}", 
                      request.getFileId(), request.getWidth(), request.getHeight());
@@ -464,12 +553,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
                 return generateThumbnailStream(request, fileInfo);
             } else {
                 // 直接返回原始文件流
-                var fileInfoOpt = fileInfoRepository.findByFileId(request.getFileId());
-                if (fileInfoOpt.isEmpty()) {
-                    return null;
-                }
-                String storagePath = fileInfoOpt.get().getStoragePath();
-                return getInputStreamFromStoragePath(storagePath);
+                return getInputStreamFromStoragePath(fileInfo.getStoragePath());
             }
             
         } catch (Exception e) {
@@ -481,7 +565,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 获取视频帧流
      */
-    private InputStream getVideoFrameStream(PreviewRequest request, org.nan.cloud.file.application.domain.FileInfo fileInfo) {
+    private InputStream getVideoFrameStream(PreviewRequest request, FileDescriptor fileInfo) {
         try {
             log.debug("生成视频截帧 - 文件ID: {}, 时间: {}s", 
                      request.getFileId(), request.getTimeOffset());
@@ -573,11 +657,14 @@ public class FilePreviewServiceImpl implements FilePreviewService {
         return "\"" + fileId.hashCode() + "\"";
     }
 
+    /**
+     * HTTP日期格式（RFC 1123）需要时区偏移，按GMT输出
+     */
     private String getCurrentTimestamp() {
-        return LocalDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        return ZonedDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.RFC_1123_DATE_TIME);
     }
 
-    private void setDownloadHeaders(org.nan.cloud.file.application.domain.FileInfo fileInfo, Boolean forceAttachment, HttpServletResponse response) {
+    private void setDownloadHeaders(FileDescriptor fileInfo, Boolean forceAttachment, HttpServletResponse response) {
         response.setContentType(fileInfo.getMimeType());
         response.setContentLengthLong(fileInfo.getFileSize());
         
@@ -607,7 +694,7 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 生成缩略图流
      */
-    private InputStream generateThumbnailStream(PreviewRequest request, org.nan.cloud.file.application.domain.FileInfo fileInfo) {
+    private InputStream generateThumbnailStream(PreviewRequest request, FileDescriptor fileInfo) {
         try {
             // 构建缩略图请求
             ThumbnailService.ThumbnailRequest thumbnailRequest = ThumbnailService.ThumbnailRequest.builder()
@@ -633,205 +720,61 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     /**
      * 尝试302重定向到预生成缩略图
      */
-    private boolean tryRedirectToPregenerated(PreviewRequest request, FileInfo fileInfo, HttpServletResponse response) {
-        try {
-            // 🔍 获取MaterialMetadata
-            MaterialMetadata metadata = materialMetadataRepository.findByFileId(request.getFileId());
-            if (metadata == null || metadata.getThumbnails() == null || 
-                metadata.getThumbnails().getAllThumbnails() == null || 
-                metadata.getThumbnails().getAllThumbnails().isEmpty()) {
-                log.debug("无预生成缩略图元数据 - 文件ID: {}", request.getFileId());
-                return false;
-            }
-            
-            // 🎯 查找最佳匹配的缩略图
-            MaterialMetadata.ThumbnailInfo bestMatch;
-            String mimeType = fileInfo.getMimeType().toLowerCase();
-            
-            if (mimeType.startsWith("video/") && request.getTimeOffset() != null) {
-                // 视频：根据时间点匹配截帧
-                bestMatch = findBestVideoFrameMatch(metadata.getThumbnails().getAllThumbnails(), request);
-            } else {
-                // 图片/视频默认帧：根据尺寸匹配
-                bestMatch = findBestThumbnailMatch(metadata.getThumbnails().getAllThumbnails(), request);
-            }
-            
-            if (bestMatch == null || !StringUtils.hasText(bestMatch.getStorageUrl())) {
-                log.debug("无合适的预生成缩略图匹配 - 文件ID: {}", request.getFileId());
-                return false;
-            }
-            
-            // 🚀 执行302重定向
-            response.setStatus(HttpServletResponse.SC_FOUND);
-            
-            // URL编码防止中文字符问题
-            String encodedLocation;
-            try {
-                encodedLocation = URLEncoder.encode(bestMatch.getStorageUrl(), StandardCharsets.UTF_8)
-                    .replace("%2F", "/")  // 保持路径分隔符
-                    .replace("%3A", ":")  // 保持协议分隔符
-                    .replace("+", "%20"); // 空格编码为%20而不是+
-            } catch (Exception e) {
-                log.warn("URL编码失败，使用原始URL - 错误: {}", e.getMessage());
-                encodedLocation = bestMatch.getStorageUrl();
-            }
-            
-            response.setHeader("Location", encodedLocation);
-            
-            // 设置预生成资源的长缓存策略
-            setPreGeneratedCacheHeaders(response, request.getFileId());
-            
-            log.info("302重定向成功 - 文件ID: {}, 重定向至: {}, 尺寸: {}x{}", 
-                    request.getFileId(), bestMatch.getStorageUrl(), 
-                    bestMatch.getWidth(), bestMatch.getHeight());
-            
-            return true;
-            
-        } catch (Exception e) {
-            log.warn("302重定向处理失败，降级到动态生成 - 文件ID: {}, 错误: {}", 
-                    request.getFileId(), e.getMessage());
+    private boolean tryRedirectToPregenerated(PreviewRequest request, FileDescriptor fileInfo, HttpServletResponse response) {
+        PreviewVariantIndex index = findPreviewIndex(request.getFileId());
+        if (index == null || index.isEmpty()) {
+            log.debug("无预生成缩略图元数据 - 文件ID: {}", request.getFileId());
             return false;
         }
-    }
-    
-    /**
-     * 查找最佳匹配的缩略图（基于尺寸和适配模式）
-     */
-    private MaterialMetadata.ThumbnailInfo findBestThumbnailMatch(
-            List<MaterialMetadata.ThumbnailInfo> thumbnails, PreviewRequest request) {
-        
-        if (thumbnails == null || thumbnails.isEmpty()) {
-            return null;
-        }
-        
-        return thumbnails.stream()
-                .filter(t -> StringUtils.hasText(t.getStorageUrl()))
-                .min((t1, t2) -> {
-                    double score1 = calculateThumbnailMatchScore(t1, request);
-                    double score2 = calculateThumbnailMatchScore(t2, request);
-                    return Double.compare(score1, score2);
-                })
-                .orElse(getPrimaryThumbnail(thumbnails));
-    }
-    
-    /**
-     * 计算缩略图匹配评分（越小越好）
-     */
-    private double calculateThumbnailMatchScore(MaterialMetadata.ThumbnailInfo thumbnail, PreviewRequest request) {
-        // 如果请求没有指定尺寸，优先返回主缩略图（300x300）
-        if (request.getWidth() == null && request.getHeight() == null) {
-            boolean isPrimary = Boolean.TRUE.equals(thumbnail.getIsPrimary()) || 
-                              (thumbnail.getWidth() != null && thumbnail.getWidth() == 300 && 
-                               thumbnail.getHeight() != null && thumbnail.getHeight() == 300);
-            return isPrimary ? 0.0 : 100.0;
-        }
-        
-        int reqWidth = request.getWidth() != null ? request.getWidth() : 300;
-        int reqHeight = request.getHeight() != null ? request.getHeight() : 300;
-        
-        int thumbWidth = thumbnail.getWidth() != null ? thumbnail.getWidth() : 300;
-        int thumbHeight = thumbnail.getHeight() != null ? thumbnail.getHeight() : 300;
-        
-        // 尺寸差异评分
-        double sizeDiff = Math.abs(thumbWidth - reqWidth) + Math.abs(thumbHeight - reqHeight);
-        
-        // 适配模式权重（cover模式优先）
-        double fitBonus = "cover".equalsIgnoreCase(request.getFit()) ? 0.0 : 10.0;
-        
-        // 主缩略图优先级
-        double primaryBonus = Boolean.TRUE.equals(thumbnail.getIsPrimary()) ? 0.0 : 5.0;
-        
-        return sizeDiff + fitBonus + primaryBonus;
-    }
-    
-    /**
-     * 查找最佳匹配的视频帧缩略图（基于时间点）
-     */
-    private MaterialMetadata.ThumbnailInfo findBestVideoFrameMatch(
-            List<MaterialMetadata.ThumbnailInfo> thumbnails, PreviewRequest request) {
-        
-        if (thumbnails == null || thumbnails.isEmpty() || request.getTimeOffset() == null) {
-            return findBestThumbnailMatch(thumbnails, request);
-        }
-        
-        double requestTime = request.getTimeOffset();
-        
-        // 查找带时间标识的视频帧缩略图
-        List<MaterialMetadata.ThumbnailInfo> videoFrames = thumbnails.stream()
-                .filter(t -> StringUtils.hasText(t.getStoragePath()) && 
-                           t.getStoragePath().contains("_t") && 
-                           t.getStoragePath().contains("s."))
-                .toList();
-        
-        if (videoFrames.isEmpty()) {
-            log.debug("无时间点标识的视频帧，使用默认缩略图匹配");
-            return findBestThumbnailMatch(thumbnails, request);
+
+        // 🎯 视频按时间点匹配截帧，图片/视频默认帧按尺寸匹配
+        PreviewVariantIndex.Variant bestMatch = index.resolve(request.getWidth(), request.getHeight(), request.getTimeOffset());
+        if (bestMatch == null) {
+            log.debug("无合适的预生成缩略图匹配 - 文件ID: {}", request.getFileId());
+            return false;
         }
-        
-        // 查找时间点最接近的帧
-        return videoFrames.stream()
-                .min((f1, f2) -> {
-                    double time1 = extractTimeFromPath(f1.getStoragePath());
-                    double time2 = extractTimeFromPath(f2.getStoragePath());
-                    double diff1 = Math.abs(time1 - requestTime);
-                    double diff2 = Math.abs(time2 - requestTime);
-                    return Double.compare(diff1, diff2);
-                })
-                .orElse(findBestThumbnailMatch(thumbnails, request));
+
+        // 🚀 执行302重定向，URL已编码并带版本参数
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader("Location", bestMatch.getUrl());
+
+        // 设置预生成资源的长缓存策略
+        setPreGeneratedCacheHeaders(response, request.getFileId(), index.getEtag());
+
+        log.debug("302重定向成功 - 文件ID: {}, 重定向至: {}, 尺寸: {}x{}",
+                request.getFileId(), bestMatch.getUrl(), bestMatch.getWidth(), bestMatch.getHeight());
+        return true;
     }
-    
+
     /**
-     * 从文件路径中提取时间信息
-     * 例如：xxx_t5s.jpg → 5.0
+     * 获取预生成缩略图索引，失败时降级为无预生成缩略图
      */
-    private double extractTimeFromPath(String path) {
-        if (!StringUtils.hasText(path)) {
-            return 0.0;
-        }
-        
+    private PreviewVariantIndex findPreviewIndex(String fileId) {
         try {
-            // 查找_t和s之间的数字
-            int tIndex = path.indexOf("_t");
-            int sIndex = path.indexOf("s.", tIndex);
-            
-            if (tIndex != -1 && sIndex != -1 && tIndex < sIndex) {
-                String timeStr = path.substring(tIndex + 2, sIndex);
-                return Double.parseDouble(timeStr);
-            }
+            return materialMetadataRepository.findPreviewIndexByFileId(fileId).orElse(null);
         } catch (Exception e) {
-            log.debug("解析时间信息失败 - 路径: {}, 错误: {}", path, e.getMessage());
+            log.warn("获取预生成缩略图索引失败，降级到动态生成 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+            return null;
         }
-        
-        return 0.0;
     }
-    
-    /**
-     * 获取主缩略图
-     */
-    private MaterialMetadata.ThumbnailInfo getPrimaryThumbnail(List<MaterialMetadata.ThumbnailInfo> thumbnails) {
-        if (thumbnails == null || thumbnails.isEmpty()) {
-            return null;
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
         }
-        
-        // 优先选择标记为主缩略图的
-        return thumbnails.stream()
-                .filter(t -> Boolean.TRUE.equals(t.getIsPrimary()) && StringUtils.hasText(t.getStorageUrl()))
-                .findFirst()
-                .orElse(thumbnails.stream()
-                        .filter(t -> StringUtils.hasText(t.getStorageUrl()))
-                        .findFirst()
-                        .orElse(null));
     }
     
     /**
      * 设置预生成资源的缓存头
      */
-    private void setPreGeneratedCacheHeaders(HttpServletResponse response, String fileId) {
+    private void setPreGeneratedCacheHeaders(HttpServletResponse response, String fileId, String etag) {
         // 🚀 预生成资源长缓存策略 - 7天
-        response.setHeader("Cache-Control", "public, max-age=604800, s-maxage=2592000, immutable");
+        response.setHeader("Cache-Control", PREGENERATED_CACHE_CONTROL);
         
         // ✅ ETag和Last-Modified
-        response.setHeader("ETag", generateStrongETag(fileId, true));
+        response.setHeader("ETag", etag);
         response.setHeader("Last-Modified", getCurrentTimestamp());
         
         // 🌐 CORS配置
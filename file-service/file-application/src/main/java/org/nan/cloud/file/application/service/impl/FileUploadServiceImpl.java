@@ -1,22 +1,31 @@
 package org.nan.cloud.file.application.service.impl;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.common.basic.domain.MaterialMetadata;
 import org.nan.cloud.file.api.dto.*;
+import org.nan.cloud.file.api.enums.FileType;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.domain.ChunkUploadSession;
 import org.nan.cloud.file.application.service.*;
 import org.nan.cloud.file.application.domain.FileInfo;
 import org.nan.cloud.file.application.domain.TaskContext;
 import org.nan.cloud.file.application.repository.FileInfoRepository;
 import org.nan.cloud.file.application.repository.MaterialMetadataRepository;
 import org.nan.cloud.file.application.service.FileUploadEventService;
+import org.nan.cloud.file.application.utils.StreamingHashCalculator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.security.MessageDigest;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * 文件上传服务实现
@@ -34,7 +43,6 @@ import java.util.UUID;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class FileUploadServiceImpl implements FileUploadService {
 
     private final FileInfoRepository fileInfoRepository;
@@ -62,6 +70,41 @@ public class FileUploadServiceImpl implements FileUploadService {
     
     // 任务上下文服务
     private final TaskContextService taskContextService;
+    
+    // 分片存储服务
+    private final ChunkStorageService chunkStorageService;
+    
+    // 文件存储配置
+    private final FileStorageProperties storageProperties;
+    
+    // 上传任务线程池，分片合并显式提交到该线程池
+    private final Executor fileUploadTaskExecutor;
+
+    public FileUploadServiceImpl(FileInfoRepository fileInfoRepository,
+                                 StorageService storageService,
+                                 FileValidationService fileValidationService,
+                                 ProgressTrackingService progressTrackingService,
+                                 ThumbnailService thumbnailService,
+                                 MetadataAnalysisService metadataAnalysisService,
+                                 MaterialMetadataRepository materialMetadataRepository,
+                                 FileUploadEventService eventPublisher,
+                                 TaskContextService taskContextService,
+                                 ChunkStorageService chunkStorageService,
+                                 FileStorageProperties storageProperties,
+                                 @Qualifier("fileUploadTaskExecutor") Executor fileUploadTaskExecutor) {
+        this.fileInfoRepository = fileInfoRepository;
+        this.storageService = storageService;
+        this.fileValidationService = fileValidationService;
+        this.progressTrackingService = progressTrackingService;
+        this.thumbnailService = thumbnailService;
+        this.metadataAnalysisService = metadataAnalysisService;
+        this.materialMetadataRepository = materialMetadataRepository;
+        this.eventPublisher = eventPublisher;
+        this.taskContextService = taskContextService;
+        this.chunkStorageService = chunkStorageService;
+        this.storageProperties = storageProperties;
+        this.fileUploadTaskExecutor = fileUploadTaskExecutor;
+    }
 
 
     @Override
@@ -140,15 +183,8 @@ public class FileUploadServiceImpl implements FileUploadService {
     @Override
     public String calculateMD5(MultipartFile file) {
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hashBytes = md.digest(file.getBytes());
-            
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-            
+            // 流式计算，避免getBytes()把整个文件加载到堆内存
+            return StreamingHashCalculator.calculateMD5Hex(file.getInputStream());
         } catch (Exception e) {
             log.error("计算文件MD5失败", e);
             throw new RuntimeException("计算文件MD5失败", e);
@@ -162,6 +198,238 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .orElse(null);
     }
 
+    // ==================== 分片上传 ====================
+
+    /**
+     * 单个会话允许的最大分片数，超过时自动放大分片大小
+     */
+    private static final int MAX_CHUNK_COUNT = 10000;
+
+    @Override
+    public ChunkUploadSessionResponse initChunkUpload(ChunkUploadInitRequest request) {
+        String filename = request.getFilename();
+        long fileSize = request.getFileSize();
+        log.info("初始化分片上传 - 文件名: {}, 大小: {}, 组织: {}", filename, fileSize, request.getOid());
+
+        // 1. 文件名和大小验证（文件头安全检查在分片合并后、入库前执行）
+        if (!fileValidationService.validateFilename(filename) || fileValidationService.isBlacklistedExtension(filename)) {
+            throw new IllegalArgumentException("文件验证失败: 不支持的文件名 " + filename);
+        }
+        long maxSize = fileValidationService.getMaxFileSizeForType(FileType.fromExtension(filename));
+        if (maxSize > 0 && fileSize > maxSize) {
+            throw new IllegalArgumentException(
+                    String.format("文件大小超出限制: %d bytes (最大: %d bytes)", fileSize, maxSize));
+        }
+
+        // 2. 确定分片大小
+        long chunkSize = resolveChunkSize(request.getChunkSize(), fileSize);
+        int totalChunks = (int) ((fileSize + chunkSize - 1) / chunkSize);
+
+        // 3. 创建并持久化会话
+        ChunkUploadSession session = ChunkUploadSession.builder()
+                .uploadId(generateUploadId())
+                .fileId(generateFileId())
+                .originalFilename(filename)
+                .contentType(resolveContentType(request.getContentType(), filename))
+                .fileSize(fileSize)
+                .chunkSize(chunkSize)
+                .totalChunks(totalChunks)
+                .oid(request.getOid())
+                .uid(request.getUid())
+                .ugid(request.getUgid())
+                .folderId(request.getFolderId())
+                .materialName(request.getMaterialName())
+                .description(request.getDescription())
+                .status(ChunkUploadSession.SessionStatus.UPLOADING)
+                .createTime(LocalDateTime.now())
+                .build();
+        chunkStorageService.createSession(session);
+
+        // 4. 初始化分片进度
+        progressTrackingService.initializeChunkProgress(session.getUploadId(), totalChunks);
+
+        log.debug("分片上传会话已创建 - 上传ID: {}, 分片大小: {}, 总分片: {}", 
+                session.getUploadId(), chunkSize, totalChunks);
+        return buildChunkSessionResponse(session, List.of());
+    }
+
+    @Override
+    public ChunkUploadSessionResponse uploadChunk(String uploadId, int chunkNumber, MultipartFile chunk, Long oid) {
+        ChunkUploadSession session = requireChunkSession(uploadId, oid);
+        if (!session.isAcceptingChunks()) {
+            throw new IllegalStateException("上传会话不再接收分片，当前状态: " + session.getStatus());
+        }
+        if (chunkNumber < 0 || chunkNumber >= session.getTotalChunks()) {
+            throw new IllegalArgumentException("分片编号超出范围: " + chunkNumber);
+        }
+
+        ensureChunkProgress(session);
+
+        try {
+            chunkStorageService.writeChunk(session, chunkNumber, chunk.getInputStream());
+        } catch (IOException e) {
+            throw new RuntimeException("读取分片数据失败: " + e.getMessage(), e);
+        }
+        progressTrackingService.updateChunkProgress(uploadId, chunkNumber);
+
+        return buildChunkSessionResponse(session, chunkStorageService.listUploadedChunks(uploadId));
+    }
+
+    @Override
+    public ChunkUploadSessionResponse getChunkUploadStatus(String uploadId, Long oid) {
+        ChunkUploadSession session = requireChunkSession(uploadId, oid);
+        ensureChunkProgress(session);
+        return buildChunkSessionResponse(session, chunkStorageService.listUploadedChunks(uploadId));
+    }
+
+    @Override
+    public TaskInitResponse completeChunkUpload(String uploadId, Long oid) {
+        ChunkUploadSession session = requireChunkSession(uploadId, oid);
+
+        // 重复调用complete时直接返回已创建的任务
+        if (session.getTaskId() != null && session.getStatus() != ChunkUploadSession.SessionStatus.UPLOADING) {
+            return buildChunkTaskInitResponse(session, "任务已创建，正在处理中...");
+        }
+
+        // 1. 检查分片完整性
+        List<Integer> uploadedChunks = chunkStorageService.listUploadedChunks(uploadId);
+        if (uploadedChunks.size() < session.getTotalChunks()) {
+            throw new IllegalStateException(String.format("分片未全部上传: %d/%d", 
+                    uploadedChunks.size(), session.getTotalChunks()));
+        }
+
+        // 2. 创建任务并原子切换会话状态，并发complete只有一个请求创建任务
+        String taskId = generateTaskId();
+        ChunkUploadSession claimed = chunkStorageService.beginAssembling(uploadId, taskId);
+        if (claimed == null) {
+            ChunkUploadSession current = requireChunkSession(uploadId, oid);
+            if (current.getTaskId() != null) {
+                return buildChunkTaskInitResponse(current, "任务已创建，正在处理中...");
+            }
+            throw new IllegalStateException("上传会话状态已变更，当前状态: " + current.getStatus());
+        }
+        session = claimed;
+
+        FileUploadRequest request = toUploadRequest(session);
+        taskContextService.createTaskContext(taskId, session.getFileId(), session.getUid(), session.getOid(),
+                session.getOriginalFilename(), session.getFileSize());
+        progressTrackingService.initializeProgress(taskId, session.getFileSize());
+
+        // 3. 发布任务创建事件，与单文件上传保持一致
+        eventPublisher.publishUploadTaskCreated(taskId, session.getFileId(), request, session.getOriginalFilename(),
+                session.getFileSize(), session.getOid().toString());
+
+        // 4. 异步合并分片（显式提交到上传线程池，自调用不会经过@Async代理）
+        ChunkUploadSession assembling = session;
+        fileUploadTaskExecutor.execute(() -> performChunkAssemble(taskId, assembling, request));
+
+        log.info("分片上传完成，开始合并 - 上传ID: {}, 任务ID: {}", uploadId, taskId);
+        return buildChunkTaskInitResponse(session, "任务已创建，正在合并分片...");
+    }
+
+    @Override
+    public void abortChunkUpload(String uploadId, Long oid) {
+        ChunkUploadSession session = requireChunkSession(uploadId, oid);
+        if (session.getStatus() == ChunkUploadSession.SessionStatus.ASSEMBLING) {
+            throw new IllegalStateException("分片正在合并，无法取消");
+        }
+        chunkStorageService.deleteSession(uploadId);
+        progressTrackingService.cancelProgress(uploadId);
+        log.info("分片上传已取消 - 上传ID: {}", uploadId);
+    }
+
+    // ==================== 文件删除 ====================
+
+    @Override
+    public boolean deleteFile(String fileId, Long oid) {
+        FileInfo fileInfo = fileInfoRepository.findByFileId(fileId).orElse(null);
+        if (fileInfo == null) {
+            log.debug("文件不存在或已删除 - 文件ID: {}", fileId);
+            return false;
+        }
+
+        MaterialMetadata metadata = materialMetadataRepository.findByFileId(fileId);
+        if (metadata != null && metadata.getOrganizationId() != null && oid != null
+                && !metadata.getOrganizationId().equals(oid.toString())) {
+            throw new IllegalArgumentException("无权删除该文件: " + fileId);
+        }
+
+        // 1. 先软删除本fileId的文件记录（秒传的每个fileId都有独立记录）；
+        //    条件更新保证并发删除只有一个请求成功，后续步骤只执行一次
+        if (!fileInfoRepository.deleteByFileId(fileId)) {
+            log.debug("文件已被其他请求删除 - 文件ID: {}", fileId);
+            return false;
+        }
+        // 文件记录删除后素材元数据随之删除（同时失效预览索引）
+        materialMetadataRepository.deleteByFileId(fileId);
+
+        // 2. 扣减组织用量（与上传时的+1对称，每个fileId各计一次）
+        String organizationId = oid != null ? oid.toString()
+                : metadata != null ? metadata.getOrganizationId() : null;
+        if (organizationId != null) {
+            recordUsage(fileInfo, organizationId, -1);
+        }
+
+        // 3. 释放存储内容；在此之前崩溃留下的孤儿引用由存储层的引用核对回收
+        releaseContent(fileInfo);
+
+        log.info("文件删除完成 - 文件ID: {}, 存储路径: {}", fileId, fileInfo.getStoragePath());
+        return true;
+    }
+
+    @Override
+    public BatchFileDeleteResponse batchDeleteFiles(BatchFileDeleteRequest request, Long oid) {
+        List<String> fileIds = request.getFileIds() != null ? request.getFileIds() : List.of();
+        log.info("批量删除文件 - 数量: {}, 原因: {}", fileIds.size(), request.getReason());
+
+        List<String> successFiles = new ArrayList<>();
+        List<String> failedFiles = new ArrayList<>();
+        for (String fileId : fileIds) {
+            try {
+                if (deleteFile(fileId, oid)) {
+                    successFiles.add(fileId);
+                } else {
+                    failedFiles.add(fileId);
+                }
+            } catch (Exception e) {
+                log.warn("删除文件失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+                failedFiles.add(fileId);
+            }
+        }
+
+        return BatchFileDeleteResponse.builder()
+                .successFiles(successFiles)
+                .failedFiles(failedFiles)
+                .successCount(successFiles.size())
+                .failedCount(failedFiles.size())
+                .totalFiles(fileIds.size())
+                .build();
+    }
+
+    /**
+     * 释放已删除文件对存储内容的引用
+     * 
+     * 内容寻址存储按fileId释放引用；非内容寻址的旧文件没有引用记录，
+     * 只在没有其他有效文件记录指向同一存储路径时删除物理文件
+     */
+    private void releaseContent(FileInfo fileInfo) {
+        String storagePath = fileInfo.getStoragePath();
+        if (storagePath == null) {
+            return;
+        }
+        if (!storageService.isContentAddressed(storagePath)
+                && !fileInfoRepository.findFileIdsByStoragePath(storagePath).isEmpty()) {
+            log.debug("存储内容仍被其他文件共享 - 文件ID: {}, 路径: {}", fileInfo.getFileId(), storagePath);
+            return;
+        }
+        try {
+            storageService.releaseContent(storagePath, fileInfo.getFileId());
+        } catch (Exception e) {
+            log.warn("释放存储内容失败 - 文件ID: {}, 路径: {}, 错误: {}",
+                    fileInfo.getFileId(), storagePath, e.getMessage());
+        }
+    }
+
     /**
      * 根据MD5检查文件是否已存在（不限制组织）
      */
@@ -173,10 +441,10 @@ public class FileUploadServiceImpl implements FileUploadService {
      * 基于已存在文件创建新的文件信息记录
      */
     private FileInfo createFileInfoFromExisting(FileInfo existingFileInfo, String newFileId, 
-                                               MultipartFile file, FileUploadRequest request) {
+                                               String originalFilename) {
         return FileInfo.builder()
                 .fileId(newFileId)
-                .originalFilename(file.getOriginalFilename())
+                .originalFilename(originalFilename)
                 .fileSize(existingFileInfo.getFileSize())
                 .mimeType(existingFileInfo.getMimeType())
                 .md5Hash(existingFileInfo.getMd5Hash())
@@ -204,15 +472,97 @@ public class FileUploadServiceImpl implements FileUploadService {
         return "upload_" + UUID.randomUUID().toString().replace("-", "");
     }
 
-    private FileInfo createFileInfo(MultipartFile file, FileUploadRequest request, 
+    private ChunkUploadSession requireChunkSession(String uploadId, Long oid) {
+        ChunkUploadSession session = chunkStorageService.loadSession(uploadId);
+        if (session == null || (oid != null && !oid.equals(session.getOid()))) {
+            throw new IllegalArgumentException("上传会话不存在: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * 服务重启后内存中的分片进度丢失，根据磁盘上已完成的分片重建
+     */
+    private void ensureChunkProgress(ChunkUploadSession session) {
+        String uploadId = session.getUploadId();
+        if (progressTrackingService.getChunkProgress(uploadId) != null) {
+            return;
+        }
+        progressTrackingService.initializeChunkProgress(uploadId, session.getTotalChunks());
+        for (Integer chunkNumber : chunkStorageService.listUploadedChunks(uploadId)) {
+            progressTrackingService.updateChunkProgress(uploadId, chunkNumber);
+        }
+    }
+
+    private long resolveChunkSize(Long requestedChunkSize, long fileSize) {
+        FileStorageProperties.Storage.Chunk chunkConfig = storageProperties.getStorage().getLocal().getChunk();
+        long chunkSize = requestedChunkSize != null ? requestedChunkSize : chunkConfig.getDefaultChunkSize();
+        chunkSize = Math.max(chunkConfig.getMinChunkSize(), Math.min(chunkConfig.getMaxChunkSize(), chunkSize));
+
+        // 分片数过多时放大分片，避免单个会话目录下文件过多
+        long minChunkSizeForCount = (fileSize + MAX_CHUNK_COUNT - 1) / MAX_CHUNK_COUNT;
+        return Math.max(chunkSize, minChunkSizeForCount);
+    }
+
+    private String resolveContentType(String contentType, String filename) {
+        if (contentType != null && !contentType.isBlank()) {
+            return contentType;
+        }
+        return MediaTypeFactory.getMediaType(filename)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    private FileUploadRequest toUploadRequest(ChunkUploadSession session) {
+        FileUploadRequest request = new FileUploadRequest();
+        request.setFolderId(session.getFolderId());
+        request.setUgid(session.getUgid());
+        request.setMaterialName(session.getMaterialName());
+        request.setDescription(session.getDescription());
+        request.setOid(session.getOid());
+        request.setUid(session.getUid());
+        return request;
+    }
+
+    private ChunkUploadSessionResponse buildChunkSessionResponse(ChunkUploadSession session, List<Integer> uploadedChunks) {
+        return ChunkUploadSessionResponse.builder()
+                .uploadId(session.getUploadId())
+                .filename(session.getOriginalFilename())
+                .fileSize(session.getFileSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.getTotalChunks())
+                .uploadedChunks(uploadedChunks)
+                .status(session.getStatus().name())
+                .taskId(session.getTaskId())
+                .createTime(session.getCreateTime())
+                .build();
+    }
+
+    private TaskInitResponse buildChunkTaskInitResponse(ChunkUploadSession session, String message) {
+        return TaskInitResponse.builder()
+                .taskId(session.getTaskId())
+                .taskType("MATERIAL_UPLOAD")
+                .status("PENDING")
+                .filename(session.getOriginalFilename())
+                .fileSize(session.getFileSize())
+                .organizationId(session.getOid().toString())
+                .userId(session.getUid().toString())
+                .estimatedDuration("约30秒-2分钟")
+                .createTime(LocalDateTime.now())
+                .progressSubscriptionUrl("/topic/task/" + session.getTaskId()) // 见StompTopic.java
+                .message(message)
+                .build();
+    }
+
+    private FileInfo createFileInfo(String originalFilename, long fileSize, String mimeType,
                                    String fileId, String md5Hash, String storagePath) {
         return FileInfo.builder()
                 .fileId(fileId)
-                .originalFilename(file.getOriginalFilename())
-                .fileSize(file.getSize())
-                .mimeType(file.getContentType())
+                .originalFilename(originalFilename)
+                .fileSize(fileSize)
+                .mimeType(mimeType)
                 .md5Hash(md5Hash)
-                .fileExtension(getFileExtension(file.getOriginalFilename()))
+                .fileExtension(getFileExtension(originalFilename))
                 .storagePath(storagePath)
                 .storageType("LOCAL") // 开发环境使用本地存储
                 .uploadTime(LocalDateTime.now())
@@ -402,13 +752,11 @@ public class FileUploadServiceImpl implements FileUploadService {
         return null;
     }
 
-    private boolean isImageFile(MultipartFile file) {
-        String contentType = file.getContentType();
+    private boolean isImageFile(String contentType) {
         return contentType != null && contentType.startsWith("image/");
     }
 
-    private boolean isVideoFile(MultipartFile file) {
-        String contentType = file.getContentType();
+    private boolean isVideoFile(String contentType) {
         return contentType != null && contentType.startsWith("video/");
     }
 
@@ -470,97 +818,223 @@ public class FileUploadServiceImpl implements FileUploadService {
             eventPublisher.publishUploadStarted(taskId, request, file.getOriginalFilename(), 
                     file.getSize(), request.getOid().toString());
             
-            // 3. 计算文件MD5
-            String md5Hash = calculateMD5(file);
-            updateProgressByPercent(taskId, 10, "计算文件哈希完成...");
+            // 3. 单遍暂存：流式写入暂存区的同时计算MD5，堆内存占用与文件大小无关
+            updateProgressByPercent(taskId, 10, "开始接收文件...");
+            StorageService.StagedFile stagedFile = storageService.stage(file.getInputStream(), fileId);
+            String md5Hash = stagedFile.getMd5Hash();
+            updateProgressByPercent(taskId, 50, "计算文件哈希完成...");
             
-            // 4. 检查文件是否已存在（异步场景下的秒传处理）
+            // 4. 检查文件是否已存在（异步场景下的秒传处理），命中时丢弃暂存文件
             FileInfo existingFileInfo = checkFileExistsByMd5(md5Hash);
             if (existingFileInfo != null) {
                 log.info("异步上传发现重复文件，执行秒传逻辑 - MD5: {}", md5Hash);
-                handleAsyncInstantUpload(taskId, fileId, existingFileInfo, file, request);
+                storageService.discardStaged(stagedFile);
+                handleAsyncInstantUpload(taskId, fileId, existingFileInfo, file.getOriginalFilename(), request);
                 return;
             }
             
-            // 5. 存储文件到物理存储（使用正确的方法签名）
-            updateProgressByPercent(taskId, 20, "开始文件存储...");
-            String storagePath = storageService.store(file, request, fileId);
+            // 5. 暂存文件按内容入库（同一文件系统内重命名，不再重新读取上传内容）
+            String storagePath;
+            try {
+                storagePath = storageService.storeContent(stagedFile, file.getOriginalFilename(), fileId);
+            } catch (RuntimeException e) {
+                storageService.discardStaged(stagedFile);
+                throw e;
+            }
             updateProgressByPercent(taskId, 60, "文件存储完成...");
             
-            // 6. 创建FileInfo对象（使用正确的方法签名）
-            updateProgressByPercent(taskId, 90, "创建文件信息...");
-            FileInfo fileInfo = createFileInfo(file, request, fileId, md5Hash, storagePath);
-            fileInfoRepository.save(fileInfo);
-            
-            // 7. 更新任务状态为已上传
-            taskContextService.updateTaskStatus(taskId, TaskContext.TaskStatus.UPLOADED);
-            
-            // 8. 构建上传响应对象（使用正确的方法签名）
-            FileUploadResponse uploadResponse = buildUploadResponse(fileInfo, taskId);
+            // 6. 创建FileInfo对象并完成后续处理
+            FileInfo fileInfo = createFileInfo(file.getOriginalFilename(), stagedFile.getSize(), file.getContentType(),
+                    fileId, md5Hash, storagePath);
+            finishStoredUpload(taskId, fileInfo, request);
+                    
+        } catch (Exception e) {
+            log.error("异步文件上传失败 - 任务ID: {}, 文件名: {}, 错误: {}", 
+                    taskId, file.getOriginalFilename(), e.getMessage(), e);
             
-            // 9. 异步处理，文件元数据解析（存入mongoDB）
-            String metadataId = asyncAnalyzeAndStoreMetadata(fileInfo, taskId);
+            // 处理上传失败
+            handleAsyncUploadFailure(taskId, e.getMessage(), request.getOid().toString());
+        }
+    }
+    
+    /**
+     * 合并分片并执行上传后续处理，由completeChunkUpload提交到上传线程池执行
+     * 
+     * 合并时同步计算MD5，合并结果直接移动到存储目录，整个过程只有一次顺序写入。
+     * 合并后先做文件头安全检查，未通过时删除会话并使任务失败，不会入库。
+     * 
+     * @param taskId 任务ID
+     * @param session 分片上传会话
+     * @param request 上传请求参数
+     */
+    private void performChunkAssemble(String taskId, ChunkUploadSession session, FileUploadRequest request) {
+        String uploadId = session.getUploadId();
+        log.info("开始合并分片 - 任务ID: {}, 上传ID: {}, 总分片: {}", taskId, uploadId, session.getTotalChunks());
 
-            // 10. 异步处理：自动生成缩略图（对图片和视频文件）
-            if (isImageFile(file) || isVideoFile(file)) {
-                asyncGenerateThumbnail(fileInfo);
-            }
+        try {
+            // 1. 更新任务状态为上传中
+            taskContextService.updateTaskStatus(taskId, TaskContext.TaskStatus.UPLOADING);
+            eventPublisher.publishUploadStarted(taskId, request, session.getOriginalFilename(),
+                    session.getFileSize(), request.getOid().toString());
+
+            // 2. 流式合并分片，合并进度映射到 10%~60%
+            int[] lastPercent = {0};
+            ChunkStorageService.AssembleResult result = chunkStorageService.assemble(session, (chunkNumber, assembledBytes) -> {
+                int percent = 10 + (int) (assembledBytes * 50 / Math.max(session.getFileSize(), 1));
+                if (percent - lastPercent[0] >= 5) {
+                    lastPercent[0] = percent;
+                    updateProgressByPercent(taskId, percent, "合并分片...");
+                }
+            });
+            updateProgressByPercent(taskId, 60, "分片合并完成...");
 
-            // 11. 更新元数据ID到文件信息
-            if (metadataId != null) {
-                fileInfoRepository.updateFileMetadata(fileId, metadataId);
+            // 3. 文件头安全检查（与单文件上传相同的签名检查），未通过直接拒绝
+            FileValidationService.FileValidationResult validation =
+                    fileValidationService.validateContent(result.getAssembledFile(), session.getOriginalFilename());
+            if (!validation.isValid()) {
+                log.warn("分片合并文件安全检查未通过 - 任务ID: {}, 上传ID: {}, 原因: {}",
+                        taskId, uploadId, validation.getErrorMessage());
+                chunkStorageService.deleteSession(uploadId);
+                handleAsyncUploadFailure(taskId, "文件验证失败: " + validation.getErrorMessage(),
+                        request.getOid().toString());
+                return;
             }
-            
-            // 12. 更新进度为完成（在发布事件之前）
-            progressTrackingService.completeProgress(taskId);
-            taskContextService.updateTaskProgress(taskId, 100);
-            
-            // 13. 发布上传完成事件（包含完整文件信息）
-            eventPublisher.publishUploadCompleted(taskId, uploadResponse, request.getOid().toString());
 
-            // 14. 发布文件处理完成事件（包含元数据ID）
-            if (metadataId != null) {
-                eventPublisher.publishProcessingCompleted(taskId, fileId, metadataId, request.getOid().toString());
+            // 4. 秒传检查：命中时丢弃合并结果
+            FileInfo existingFileInfo = checkFileExistsByMd5(result.getMd5Hash());
+            if (existingFileInfo != null) {
+                log.info("分片上传发现重复文件，执行秒传逻辑 - MD5: {}", result.getMd5Hash());
+                handleAsyncInstantUpload(taskId, session.getFileId(), existingFileInfo, session.getOriginalFilename(), request);
+                chunkStorageService.deleteSession(uploadId);
+                return;
             }
-            
-            log.info("异步文件上传完成 - 任务ID: {}, 文件ID: {}, 存储路径: {}", 
-                    taskId, fileId, storagePath);
-                    
+
+            // 5. 合并结果按内容入库
+            StorageService.StagedFile assembled = new StorageService.StagedFile(
+                    result.getAssembledFile(), result.getSize(), result.getMd5Hash(), null);
+            String storagePath = storageService.storeContent(assembled, session.getOriginalFilename(), session.getFileId());
+
+            // 6. 创建FileInfo对象并完成后续处理
+            FileInfo fileInfo = createFileInfo(session.getOriginalFilename(), result.getSize(), session.getContentType(),
+                    session.getFileId(), result.getMd5Hash(), storagePath);
+            finishStoredUpload(taskId, fileInfo, request);
+
+            chunkStorageService.deleteSession(uploadId);
+
         } catch (Exception e) {
-            log.error("异步文件上传失败 - 任务ID: {}, 文件名: {}, 错误: {}", 
-                    taskId, file.getOriginalFilename(), e.getMessage(), e);
-            
-            // 处理上传失败
+            log.error("分片合并失败 - 任务ID: {}, 上传ID: {}, 错误: {}", taskId, uploadId, e.getMessage(), e);
+
+            // 会话回到上传状态，客户端可重新上传缺失分片后再次complete
+            session.setTaskId(null);
+            session.setStatus(ChunkUploadSession.SessionStatus.UPLOADING);
+            try {
+                chunkStorageService.updateSession(session);
+            } catch (Exception ex) {
+                log.warn("恢复分片上传会话状态失败 - 上传ID: {}, 错误: {}", uploadId, ex.getMessage());
+            }
+
             handleAsyncUploadFailure(taskId, e.getMessage(), request.getOid().toString());
         }
     }
+
+    /**
+     * 文件落盘后的统一处理：保存文件信息、元数据分析、缩略图生成和事件发布
+     * 
+     * @param taskId 任务ID
+     * @param fileInfo 已存储文件的信息
+     * @param request 上传请求参数
+     */
+    private void finishStoredUpload(String taskId, FileInfo fileInfo, FileUploadRequest request) {
+        String fileId = fileInfo.getFileId();
+
+        // 1. 保存文件信息
+        updateProgressByPercent(taskId, 90, "创建文件信息...");
+        fileInfoRepository.save(fileInfo);
+        recordUsage(fileInfo, request);
+        
+        // 2. 更新任务状态为已上传
+        taskContextService.updateTaskStatus(taskId, TaskContext.TaskStatus.UPLOADED);
+        
+        // 3. 构建上传响应对象（使用正确的方法签名）
+        FileUploadResponse uploadResponse = buildUploadResponse(fileInfo, taskId);
+        
+        // 4. 异步处理，文件元数据解析（存入mongoDB）
+        String metadataId = asyncAnalyzeAndStoreMetadata(fileInfo, taskId);
+
+        // 5. 异步处理：自动生成缩略图（对图片和视频文件）
+        if (isImageFile(fileInfo.getMimeType()) || isVideoFile(fileInfo.getMimeType())) {
+            asyncGenerateThumbnail(fileInfo);
+        }
+
+        // 6. 更新元数据ID到文件信息
+        if (metadataId != null) {
+            fileInfoRepository.updateFileMetadata(fileId, metadataId);
+        }
+        
+        // 7. 更新进度为完成（在发布事件之前）
+        progressTrackingService.completeProgress(taskId);
+        taskContextService.updateTaskProgress(taskId, 100);
+        
+        // 8. 发布上传完成事件（包含完整文件信息）
+        eventPublisher.publishUploadCompleted(taskId, uploadResponse, request.getOid().toString());
+
+        // 9. 发布文件处理完成事件（包含元数据ID）
+        if (metadataId != null) {
+            eventPublisher.publishProcessingCompleted(taskId, fileId, metadataId, request.getOid().toString());
+        }
+        
+        log.info("异步文件上传完成 - 任务ID: {}, 文件ID: {}, 存储路径: {}", 
+                taskId, fileId, fileInfo.getStoragePath());
+    }
     
+    /**
+     * 记录组织存储用量，统计失败不影响上传流程
+     */
+    private void recordUsage(FileInfo fileInfo, FileUploadRequest request) {
+        recordUsage(fileInfo, request.getOid().toString(), 1);
+    }
+
+    /**
+     * 记录组织存储用量增量：上传为+1，删除为-1，大小按文件大小同向计入
+     */
+    private void recordUsage(FileInfo fileInfo, String organizationId, int fileDelta) {
+        try {
+            long size = fileInfo.getFileSize() != null ? fileInfo.getFileSize() : 0;
+            storageService.recordUsage(organizationId,
+                    FileType.fromMimeType(fileInfo.getMimeType()).name(), fileDelta, fileDelta * size);
+        } catch (Exception e) {
+            log.warn("记录存储用量失败 - 文件ID: {}, 错误: {}", fileInfo.getFileId(), e.getMessage());
+        }
+    }
+
     /**
      * 异步场景下的秒传处理
      */
     private void handleAsyncInstantUpload(String taskId, String newFileId, FileInfo existingFileInfo, 
-                                        MultipartFile file, FileUploadRequest request) {
+                                        String originalFilename, FileUploadRequest request) {
         try {
             // 1. 快速更新进度到80%
             updateProgressByPercent(taskId, 80, "检测到重复文件，执行秒传...");
             
-            // 2. 创建新的文件信息记录（引用已存在的物理文件）
-            FileInfo newFileInfo = createFileInfoFromExisting(existingFileInfo, newFileId, file, request);
+            // 2. 先记录新文件对共享内容的引用，再为新fileId创建独立的文件信息记录（引用已存在的物理文件），
+            //    中途崩溃只会多出引用，不会出现有记录却无引用的内容被回收；原文件记录不做修改
+            String storagePath = existingFileInfo.getStoragePath();
+            if (storageService.isContentAddressed(storagePath) && !storageService.retainContent(storagePath, newFileId)) {
+                throw new IllegalStateException("共享内容已被回收: " + storagePath);
+            }
+            FileInfo newFileInfo = createFileInfoFromExisting(existingFileInfo, newFileId, originalFilename);
             fileInfoRepository.save(newFileInfo);
+            recordUsage(newFileInfo, request);
             
-            // 3. 更新原文件的引用计数
-            existingFileInfo.setRefCount(existingFileInfo.getRefCount() + 1);
-            fileInfoRepository.save(existingFileInfo);
-            
-            // 4. 构建响应对象
+            // 3. 构建响应对象
             FileUploadResponse uploadResponse = buildUploadResponse(newFileInfo, taskId);
             
-            // 5. 更新进度为完成（在发布事件之前）
+            // 4. 更新进度为完成（在发布事件之前）
             progressTrackingService.completeProgress(taskId);
             taskContextService.updateTaskStatus(taskId, TaskContext.TaskStatus.COMPLETED);
             taskContextService.updateTaskProgress(taskId, 100);
             
-            // 6. 发布上传完成事件
+            // 5. 发布上传完成事件
             eventPublisher.publishUploadCompleted(taskId, uploadResponse, request.getOid().toString());
             
             log.info("异步秒传完成 - 任务ID: {}, 新文件ID: {}, 原文件ID: {}", 
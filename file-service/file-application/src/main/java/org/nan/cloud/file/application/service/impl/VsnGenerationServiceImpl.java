@@ -1,7 +1,12 @@
 package org.nan.cloud.file.application.service.impl;
 
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.enums.FileCacheType;
+import org.nan.cloud.file.application.service.CacheService;
 import org.nan.cloud.file.application.service.VsnGenerationService;
 import org.nan.cloud.file.application.port.VsnResultPublisher;
 import org.nan.cloud.file.application.repository.ProgramContentRepository;
@@ -10,16 +15,23 @@ import org.nan.cloud.file.application.port.StreamingVsnXmlWriter;
 import org.nan.cloud.file.application.utils.StreamingHashCalculator;
 import org.nan.cloud.file.application.utils.MemoryMonitor;
 import org.nan.cloud.program.document.ProgramContent;
+import org.nan.cloud.program.document.ProgramPage;
 import org.nan.cloud.program.document.VsnProgram;
 import org.nan.cloud.file.application.config.FileStorageProperties;
 import org.springframework.stereotype.Service;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import java.io.FileOutputStream;
 
 /**
- * 严格模式 VSN 生成服务实现（第一阶段：管道搭建+基本校验占位）
+ * 严格模式 VSN 生成服务实现
+ *
+ * 只从Mongo读取节目头，页面在写出XML时经游标逐页读取并逐页校验，内容指纹在同一遍写出中计算，
+ * 单次生成的内存占用与节目页数无关。
+ * 内容指纹按节目内容版本（文档ID、版本号、更新时间）缓存，同一版本的重复请求不读取页面。
  */
 @Slf4j
 @Service
@@ -31,6 +43,7 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
     private final FileStorageProperties fileStorageProperties;
     private final VsnSchemaValidator vsnSchemaValidator;
     private final StreamingVsnXmlWriter streamingVsnXmlWriter;
+    private final CacheService cacheService;
 
     @Override
     public void generate(Map<String, Object> requestPayload) {
@@ -44,8 +57,11 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
             watcher = new MemoryMonitor.MemoryWatcher("VSN生成-程序" + programId);
             MemoryMonitor.logMemoryUsage("VSN生成开始");
 
-            // 1) 从 Mongo 读取 ProgramContent（按 contentId）
-            ProgramContent content = programContentRepository.findByProgramId(programId);
+            // 1) 从 Mongo 读取节目头（不含页面、原始数据和VSN XML）
+            ProgramContent content = programContentRepository.findHeaderByProgramId(programId);
+            if (content == null) {
+                throw new IllegalArgumentException("节目内容不存在: " + programId);
+            }
             watcher.checkpoint("读取程序内容");
 
             // 2) 校验 ProgramContent → VsnProgram 列表存在性与基本结构
@@ -53,25 +69,48 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
             if (vsnPrograms == null || vsnPrograms.isEmpty()) {
                 throw new IllegalArgumentException("vsnPrograms 为空，无法生成VSN");
             }
-            vsnSchemaValidator.validate(vsnPrograms);
-            watcher.checkpoint("模式校验完成");
 
-            // 3) 使用流式处理生成VSN文件，同时计算MD5和文件大小
-            StreamingVsnResult result = generateVsnStreamingly(orgId, programId, version, programName, vsnPrograms);
-            watcher.checkpoint("流式XML生成完成");
+            // 同一内容版本已生成过且产物文件仍在时直接复用，不读取页面
+            String namePart = buildNamePart(orgId, programId, programName);
+            String revisionKey = buildRevisionKey(orgId, programId, content);
+            VsnArtifact result = null;
+            if (revisionKey != null) {
+                String fingerprint = cacheService.get(revisionKey, String.class);
+                if (fingerprint != null) {
+                    result = findReusableArtifact(buildArtifactKey(orgId, programId, fingerprint), namePart);
+                }
+            }
+            watcher.checkpoint("查找可复用产物");
+
+            if (result != null) {
+                log.info("VSN内容未变化，复用已生成文件: programId={}, version={}, path={}",
+                        programId, version, result.getVsnPath());
+            } else {
+                vsnPrograms.forEach(vsnSchemaValidator::validateProgram);
+
+                // 3) 使用流式处理生成VSN文件，逐页校验，同时计算MD5、文件大小和内容指纹（页面只读取一遍）
+                VsnArtifact written = generateVsnStreamingly(orgId, programId, version, programName, vsnPrograms,
+                        validating(mongoPageSource(content.getId())));
+                watcher.checkpoint("流式XML生成完成");
+
+                result = registerArtifact(buildArtifactKey(orgId, programId, written.getFingerprint()), namePart, written);
+                if (revisionKey != null) {
+                    cacheService.put(revisionKey, result.getFingerprint(), FileCacheType.VSN_FINGERPRINT.getDefaultTtl());
+                }
+            }
 
             // 发布成功结果
             vsnResultPublisher.publishResultCompleted(
                     orgId,
                     programId,
                     version,
-                    result.vsnFileId,
-                    result.vsnPath,
+                    result.getVsnFileId(),
+                    result.getVsnPath(),
                     null
             );
 
             log.info("VSN文件生成成功: programId={}, path={}, size={}MB, md5={}", 
-                    programId, result.vsnPath, result.vsnSize / 1024 / 1024, result.vsnMd5);
+                    programId, result.getVsnPath(), result.getVsnSize() / 1024 / 1024, result.getVsnMd5());
 
         } catch (Exception e) {
             Long programId = toLong(requestPayload.get("programId"));
@@ -88,28 +127,103 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
     }
 
     /**
-     * VSN流式生成结果
+     * VSN生成产物，按内容指纹缓存
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VsnArtifact {
+        private String vsnFileId;
+        private String vsnPath;
+        private String vsnMd5;
+        private long vsnSize;
+        private String namePart;
+        private String fingerprint;
+    }
+
+    /**
+     * 从Mongo逐页读取页面
+     */
+    private StreamingVsnXmlWriter.PageSource mongoPageSource(String contentId) {
+        return (programIndex, program, visitor) -> {
+            try (Stream<ProgramPage> pages = programContentRepository.streamVsnPages(contentId, programIndex)) {
+                Iterator<ProgramPage> iterator = pages.iterator();
+                while (iterator.hasNext()) {
+                    visitor.visit(iterator.next());
+                }
+            }
+        };
+    }
+
+    /**
+     * 在页面写出前逐页校验，节目没有页面时报错
+     */
+    private StreamingVsnXmlWriter.PageSource validating(StreamingVsnXmlWriter.PageSource pages) {
+        return (programIndex, program, visitor) -> {
+            int[] count = {0};
+            pages.forEachPage(programIndex, program, page -> {
+                try {
+                    vsnSchemaValidator.validatePage(page);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "节目[" + programIndex + "]/页面[" + count[0] + "]: " + e.getMessage(), e);
+                }
+                count[0]++;
+                visitor.visit(page);
+            });
+            if (count[0] == 0) {
+                throw new IllegalArgumentException("Pages 不能为空");
+            }
+        };
+    }
+
+    /**
+     * 登记新生成的产物；内容与已有产物相同（如版本号变化但内容未变）时沿用已发布的文件，删除新文件
+     */
+    private VsnArtifact registerArtifact(String artifactKey, String namePart, VsnArtifact written) {
+        VsnArtifact existing = findReusableArtifact(artifactKey, namePart);
+        if (existing != null && !existing.getVsnPath().equals(written.getVsnPath())) {
+            try {
+                String basePath = fileStorageProperties.getStorage().getLocal().getBasePath();
+                java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get(basePath, written.getVsnPath()));
+            } catch (Exception e) {
+                log.debug("删除重复VSN文件失败: path={}, err={}", written.getVsnPath(), e.getMessage());
+            }
+            log.info("VSN内容与已有文件相同，沿用已生成文件: path={}", existing.getVsnPath());
+            return existing;
+        }
+        cacheService.put(artifactKey, written, FileCacheType.VSN_ARTIFACT.getDefaultTtl());
+        return written;
+    }
+
+    /**
+     * 查找可复用的VSN产物：文件命名一致，且文件仍存在、大小一致
      */
-    private static class StreamingVsnResult {
-        final String vsnFileId;
-        final String vsnPath;
-        final String vsnMd5;
-        final long vsnSize;
-
-        StreamingVsnResult(String vsnFileId, String vsnPath, String vsnMd5, long vsnSize) {
-            this.vsnFileId = vsnFileId;
-            this.vsnPath = vsnPath;
-            this.vsnMd5 = vsnMd5;
-            this.vsnSize = vsnSize;
+    private VsnArtifact findReusableArtifact(String artifactKey, String namePart) {
+        VsnArtifact artifact = cacheService.get(artifactKey, VsnArtifact.class);
+        if (artifact == null || !namePart.equals(artifact.getNamePart())) {
+            return null;
         }
+        try {
+            String basePath = fileStorageProperties.getStorage().getLocal().getBasePath();
+            java.nio.file.Path path = java.nio.file.Paths.get(basePath, artifact.getVsnPath());
+            if (java.nio.file.Files.isRegularFile(path) && java.nio.file.Files.size(path) == artifact.getVsnSize()) {
+                return artifact;
+            }
+        } catch (Exception e) {
+            log.debug("检查VSN产物失败: path={}, err={}", artifact.getVsnPath(), e.getMessage());
+        }
+        cacheService.evict(artifactKey);
+        return null;
     }
 
     /**
      * 流式生成VSN文件
      * 避免大XML内容在内存中完整存在，同时计算MD5和文件大小
      */
-    private StreamingVsnResult generateVsnStreamingly(Long orgId, Long programId, Integer version, 
-                                                     String programName, List<VsnProgram> vsnPrograms) throws Exception {
+    private VsnArtifact generateVsnStreamingly(Long orgId, Long programId, Integer version, 
+                                                     String programName, List<VsnProgram> vsnPrograms,
+                                                     StreamingVsnXmlWriter.PageSource pages) throws Exception {
         
         // 预检查内存是否充足（估算需要50MB缓冲）
         if (!MemoryMonitor.hasEnoughMemory(50)) {
@@ -126,7 +240,7 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
         java.nio.file.Files.createDirectories(tempPath.getParent());
 
         String vsnMd5;
-        long vsnSize;
+        StreamingVsnXmlWriter.WriteResult written;
         
         // 使用流式写入：XML直接写入文件，同时计算MD5
         try (FileOutputStream fos = new FileOutputStream(tempPath.toFile());
@@ -134,14 +248,19 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
                      new StreamingHashCalculator.HashingOutputStream(fos)) {
             
             // 流式写入XML内容
-            vsnSize = streamingVsnXmlWriter.writeToStream(vsnPrograms, hashingOut);
+            written = streamingVsnXmlWriter.writeToStream(vsnPrograms, pages, hashingOut);
             hashingOut.flush();
             
             // 获取MD5值
             vsnMd5 = hashingOut.getMD5Hex();
             
-            log.debug("流式写入完成: size={}bytes, md5={}", vsnSize, vsnMd5);
+            log.debug("流式写入完成: size={}bytes, md5={}", written.bytes(), vsnMd5);
+        } catch (Exception e) {
+            // 逐页校验失败或读取中断时清理未写完的文件
+            java.nio.file.Files.deleteIfExists(tempPath);
+            throw e;
         }
+        long vsnSize = written.bytes();
 
         // 构建最终路径并移动文件
         String finalVsnPath = buildVsnStoragePath(orgId, programId, version, programName, vsnMd5, vsnSize);
@@ -151,7 +270,8 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
         // 原子性移动文件
         java.nio.file.Files.move(tempPath, finalPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
         
-        return new StreamingVsnResult(vsnFileId, finalVsnPath, vsnMd5, vsnSize);
+        return new VsnArtifact(vsnFileId, finalVsnPath, vsnMd5, vsnSize,
+                buildNamePart(orgId, programId, programName), written.fingerprint());
     }
 
     // Repository负责读取
@@ -168,6 +288,22 @@ public class VsnGenerationServiceImpl implements VsnGenerationService {
         return String.format("vsn/%d/%s/%s", orgId, dateDir, filename);
     }
 
+    private String buildArtifactKey(Long orgId, Long programId, String fingerprint) {
+        return FileCacheType.VSN_ARTIFACT.buildOrgKey(orgId, String.valueOf(programId), fingerprint);
+    }
+
+    /**
+     * 节目内容版本键；没有更新时间时无法判断文档是否被原地修改，返回null，每次按内容重新生成
+     */
+    private String buildRevisionKey(Long orgId, Long programId, ProgramContent content) {
+        if (content.getId() == null || content.getUpdatedTime() == null) {
+            return null;
+        }
+        return FileCacheType.VSN_FINGERPRINT.buildOrgKey(orgId, String.valueOf(programId), content.getId(),
+                String.valueOf(content.getVersion()),
+                String.valueOf(content.getUpdatedTime().toInstant(java.time.ZoneOffset.UTC).toEpochMilli()));
+    }
+
     private String buildNamePart(Long orgId, Long programId, String programName) {
         String safeProgramName = sanitizeFileNamePart(programName == null ? String.valueOf(programId) : programName);
         return String.format("%d-%d-%s", orgId, programId, safeProgramName);
@@ -1,5 +1,6 @@
 package org.nan.cloud.file.application.service.validation;
 
+import org.nan.cloud.program.document.ProgramPage;
 import org.nan.cloud.program.document.VsnProgram;
 
 import java.util.List;
@@ -9,5 +10,15 @@ import java.util.List;
  */
 public interface VsnSchemaValidator {
     void validate(List<VsnProgram> programs);
+
+    /**
+     * 校验节目头（不含页面），用于逐页流式校验
+     */
+    void validateProgram(VsnProgram program);
+
+    /**
+     * 校验单个页面，用于逐页流式校验
+     */
+    void validatePage(ProgramPage page);
 }
 
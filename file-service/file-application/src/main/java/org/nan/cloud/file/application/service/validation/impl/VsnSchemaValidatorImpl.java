@@ -9,103 +9,218 @@ import org.nan.cloud.program.document.VsnProgram;
 import org.nan.cloud.program.vsn.DisplayRect;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * VSN 严格模式校验
+ *
+ * 一次遍历节目、页面、区域和素材项，收集全部错误后统一抛出，
+ * 错误信息带有位置（如 节目[0]/页面[3]/区域[1]/素材项[7]），最多列出MAX_REPORTED_ERRORS条。
+ * 每个素材项只访问一次，校验耗时与素材项数量成正比。
+ */
 @Slf4j
 @Component
 public class VsnSchemaValidatorImpl implements VsnSchemaValidator {
+
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    /**
+     * 同步区域支持的素材类型
+     */
+    private static final Set<String> SYNC_ITEM_TYPES = Set.of("2", "4", "6");
+
+    /**
+     * 需要字体的文本类素材类型
+     */
+    private static final Set<String> TEXT_ITEM_TYPES = Set.of("4", "5");
+
     @Override
     public void validate(List<VsnProgram> programs) {
         if (programs == null || programs.isEmpty()) {
             throw new IllegalArgumentException("Programs 不可为空");
         }
-        for (VsnProgram program : programs) {
-            if (program.getInformation() == null) {
-                throw new IllegalArgumentException("Information 缺失");
+        Errors errors = new Errors();
+        for (int i = 0; i < programs.size(); i++) {
+            errors.program = i;
+            VsnProgram program = programs.get(i);
+            checkProgram(program, errors);
+            List<ProgramPage> pages = program.getPages();
+            if (pages == null || pages.isEmpty()) {
+                errors.add("Pages 不能为空");
+                continue;
             }
-            if (isBlank(program.getInformation().getWidth()) || isBlank(program.getInformation().getHeight())) {
-                throw new IllegalArgumentException("Information.Width/Height 必填");
+            for (int p = 0; p < pages.size(); p++) {
+                errors.page = p;
+                checkPage(pages.get(p), errors);
             }
-            if (program.getPages() == null || program.getPages().isEmpty()) {
-                throw new IllegalArgumentException("Pages 不能为空");
+            errors.page = -1;
+        }
+        errors.throwIfAny();
+    }
+
+    @Override
+    public void validateProgram(VsnProgram program) {
+        Errors errors = new Errors();
+        checkProgram(program, errors);
+        errors.throwIfAny();
+    }
+
+    @Override
+    public void validatePage(ProgramPage page) {
+        Errors errors = new Errors();
+        checkPage(page, errors);
+        errors.throwIfAny();
+    }
+
+    // ==================== 校验规则 ====================
+
+    private void checkProgram(VsnProgram program, Errors errors) {
+        if (program.getInformation() == null) {
+            errors.add("Information 缺失");
+            return;
+        }
+        if (isBlank(program.getInformation().getWidth()) || isBlank(program.getInformation().getHeight())) {
+            errors.add("Information.Width/Height 必填");
+        }
+    }
+
+    private void checkPage(ProgramPage page, Errors errors) {
+        // LoopType 必填；当为0时 AppointDuration 必填
+        if (isBlank(page.getLoopType())) {
+            errors.add("Page.looptype 必填");
+        } else if ("0".equals(page.getLoopType()) && isBlank(page.getAppointDuration())) {
+            errors.add("Page.appointduration 在 looptype=0 时必填");
+        }
+        // 最低要求：背景色必填
+        if (page.getBgColor() == null) {
+            errors.add("Page.bgColor 必填");
+        }
+        List<ProgramRegion> regions = page.getRegions();
+        if (regions == null || regions.isEmpty()) {
+            errors.add("Regions 不能为空");
+            return;
+        }
+        for (int r = 0; r < regions.size(); r++) {
+            errors.region = r;
+            checkRegion(regions.get(r), errors);
+        }
+        errors.region = -1;
+    }
+
+    private void checkRegion(ProgramRegion region, Errors errors) {
+        DisplayRect rect = region.getRect();
+        if (rect == null || isBlankInt(rect.getX()) || isBlankInt(rect.getY())
+                || isBlankInt(rect.getWidth()) || isBlankInt(rect.getHeight())
+                || isBlankInt(rect.getBorderWidth())) {
+            errors.add("Region.Rect X/Y/Width/Height/BorderWidth 必填");
+        }
+        if (isBlank(region.getName())) {
+            errors.add("Region.name 必填");
+        }
+        if (isBlank(region.getIsScheduleRegion())) {
+            errors.add("Region.isScheduleRegion 必填");
+        }
+        List<ProgramItem> items = region.getItems();
+        if (items == null || items.isEmpty()) {
+            errors.add("Region.Items 不能为空");
+            return;
+        }
+        boolean syncRegion = "sync_program".equalsIgnoreCase(region.getName());
+        boolean scheduleRegion = "1".equals(region.getIsScheduleRegion());
+        for (int i = 0; i < items.size(); i++) {
+            errors.item = i;
+            checkItem(items.get(i), syncRegion, scheduleRegion, errors);
+        }
+        errors.item = -1;
+    }
+
+    private void checkItem(ProgramItem item, boolean syncRegion, boolean scheduleRegion, Errors errors) {
+        String type = item.getType();
+        // 同步节目限制
+        if (syncRegion && (type == null || !SYNC_ITEM_TYPES.contains(type))) {
+            errors.add("同步区域仅支持 Item.type 2/4/6");
+        }
+        // 排程区域限制
+        if (scheduleRegion && item.getSchedule() == null) {
+            errors.add("isScheduleRegion=1 时，Item.schedule 必填");
+        }
+        if (isBlank(type)) {
+            errors.add("Item.type 必填");
+            return;
+        }
+        // 文本字体必填
+        if (TEXT_ITEM_TYPES.contains(type)
+                && (item.getLogFont() == null || isBlank(item.getLogFont().getLfHeight()))) {
+            errors.add("文本类 Item 需要 LogFont.lfHeight");
+        }
+        if ("2".equals(type)) {
+            if (item.getFileSource() == null) {
+                errors.add("图片 Item.filesource 必填");
             }
-            for (ProgramPage page : program.getPages()) {
-                // LoopType 必填；当为0时 AppointDuration 必填
-                if (isBlank(page.getLoopType())) {
-                    throw new IllegalArgumentException("Page.looptype 必填");
-                }
-                if ("0".equals(page.getLoopType()) && isBlank(page.getAppointDuration())) {
-                    throw new IllegalArgumentException("Page.appointduration 在 looptype=0 时必填");
-                }
-                // 最低要求：背景色必填
-                if (page.getBgColor() == null) {
-                    throw new IllegalArgumentException("Page.bgColor 必填");
-                }
-                if (page.getRegions() == null || page.getRegions().isEmpty()) {
-                    throw new IllegalArgumentException("Regions 不能为空");
-                }
-                for (ProgramRegion region : page.getRegions()) {
-                    DisplayRect rect = region.getRect();
-                    if (rect == null || isBlankInt(rect.getX()) || isBlankInt(rect.getY())
-                            || isBlankInt(rect.getWidth()) || isBlankInt(rect.getHeight())
-                            || isBlankInt(rect.getBorderWidth())) {
-                        throw new IllegalArgumentException("Region.Rect X/Y/Width/Height/BorderWidth 必填");
-                    }
-                    if (isBlank(region.getName())) {
-                        throw new IllegalArgumentException("Region.name 必填");
-                    }
-                    if (isBlank(region.getIsScheduleRegion())) {
-                        throw new IllegalArgumentException("Region.isScheduleRegion 必填");
-                    }
-                    if (region.getItems() == null || region.getItems().isEmpty()) {
-                        throw new IllegalArgumentException("Region.Items 不能为空");
-                    }
-                    // 同步节目限制
-                    if ("sync_program".equalsIgnoreCase(region.getName())) {
-                        for (ProgramItem item : region.getItems()) {
-                            if (!List.of("2", "4", "6").contains(item.getType())) {
-                                throw new IllegalArgumentException("同步区域仅支持 Item.type 2/4/6");
-                            }
-                        }
-                    }
-                    // 排程区域限制
-                    if ("1".equals(region.getIsScheduleRegion())) {
-                        for (ProgramItem item : region.getItems()) {
-                            if (item.getSchedule() == null) {
-                                throw new IllegalArgumentException("isScheduleRegion=1 时，Item.schedule 必填");
-                            }
-                        }
-                    }
-                    // 文本字体必填
-                    for (ProgramItem item : region.getItems()) {
-                        if (isBlank(item.getType())) {
-                            throw new IllegalArgumentException("Item.type 必填");
-                        }
-                        if ("4".equals(item.getType()) || "5".equals(item.getType())) {
-                            if (item.getLogFont() == null || isBlank(item.getLogFont().getLfHeight())) {
-                                throw new IllegalArgumentException("文本类 Item 需要 LogFont.lfHeight");
-                            }
-                        }
-                        if ("2".equals(item.getType())) {
-                            if (item.getFileSource() == null) {
-                                throw new IllegalArgumentException("图片 Item.filesource 必填");
-                            }
-                            if (isBlank(item.getAlpha())) {
-                                throw new IllegalArgumentException("图片 Item.alpha 必填");
-                            }
-                        }
-                        if ("3".equals(item.getType())) {
-                            if (item.getFileSource() == null) {
-                                throw new IllegalArgumentException("视频 Item.filesource 必填");
-                            }
-                        }
-                    }
-                }
+            if (isBlank(item.getAlpha())) {
+                errors.add("图片 Item.alpha 必填");
             }
         }
+        if ("3".equals(type) && item.getFileSource() == null) {
+            errors.add("视频 Item.filesource 必填");
+        }
     }
 
     private boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
     private boolean isBlankInt(Integer v) { return v == null; }
-}
 
+    /**
+     * 错误收集：记录当前遍历位置，仅在出错时拼接位置信息
+     */
+    private static final class Errors {
+        private final List<String> messages = new ArrayList<>();
+        private int total;
+        private int program = -1;
+        private int page = -1;
+        private int region = -1;
+        private int item = -1;
+
+        void add(String message) {
+            total++;
+            if (messages.size() < MAX_REPORTED_ERRORS) {
+                messages.add(location() + message);
+            }
+        }
+
+        void throwIfAny() {
+            if (total == 0) {
+                return;
+            }
+            if (total == 1) {
+                throw new IllegalArgumentException(messages.get(0));
+            }
+            StringBuilder sb = new StringBuilder("VSN校验失败，共").append(total).append("处错误: ");
+            sb.append(String.join("; ", messages));
+            if (total > messages.size()) {
+                sb.append("; ...");
+            }
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        private String location() {
+            StringBuilder sb = new StringBuilder();
+            appendLevel(sb, "节目", program);
+            appendLevel(sb, "页面", page);
+            appendLevel(sb, "区域", region);
+            appendLevel(sb, "素材项", item);
+            return sb.length() > 0 ? sb.append(": ").toString() : "";
+        }
+
+        private static void appendLevel(StringBuilder sb, String name, int index) {
+            if (index < 0) {
+                return;
+            }
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(name).append('[').append(index).append(']');
+        }
+    }
+}
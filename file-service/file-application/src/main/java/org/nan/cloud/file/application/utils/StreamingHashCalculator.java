@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 /**
  * 流式哈希计算工具
@@ -13,7 +14,7 @@ import java.security.NoSuchAlgorithmException;
 @Slf4j
 public class StreamingHashCalculator {
     
-    private static final int BUFFER_SIZE = 8192; // 8KB缓冲区
+    private static final int BUFFER_SIZE = 65536; // 64KB缓冲区
     
     /**
      * 计算输入流的MD5哈希值
@@ -57,23 +58,34 @@ public class StreamingHashCalculator {
     }
     
     /**
-     * 双重哈希输出流 - 同时写入文件和计算MD5
+     * 双重哈希输出流 - 同时写入文件和计算MD5（可选SHA-256）
      * 避免文件写入后再次读取计算哈希
      */
     public static class HashingOutputStream extends OutputStream {
         private final OutputStream targetStream;
         private final MessageDigest md5;
+        private final MessageDigest sha256;
         private long bytesWritten = 0;
+        private String md5Hex;
+        private String sha256Hex;
         
         public HashingOutputStream(OutputStream targetStream) throws NoSuchAlgorithmException {
+            this(targetStream, false);
+        }
+        
+        public HashingOutputStream(OutputStream targetStream, boolean computeSha256) throws NoSuchAlgorithmException {
             this.targetStream = targetStream;
             this.md5 = createMD5Digest();
+            this.sha256 = computeSha256 ? MessageDigest.getInstance("SHA-256") : null;
         }
         
         @Override
         public void write(int b) throws IOException {
             targetStream.write(b);
             md5.update((byte) b);
+            if (sha256 != null) {
+                sha256.update((byte) b);
+            }
             bytesWritten++;
         }
         
@@ -81,6 +93,9 @@ public class StreamingHashCalculator {
         public void write(byte[] b, int off, int len) throws IOException {
             targetStream.write(b, off, len);
             md5.update(b, off, len);
+            if (sha256 != null) {
+                sha256.update(b, off, len);
+            }
             bytesWritten += len;
         }
         
@@ -95,10 +110,26 @@ public class StreamingHashCalculator {
         }
         
         /**
-         * 获取当前计算的MD5哈希值
+         * 获取当前计算的MD5哈希值，首次调用后结果固定
          */
         public String getMD5Hex() {
-            return bytesToHex(md5.digest());
+            if (md5Hex == null) {
+                md5Hex = bytesToHex(md5.digest());
+            }
+            return md5Hex;
+        }
+        
+        /**
+         * 获取当前计算的SHA-256哈希值，未启用时返回null
+         */
+        public String getSHA256Hex() {
+            if (sha256 == null) {
+                return null;
+            }
+            if (sha256Hex == null) {
+                sha256Hex = bytesToHex(sha256.digest());
+            }
+            return sha256Hex;
         }
         
         /**
@@ -113,6 +144,11 @@ public class StreamingHashCalculator {
          */
         public void resetHash() {
             md5.reset();
+            if (sha256 != null) {
+                sha256.reset();
+            }
+            md5Hex = null;
+            sha256Hex = null;
             bytesWritten = 0;
         }
     }
@@ -122,10 +158,6 @@ public class StreamingHashCalculator {
     }
     
     private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        return HexFormat.of().formatHex(bytes);
     }
 }
\ No newline at end of file
@@ -111,10 +111,10 @@ public class FileServiceCacheConfig {
         return Caffeine.newBuilder()
                 // 最大缓存条目数 - 文件服务通常缓存较大对象
                 .maximumSize(10000)
-                // 写入后过期时间 - 文件信息相对稳定
-                .expireAfterWrite(30, TimeUnit.MINUTES)
+                // 写入后过期时间 - 修改和删除由失效广播通知各实例，过期仅兜底丢失的通知
+                .expireAfterWrite(2, TimeUnit.HOURS)
                 // 访问后过期时间 - 保持热数据
-                .expireAfterAccess(15, TimeUnit.MINUTES)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
                 // 启用统计 - 用于性能监控
                 .recordStats()
                 // 移除监听器 - 记录缓存驱逐情况
@@ -126,7 +126,7 @@ public class FileServiceCacheConfig {
     
     
     /**
-     * Redis消息监听容器 - 支持缓存同步
+     * Redis消息监听容器 - 支持缓存同步，本地缓存失效广播在此订阅
      */
     @Bean("fileServiceRedisMessageListenerContainer")
     @ConditionalOnMissingBean
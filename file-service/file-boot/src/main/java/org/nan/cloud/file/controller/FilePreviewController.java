@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.api.FilePreviewApi;
+import org.nan.cloud.file.application.config.FileStorageProperties;
 import org.nan.cloud.file.application.domain.FileInfo;
 import org.nan.cloud.file.application.service.FilePreviewService;
 import org.nan.cloud.common.web.IgnoreDynamicResponse;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
 
 /**
  * 文件预览控制器
@@ -25,6 +27,7 @@ import jakarta.servlet.http.HttpServletResponse;
  * - 视频：输出指定时间点的截帧图片
  * - 支持缩放、格式转换、质量调整
  * - 304缓存支持，跨域配置
+ * - 批量预览清单，素材网格一次取回整页缩略图地址
  * 
  * @author LedDeviceCloudPlatform Team
  * @since 1.0.0
@@ -37,6 +40,8 @@ public class FilePreviewController implements FilePreviewApi {
 
     private final FilePreviewService filePreviewService;
 
+    private final FileStorageProperties storageProperties;
+
     /**
      * 统一预览接口 - 图片直接输出，视频截帧输出
      * 
@@ -110,6 +115,53 @@ public class FilePreviewController implements FilePreviewApi {
         filePreviewService.handlePreviewRequest(previewRequest, response);
     }
 
+    /**
+     * 批量预览清单接口 - 一次解析多个文件的预生成缩略图地址
+     * 
+     * GET /file/api/file/preview/manifest?ids=a,b,c&w=300&h=300
+     * 
+     * @param ids 文件ID列表（逗号分隔或多个ids参数）
+     * @param w 期望宽度（可选）
+     * @param h 期望高度（可选）
+     * @param t 视频时间点（秒，视频专用）
+     * @param request HTTP请求
+     * @return 预览清单，未变化时返回304
+     */
+    @Operation(
+        summary = "批量预览清单",
+        description = "一次返回多个文件的预生成缩略图URL和ETag，URL带版本可长期缓存；无预生成缩略图的文件列在missing中",
+        tags = {"素材管理", "素材预览"}
+    )
+    @Override
+    @IgnoreDynamicResponse // 需要返回304和缓存头，跳过统一包装
+    public ResponseEntity<?> previewManifest(
+            @Parameter(description = "文件ID列表", required = true) 
+            @RequestParam List<String> ids,
+            
+            @Parameter(description = "期望宽度（像素）", example = "300") 
+            @RequestParam(required = false) Integer w,
+            
+            @Parameter(description = "期望高度（像素）", example = "300") 
+            @RequestParam(required = false) Integer h,
+            
+            @Parameter(description = "视频时间点（秒）", example = "1.0") 
+            @RequestParam(required = false, defaultValue = "1.0") Double t,
+            
+            HttpServletRequest request) {
+        
+        FilePreviewService.ManifestRequest manifestRequest = FilePreviewService.ManifestRequest.builder()
+            .fileIds(ids)
+            .width(w)
+            .height(h)
+            .timeOffset(t)
+            .ifNoneMatch(request.getHeader("If-None-Match"))
+            .build();
+        
+        log.debug("处理预览清单请求 - 文件数: {}, 参数: {}x{}, 时间: {}s", ids.size(), w, h, t);
+        
+        return filePreviewService.handleManifestRequest(manifestRequest);
+    }
+
     /**
      * 流式播放接口 - 支持Range请求的视频播放
      * 
@@ -140,6 +192,7 @@ public class FilePreviewController implements FilePreviewApi {
         FilePreviewService.StreamRequest streamRequest = FilePreviewService.StreamRequest.builder()
             .fileId(fileId)
             .rangeHeader(request.getHeader("Range"))
+            .clientId(resolveClientId(request))
             .userAgent(request.getHeader("User-Agent"))
             .ifModifiedSince(request.getHeader("If-Modified-Since"))
             .build();
@@ -221,6 +274,33 @@ public class FilePreviewController implements FilePreviewApi {
 
     // ========================= 私有方法 =========================
     
+    /**
+     * 解析客户端标识，用于流式传输的公平排队
+     * 
+     * 只有直连地址是受信任代理时才采信X-Forwarded-For，并从右向左跳过受信任代理，
+     * 取第一个不受信任的地址；客户端自行伪造的X-Forwarded-For不会影响排队
+     */
+    private String resolveClientId(HttpServletRequest request) {
+        List<String> trustedProxies = storageProperties.getStreaming().getTrustedProxies();
+        String clientId = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || forwardedFor.isBlank() || !trustedProxies.contains(clientId)) {
+            return clientId;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            clientId = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return clientId;
+    }
+    
     // 原有的错误处理方法已移除，现在使用标准的BaseException机制
     // 所有异常将由GlobalExceptionHandler统一处理，符合common-web规范
 }
\ No newline at end of file
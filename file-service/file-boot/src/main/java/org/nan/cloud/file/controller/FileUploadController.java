@@ -91,6 +91,104 @@ public class FileUploadController implements FileUploadApi {
         return fileUploadService.getSupportedFileTypes();
     }
 
+    @Operation(
+            summary = "初始化分片上传",
+            description = "创建分片上传会话，返回分片大小和总分片数",
+            tags = {"素材管理", "文件上传"}
+    )
+    @Override
+    public ChunkUploadSessionResponse initChunkUpload(@RequestBody ChunkUploadInitRequest request) {
+        
+        log.info("接收分片上传初始化请求 - 文件名: {}, 大小: {}", request.getFilename(), request.getFileSize());
+
+        return fileUploadFacade.initChunkUpload(request);
+    }
+
+    @Operation(
+            summary = "上传分片",
+            description = "上传单个分片，支持并行上传和重传",
+            tags = {"素材管理", "文件上传"}
+    )
+    @Override
+    public ChunkUploadSessionResponse uploadChunk(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(description = "分片编号") @PathVariable Integer chunkNumber,
+            @Parameter(description = "分片数据") @RequestParam("chunk") MultipartFile chunk) {
+        
+        log.debug("接收分片 - 上传ID: {}, 分片: {}, 大小: {}", uploadId, chunkNumber, chunk.getSize());
+
+        return fileUploadFacade.uploadChunk(uploadId, chunkNumber, chunk);
+    }
+
+    @Operation(
+            summary = "查询分片上传状态",
+            description = "返回已上传的分片编号，用于断点续传",
+            tags = {"素材管理", "文件上传"}
+    )
+    @Override
+    public ChunkUploadSessionResponse getChunkUploadStatus(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        
+        log.debug("查询分片上传状态 - 上传ID: {}", uploadId);
+
+        return fileUploadFacade.getChunkUploadStatus(uploadId);
+    }
+
+    @Operation(
+            summary = "完成分片上传",
+            description = "所有分片上传完成后调用，服务端异步合并并返回任务ID",
+            tags = {"素材管理", "文件上传"}
+    )
+    @Override
+    public TaskInitResponse completeChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        
+        log.info("接收分片上传完成请求 - 上传ID: {}", uploadId);
+
+        return fileUploadFacade.completeChunkUpload(uploadId);
+    }
+
+    @Operation(
+            summary = "取消分片上传",
+            description = "取消分片上传会话并清理已上传的分片",
+            tags = {"素材管理", "文件上传"}
+    )
+    @Override
+    public void abortChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        
+        log.info("取消分片上传 - 上传ID: {}", uploadId);
+
+        fileUploadFacade.abortChunkUpload(uploadId);
+    }
+
+    @Operation(
+            summary = "删除文件",
+            description = "删除文件记录和素材元数据，并释放对存储内容的引用",
+            tags = {"素材管理"}
+    )
+    @Override
+    public boolean deleteFile(
+            @Parameter(description = "文件ID") @PathVariable String fileId) {
+
+        log.info("删除文件 - 文件ID: {}", fileId);
+
+        return fileUploadFacade.deleteFile(fileId);
+    }
+
+    @Operation(
+            summary = "批量删除文件",
+            description = "批量删除文件，返回成功和失败的文件ID",
+            tags = {"素材管理"}
+    )
+    @Override
+    public BatchFileDeleteResponse batchDeleteFiles(@RequestBody BatchFileDeleteRequest request) {
+
+        log.info("批量删除文件 - 数量: {}", request.getFileIds() != null ? request.getFileIds().size() : 0);
+
+        return fileUploadFacade.batchDeleteFiles(request);
+    }
+
     /**
      * 检查文件是否已存在（基于MD5去重）
      * 
@@ -5,8 +5,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.nan.cloud.file.api.TranscodeApi;
 import org.nan.cloud.file.api.dto.TranscodingPresetResponse;
+import org.nan.cloud.file.api.dto.TranscodingQueueStatusResponse;
 import org.nan.cloud.file.api.dto.TranscodingTaskRequest;
 import org.nan.cloud.file.application.service.TranscodingPresetQueryService;
+import org.nan.cloud.file.application.service.TranscodingTaskService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
@@ -21,6 +23,8 @@ public class TranscodingController implements TranscodeApi {
 
     private final TranscodingPresetQueryService presetQueryService;
 
+    private final TranscodingTaskService transcodingTaskService;
+
     @Operation(
             summary = "获取转码预设列表",
             description = "给前端返回转码预设列表",
@@ -45,5 +49,21 @@ public class TranscodingController implements TranscodeApi {
     public TranscodingTaskRequest.TranscodingParameters getPresetParameters(@PathVariable("id") String id) {
         return presetQueryService.toRequestParameters(id);
     }
-}
 
+    @Operation(
+            summary = "取消转码任务",
+            description = "排队中的任务直接出队，执行中的任务终止转码进程",
+            tags = {"转码操作"}
+    )
+    public Boolean cancelTask(@PathVariable("taskId") String taskId) {
+        return transcodingTaskService.cancelTask(taskId);
+    }
+
+    @Operation(
+            summary = "获取转码队列状态",
+            tags = {"转码操作"}
+    )
+    public TranscodingQueueStatusResponse getQueueStatus() {
+        return transcodingTaskService.getQueueStatus();
+    }
+}
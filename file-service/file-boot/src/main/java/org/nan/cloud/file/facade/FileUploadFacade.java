@@ -4,6 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.common.web.context.InvocationContextHolder;
 import org.nan.cloud.common.web.context.RequestUserInfo;
+import org.nan.cloud.file.api.dto.BatchFileDeleteRequest;
+import org.nan.cloud.file.api.dto.BatchFileDeleteResponse;
+import org.nan.cloud.file.api.dto.ChunkUploadInitRequest;
+import org.nan.cloud.file.api.dto.ChunkUploadSessionResponse;
 import org.nan.cloud.file.api.dto.FileUploadRequest;
 import org.nan.cloud.file.api.dto.TaskInitResponse;
 import org.nan.cloud.file.application.service.FileUploadService;
@@ -84,4 +88,58 @@ public class FileUploadFacade {
             throw e;
         }
     }
+
+    /**
+     * 初始化分片上传门面方法
+     * 
+     * @param request 分片上传初始化参数
+     * @return 分片上传会话信息
+     */
+    public ChunkUploadSessionResponse initChunkUpload(ChunkUploadInitRequest request) {
+        log.info("门面层处理分片上传初始化 - 文件名: {}, 大小: {}", request.getFilename(), request.getFileSize());
+
+        // 1. 填充上下文信息
+        RequestUserInfo requestUser = InvocationContextHolder.getContext().getRequestUser();
+        request.setOid(requestUser.getOid());
+        request.setUid(requestUser.getUid());
+        if (Objects.isNull(request.getUgid())) {
+            request.setUgid(requestUser.getUgid());
+        }
+
+        // 2. 组织配额检查，分片上传在初始化时即可确定文件大小
+        boolean allowed = orgQuotaRepository.hasEnoughSpace(request.getOid(), request.getFileSize(), 1L);
+        if (!allowed) {
+            throw new IllegalArgumentException("组织配额不足，无法上传");
+        }
+
+        return fileUploadService.initChunkUpload(request);
+    }
+
+    public ChunkUploadSessionResponse uploadChunk(String uploadId, int chunkNumber, MultipartFile chunk) {
+        return fileUploadService.uploadChunk(uploadId, chunkNumber, chunk, currentOid());
+    }
+
+    public ChunkUploadSessionResponse getChunkUploadStatus(String uploadId) {
+        return fileUploadService.getChunkUploadStatus(uploadId, currentOid());
+    }
+
+    public TaskInitResponse completeChunkUpload(String uploadId) {
+        return fileUploadService.completeChunkUpload(uploadId, currentOid());
+    }
+
+    public void abortChunkUpload(String uploadId) {
+        fileUploadService.abortChunkUpload(uploadId, currentOid());
+    }
+
+    public boolean deleteFile(String fileId) {
+        return fileUploadService.deleteFile(fileId, currentOid());
+    }
+
+    public BatchFileDeleteResponse batchDeleteFiles(BatchFileDeleteRequest request) {
+        return fileUploadService.batchDeleteFiles(request, currentOid());
+    }
+
+    private Long currentOid() {
+        return InvocationContextHolder.getContext().getRequestUser().getOid();
+    }
 }
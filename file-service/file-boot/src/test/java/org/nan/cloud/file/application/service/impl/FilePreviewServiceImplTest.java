@@ -0,0 +1,268 @@
+package org.nan.cloud.file.application.service.impl;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.common.basic.domain.MaterialMetadata;
+import org.nan.cloud.file.application.domain.FileDescriptor;
+import org.nan.cloud.file.application.repository.FileInfoRepository;
+import org.nan.cloud.file.application.service.FilePreviewService.ManifestItem;
+import org.nan.cloud.file.application.service.FilePreviewService.ManifestRequest;
+import org.nan.cloud.file.application.service.FilePreviewService.PreviewManifest;
+import org.nan.cloud.file.application.service.FilePreviewService.PreviewRequest;
+import org.nan.cloud.file.application.service.StorageService;
+import org.nan.cloud.file.application.service.StreamingService;
+import org.nan.cloud.file.application.service.ThumbnailService;
+import org.nan.cloud.file.infrastructure.repository.mongodb.MaterialMetadataRepositoryImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预览清单测试
+ * 不依赖Spring上下文，元数据仓库使用真实的缓存实现、MongoTemplate为计数的替身，
+ * 验证清单与单文件302重定向解析出相同地址，并比较一页50个素材逐个请求与一次清单的查询次数和耗时
+ */
+class FilePreviewServiceImplTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * 基准轮数，默认2万轮，可通过 -Dpreview.test.rounds 调小以加快本地迭代
+     */
+    private static final int BENCH_ROUNDS = Integer.getInteger("preview.test.rounds", 20_000);
+
+    private final Map<String, MaterialMetadata> metadataStore = new HashMap<>();
+    private final AtomicInteger mongoQueries = new AtomicInteger();
+
+    private MaterialMetadataRepositoryImpl metadataRepository;
+    private FilePreviewServiceImpl previewService;
+    private List<String> fileIds;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(MaterialMetadata.class), anyString())).thenAnswer(invocation -> {
+            mongoQueries.incrementAndGet();
+            Query query = invocation.getArgument(0);
+            List<String> ids = (List<String>) ((Document) query.getQueryObject().get("fileId")).get("$in");
+            List<MaterialMetadata> found = new ArrayList<>();
+            for (String id : ids) {
+                if (metadataStore.containsKey(id)) {
+                    found.add(metadataStore.get(id));
+                }
+            }
+            return found;
+        });
+        metadataRepository = new MaterialMetadataRepositoryImpl(mongoTemplate);
+
+        FileInfoRepository fileInfoRepository = mock(FileInfoRepository.class);
+        when(fileInfoRepository.findDescriptorByFileId(anyString())).thenAnswer(invocation -> {
+            String fileId = invocation.getArgument(0);
+            boolean video = metadataStore.containsKey(fileId) && isVideo(metadataStore.get(fileId));
+            return Optional.of(FileDescriptor.builder()
+                    .fileId(fileId)
+                    .storagePath("material/" + fileId)
+                    .fileSize(1024)
+                    .mimeType(video ? "video/mp4" : "image/jpeg")
+                    .originalFilename(fileId)
+                    .build());
+        });
+        previewService = new FilePreviewServiceImpl(mock(StorageService.class), mock(StreamingService.class),
+                fileInfoRepository, mock(ThumbnailService.class), metadataRepository);
+
+        // 一页50个素材，四分之一为视频
+        fileIds = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            String fileId = "file-" + i;
+            metadataStore.put(fileId, metadata(fileId, i % 4 == 0, "v1"));
+            fileIds.add(fileId);
+        }
+    }
+
+    @Test
+    void testManifestMatchesSingleRedirects() {
+        ResponseEntity<PreviewManifest> response = previewService.handleManifestRequest(manifestRequest(null));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, mongoQueries.get(), "整页素材应合并为一次查询");
+
+        PreviewManifest manifest = response.getBody();
+        assertNotNull(manifest);
+        assertEquals(PAGE_SIZE, manifest.getItems().size());
+        assertTrue(manifest.getMissing().isEmpty());
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ManifestItem item = manifest.getItems().get(i);
+            assertEquals(fileIds.get(i), item.getFileId(), "清单应保持请求顺序");
+            MockHttpServletResponse single = preview(item.getFileId(), null);
+            assertEquals(HttpStatus.FOUND.value(), single.getStatus());
+            assertEquals(single.getHeader("Location"), item.getUrl(), "清单地址应与单文件重定向一致: " + item.getFileId());
+            assertEquals(single.getHeader("ETag"), item.getEtag());
+        }
+        assertEquals(1, mongoQueries.get(), "单文件请求应命中清单加载的索引缓存");
+
+        // 视频默认取1秒截帧，图片取300x300主缩略图
+        assertTrue(manifest.getItems().get(0).getUrl().contains("_t1s.jpg?v="), manifest.getItems().get(0).getUrl());
+        assertTrue(manifest.getItems().get(1).getUrl().contains("_300x300.jpg?v="), manifest.getItems().get(1).getUrl());
+    }
+
+    @Test
+    void testManifestNotModifiedUntilThumbnailsChange() {
+        String etag = previewService.handleManifestRequest(manifestRequest(null)).getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<PreviewManifest> cached = previewService.handleManifestRequest(manifestRequest(etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, cached.getStatusCode());
+        assertNull(cached.getBody());
+        assertEquals(1, mongoQueries.get(), "重复加载不应访问Mongo");
+
+        // 重新生成一个文件的缩略图后，清单和该文件的URL版本都改变
+        MaterialMetadata updated = metadata("file-7", false, "v2");
+        metadataStore.put("file-7", updated);
+        metadataRepository.updateThumbnails("file-7", updated.getThumbnails());
+
+        ResponseEntity<PreviewManifest> changed = previewService.handleManifestRequest(manifestRequest(etag));
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertEquals(2, mongoQueries.get(), "只重新查询失效的文件");
+        assertEquals("private, no-cache", changed.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void testMissingFilesListedSeparately() {
+        List<String> requested = new ArrayList<>(fileIds.subList(0, 3));
+        requested.add("unknown");
+        requested.add(" ");
+        requested.add("file-1");
+        PreviewManifest manifest = previewService.handleManifestRequest(ManifestRequest.builder()
+                .fileIds(requested).build()).getBody();
+
+        assertNotNull(manifest);
+        assertEquals(List.of("file-0", "file-1", "file-2"),
+                manifest.getItems().stream().map(ManifestItem::getFileId).toList(), "空白和重复的文件ID应忽略");
+        assertEquals(List.of("unknown"), manifest.getMissing());
+    }
+
+    @Test
+    void testSingleRequestsVersusManifest() {
+        // 冷缓存：逐个请求每个文件查询一次，清单一次查询
+        for (String fileId : fileIds) {
+            preview(fileId, null);
+        }
+        int singleQueries = mongoQueries.getAndSet(0);
+        setUp();
+        previewService.handleManifestRequest(manifestRequest(null));
+        int manifestQueries = mongoQueries.get();
+
+        // 热缓存：比较解析一整页的耗时
+        long singleNanos = bestOf(() -> {
+            for (String fileId : fileIds) {
+                preview(fileId, null);
+            }
+        });
+        long manifestNanos = bestOf(() -> previewService.handleManifestRequest(manifestRequest(null)));
+
+        System.out.printf("预览清单基准: %d个素材, 冷缓存 逐个请求%d次查询 清单%d次查询, "
+                        + "热缓存 逐个请求%.1fus/页 清单%.1fus/页(含SHA-256)%n",
+                PAGE_SIZE, singleQueries, manifestQueries, singleNanos / 1000.0, manifestNanos / 1000.0);
+
+        assertEquals(PAGE_SIZE, singleQueries);
+        assertEquals(1, manifestQueries);
+        assertTrue(manifestNanos < singleNanos, "一次清单应快于逐个请求");
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private MockHttpServletResponse preview(String fileId, String ifNoneMatch) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        previewService.handlePreviewRequest(PreviewRequest.builder()
+                .fileId(fileId)
+                .ifNoneMatch(ifNoneMatch)
+                .build(), response);
+        return response;
+    }
+
+    private ManifestRequest manifestRequest(String ifNoneMatch) {
+        return ManifestRequest.builder().fileIds(fileIds).ifNoneMatch(ifNoneMatch).build();
+    }
+
+    /**
+     * 预热后取多轮中每轮的最短耗时
+     */
+    private static long bestOf(Runnable run) {
+        int rounds = Math.max(10, BENCH_ROUNDS / PAGE_SIZE);
+        for (int i = 0; i < rounds; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                run.run();
+            }
+            best = Math.min(best, (System.nanoTime() - start) / rounds);
+        }
+        return best;
+    }
+
+    private static boolean isVideo(MaterialMetadata metadata) {
+        return "VIDEO".equals(metadata.getBasicInfo().getFileType());
+    }
+
+    /**
+     * 图片有150/300/600三个尺寸，视频另有1秒和5秒截帧
+     */
+    private static MaterialMetadata metadata(String fileId, boolean video, String revision) {
+        List<MaterialMetadata.ThumbnailInfo> thumbnails = new ArrayList<>();
+        if (video) {
+            for (int seconds : new int[]{1, 5}) {
+                thumbnails.add(thumbnail(fileId + " 截帧_300x300_t" + seconds + "s.jpg", 300, 300, false, revision));
+            }
+        }
+        for (int size : new int[]{150, 300, 600}) {
+            thumbnails.add(thumbnail(fileId + "_" + size + "x" + size + ".jpg", size, size, size == 300, revision));
+        }
+        return MaterialMetadata.builder()
+                .id("meta-" + fileId)
+                .fileId(fileId)
+                .basicInfo(MaterialMetadata.FileBasicInfo.builder()
+                        .mimeType(video ? "video/mp4" : "image/jpeg")
+                        .fileType(video ? "VIDEO" : "IMAGE")
+                        .md5Hash("md5-" + fileId)
+                        .build())
+                .thumbnails(MaterialMetadata.ThumbnailCollection.builder()
+                        .allThumbnails(thumbnails)
+                        .generatedAt(LocalDateTime.of(2025, 1, 1, 0, 0))
+                        .build())
+                .build();
+    }
+
+    private static MaterialMetadata.ThumbnailInfo thumbnail(String name, int width, int height, boolean primary,
+                                                            String revision) {
+        return MaterialMetadata.ThumbnailInfo.builder()
+                .width(width)
+                .height(height)
+                .storagePath("thumbnails/" + name)
+                .storageUrl("https://cdn.example.com/thumbnails/" + revision + "/" + name)
+                .fileSize(1024L * width / 100)
+                .isPrimary(primary)
+                .build();
+    }
+}
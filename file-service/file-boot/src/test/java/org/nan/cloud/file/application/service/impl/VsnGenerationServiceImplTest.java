@@ -0,0 +1,370 @@
+package org.nan.cloud.file.application.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.port.VsnResultPublisher;
+import org.nan.cloud.file.application.repository.ProgramContentRepository;
+import org.nan.cloud.file.application.service.CacheService;
+import org.nan.cloud.file.application.service.validation.VsnSchemaValidator;
+import org.nan.cloud.file.infrastructure.vsn.impl.StreamingVsnXmlWriterImpl;
+import org.nan.cloud.program.document.ProgramContent;
+import org.nan.cloud.program.document.ProgramInformation;
+import org.nan.cloud.program.document.ProgramItem;
+import org.nan.cloud.program.document.ProgramPage;
+import org.nan.cloud.program.document.ProgramRegion;
+import org.nan.cloud.program.document.VsnProgram;
+import org.nan.cloud.program.vsn.DisplayRect;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * VSN生成测试
+ * 不依赖Spring上下文，使用真实的流式写入器和内存版缓存服务，测量相同内容重复生成的延迟，
+ * 验证页面只读取一遍、只改动一个区域时生成的文件与全量渲染一致，并在小堆的子进程中生成十万项节目
+ */
+class VsnGenerationServiceImplTest {
+
+    private static final int PAGES = 20;
+    private static final int REGIONS_PER_PAGE = 10;
+    private static final int ITEMS_PER_REGION = 20;
+
+    /**
+     * 大节目测试的总项数，默认十万，可通过 -Dvsn.test.items 调小以加快本地迭代
+     */
+    private static final int LARGE_PROGRAM_ITEMS = Integer.getInteger("vsn.test.items", 100_000);
+    private static final String SMALL_HEAP = "-Xmx64m";
+
+    @TempDir
+    Path tempDir;
+
+    private ProgramContentRepository programContentRepository;
+    private VsnSchemaValidator vsnSchemaValidator;
+    private VsnResultPublisher vsnResultPublisher;
+    private VsnGenerationServiceImpl generationService;
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 节目内容更新次数，每次重新桩定节目时递增，作为文档更新时间
+     */
+    private static final AtomicLong REVISION = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        FileStorageProperties storageProperties = new FileStorageProperties();
+        storageProperties.getStorage().getLocal().setBasePath(tempDir.toString());
+
+        programContentRepository = mock(ProgramContentRepository.class);
+        vsnSchemaValidator = mock(VsnSchemaValidator.class);
+        vsnResultPublisher = mock(VsnResultPublisher.class);
+        generationService = new VsnGenerationServiceImpl(vsnResultPublisher, programContentRepository,
+                storageProperties, vsnSchemaValidator, new StreamingVsnXmlWriterImpl(), memoryCache(cache));
+    }
+
+    @Test
+    void testRepeatGenerationReusesArtifact() throws Exception {
+        stubProgram(programContentRepository, buildProgram("v1"));
+
+        long start = System.nanoTime();
+        generationService.generate(request(1));
+        double coldMillis = (System.nanoTime() - start) / 1e6;
+        String firstPath = publishedPath();
+
+        int repeats = 50;
+        start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            generationService.generate(request(2 + i));
+        }
+        double repeatMillis = (System.nanoTime() - start) / 1e6 / repeats;
+
+        System.out.printf("VSN重复生成: %d页x%d区域x%d项, 首次%.1fms, 内容未变的重复生成平均%.2fms, 文件%dKB%n",
+                PAGES, REGIONS_PER_PAGE, ITEMS_PER_REGION, coldMillis, repeatMillis,
+                Files.size(tempDir.resolve(firstPath)) >> 10);
+
+        verify(vsnSchemaValidator, times(1)).validateProgram(any());
+        ArgumentCaptor<String> paths = ArgumentCaptor.forClass(String.class);
+        verify(vsnResultPublisher, times(repeats + 1))
+                .publishResultCompleted(eq(1L), eq(100L), anyInt(), anyString(), paths.capture(), isNull());
+        assertTrue(paths.getAllValues().stream().allMatch(firstPath::equals), "内容未变时应发布同一个文件");
+        verify(vsnResultPublisher, never()).publishResultFailed(any(), any(), any(), any(), any());
+        assertTrue(repeatMillis < coldMillis, "复用产物应比重新生成快");
+    }
+
+    @Test
+    void testArtifactRegeneratedWhenFileMissing() throws Exception {
+        stubProgram(programContentRepository, buildProgram("v1"));
+        generationService.generate(request(1));
+        Path firstFile = tempDir.resolve(publishedPath());
+        Files.delete(firstFile);
+
+        generationService.generate(request(2));
+
+        verify(vsnSchemaValidator, times(2)).validateProgram(any());
+        assertTrue(Files.exists(firstFile), "产物文件丢失时应重新生成");
+    }
+
+    @Test
+    void testPagesStreamedOncePerGeneration() throws Exception {
+        stubProgram(programContentRepository, buildProgram("v1"));
+
+        generationService.generate(request(1));
+        verify(programContentRepository, times(1)).streamVsnPages("content-100", 0);
+
+        generationService.generate(request(1));
+        verify(programContentRepository, times(1)).streamVsnPages("content-100", 0);
+        verify(vsnResultPublisher, never()).publishResultFailed(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testNewRevisionWithSameContentKeepsPublishedFile() throws Exception {
+        stubProgram(programContentRepository, buildProgram("v1"));
+        generationService.generate(request(1));
+        String firstPath = publishedPath();
+        // 模拟产物在前一天生成：同内容的新文件会落到另一个日期目录
+        Path moved = tempDir.resolve(firstPath.replaceFirst("/\\d{4}/\\d{2}/\\d{2}/", "/2000/01/01/"));
+        Files.createDirectories(moved.getParent());
+        Files.move(tempDir.resolve(firstPath), moved);
+        cache.values().stream()
+                .filter(VsnGenerationServiceImpl.VsnArtifact.class::isInstance)
+                .map(VsnGenerationServiceImpl.VsnArtifact.class::cast)
+                .forEach(artifact -> artifact.setVsnPath(tempDir.relativize(moved).toString()));
+
+        // 版本号变化但内容未变：页面读取一遍，仍发布已有文件
+        stubProgram(programContentRepository, buildProgram("v1"));
+        generationService.generate(request(2));
+
+        assertEquals(tempDir.relativize(moved).toString(), publishedPath(), "内容未变时应沿用已发布的文件");
+        assertFalse(Files.exists(tempDir.resolve(firstPath)), "重复内容的新文件应删除");
+        verify(programContentRepository, times(2)).streamVsnPages("content-100", 0);
+    }
+
+    @Test
+    void testSingleRegionChangeMatchesFullRender() throws Exception {
+        List<VsnProgram> original = buildProgram("v1");
+        stubProgram(programContentRepository, original);
+        long start = System.nanoTime();
+        generationService.generate(request(1));
+        double coldMillis = (System.nanoTime() - start) / 1e6;
+        String firstPath = publishedPath();
+
+        // 只改动一个区域中的一个文本
+        List<VsnProgram> changed = buildProgram("v1");
+        changed.get(0).getPages().get(7).getRegions().get(3).getItems().get(5).setText("changed");
+        stubProgram(programContentRepository, changed);
+        start = System.nanoTime();
+        generationService.generate(request(2));
+        double changedMillis = (System.nanoTime() - start) / 1e6;
+        String secondPath = publishedPath();
+
+        System.out.printf("VSN单区域变更: 首次%.1fms, 单区域变更后重新生成%.1fms%n", coldMillis, changedMillis);
+
+        assertNotEquals(firstPath, secondPath, "内容变化后应生成新文件");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new StreamingVsnXmlWriterImpl().writeToStream(changed, expected);
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(tempDir.resolve(secondPath)),
+                "复用区域片段生成的文件应与全量渲染逐字节一致");
+    }
+
+    @Test
+    void testLargeProgramStreamsWithinSmallHeap() throws Exception {
+        String javaBin = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(javaBin, SMALL_HEAP, "-cp", System.getProperty("java.class.path"),
+                SmallHeapGeneration.class.getName(), tempDir.toString(), String.valueOf(LARGE_PROGRAM_ITEMS))
+                .redirectErrorStream(true)
+                .start();
+        byte[] output = process.getInputStream().readAllBytes();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES));
+        String report = new String(output, StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith("RESULT ")).findFirst().orElse(null);
+        assertEquals(0, process.exitValue(), "小堆子进程生成失败:\n" + new String(output, StandardCharsets.UTF_8));
+        assertNotNull(report);
+
+        // RESULT <相对路径> <页面数> <校验页数> <堆峰值字节> <堆上限字节>
+        String[] fields = report.split(" ");
+        long fileBytes = Files.size(tempDir.resolve(fields[1]));
+        System.out.printf("VSN大节目流式生成: %d项(%s页), %s, 文件%dMB, 堆峰值%dMB/上限%dMB%n",
+                LARGE_PROGRAM_ITEMS, fields[2], SMALL_HEAP, fileBytes >> 20,
+                Long.parseLong(fields[4]) >> 20, Long.parseLong(fields[5]) >> 20);
+        assertEquals(fields[2], fields[3], "每个页面都应逐页校验");
+        if (LARGE_PROGRAM_ITEMS >= 100_000) {
+            assertTrue(fileBytes > Long.parseLong(fields[5]), "生成的文件应大于子进程堆上限");
+        }
+    }
+
+    /**
+     * 小堆子进程：页面经模拟游标逐页生成，测试本身也不持有全部页面
+     */
+    static class SmallHeapGeneration {
+
+        public static void main(String[] args) throws Exception {
+            Path baseDir = Path.of(args[0]);
+            int items = Integer.parseInt(args[1]);
+            int itemsPerRegion = 10;
+            int regionsPerPage = 5;
+            int pages = Math.max(1, items / (itemsPerRegion * regionsPerPage));
+            // 每项约800字节，十万项的XML约80MB，大于子进程的堆
+            String tag = "长文本".repeat(70);
+
+            FileStorageProperties storageProperties = new FileStorageProperties();
+            storageProperties.getStorage().getLocal().setBasePath(baseDir.toString());
+            ProgramContentRepository repository = mock(ProgramContentRepository.class);
+            when(repository.findHeaderByProgramId(100L)).thenReturn(content(List.of(header())));
+            when(repository.streamVsnPages("content-100", 0)).thenAnswer(invocation -> IntStream.range(0, pages)
+                    .mapToObj(p -> buildPage(tag, p, regionsPerPage, itemsPerRegion)));
+            // 不用mock：mock会记录每次调用的参数，从而持有全部页面
+            AtomicLong validatedPages = new AtomicLong();
+            VsnSchemaValidator validator = new VsnSchemaValidator() {
+                @Override
+                public void validate(List<VsnProgram> programs) {
+                }
+
+                @Override
+                public void validateProgram(VsnProgram program) {
+                }
+
+                @Override
+                public void validatePage(ProgramPage page) {
+                    validatedPages.incrementAndGet();
+                }
+            };
+            VsnResultPublisher publisher = mock(VsnResultPublisher.class);
+
+            new VsnGenerationServiceImpl(publisher, repository, storageProperties, validator,
+                    new StreamingVsnXmlWriterImpl(), memoryCache(new ConcurrentHashMap<>())).generate(request(1));
+
+            verify(publisher, never()).publishResultFailed(any(), any(), any(), any(), any());
+            ArgumentCaptor<String> path = ArgumentCaptor.forClass(String.class);
+            verify(publisher).publishResultCompleted(any(), any(), any(), any(), path.capture(), any());
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            System.out.printf("RESULT %s %d %d %d %d%n", path.getValue(), pages,
+                    validatedPages.get(),
+                    peak, Runtime.getRuntime().maxMemory());
+            System.exit(0);
+        }
+    }
+
+    /**
+     * 内存版缓存服务，只实现生成流程用到的读写和删除
+     */
+    private static CacheService memoryCache(Map<String, Object> cache) {
+        CacheService cacheService = mock(CacheService.class);
+        when(cacheService.get(anyString(), any())).thenAnswer(invocation -> cache.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> cache.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(cacheService).put(anyString(), any(), any(Duration.class));
+        doAnswer(invocation -> cache.remove(invocation.<String>getArgument(0)))
+                .when(cacheService).evict(anyString());
+        return cacheService;
+    }
+
+    /**
+     * 节目头只含Information，页面按游标逐页读取；每次桩定视为一次内容更新
+     */
+    private static void stubProgram(ProgramContentRepository repository, List<VsnProgram> programs) {
+        List<VsnProgram> headers = new ArrayList<>();
+        for (int i = 0; i < programs.size(); i++) {
+            headers.add(header());
+            int index = i;
+            when(repository.streamVsnPages("content-100", index))
+                    .thenAnswer(invocation -> programs.get(index).getPages().stream());
+        }
+        when(repository.findHeaderByProgramId(100L)).thenReturn(content(headers));
+    }
+
+    private String publishedPath() {
+        ArgumentCaptor<String> path = ArgumentCaptor.forClass(String.class);
+        verify(vsnResultPublisher, atLeastOnce())
+                .publishResultCompleted(any(), any(), any(), any(), path.capture(), any());
+        return path.getValue();
+    }
+
+    private static Map<String, Object> request(int version) {
+        return Map.of("organizationId", 1L, "programId", 100L, "version", version, "programName", "lobby");
+    }
+
+    private static ProgramContent content(List<VsnProgram> programs) {
+        ProgramContent content = new ProgramContent();
+        content.setId("content-100");
+        content.setProgramId(100L);
+        content.setOrgId(1L);
+        content.setVsnPrograms(programs);
+        content.setVersion(1);
+        content.setUpdatedTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(REVISION.incrementAndGet()));
+        return content;
+    }
+
+    private static List<VsnProgram> buildProgram(String tag) {
+        List<ProgramPage> pages = new ArrayList<>();
+        for (int p = 0; p < PAGES; p++) {
+            pages.add(buildPage(tag, p, REGIONS_PER_PAGE, ITEMS_PER_REGION));
+        }
+        VsnProgram program = header();
+        program.setPages(pages);
+        return new ArrayList<>(List.of(program));
+    }
+
+    private static VsnProgram header() {
+        ProgramInformation information = new ProgramInformation();
+        information.setWidth("640");
+        information.setHeight("32");
+        VsnProgram program = new VsnProgram();
+        program.setInformation(information);
+        return program;
+    }
+
+    private static ProgramPage buildPage(String tag, int p, int regionsPerPage, int itemsPerRegion) {
+        List<ProgramRegion> regions = new ArrayList<>();
+        for (int r = 0; r < regionsPerPage; r++) {
+            List<ProgramItem> items = new ArrayList<>();
+            for (int i = 0; i < itemsPerRegion; i++) {
+                ProgramItem item = new ProgramItem();
+                item.setType("5");
+                item.setText(tag + " 第" + p + "页 区域" + r + " 文本" + i + " <&>");
+                item.setTextColor("#FFFFFF");
+                item.setDuration("10");
+                items.add(item);
+            }
+            DisplayRect rect = new DisplayRect();
+            rect.setX(r * 64);
+            rect.setY(0);
+            rect.setWidth(64);
+            rect.setHeight(32);
+            rect.setBorderWidth(0);
+            ProgramRegion region = new ProgramRegion();
+            region.setRect(rect);
+            region.setName("region-" + r);
+            region.setItems(items);
+            regions.add(region);
+        }
+        ProgramPage page = new ProgramPage();
+        page.setAppointDuration("60");
+        page.setLoopType("1");
+        page.setRegions(regions);
+        return page;
+    }
+}
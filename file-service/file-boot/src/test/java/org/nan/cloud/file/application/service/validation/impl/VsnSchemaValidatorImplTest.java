@@ -0,0 +1,156 @@
+package org.nan.cloud.file.application.service.validation.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.program.document.ProgramInformation;
+import org.nan.cloud.program.document.ProgramItem;
+import org.nan.cloud.program.document.ProgramPage;
+import org.nan.cloud.program.document.ProgramRegion;
+import org.nan.cloud.program.document.VsnProgram;
+import org.nan.cloud.program.vsn.DisplayRect;
+import org.nan.cloud.program.vsn.LogFont;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VSN校验器测试
+ * 不依赖Spring上下文，测量10到10万素材项的节目的校验耗时随规模线性增长，
+ * 并验证一次调用报告全部错误及其位置
+ */
+class VsnSchemaValidatorImplTest {
+
+    private static final int REGIONS_PER_PAGE = 5;
+    private static final int ITEMS_PER_REGION = 10;
+
+    private VsnSchemaValidatorImpl validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new VsnSchemaValidatorImpl();
+    }
+
+    @Test
+    void testValidationScalesLinearly() {
+        int[] sizes = {10, 100, 1_000, 10_000, 100_000};
+        Map<Integer, Double> nanosPerItem = new LinkedHashMap<>();
+        for (int items : sizes) {
+            List<VsnProgram> programs = List.of(buildProgram(items));
+            // 预热后取多轮中的最小值，减少GC和JIT的干扰
+            int rounds = Math.max(5, 1_000_000 / items);
+            for (int i = 0; i < rounds; i++) {
+                validator.validate(programs);
+            }
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < 5; r++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    validator.validate(programs);
+                }
+                best = Math.min(best, (System.nanoTime() - start) / rounds);
+            }
+            nanosPerItem.put(items, (double) best / items);
+        }
+
+        StringBuilder report = new StringBuilder();
+        nanosPerItem.forEach((items, nanos) -> report.append(String.format(", %d项 %.1fns/项(%.2fms)",
+                items, nanos, nanos * items / 1e6)));
+        System.out.printf("VSN校验扩展性%s%n", report);
+
+        assertTrue(nanosPerItem.get(100_000) < nanosPerItem.get(1_000) * 4,
+                "每项耗时不应随节目规模增长: " + nanosPerItem);
+    }
+
+    @Test
+    void testAllErrorsReportedInOneCall() {
+        VsnProgram program = buildProgram(100_000);
+        // 每隔1000项去掉一个文本项的字体
+        int index = 0;
+        for (ProgramPage page : program.getPages()) {
+            for (ProgramRegion region : page.getRegions()) {
+                for (ProgramItem item : region.getItems()) {
+                    if (index++ % 1000 == 0) {
+                        item.setLogFont(null);
+                    }
+                }
+            }
+        }
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> validator.validate(List.of(program)));
+        assertTrue(error.getMessage().startsWith("VSN校验失败，共100处错误"), error.getMessage());
+        assertTrue(error.getMessage().contains("节目[0]/页面[0]/区域[0]/素材项[0]: 文本类 Item 需要 LogFont.lfHeight"));
+        assertTrue(error.getMessage().endsWith("; ..."), "超过上限的错误只计数不列出");
+    }
+
+    @Test
+    void testPageValidationReportsRegionAndItemLocation() {
+        ProgramPage page = buildPage(2, 3);
+        page.setBgColor(null);
+        page.getRegions().get(1).setName(" ");
+        page.getRegions().get(1).getItems().get(2).setType(null);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> validator.validatePage(page));
+        assertTrue(error.getMessage().startsWith("VSN校验失败，共3处错误"), error.getMessage());
+        assertTrue(error.getMessage().contains("Page.bgColor 必填"));
+        assertTrue(error.getMessage().contains("区域[1]: Region.name 必填"));
+        assertTrue(error.getMessage().contains("区域[1]/素材项[2]: Item.type 必填"));
+
+        assertDoesNotThrow(() -> validator.validatePage(buildPage(2, 3)));
+    }
+
+    private static VsnProgram buildProgram(int items) {
+        int perPage = REGIONS_PER_PAGE * ITEMS_PER_REGION;
+        List<ProgramPage> pages = new ArrayList<>();
+        for (int remaining = items; remaining > 0; remaining -= perPage) {
+            int pageItems = Math.min(perPage, remaining);
+            int regions = Math.max(1, Math.min(REGIONS_PER_PAGE, pageItems / ITEMS_PER_REGION));
+            pages.add(buildPage(regions, pageItems / regions));
+        }
+        ProgramInformation information = new ProgramInformation();
+        information.setWidth("640");
+        information.setHeight("32");
+        VsnProgram program = new VsnProgram();
+        program.setInformation(information);
+        program.setPages(pages);
+        return program;
+    }
+
+    private static ProgramPage buildPage(int regionCount, int itemsPerRegion) {
+        List<ProgramRegion> regions = new ArrayList<>();
+        for (int r = 0; r < regionCount; r++) {
+            List<ProgramItem> items = new ArrayList<>();
+            for (int i = 0; i < itemsPerRegion; i++) {
+                LogFont font = new LogFont();
+                font.setLfHeight("16");
+                ProgramItem item = new ProgramItem();
+                item.setType("5");
+                item.setText("文本" + i);
+                item.setLogFont(font);
+                items.add(item);
+            }
+            DisplayRect rect = new DisplayRect();
+            rect.setX(r * 64);
+            rect.setY(0);
+            rect.setWidth(64);
+            rect.setHeight(32);
+            rect.setBorderWidth(0);
+            ProgramRegion region = new ProgramRegion();
+            region.setRect(rect);
+            region.setName("region-" + r);
+            region.setIsScheduleRegion("0");
+            region.setItems(items);
+            regions.add(region);
+        }
+        ProgramPage page = new ProgramPage();
+        page.setLoopType("1");
+        page.setBgColor(0);
+        page.setRegions(regions);
+        return page;
+    }
+}
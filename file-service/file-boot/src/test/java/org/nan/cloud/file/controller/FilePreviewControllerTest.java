@@ -0,0 +1,66 @@
+package org.nan.cloud.file.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.FilePreviewService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件预览控制器客户端识别测试
+ * 不依赖Spring上下文，验证只有受信任代理转发的X-Forwarded-For才会用于流式传输排队
+ */
+class FilePreviewControllerTest {
+
+    private FilePreviewService filePreviewService;
+    private FilePreviewController controller;
+
+    @BeforeEach
+    void setUp() {
+        filePreviewService = mock(FilePreviewService.class);
+        FileStorageProperties storageProperties = new FileStorageProperties();
+        storageProperties.getStreaming().setTrustedProxies(List.of("10.0.0.1", "10.0.0.2"));
+        controller = new FilePreviewController(filePreviewService, storageProperties);
+    }
+
+    @Test
+    void testUntrustedClientCannotSpoofForwardedFor() {
+        assertEquals("203.0.113.9", streamClientId("203.0.113.9", "198.51.100.1"),
+                "非受信任代理的请求忽略X-Forwarded-For");
+    }
+
+    @Test
+    void testNoForwardedForUsesRemoteAddress() {
+        assertEquals("10.0.0.1", streamClientId("10.0.0.1", null));
+    }
+
+    @Test
+    void testTrustedProxyChainSkipsProxies() {
+        assertEquals("198.51.100.1", streamClientId("10.0.0.1", "198.51.100.1"));
+        // 客户端伪造的首个地址被忽略，取最右侧第一个不受信任的地址
+        assertEquals("198.51.100.1", streamClientId("10.0.0.1", "1.2.3.4, 198.51.100.1, 10.0.0.2"));
+        assertEquals("10.0.0.2", streamClientId("10.0.0.1", "10.0.0.2"), "整条链都是代理时取最远的代理");
+    }
+
+    private String streamClientId(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        clearInvocations(filePreviewService);
+        controller.streamFile("file-1", request, new MockHttpServletResponse());
+
+        ArgumentCaptor<FilePreviewService.StreamRequest> captor = ArgumentCaptor.forClass(FilePreviewService.StreamRequest.class);
+        verify(filePreviewService).handleStreamRequest(captor.capture(), any());
+        return captor.getValue().getClientId();
+    }
+}
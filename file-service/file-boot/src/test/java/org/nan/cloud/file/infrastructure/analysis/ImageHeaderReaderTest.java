@@ -0,0 +1,276 @@
+package org.nan.cloud.file.infrastructure.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片文件头解析测试
+ * 不依赖Spring上下文，对比大尺寸图片的ImageIO全量解码与文件头解析耗时，
+ * 验证只凭文件开头几KB即可得到尺寸和透明通道，以及各格式的EXIF、动画信息
+ */
+class ImageHeaderReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHeaderReadVersusFullDecodeOnLargeImages() throws Exception {
+        for (String format : new String[]{"jpg", "png"}) {
+            File file = writeImage(8000, 6000, BufferedImage.TYPE_3BYTE_BGR, format);
+
+            int decodeRuns = 2;
+            long start = System.nanoTime();
+            BufferedImage decoded = null;
+            for (int i = 0; i < decodeRuns; i++) {
+                decoded = ImageIO.read(file);
+            }
+            double decodeMillis = (System.nanoTime() - start) / 1e6 / decodeRuns;
+
+            int headerRuns = 2000;
+            ImageHeaderReader.ImageHeader header = null;
+            start = System.nanoTime();
+            for (int i = 0; i < headerRuns; i++) {
+                header = ImageHeaderReader.read(file);
+            }
+            double headerMicros = (System.nanoTime() - start) / 1e3 / headerRuns;
+
+            System.out.printf("8000x6000 %s (%dKB): ImageIO.read %.0fms, 文件头解析 %.1fus, 快%.0f倍%n",
+                    format, file.length() >> 10, decodeMillis, headerMicros, decodeMillis * 1000 / headerMicros);
+
+            assertEquals(decoded.getWidth(), header.getWidth());
+            assertEquals(decoded.getHeight(), header.getHeight());
+            assertFalse(header.getHasAlpha());
+            assertEquals(24, header.getColorDepth());
+            assertTrue(decodeMillis * 1000 / headerMicros > 100, format + "文件头解析应比全量解码快两个数量级以上");
+        }
+    }
+
+    @Test
+    void testFirstFewKilobytesAreEnough() throws Exception {
+        for (String format : new String[]{"jpg", "png"}) {
+            File file = writeImage(2000, 1500, BufferedImage.TYPE_3BYTE_BGR, format);
+            File truncated = tempDir.resolve("truncated." + format).toFile();
+            Files.write(truncated.toPath(), Arrays.copyOf(Files.readAllBytes(file.toPath()), 4096));
+
+            ImageHeaderReader.ImageHeader full = ImageHeaderReader.read(file);
+            ImageHeaderReader.ImageHeader head = ImageHeaderReader.read(truncated);
+
+            assertEquals(full, head, format + "只截取前4KB时解析结果应不变");
+            assertEquals(2000, head.getWidth());
+            assertEquals(1500, head.getHeight());
+        }
+    }
+
+    @Test
+    void testPngAlphaAndColorSpaceFromHeader() throws Exception {
+        ImageHeaderReader.ImageHeader argb = ImageHeaderReader.read(writeImage(64, 32, BufferedImage.TYPE_INT_ARGB, "png"));
+        assertTrue(argb.getHasAlpha());
+        assertEquals(32, argb.getColorDepth());
+        assertEquals("RGB", argb.getColorSpace());
+
+        ImageHeaderReader.ImageHeader gray = ImageHeaderReader.read(writeImage(64, 32, BufferedImage.TYPE_BYTE_GRAY, "png"));
+        assertFalse(gray.getHasAlpha());
+        assertEquals(8, gray.getColorDepth());
+        assertEquals("GRAY", gray.getColorSpace());
+    }
+
+    @Test
+    void testJpegExif() throws Exception {
+        File source = writeImage(400, 300, BufferedImage.TYPE_3BYTE_BGR, "jpg");
+        File file = tempDir.resolve("exif.jpg").toFile();
+        Files.write(file.toPath(), withExif(Files.readAllBytes(source.toPath()), "Canon", 6));
+
+        ImageHeaderReader.ImageHeader header = ImageHeaderReader.read(file);
+
+        assertEquals("jpeg", header.getFormat());
+        assertEquals(400, header.getWidth());
+        assertEquals(300, header.getHeight());
+        assertEquals(6, header.getOrientation());
+        assertNotNull(header.getExifInfo());
+        assertEquals("Canon", header.getExifInfo().getCameraMake());
+    }
+
+    @Test
+    void testAnimatedGifDelaysAndLoopCount() throws Exception {
+        File file = tempDir.resolve("animated.gif").toFile();
+        int[] delays = {5, 10, 20};
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < delays.length; i++) {
+                BufferedImage frame = new BufferedImage(48, 24, BufferedImage.TYPE_INT_RGB);
+                IIOMetadata metadata = writer.getDefaultImageMetadata(
+                        ImageTypeSpecifier.createFromRenderedImage(frame), null);
+                String name = metadata.getNativeMetadataFormatName();
+                IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(name);
+                IIOMetadataNode control = child(root, "GraphicControlExtension");
+                control.setAttribute("disposalMethod", "none");
+                control.setAttribute("userInputFlag", "FALSE");
+                control.setAttribute("transparentColorFlag", "FALSE");
+                control.setAttribute("delayTime", String.valueOf(delays[i]));
+                control.setAttribute("transparentColorIndex", "0");
+                if (i == 0) {
+                    IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+                    extension.setAttribute("applicationID", "NETSCAPE");
+                    extension.setAttribute("authenticationCode", "2.0");
+                    extension.setUserObject(new byte[]{1, 0, 0});
+                    child(root, "ApplicationExtensions").appendChild(extension);
+                }
+                metadata.setFromTree(name, root);
+                writer.writeToSequence(new IIOImage(frame, null, metadata), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+
+        ImageHeaderReader.ImageHeader header = ImageHeaderReader.read(file);
+
+        assertEquals(48, header.getWidth());
+        assertEquals(24, header.getHeight());
+        assertTrue(header.getAnimated());
+        assertEquals(3, header.getFrameCount());
+        assertEquals(350L, header.getAnimationDuration(), "按真实帧延迟累计");
+        assertEquals(350 / 3.0, header.getAverageFrameDelay(), 0.01);
+        assertEquals(0, header.getLoopCount(), "NETSCAPE扩展的0表示无限循环");
+    }
+
+    @Test
+    void testWebpHeaders() throws Exception {
+        // VP8X扩展格式：带alpha的动画，两帧40ms和60ms，循环3次
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        chunks.write(chunk("VP8X", le(0x12, 1), new byte[3], uint24(639), uint24(479)));
+        chunks.write(chunk("ANIM", new byte[4], le(3, 2)));
+        chunks.write(chunk("ANMF", new byte[6], uint24(639), uint24(479), uint24(40), new byte[1]));
+        chunks.write(chunk("ANMF", new byte[6], uint24(639), uint24(479), uint24(60), new byte[1]));
+        ImageHeaderReader.ImageHeader animated = ImageHeaderReader.read(writeWebp(chunks.toByteArray(), "animated"));
+
+        assertEquals(640, animated.getWidth());
+        assertEquals(480, animated.getHeight());
+        assertTrue(animated.getHasAlpha());
+        assertTrue(animated.getAnimated());
+        assertEquals(2, animated.getFrameCount());
+        assertEquals(100L, animated.getAnimationDuration());
+        assertEquals(3, animated.getLoopCount());
+
+        // VP8L无损格式：14位宽高和alpha标志
+        int bits = (1919) | (1079 << 14) | (1 << 28);
+        ImageHeaderReader.ImageHeader lossless = ImageHeaderReader.read(
+                writeWebp(chunk("VP8L", new byte[]{0x2F}, le(bits, 4), new byte[5]), "lossless"));
+
+        assertEquals(1920, lossless.getWidth());
+        assertEquals(1080, lossless.getHeight());
+        assertTrue(lossless.getHasAlpha());
+        assertEquals(32, lossless.getColorDepth());
+    }
+
+    private File writeImage(int width, int height, int type, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.CYAN));
+            graphics.fillRect(0, 0, width, height);
+        } finally {
+            graphics.dispose();
+        }
+        File file = tempDir.resolve(width + "x" + height + "-" + type + "." + format).toFile();
+        assertTrue(ImageIO.write(image, format, file));
+        return file;
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+        for (int i = 0; i < root.getLength(); i++) {
+            if (root.item(i).getNodeName().equals(name)) {
+                return (IIOMetadataNode) root.item(i);
+            }
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        root.appendChild(node);
+        return node;
+    }
+
+    /**
+     * 在SOI之后插入含相机厂商和方向标签的EXIF APP1段（大端TIFF）
+     */
+    private static byte[] withExif(byte[] jpeg, String make, int orientation) {
+        byte[] makeBytes = (make + "\0").getBytes(StandardCharsets.US_ASCII);
+        // TIFF头8字节 + IFD(条目数2字节 + 2个条目 + 下一IFD偏移4字节) = 38字节，之后是字符串
+        ByteBuffer tiff = ByteBuffer.allocate(38 + makeBytes.length);
+        tiff.put(new byte[]{'M', 'M', 0, 42}).putInt(8)
+                .putShort((short) 2)
+                .putShort((short) 0x010F).putShort((short) 2).putInt(makeBytes.length).putInt(38)
+                .putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0)
+                .putInt(0)
+                .put(makeBytes);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        int length = 2 + 6 + tiff.capacity();
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.writeBytes(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.writeBytes(tiff.array());
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private File writeWebp(byte[] chunks, String name) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("RIFF".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(le(4 + chunks.length, 4));
+        out.writeBytes("WEBP".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(chunks);
+        File file = tempDir.resolve(name + ".webp").toFile();
+        Files.write(file.toPath(), out.toByteArray());
+        return file;
+    }
+
+    private static byte[] chunk(String type, byte[]... parts) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            data.writeBytes(part);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(type.getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(le(data.size(), 4));
+        out.writeBytes(data.toByteArray());
+        if ((data.size() & 1) != 0) {
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] uint24(int value) {
+        return le(value, 3);
+    }
+
+    private static byte[] le(int value, int bytes) {
+        byte[] full = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+        return Arrays.copyOf(full, bytes);
+    }
+}
@@ -0,0 +1,300 @@
+package org.nan.cloud.file.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 本地缓存跨实例失效测试
+ * 不依赖Spring上下文，两个实例共用一个进程内的Redis替身（键值、集合和发布订阅），
+ * 验证一个实例的修改和删除能使另一实例的本地缓存失效、读取与失效并发时不会回填旧值，
+ * 以及失效广播的合并去重和按标签整组删除
+ */
+class FileServiceCacheServiceImplTest {
+
+    private static final String PAUSED_READER = "paused-reader";
+
+    /**
+     * Redis替身：键值、集合、发布订阅
+     */
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+    private final List<MessageListener> subscribers = new CopyOnWriteArrayList<>();
+    private final List<String> publishedMessages = new CopyOnWriteArrayList<>();
+    private final ExecutorService pubSub = Executors.newSingleThreadExecutor();
+
+    private final CountDownLatch pausedRead = new CountDownLatch(1);
+    private final CountDownLatch resumeRead = new CountDownLatch(1);
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
+    private RedisMessageListenerContainer listenerContainer;
+    private final List<CacheInvalidationBroadcaster> broadcasters = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> {
+            Object value = values.get(invocation.<String>getArgument(0));
+            if (PAUSED_READER.equals(Thread.currentThread().getName())) {
+                // 模拟读取Redis后、回填本地缓存前的停顿
+                pausedRead.countDown();
+                resumeRead.await();
+            }
+            return value;
+        });
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+        when(redisTemplate.delete(anyString())).thenAnswer(invocation ->
+                values.remove(invocation.<String>getArgument(0)) != null);
+        when(redisTemplate.delete(anyCollection())).thenAnswer(invocation -> {
+            long removed = 0;
+            for (Object key : invocation.<Collection<?>>getArgument(0)) {
+                removed += values.remove(key) != null ? 1 : 0;
+            }
+            return removed;
+        });
+
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        SetOperations<String, String> setOperations = mock(SetOperations.class);
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.add(anyString(), any(String[].class))).thenAnswer(invocation -> {
+            Set<String> members = sets.computeIfAbsent(invocation.getArgument(0), k -> ConcurrentHashMap.newKeySet());
+            Object[] arguments = invocation.getArguments();
+            for (int i = 1; i < arguments.length; i++) {
+                members.add((String) arguments[i]);
+            }
+            return 1L;
+        });
+        when(setOperations.members(anyString())).thenAnswer(invocation ->
+                new HashSet<>(sets.getOrDefault(invocation.<String>getArgument(0), Set.of())));
+        when(stringRedisTemplate.getExpire(anyString(), any(TimeUnit.class))).thenReturn(-1L);
+        when(stringRedisTemplate.delete(anyString())).thenAnswer(invocation ->
+                sets.remove(invocation.<String>getArgument(0)) != null);
+        when(stringRedisTemplate.convertAndSend(anyString(), anyString())).thenAnswer(invocation -> {
+            String channel = invocation.getArgument(0);
+            String body = invocation.getArgument(1);
+            publishedMessages.add(body);
+            // 发布订阅异步投递给全部订阅者，包括发布者自身
+            pubSub.execute(() -> subscribers.forEach(listener -> listener.onMessage(new DefaultMessage(
+                    channel.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8)), null)));
+            return (long) subscribers.size();
+        });
+
+        listenerContainer = mock(RedisMessageListenerContainer.class);
+        doAnswer(invocation -> subscribers.add(invocation.getArgument(0)))
+                .when(listenerContainer).addMessageListener(any(MessageListener.class), any(Topic.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcasters.forEach(CacheInvalidationBroadcaster::shutdown);
+        pubSub.shutdownNow();
+    }
+
+    @Test
+    void testWriteOnOneNodeInvalidatesOtherNode() throws Exception {
+        FileServiceCacheServiceImpl nodeA = node();
+        FileServiceCacheServiceImpl nodeB = node();
+
+        CacheInvalidationBroadcaster broadcasterB = broadcasters.get(1);
+        nodeA.put("file:1", "v1", Duration.ofMinutes(5));
+        awaitTrue(() -> (long) broadcasterB.getStatistics().get("receivedKeys") >= 1);
+        assertEquals("v1", nodeB.get("file:1", String.class));
+        // B的本地缓存已有v1，此后不再读Redis
+        values.put("file:cache:file:1", "bypass");
+        assertEquals("v1", nodeB.get("file:1", String.class));
+
+        long start = System.nanoTime();
+        nodeA.put("file:1", "v2", Duration.ofMinutes(5));
+        awaitTrue(() -> "v2".equals(nodeB.get("file:1", String.class)));
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        nodeA.evict("file:1");
+        awaitTrue(() -> nodeB.get("file:1", String.class) == null);
+
+        System.out.printf("跨实例失效: 修改后另一实例%dms内读到新值%n", latencyMillis);
+        assertTrue(latencyMillis < 1000, "失效通知应在广播周期内送达: " + latencyMillis + "ms");
+    }
+
+    @Test
+    void testFillRacingWithInvalidationIsRolledBack() throws Exception {
+        FileServiceCacheServiceImpl nodeA = node();
+        FileServiceCacheServiceImpl nodeB = node();
+        CacheInvalidationBroadcaster broadcasterB = broadcasters.get(1);
+        values.put("file:cache:file:2", "old");
+
+        // B读到旧值后停顿，期间A写入新值并广播
+        ExecutorService reader = Executors.newSingleThreadExecutor(r -> new Thread(r, PAUSED_READER));
+        Future<String> pausedValue = reader.submit(() -> nodeB.get("file:2", String.class));
+        assertTrue(pausedRead.await(5, TimeUnit.SECONDS));
+        nodeA.put("file:2", "new", Duration.ofMinutes(5));
+        awaitTrue(() -> (long) broadcasterB.getStatistics().get("receivedKeys") >= 1);
+        resumeRead.countDown();
+        assertEquals("old", pausedValue.get(5, TimeUnit.SECONDS));
+        reader.shutdown();
+
+        assertEquals("new", nodeB.get("file:2", String.class), "失效后完成的回填不应被使用");
+    }
+
+    @Test
+    void testBroadcastsAreDeduplicatedAndBatched() throws Exception {
+        FileServiceCacheServiceImpl nodeA = node();
+        CacheInvalidationBroadcaster broadcasterA = broadcasters.get(0);
+
+        // 热点键反复写入，同一广播周期内只发布一次
+        int writes = 20_000;
+        Random random = new Random(3);
+        for (int i = 0; i < writes; i++) {
+            nodeA.put("hot:" + random.nextInt(100), i, Duration.ofMinutes(5));
+        }
+        awaitTrue(() -> (int) broadcasterA.getStatistics().get("pendingKeys") == 0);
+        long hotKeys = (long) broadcasterA.getStatistics().get("publishedKeys");
+        long hotMessages = (long) broadcasterA.getStatistics().get("publishedMessages");
+
+        // 一次删除大量键时按单条消息上限拆分
+        List<String> bulk = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            bulk.add("bulk:" + i);
+        }
+        publishedMessages.clear();
+        nodeA.multiEvict(bulk);
+        awaitTrue(() -> (long) broadcasterA.getStatistics().get("publishedKeys") >= hotKeys + bulk.size());
+
+        System.out.printf("失效广播合并: %d次写入(100个键) -> %d个键/%d条消息, 删除%d个键 -> %d条消息%n",
+                writes, hotKeys, hotMessages, bulk.size(), publishedMessages.size());
+        assertTrue(hotKeys < writes / 2, "重复的键应合并广播: " + hotKeys);
+        assertTrue(hotKeys <= hotMessages * 100, "同一条消息中的键不重复");
+        assertTrue(publishedMessages.size() >= 3, "单条消息最多500个键");
+        assertTrue(publishedMessages.stream().allMatch(message -> message.split("\n").length <= 501));
+    }
+
+    @Test
+    void testEvictByTagRemovesGroupOnAllNodesWithoutKeys() throws Exception {
+        FileServiceCacheServiceImpl nodeA = node();
+        FileServiceCacheServiceImpl nodeB = node();
+
+        for (int i = 0; i < 3; i++) {
+            nodeA.putWithTags("material:" + i, "m" + i, Duration.ofMinutes(5), List.of("org:1"));
+        }
+        nodeA.putWithTags("material:9", "m9", Duration.ofMinutes(5), List.of("org:2"));
+        for (int i : new int[]{0, 1, 2, 9}) {
+            assertEquals("m" + i, nodeB.get("material:" + i, String.class));
+        }
+
+        nodeA.evictByTag("org:1");
+        awaitTrue(() -> nodeB.get("material:0", String.class) == null
+                && nodeB.get("material:1", String.class) == null
+                && nodeB.get("material:2", String.class) == null);
+
+        assertEquals("m9", nodeB.get("material:9", String.class), "其他标签的缓存不受影响");
+        assertFalse(sets.containsKey("file:cache-tag:org:1"));
+        verify(redisTemplate, never()).keys(anyString());
+        verify(stringRedisTemplate, never()).keys(anyString());
+    }
+
+    @Test
+    void testNoStaleEntriesAfterConcurrentLoad() throws Exception {
+        List<FileServiceCacheServiceImpl> nodes = List.of(node(), node());
+        int keys = 200;
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            FileServiceCacheServiceImpl node = nodes.get(t % 2);
+            boolean writer = t < 2;
+            Random random = new Random(t);
+            futures.add(executor.submit(() -> {
+                while (running.get()) {
+                    String key = "k" + random.nextInt(keys);
+                    if (writer) {
+                        node.put(key, random.nextInt(), Duration.ofMinutes(5));
+                    } else {
+                        node.get(key, Integer.class);
+                    }
+                }
+                return null;
+            }));
+        }
+        Thread.sleep(1_000);
+        running.set(false);
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 广播送达后两个实例读到的值与Redis一致
+        awaitTrue(() -> broadcasters.stream().allMatch(b -> (int) b.getStatistics().get("pendingKeys") == 0));
+        awaitTrue(() -> {
+            for (int i = 0; i < keys; i++) {
+                Object expected = values.get("file:cache:k" + i);
+                for (FileServiceCacheServiceImpl node : nodes) {
+                    Object actual = node.get("k" + i, Integer.class);
+                    if (expected != null && !expected.equals(actual)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+    }
+
+    private FileServiceCacheServiceImpl node() {
+        CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(stringRedisTemplate, listenerContainer);
+        broadcaster.initialize();
+        broadcasters.add(broadcaster);
+        AsyncCache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .recordStats()
+                .buildAsync();
+        FileServiceCacheServiceImpl cacheService = new FileServiceCacheServiceImpl(redisTemplate, stringRedisTemplate,
+                localCache, new ObjectMapper(), broadcaster);
+        cacheService.initialize();
+        return cacheService;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待失效通知超时");
+            Thread.sleep(5);
+        }
+    }
+}
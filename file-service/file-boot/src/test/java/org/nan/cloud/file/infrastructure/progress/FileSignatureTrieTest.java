@@ -0,0 +1,228 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.service.FileValidationService.FileValidationResult;
+import org.nan.cloud.file.application.service.FileValidationService.ValidationErrorCode;
+import org.nan.cloud.file.api.dto.FileUploadRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文件头魔数前缀树测试
+ * 不依赖Spring上下文，验证签名匹配规则以及文件验证服务基于签名的安全检查，
+ * 并测量混合媒体类型的验证吞吐
+ */
+class FileSignatureTrieTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSignatureTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new FileSignatureTrie()
+                .hex("89504E470D0A1A0A", "image/png", "png")
+                .ascii("RIFF", "application/x-riff", "riff")
+                .ascii("RIFF????WEBP", "image/webp", "webp")
+                .ascii("RIFF????WAVE", "audio/wav", "wav")
+                .ascii("????ftyp", "video/mp4", "mp4", "mov")
+                .ascii("????ftypqt", "video/quicktime", "mov")
+                .ascii("?".repeat(8) + "TAIL", "application/x-tail", "tail")
+                .executable("4D5A", "PE executable (Windows)");
+    }
+
+    @Test
+    void testExactMatch() {
+        byte[] header = HexFormat.of().parseHex("89504E470D0A1A0A0000000D");
+
+        FileSignatureTrie.Signature signature = trie.match(header, header.length);
+
+        assertNotNull(signature);
+        assertEquals("image/png", signature.mimeType());
+        assertEquals(Set.of("png"), signature.extensions());
+        assertFalse(signature.executable());
+    }
+
+    @Test
+    void testWildcardAndLongestMatch() {
+        assertEquals("image/webp", match("RIFF\u0010\u0000\u0000\u0000WEBPVP8 ").mimeType(),
+                "长度字段为通配字节，应匹配更长的WEBP签名");
+        assertEquals("audio/wav", match("RIFF$\u0000\u0000\u0000WAVEfmt ").mimeType());
+        assertEquals("application/x-riff", match("RIFF\u0000\u0000\u0000\u0000AVI ").mimeType(),
+                "只有前缀匹配时回退到较短的签名");
+        assertEquals("video/quicktime", match("\u0000\u0000\u0000\u0014ftypqt  ").mimeType());
+        assertEquals("video/mp4", match("\u0000\u0000\u0000\u0018ftypisom").mimeType());
+    }
+
+    @Test
+    void testLeadingWildcardsSkipped() {
+        assertEquals("application/x-tail", match("12345678TAIL").mimeType());
+        assertNull(match("12345678TAI"), "文件头不足签名长度时不应匹配");
+    }
+
+    @Test
+    void testLengthLimitsMatch() {
+        byte[] header = "RIFF\u0010\u0000\u0000\u0000WEBP".getBytes(StandardCharsets.ISO_8859_1);
+
+        FileSignatureTrie.Signature signature = trie.match(header, 4);
+
+        assertEquals("application/x-riff", signature.mimeType(), "只匹配有效长度内的字节");
+        assertNull(trie.match(header, 0));
+    }
+
+    @Test
+    void testExecutableAndNoMatch() {
+        FileSignatureTrie.Signature signature = match("MZ\u0090\u0000");
+        assertTrue(signature.executable());
+        assertTrue(signature.extensions().isEmpty());
+
+        assertNull(match("plain text"));
+    }
+
+    @Test
+    void testDuplicateSignatureRejected() {
+        assertThrows(IllegalArgumentException.class, () -> trie.hex("89504E470D0A1A0A", "image/x-png", "png"));
+    }
+
+    @Test
+    void testCoveredExtensionsAndMaxLength() {
+        assertEquals(Set.of("png", "riff", "webp", "wav", "mp4", "mov", "tail"), trie.coveredExtensions());
+        assertEquals(12, trie.maxLength());
+    }
+
+    @Test
+    void testValidationServiceSignatures() throws IOException {
+        FileValidationServiceImpl validationService = new FileValidationServiceImpl();
+        validationService.initialize();
+
+        MockMultipartFile webp = new MockMultipartFile("file", "photo.webp", "application/octet-stream",
+                "RIFF\u0010\u0000\u0000\u0000WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("image/webp", validationService.detectMimeType(webp));
+
+        byte[] tar = new byte[512];
+        System.arraycopy("ustar".getBytes(StandardCharsets.US_ASCII), 0, tar, 257, 5);
+        MockMultipartFile archive = new MockMultipartFile("file", "archive.bin", "application/octet-stream", tar);
+        assertEquals("application/x-tar", validationService.detectMimeType(archive), "偏移257处的tar签名应被识别");
+
+        Path png = Files.write(tempDir.resolve("image.png"), HexFormat.of().parseHex("89504E470D0A1A0A0000000D"));
+        assertTrue(validationService.validateContent(png, "image.png").isValid());
+
+        // 扩展名伪装的可执行文件
+        Path disguised = Files.write(tempDir.resolve("image2.png"), HexFormat.of().parseHex("4D5A90000300000004000000"));
+        FileValidationResult result = validationService.validateContent(disguised, "image2.png");
+        assertFalse(result.isValid(), "可执行文件应被拒绝");
+        assertEquals(ValidationErrorCode.MALICIOUS_FILE, result.getErrorCode());
+    }
+
+    @Test
+    void testMixedMediaValidationsPerSecond() {
+        FileValidationServiceImpl validationService = new FileValidationServiceImpl();
+        ReflectionTestUtils.setField(validationService, "defaultMaxFileSize", 1L << 30);
+        ReflectionTestUtils.setField(validationService, "imageMaxSize", 100L << 20);
+        ReflectionTestUtils.setField(validationService, "videoMaxSize", 5L << 30);
+        ReflectionTestUtils.setField(validationService, "audioMaxSize", 500L << 20);
+        ReflectionTestUtils.setField(validationService, "documentMaxSize", 100L << 20);
+        validationService.initialize();
+
+        List<MockMultipartFile> files = List.of(
+                upload("photo.jpg", "image/jpeg", "FFD8FFE000104A464946"),
+                upload("logo.png", "image/png", "89504E470D0A1A0A0000000D"),
+                upload("banner.gif", "image/gif", "474946383961"),
+                upload("poster.webp", "image/webp", "52494646100000005745425056503820"),
+                upload("clip.mp4", "video/mp4", "0000001866747970697336D6"),
+                upload("ad.mov", "video/quicktime", "00000014667479707174202020"),
+                upload("song.mp3", "audio/mpeg", "494433030000"),
+                upload("manual.pdf", "application/pdf", "255044462D312E35"));
+        for (MockMultipartFile file : files) {
+            assertTrue(validationService.validate(file, new FileUploadRequest()).isValid(),
+                    "合法文件应通过验证: " + file.getOriginalFilename());
+        }
+
+        int validations = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < validations; i++) {
+            validationService.validate(files.get(i % files.size()), null);
+        }
+        double validationSeconds = (System.nanoTime() - start) / 1e9;
+
+        // 签名匹配本身：前缀树 vs 原实现的十六进制字符串startsWith
+        List<byte[]> headers = files.stream().map(file -> {
+            try {
+                return file.getBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+        FileSignatureTrie signatures = (FileSignatureTrie) ReflectionTestUtils.getField(validationService, "fileSignatures");
+        int matches = 2_000_000;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            byte[] header = headers.get(i % headers.size());
+            if (signatures.match(header, header.length) != null) {
+                found++;
+            }
+        }
+        double trieSeconds = (System.nanoTime() - start) / 1e9;
+        int legacyFound = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            if (legacyDetect(headers.get(i % headers.size())) != null) {
+                legacyFound++;
+            }
+        }
+        double legacySeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("混合媒体验证: %.0f次/秒; 签名匹配: 前缀树%.0f次/秒, 十六进制startsWith %.0f次/秒%n",
+                validations / validationSeconds, matches / trieSeconds, matches / legacySeconds);
+        assertEquals(matches, found, "前缀树应识别全部样本");
+        assertTrue(legacyFound < matches, "原实现不识别WebP/MP4/MOV/MP3");
+        assertTrue(trieSeconds < legacySeconds, "前缀树匹配应快于十六进制字符串比较");
+    }
+
+    private static MockMultipartFile upload(String filename, String contentType, String headerHex) {
+        byte[] content = new byte[4096];
+        byte[] header = HexFormat.of().parseHex(headerHex);
+        System.arraycopy(header, 0, content, 0, header.length);
+        return new MockMultipartFile("file", filename, contentType, content);
+    }
+
+    /**
+     * 原实现：文件头转十六进制字符串后逐个startsWith比较
+     */
+    private static String legacyDetect(byte[] header) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < Math.min(16, header.length); i++) {
+            hex.append(String.format("%02X", header[i]));
+        }
+        String headerHex = hex.toString();
+        if (headerHex.startsWith("4D5A") || headerHex.startsWith("7F454C46")
+                || headerHex.startsWith("CAFEBABE") || headerHex.startsWith("FEEDFACE")) {
+            return "executable";
+        }
+        if (headerHex.startsWith("FFD8FF")) return "image/jpeg";
+        if (headerHex.startsWith("89504E47")) return "image/png";
+        if (headerHex.startsWith("474946")) return "image/gif";
+        if (headerHex.startsWith("25504446")) return "application/pdf";
+        if (headerHex.startsWith("504B0304")) return "application/zip";
+        return null;
+    }
+
+    private FileSignatureTrie.Signature match(String header) {
+        byte[] bytes = header.getBytes(StandardCharsets.ISO_8859_1);
+        return trie.match(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,266 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.api.dto.UploadProgressResponse;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.domain.TaskContext;
+import org.nan.cloud.file.application.service.ProgressTrackingService.ChunkProgressInfo;
+import org.nan.cloud.file.application.service.ProgressTrackingService.ProgressStatus;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 跨实例进度共享测试
+ * 不依赖Spring上下文，多个实例共用一个内存版Redis哈希存储，验证其他实例读取的进度在复制周期内收敛、
+ * 分片和任务上下文可由其他实例接管，并测量多线程更新进度的吞吐
+ */
+class ProgressTrackingServiceImplTest {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+
+    /**
+     * 内存版Redis：键 -> 哈希字段
+     */
+    private final Map<String, Map<String, String>> redis = new ConcurrentHashMap<>();
+    private final AtomicLong redisWrites = new AtomicLong();
+    private final List<ProgressReplicator> replicators = new ArrayList<>();
+
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(anyString())).thenAnswer(invocation ->
+                new HashMap<>(redis.getOrDefault(invocation.<String>getArgument(0), Map.of())));
+
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        doAnswer(invocation -> {
+            redisWrites.incrementAndGet();
+            redis.computeIfAbsent(invocation.getArgument(0), k -> new ConcurrentHashMap<>())
+                    .putAll(invocation.getArgument(1));
+            return null;
+        }).when(connection).hMSet(anyString(), anyMap());
+        doAnswer(invocation -> {
+            redisWrites.incrementAndGet();
+            for (Object key : invocation.getArguments()) {
+                redis.remove((String) key);
+            }
+            return 1L;
+        }).when(connection).del(anyString());
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicators.forEach(ProgressReplicator::shutdown);
+    }
+
+    @Test
+    void testReaderOnOtherNodeConvergesWithinFlushInterval() throws Exception {
+        ProgressTrackingServiceImpl writer = new ProgressTrackingServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+        ProgressTrackingServiceImpl reader = new ProgressTrackingServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+
+        int updates = 200;
+        long[] writtenAt = new long[updates + 1];
+        writer.initializeProgress("task-1", updates * 1024L);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Long> maxLag = executor.submit(() -> {
+            // 记录每个取值在读取端首次可见的延迟
+            long max = 0;
+            long lastSeen = -1;
+            while (lastSeen < updates) {
+                UploadProgressResponse response = reader.getProgress("task-1");
+                if (response != null && response.getUploadedSize() / 1024 > lastSeen) {
+                    lastSeen = response.getUploadedSize() / 1024;
+                    long writtenNanos = writtenAt[(int) lastSeen];
+                    if (writtenNanos > 0) {
+                        max = Math.max(max, System.nanoTime() - writtenNanos);
+                    }
+                }
+                Thread.sleep(1);
+            }
+            return max;
+        });
+
+        for (int i = 1; i <= updates; i++) {
+            writtenAt[i] = System.nanoTime();
+            writer.updateProgress("task-1", i * 1024L);
+            Thread.sleep(2);
+        }
+        long lagMillis = TimeUnit.NANOSECONDS.toMillis(maxLag.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        writer.completeProgress("task-1");
+        awaitTrue(() -> reader.getProgressStatus("task-1") == ProgressStatus.COMPLETED);
+        UploadProgressResponse finalProgress = reader.getProgress("task-1");
+
+        System.out.printf("跨实例进度: 复制间隔%dms, %d次更新, 读取端最大延迟%dms, Redis写入%d次%n",
+                FLUSH_INTERVAL_MILLIS, updates, lagMillis, redisWrites.get());
+        assertEquals(100.0, finalProgress.getProgress());
+        assertEquals(updates * 1024L, finalProgress.getUploadedSize());
+        assertTrue(lagMillis < FLUSH_INTERVAL_MILLIS * 10, "读取端延迟应受复制间隔约束: " + lagMillis + "ms");
+        assertTrue(redisWrites.get() < updates, "同一任务在一个复制周期内的多次更新应合并写入");
+    }
+
+    @Test
+    void testChunksReceivedByDifferentNodesAreMerged() throws Exception {
+        ProgressTrackingServiceImpl nodeA = new ProgressTrackingServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+        ProgressTrackingServiceImpl nodeB = new ProgressTrackingServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+        ProgressTrackingServiceImpl nodeC = new ProgressTrackingServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+
+        nodeA.initializeChunkProgress("upload-1", 10);
+        for (int chunk = 0; chunk < 5; chunk++) {
+            nodeA.updateChunkProgress("upload-1", chunk);
+        }
+        awaitTrue(() -> redis.getOrDefault("file:progress:chunk:upload-1", Map.of()).size() >= 10);
+
+        // B没有该会话，收到分片时接管A复制的进度；与A重复的分片不重复计数
+        for (int chunk = 4; chunk < 10; chunk++) {
+            nodeB.updateChunkProgress("upload-1", chunk);
+        }
+        ChunkProgressInfo onB = nodeB.getChunkProgress("upload-1");
+        assertEquals(10, onB.getCompletedChunks());
+        assertEquals(ProgressStatus.COMPLETED, onB.getStatus());
+
+        awaitTrue(() -> {
+            ChunkProgressInfo onC = nodeC.getChunkProgress("upload-1");
+            return onC != null && onC.getCompletedChunks() == 10;
+        });
+        assertEquals(ProgressStatus.COMPLETED, nodeC.getChunkProgress("upload-1").getStatus());
+    }
+
+    @Test
+    void testTaskContextAdoptedAndClearedAcrossNodes() throws Exception {
+        TaskContextServiceImpl nodeA = new TaskContextServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+        TaskContextServiceImpl nodeB = new TaskContextServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+        TaskContextServiceImpl nodeC = new TaskContextServiceImpl(replicator(FLUSH_INTERVAL_MILLIS));
+
+        nodeA.createTaskContext("task-2", "file-2", 7L, 9L, "lobby.mp4", 4096L);
+        awaitTrue(() -> nodeB.existsTask("task-2"));
+
+        nodeB.updateTaskStatus("task-2", TaskContext.TaskStatus.PROCESSING);
+        nodeB.updateTaskProgress("task-2", 50);
+        nodeB.setTaskMaterialId("task-2", 300L);
+        awaitTrue(() -> {
+            TaskContext context = nodeC.getTaskContext("task-2");
+            return context != null && context.getProgress() == 50;
+        });
+        TaskContext context = nodeC.getTaskContext("task-2");
+        assertEquals(TaskContext.TaskStatus.PROCESSING, context.getStatus());
+        assertEquals(300L, context.getMaterialId());
+        assertEquals(7L, context.getUid());
+        assertEquals(9L, context.getOid());
+        assertEquals("lobby.mp4", context.getOriginalFilename());
+
+        nodeB.clearTaskContext("task-2");
+        awaitTrue(() -> !nodeC.existsTask("task-2"));
+    }
+
+    @Test
+    void testUpdatesNeverWaitOnRedisAndContention() throws Exception {
+        // 复制周期足够长，更新期间不发生复制
+        ProgressReplicator replicator = replicator(TimeUnit.MINUTES.toMillis(10));
+        ProgressTrackingServiceImpl service = new ProgressTrackingServiceImpl(replicator);
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        int updatesPerThread = 200_000;
+        for (int t = 0; t < threads; t++) {
+            service.initializeProgress("task-" + t, updatesPerThread * 1024L);
+        }
+
+        // 对照：原实现所有任务共用一把全局写锁
+        ReentrantReadWriteLock globalLock = new ReentrantReadWriteLock();
+        double globalOps = runUpdates(threads, updatesPerThread, (taskId, size) -> {
+            globalLock.writeLock().lock();
+            try {
+                service.updateProgress(taskId, size);
+            } finally {
+                globalLock.writeLock().unlock();
+            }
+        });
+        double perTaskOps = runUpdates(threads, updatesPerThread, service::updateProgress);
+
+        System.out.printf("进度更新竞争: %d线程(%d核), 全局锁 %.1fM次/秒, 按任务加锁 %.1fM次/秒, 待复制%s%n",
+                threads, Runtime.getRuntime().availableProcessors(), globalOps / 1e6, perTaskOps / 1e6,
+                replicator.getStatistics());
+
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        assertEquals(threads, replicator.getStatistics().get("pending"), "每个任务只登记一次待复制");
+        for (int t = 0; t < threads; t++) {
+            assertEquals(updatesPerThread * 1024L, service.getProgress("task-" + t).getUploadedSize());
+        }
+    }
+
+    private ProgressReplicator replicator(long flushIntervalMillis) {
+        FileStorageProperties storageProperties = new FileStorageProperties();
+        storageProperties.getProgressStore().setFlushIntervalMillis(flushIntervalMillis);
+        ProgressReplicator replicator = new ProgressReplicator(redisTemplate, storageProperties);
+        replicator.initialize();
+        replicators.add(replicator);
+        return replicator;
+    }
+
+    private static double runUpdates(int threads, int updatesPerThread, ProgressUpdate update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String taskId = "task-" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 1; i <= updatesPerThread; i++) {
+                    update.apply(taskId, i * 1024L);
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        executor.shutdown();
+        return threads * (double) updatesPerThread / seconds;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待复制超时");
+            Thread.sleep(5);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProgressUpdate {
+        void apply(String taskId, long uploadedSize);
+    }
+}
@@ -0,0 +1,189 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.geometry.Positions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缩略图降采样解码测试
+ * 不依赖Spring上下文，在大尺寸合成JPEG上对比全尺寸解码与降采样解码的堆分配和耗时，
+ * 并验证EXIF方向读取与8种方向变换
+ */
+class SubsampledImageDecoderTest {
+
+    private static final List<int[]> SIZES = List.of(new int[]{150, 150}, new int[]{300, 300}, new int[]{600, 600});
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLargeImageHeapFallsByTenTimes() throws Exception {
+        File source = writeSyntheticJpeg(8000, 6000);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        // 原实现：每个尺寸都由Thumbnailator读取全尺寸原图
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int[] size : SIZES) {
+            render(Thumbnails.of(source), size);
+        }
+        double fullMillis = (System.nanoTime() - start) / 1e6;
+        long fullAllocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        // 新实现：一次区域+降采样解码，所有尺寸共用
+        before = threadBean.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        BufferedImage decoded = SubsampledImageDecoder.decode(source, SIZES);
+        for (int[] size : SIZES) {
+            render(Thumbnails.of(decoded), size);
+        }
+        double subsampledMillis = (System.nanoTime() - start) / 1e6;
+        long subsampledAllocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.printf("8000x6000缩略图(150/300/600): 全尺寸解码 堆分配%dMB 耗时%.0fms, "
+                        + "降采样解码%dx%d 堆分配%dMB 耗时%.0fms, 下降%.1f倍%n",
+                fullAllocated >> 20, fullMillis, decoded.getWidth(), decoded.getHeight(),
+                subsampledAllocated >> 20, subsampledMillis, (double) fullAllocated / subsampledAllocated);
+
+        assertEquals(1200, decoded.getWidth(), "居中裁剪6000x6000，最小缩放比10，按5倍降采样");
+        assertEquals(1200, decoded.getHeight());
+        assertTrue(fullAllocated >= subsampledAllocated * 10,
+                "每张缩略图的堆分配应下降10倍以上: " + fullAllocated + " / " + subsampledAllocated);
+    }
+
+    @Test
+    void testDecodedImageKeepsHeadroomForEveryTarget() throws Exception {
+        File source = writeSyntheticJpeg(4000, 1000);
+
+        BufferedImage decoded = SubsampledImageDecoder.decode(source, List.of(new int[]{200, 100}, new int[]{100, 100}));
+
+        // 200x100需要2000x1000的区域，100x100需要1000x1000；最小缩放比10，按5倍降采样
+        assertEquals(400, decoded.getWidth());
+        assertEquals(200, decoded.getHeight());
+    }
+
+    @Test
+    void testExifOrientationRotatesDecodedImage() throws Exception {
+        File source = writeSyntheticJpeg(400, 200);
+        File rotated = tempDir.resolve("rotated.jpg").toFile();
+        Files.write(rotated.toPath(), withExifOrientation(Files.readAllBytes(source.toPath()), 6));
+
+        assertEquals(6, SubsampledImageDecoder.readExifOrientation(rotated));
+        assertEquals(1, SubsampledImageDecoder.readExifOrientation(source));
+
+        // 旋转后为200x400，50x100的目标需要整幅图，按2倍降采样
+        BufferedImage decoded = SubsampledImageDecoder.decode(rotated, List.<int[]>of(new int[]{50, 100}));
+        assertEquals(100, decoded.getWidth());
+        assertEquals(200, decoded.getHeight());
+    }
+
+    @Test
+    void testAllOrientationTransforms() {
+        int w = 3;
+        int h = 2;
+        BufferedImage stored = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                stored.setRGB(x, y, pixel(x, y));
+            }
+        }
+
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            BufferedImage shown = SubsampledImageDecoder.applyOrientation(stored, orientation);
+            boolean swapped = orientation >= 5;
+            assertEquals(swapped ? h : w, shown.getWidth(), "方向" + orientation + "的宽度");
+            assertEquals(swapped ? w : h, shown.getHeight(), "方向" + orientation + "的高度");
+            for (int y = 0; y < shown.getHeight(); y++) {
+                for (int x = 0; x < shown.getWidth(); x++) {
+                    int[] from = switch (orientation) {
+                        case 2 -> new int[]{w - 1 - x, y};
+                        case 3 -> new int[]{w - 1 - x, h - 1 - y};
+                        case 4 -> new int[]{x, h - 1 - y};
+                        case 5 -> new int[]{y, x};
+                        case 6 -> new int[]{y, h - 1 - x};
+                        case 7 -> new int[]{w - 1 - y, h - 1 - x};
+                        case 8 -> new int[]{w - 1 - y, x};
+                        default -> new int[]{x, y};
+                    };
+                    assertEquals(pixel(from[0], from[1]), shown.getRGB(x, y) & 0xFFFFFF,
+                            "方向" + orientation + "在(" + x + "," + y + ")的像素");
+                }
+            }
+        }
+    }
+
+    private static void render(Thumbnails.Builder<?> builder, int[] size) throws Exception {
+        BufferedImage thumbnail = builder.size(size[0], size[1])
+                .keepAspectRatio(true)
+                .crop(Positions.CENTER)
+                .asBufferedImage();
+        assertEquals(size[0], thumbnail.getWidth());
+    }
+
+    private static int pixel(int x, int y) {
+        return (x * 80) << 16 | (y * 120) << 8 | 0x40;
+    }
+
+    private File writeSyntheticJpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.RED, width, height, Color.BLUE));
+            graphics.fillRect(0, 0, width, height);
+            graphics.setColor(Color.WHITE);
+            for (int x = 0; x < width; x += width / 20) {
+                graphics.drawLine(x, 0, width - x, height);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        File file = tempDir.resolve(width + "x" + height + ".jpg").toFile();
+        assertTrue(ImageIO.write(image, "jpg", file));
+        return file;
+    }
+
+    /**
+     * 在SOI之后插入只含方向标签的EXIF APP1段（大端TIFF）
+     */
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        ByteBuffer tiff = ByteBuffer.allocate(26);
+        tiff.put(new byte[]{'M', 'M', 0, 42}).putInt(8)
+                .putShort((short) 1)
+                .putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0)
+                .putInt(0);
+        byte[] exif = new byte[6 + tiff.capacity()];
+        System.arraycopy(new byte[]{'E', 'x', 'i', 'f', 0, 0}, 0, exif, 0, 6);
+        System.arraycopy(tiff.array(), 0, exif, 6, tiff.capacity());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        int length = exif.length + 2;
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+}
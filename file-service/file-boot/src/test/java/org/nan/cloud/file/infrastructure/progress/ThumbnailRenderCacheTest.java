@@ -0,0 +1,173 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缩略图两级缓存测试
+ * 不依赖Spring上下文，百万次缩略图请求的浸泡测试验证堆占用稳定，并验证磁盘层上限、大图不进内存和重启恢复
+ */
+class ThumbnailRenderCacheTest {
+
+    private static final long MEMORY_MAX_BYTES = 16L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private final AtomicLong renders = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        FileStorageProperties.Thumbnail.Cache cache = storageProperties.getThumbnail().getCache();
+        cache.setMemoryMaxBytes(MEMORY_MAX_BYTES);
+        cache.setMaxEntryBytes(64 * 1024);
+        cache.setDiskPath(tempDir.resolve("render-cache").toString());
+        cache.setDiskMaxBytes(4L * 1024 * 1024);
+    }
+
+    @Test
+    void testHeapStableOverMillionOperations() throws Exception {
+        storageProperties.getThumbnail().getCache().setDiskEnabled(false);
+        ThumbnailRenderCache cache = new ThumbnailRenderCache(storageProperties);
+        cache.initialize();
+
+        int operations = 1_000_000;
+        int checkpoints = 10;
+        // 热点集中在少量文件，长尾覆盖50万个不同的缩略图，远超内存上限
+        Random random = new Random(42);
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        long[] heapAfterGc = new long[checkpoints];
+        byte[] buffer = new byte[8192];
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int file = random.nextInt(10) < 8 ? random.nextInt(2_000) : random.nextInt(500_000);
+            int size = 2048 + (file % 7) * 1024;
+            try (InputStream in = cache.getOrRender("thumb-" + file + "-200x200", out -> {
+                renders.incrementAndGet();
+                out.write(buffer, 0, size);
+            })) {
+                assertEquals(size, in.readNBytes(buffer, 0, buffer.length));
+            }
+            if ((i + 1) % (operations / checkpoints) == 0) {
+                heapAfterGc[(i + 1) / (operations / checkpoints) - 1] = usedHeapAfterGc(memoryBean);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> stats = cache.getStatistics();
+        long[] heapMb = Arrays.stream(heapAfterGc).map(bytes -> bytes >> 20).toArray();
+        System.out.printf("缩略图缓存浸泡: %d次请求, 耗时%.1fs, 生成%d次, 统计%s, 每10万次GC后堆占用(MB)%s%n",
+                operations, seconds, renders.get(), stats, Arrays.toString(heapMb));
+
+        long first = heapAfterGc[0];
+        for (int i = 1; i < checkpoints; i++) {
+            assertTrue(heapAfterGc[i] <= first + MEMORY_MAX_BYTES,
+                    "堆占用应保持稳定，不随请求数增长: " + Arrays.toString(heapMb));
+        }
+        assertTrue((long) stats.get("memoryEvictions") > 0, "长尾请求应触发淘汰");
+        assertTrue((long) stats.get("memoryEntries") * 2048 <= MEMORY_MAX_BYTES, "内存层条目按字节数受限");
+    }
+
+    @Test
+    void testDiskTierBoundedAndRecoveredAfterRestart() throws Exception {
+        ThumbnailRenderCache cache = new ThumbnailRenderCache(storageProperties);
+        cache.initialize();
+        long diskMax = storageProperties.getThumbnail().getCache().getDiskMaxBytes();
+
+        byte[] content = new byte[16 * 1024];
+        for (int i = 0; i < 2_000; i++) {
+            int file = i;
+            Arrays.fill(content, (byte) file);
+            cache.getOrRender("disk-" + file, out -> out.write(content)).close();
+        }
+        long onDisk = directorySize(tempDir.resolve("render-cache"));
+        Map<String, Object> stats = cache.getStatistics();
+        System.out.printf("缩略图磁盘缓存: 上限%dKB, 实际%dKB, 统计%s%n", diskMax >> 10, onDisk >> 10, stats);
+        assertTrue(onDisk <= diskMax, "磁盘层不应超过上限: " + onDisk);
+        assertEquals(onDisk, (long) stats.get("diskBytes"));
+
+        // 重启后从目录恢复索引，最近生成的缩略图直接命中磁盘
+        ThumbnailRenderCache restarted = new ThumbnailRenderCache(storageProperties);
+        restarted.initialize();
+        assertEquals(stats.get("diskEntries"), restarted.getStatistics().get("diskEntries"));
+        try (InputStream in = restarted.getOrRender("disk-1999", out -> fail("磁盘命中时不应重新生成"))) {
+            byte[] data = in.readAllBytes();
+            assertEquals(content.length, data.length);
+            assertEquals((byte) 1999, data[0]);
+        }
+        assertEquals(1L, restarted.getStatistics().get("diskHits"));
+    }
+
+    @Test
+    void testOversizedRenderNeverEntersMemory() throws Exception {
+        ThumbnailRenderCache cache = new ThumbnailRenderCache(storageProperties);
+        cache.initialize();
+        byte[] large = new byte[256 * 1024];
+        new Random(1).nextBytes(large);
+
+        for (int i = 0; i < 3; i++) {
+            try (InputStream in = cache.getOrRender("large", out -> {
+                renders.incrementAndGet();
+                out.write(large);
+            })) {
+                assertArrayEquals(large, in.readAllBytes());
+            }
+        }
+
+        Map<String, Object> stats = cache.getStatistics();
+        assertEquals(1, renders.get(), "生成一次后从磁盘读取");
+        assertEquals(0L, stats.get("memoryEntries"), "超过单条上限的缩略图不进入内存层");
+        assertEquals(2L, stats.get("diskHits"));
+    }
+
+    @Test
+    void testFailedRenderLeavesNoCacheEntry() throws Exception {
+        ThumbnailRenderCache cache = new ThumbnailRenderCache(storageProperties);
+        cache.initialize();
+
+        assertThrows(java.io.IOException.class, () -> cache.getOrRender("broken", out -> {
+            out.write(new byte[100]);
+            throw new java.io.IOException("不支持的输出格式");
+        }));
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(tempDir.resolve("render-cache"))) {
+            list.forEach(files::add);
+        }
+        assertTrue(files.isEmpty(), "生成失败时不应留下缓存或临时文件: " + files);
+        assertEquals(0, cache.getStatistics().get("diskEntries"));
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memoryBean) throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directorySize(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
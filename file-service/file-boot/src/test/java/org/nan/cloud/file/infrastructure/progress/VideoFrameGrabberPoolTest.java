@@ -0,0 +1,195 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 视频帧抓取解码器池测试
+ * 不依赖Spring上下文，用JavaCV生成测试片源（每秒一个关键帧，帧亮度对应所在秒数），
+ * 对比每次新建解码器与解码器池的缩略图吞吐，并验证关键帧定位和解码器数量上限
+ */
+class VideoFrameGrabberPoolTest {
+
+    private static final int FRAME_RATE = 25;
+    private static final int CLIP_SECONDS = 20;
+    private static final List<Double> OFFSETS = List.of(1.0, 4.5, 9.0, 13.5, 18.0);
+
+    @TempDir
+    File tempDir;
+
+    private FileStorageProperties storageProperties;
+    private VideoFrameGrabberPool grabberPool;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getThumbnail().getVideo().setMaxConcurrentDecoders(2);
+        grabberPool = new VideoFrameGrabberPool(storageProperties);
+        grabberPool.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        grabberPool.shutdown();
+    }
+
+    @Test
+    void testThumbnailsPerSecondAgainstPerRequestGrabber() throws Exception {
+        File clip = generateClip("bench.mp4");
+        int rounds = 20;
+
+        // 原实现：每个缩略图新建解码器，顺序解码到目标时间点
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (double offset : OFFSETS) {
+                try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(clip);
+                     Java2DFrameConverter converter = new Java2DFrameConverter()) {
+                    grabber.start();
+                    grabber.setTimestamp((long) (offset * 1000000));
+                    assertNotNull(converter.convert(grabber.grabImage()));
+                    grabber.stop();
+                }
+            }
+        }
+        double perRequestSeconds = (System.nanoTime() - start) / 1e9;
+
+        // 解码器池：一次会话抓取全部时间点，解码器跨请求复用
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            List<VideoFrameGrabberPool.GrabbedFrame> frames = grabberPool.grabFrames(clip, OFFSETS);
+            frames.forEach(frame -> assertNotNull(frame.image()));
+        }
+        double pooledSeconds = (System.nanoTime() - start) / 1e9;
+
+        int thumbnails = rounds * OFFSETS.size();
+        System.out.printf("视频缩略图: 每次新建解码器 %.1f张/秒, 解码器池 %.1f张/秒, 打开解码器%d次, 复用%d次%n",
+                thumbnails / perRequestSeconds, thumbnails / pooledSeconds,
+                grabberPool.getOpenedCount(), grabberPool.getReusedCount());
+
+        assertEquals(1, grabberPool.getOpenedCount(), "同一文件的解码器应被复用");
+        assertEquals(rounds - 1, grabberPool.getReusedCount());
+        assertEquals(thumbnails, grabberPool.getGrabbedFrameCount());
+        assertTrue(pooledSeconds < perRequestSeconds, "解码器池的吞吐应高于每次新建解码器");
+    }
+
+    @Test
+    void testSeekReturnsFirstKeyframeAtOrAfterTarget() throws Exception {
+        File clip = generateClip("seek.mp4");
+
+        List<VideoFrameGrabberPool.GrabbedFrame> frames = grabberPool.grabFrames(clip, List.of(13.5, 1.0, 4.5, 99.0));
+
+        // 结果顺序与请求顺序一致，超出范围的时间点调整到时长内
+        assertEquals(13.5, frames.get(0).timeOffset());
+        assertEquals(1.0, frames.get(1).timeOffset());
+        assertEquals(CLIP_SECONDS - 1, frames.get(3).timeOffset(), 0.1);
+        assertEquals(CLIP_SECONDS, frames.get(3).duration(), 0.1);
+
+        assertEquals(14, secondOf(frames.get(0).image()), "13.5秒之后的第一个关键帧在第14秒");
+        assertEquals(1, secondOf(frames.get(1).image()));
+        assertEquals(5, secondOf(frames.get(2).image()));
+        assertEquals(CLIP_SECONDS - 1, secondOf(frames.get(3).image()));
+    }
+
+    @Test
+    void testOpenDecodersStayWithinLimit() throws Exception {
+        int files = 4;
+        List<File> clips = new ArrayList<>();
+        clips.add(generateClip("clip-0.mp4"));
+        for (int i = 1; i < files; i++) {
+            File copy = new File(tempDir, "clip-" + i + ".mp4");
+            java.nio.file.Files.copy(clips.get(0).toPath(), copy.toPath());
+            clips.add(copy);
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger maxOpen = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    File clip = clips.get((offset + i) % files);
+                    grabberPool.grabFrames(clip, List.of(2.0, 10.0));
+                    maxOpen.accumulateAndGet(grabberPool.getOpenCount(), Math::max);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        System.out.printf("解码器上限: 最大同时打开%d个, 打开%d次, 复用%d次%n",
+                maxOpen.get(), grabberPool.getOpenedCount(), grabberPool.getReusedCount());
+        assertTrue(maxOpen.get() <= 2, "同时打开的解码器不应超过上限: " + maxOpen.get());
+        assertTrue(grabberPool.getOpenCount() <= 2);
+        assertEquals(threads * 10 * 2, grabberPool.getGrabbedFrameCount());
+    }
+
+    /**
+     * 生成320x240、每秒一个关键帧的测试片源，每秒的帧亮度为秒数*10
+     */
+    private File generateClip(String name) throws Exception {
+        File clip = new File(tempDir, name);
+        try {
+            try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(clip, 320, 240, 0);
+                 Java2DFrameConverter converter = new Java2DFrameConverter()) {
+                recorder.setFormat("mp4");
+                recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+                recorder.setFrameRate(FRAME_RATE);
+                recorder.setGopSize(FRAME_RATE);
+                recorder.setVideoQuality(2);
+                recorder.start();
+                BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_3BYTE_BGR);
+                for (int i = 0; i < CLIP_SECONDS * FRAME_RATE; i++) {
+                    int level = i / FRAME_RATE * 10;
+                    Graphics2D graphics = image.createGraphics();
+                    graphics.setColor(new Color(level, level, level));
+                    graphics.fillRect(0, 0, 320, 240);
+                    graphics.dispose();
+                    Frame frame = converter.convert(image);
+                    recorder.record(frame);
+                }
+                recorder.stop();
+            }
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            assumeTrue(false, "FFmpeg本地库不可用: " + e);
+        }
+        return clip;
+    }
+
+    private static int secondOf(BufferedImage image) {
+        int rgb = image.getRGB(image.getWidth() / 2, image.getHeight() / 2);
+        int level = ((rgb >> 16 & 0xFF) + (rgb >> 8 & 0xFF) + (rgb & 0xFF)) / 3;
+        return Math.round(level / 10f);
+    }
+}
@@ -0,0 +1,107 @@
+package org.nan.cloud.file.infrastructure.repository.mysql.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.domain.FileDescriptor;
+import org.nan.cloud.file.application.domain.FileInfo;
+import org.nan.cloud.file.infrastructure.repository.mysql.DO.MaterialFileDO;
+import org.nan.cloud.file.infrastructure.repository.mysql.mapper.MaterialFileMapper;
+import org.nan.cloud.file.infrastructure.repository.search.MaterialSearchIndex;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件信息仓储测试
+ * 不依赖Spring上下文，使用Mock的Mapper验证描述符只加载一次、写操作后失效以及不缓存不存在的文件，
+ * 以及秒传的fileId按自己的记录插入
+ */
+class FileInfoRepositoryImplTest {
+
+    private static final LocalDateTime UPLOAD_TIME = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private MaterialFileMapper materialFileMapper;
+    private FileInfoRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        materialFileMapper = mock(MaterialFileMapper.class);
+        when(materialFileMapper.selectById("file-1")).thenReturn(MaterialFileDO.builder()
+                .fileId("file-1")
+                .md5Hash("0123456789abcdef0123456789abcdef")
+                .originalFileSize(1024L)
+                .mimeType("video/mp4")
+                .storagePath("2024/05/01/file-1.mp4")
+                .uploadTime(UPLOAD_TIME)
+                .build());
+        when(materialFileMapper.updateById(any(MaterialFileDO.class))).thenReturn(1);
+        when(materialFileMapper.deleteById("file-1")).thenReturn(1);
+        when(materialFileMapper.insert(any(MaterialFileDO.class))).thenReturn(1);
+        repository = new FileInfoRepositoryImpl(materialFileMapper, mock(MaterialSearchIndex.class));
+    }
+
+    @Test
+    void testDescriptorLoadedOnce() {
+        FileDescriptor first = repository.findDescriptorByFileId("file-1").orElseThrow();
+        FileDescriptor second = repository.findDescriptorByFileId("file-1").orElseThrow();
+
+        assertSame(first, second, "第二次读取应命中缓存");
+        verify(materialFileMapper, times(1)).selectById("file-1");
+        assertEquals("2024/05/01/file-1.mp4", first.getStoragePath());
+        assertEquals(1024L, first.getFileSize());
+        assertEquals("video/mp4", first.getMimeType());
+        assertEquals("\"0123456789abcdef0123456789abcdef\"", first.getEtag(), "ETag取内容MD5");
+        assertEquals(UPLOAD_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), first.getLastModified());
+    }
+
+    @Test
+    void testMissingFileIsNotCached() {
+        assertEquals(Optional.empty(), repository.findDescriptorByFileId("missing"));
+        assertEquals(Optional.empty(), repository.findDescriptorByFileId("missing"));
+
+        verify(materialFileMapper, times(2)).selectById("missing");
+    }
+
+    @Test
+    void testUpdateInvalidatesDescriptor() {
+        repository.findDescriptorByFileId("file-1");
+        repository.updateFileThumbnail("file-1", "thumbnails/file-1.jpg");
+        repository.findDescriptorByFileId("file-1");
+
+        verify(materialFileMapper, times(2)).selectById("file-1");
+    }
+
+    @Test
+    void testDeleteInvalidatesDescriptor() {
+        repository.findDescriptorByFileId("file-1");
+        assertTrue(repository.physicalDeleteByFileId("file-1"));
+        when(materialFileMapper.selectById("file-1")).thenReturn(null);
+
+        assertTrue(repository.findDescriptorByFileId("file-1").isEmpty(), "删除后不应再返回缓存的描述符");
+    }
+
+    @Test
+    void testSameContentInsertsRecordPerFileId() {
+        // 秒传：新fileId与file-1内容相同、共享存储路径
+        FileInfo saved = repository.save(FileInfo.builder()
+                .fileId("file-2")
+                .md5Hash("0123456789abcdef0123456789abcdef")
+                .fileSize(1024L)
+                .mimeType("video/mp4")
+                .storagePath("2024/05/01/file-1.mp4")
+                .refCount(1L)
+                .build());
+
+        assertEquals("file-2", saved.getFileId());
+        verify(materialFileMapper).insert(argThat((MaterialFileDO record) ->
+                "file-2".equals(record.getFileId()) && Long.valueOf(1L).equals(record.getRefCount())));
+        verify(materialFileMapper, never()).findByMd5Hash(any());
+        verify(materialFileMapper, never()).updateById(any(MaterialFileDO.class));
+    }
+}
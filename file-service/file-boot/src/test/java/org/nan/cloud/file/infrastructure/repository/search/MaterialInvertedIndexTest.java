@@ -0,0 +1,283 @@
+package org.nan.cloud.file.infrastructure.repository.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 素材倒排索引测试
+ * 不依赖Spring上下文，用逐条扫描的参照实现验证索引的查询结果（命中、排序、分面）在增删改后保持一致，
+ * 并测量百万素材的建索引吞吐和各类查询延迟
+ */
+class MaterialInvertedIndexTest {
+
+    /**
+     * 基准测试的素材数，默认一百万，可通过 -Dsearch.test.docs 调小以加快本地迭代
+     */
+    private static final int BENCHMARK_DOCS = Integer.getInteger("search.test.docs", 1_000_000);
+
+    private static final String[] WORDS = {
+            "spring", "summer", "autumn", "winter", "promotion", "holiday", "festival", "lobby", "entrance",
+            "welcome", "banner", "poster", "video", "launch", "product", "store", "mall", "screen", "outdoor",
+            "indoor", "night", "morning", "coffee", "menu", "discount", "brand", "logo", "campaign", "event",
+            "concert", "sports", "football", "weather", "notice", "safety", "training", "meeting", "station",
+            "airport", "hotel", "restaurant", "cinema", "trailer", "countdown", "newyear", "christmas", "sale"};
+    private static final String[] PHRASES = {"春节促销", "大厅欢迎", "夏季新品", "户外广告", "门店海报", "会议通知",
+            "安全培训", "新年倒计时", "节日活动", "品牌宣传"};
+    private static final String[][] TYPES = {
+            {"IMAGE", "jpg", "image/jpeg"}, {"IMAGE", "png", "image/png"}, {"VIDEO", "mp4", "video/mp4"},
+            {"AUDIO", "mp3", "audio/mpeg"}, {"DOCUMENT", "pdf", "application/pdf"}};
+
+    private MaterialInvertedIndex index;
+    private Map<Long, MaterialInvertedIndex.Document> reference;
+
+    @BeforeEach
+    void setUp() {
+        index = new MaterialInvertedIndex();
+        reference = new LinkedHashMap<>();
+    }
+
+    @Test
+    void testQueryParityWithScanAcrossUpdatesAndDeletes() {
+        Random random = new Random(42);
+        int docs = 20_000;
+        for (long id = 1; id <= docs; id++) {
+            upsert(document(id, random));
+        }
+        assertParity(random, 400);
+
+        // 10%改名、5%删除、按文件删除若干，再补充新素材
+        List<Long> ids = new ArrayList<>(reference.keySet());
+        for (int i = 0; i < docs / 10; i++) {
+            upsert(document(ids.get(random.nextInt(ids.size())), random));
+        }
+        for (int i = 0; i < docs / 20; i++) {
+            long id = ids.get(random.nextInt(ids.size()));
+            assertEquals(reference.remove(id) != null, index.remove(id));
+        }
+        for (int i = 0; i < 50; i++) {
+            String fileId = "file-" + random.nextInt(docs / 3);
+            int expected = (int) reference.values().stream().filter(d -> d.fileId().equals(fileId)).count();
+            reference.values().removeIf(d -> d.fileId().equals(fileId));
+            assertEquals(expected, index.removeByFileId(fileId));
+        }
+        for (long id = docs + 1; id <= docs + 2_000; id++) {
+            upsert(document(id, random));
+        }
+
+        assertEquals(reference.size(), index.size());
+        assertTrue(index.deletedCount() > 0, "更新和删除只打删除标记");
+        assertParity(random, 400);
+        assertEquals(referenceFacets(List.copyOf(reference.values())), index.typeCounts());
+    }
+
+    @Test
+    void testPrefixFuzzyAndChineseQueries() {
+        upsert(new MaterialInvertedIndex.Document(1, "f1", "Spring Promotion Banner", "IMAGE", null, "jpg", "image/jpeg"));
+        upsert(new MaterialInvertedIndex.Document(2, "f2", "春节促销视频", "VIDEO", "大厅循环播放", "mp4", "video/mp4"));
+        upsert(new MaterialInvertedIndex.Document(3, "f3", "springfield lobby", "VIDEO", null, "mp4", "video/mp4"));
+
+        assertEquals(List.of(1L, 3L), ids(index.search("spring", null, 0, 10)), "精确命中排在前缀命中之前");
+        assertEquals(List.of(3L, 1L), ids(index.search("spri", null, 0, 10)), "同分按素材ID倒序");
+        assertEquals(List.of(1L), ids(index.search("promotoin", null, 0, 10)), "拼写错误按编辑距离匹配");
+        assertEquals(List.of(2L), ids(index.search("促销", null, 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("大厅", null, 0, 10)), "描述字段参与检索");
+        assertEquals(List.of(), ids(index.search("销促", null, 0, 10)));
+        assertEquals(List.of(3L, 2L), ids(index.search("mp4", null, 0, 10)));
+
+        MaterialInvertedIndex.SearchHits typed = index.search("spring", "VIDEO", 0, 10);
+        assertEquals(List.of(3L), ids(typed));
+        assertEquals(Map.of("IMAGE", 1L, "VIDEO", 1L), typed.facets(), "分面不受类型过滤影响");
+    }
+
+    @Test
+    void testIndexingThroughputAndQueryLatency() {
+        Random random = new Random(7);
+        List<MaterialInvertedIndex.Document> documents = new ArrayList<>(BENCHMARK_DOCS);
+        for (long id = 1; id <= BENCHMARK_DOCS; id++) {
+            documents.add(document(id, random));
+        }
+        long start = System.nanoTime();
+        for (MaterialInvertedIndex.Document document : documents) {
+            index.upsert(document);
+        }
+        double indexSeconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(BENCHMARK_DOCS, index.size());
+
+        Map<String, List<String>> queries = new LinkedHashMap<>();
+        queries.put("精确", pick(random, 200, () -> WORDS[random.nextInt(WORDS.length)]));
+        queries.put("前缀", pick(random, 200, () -> WORDS[random.nextInt(WORDS.length)].substring(0, 3)));
+        queries.put("模糊", pick(random, 200, () -> typo(WORDS[random.nextInt(WORDS.length)], random)));
+        queries.put("多词", pick(random, 200, () -> WORDS[random.nextInt(WORDS.length)] + " "
+                + WORDS[random.nextInt(WORDS.length)]));
+        queries.put("中文", pick(random, 200, () -> PHRASES[random.nextInt(PHRASES.length)].substring(0, 2)));
+
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : queries.entrySet()) {
+            // 预热一轮
+            entry.getValue().forEach(q -> index.search(q, null, 0, 20));
+            long hits = 0;
+            start = System.nanoTime();
+            for (String query : entry.getValue()) {
+                hits += index.search(query, null, 0, 20).total();
+            }
+            double avgMillis = (System.nanoTime() - start) / 1e6 / entry.getValue().size();
+            report.append(String.format(", %s查询平均%.2fms(平均命中%d)", entry.getKey(), avgMillis,
+                    hits / entry.getValue().size()));
+            assertTrue(avgMillis < 10, entry.getKey() + "查询应在个位数毫秒内返回: " + avgMillis);
+        }
+        System.out.printf("素材倒排索引: %d个素材, 建索引%.0f个/秒%s%n", BENCHMARK_DOCS, BENCHMARK_DOCS / indexSeconds, report);
+    }
+
+    // ==================== 参照实现 ====================
+
+    private void assertParity(Random random, int queries) {
+        List<MaterialInvertedIndex.Document> live = List.copyOf(reference.values());
+        for (int i = 0; i < queries; i++) {
+            String query = switch (i % 5) {
+                case 0 -> WORDS[random.nextInt(WORDS.length)];
+                case 1 -> WORDS[random.nextInt(WORDS.length)].substring(0, 2 + random.nextInt(3));
+                case 2 -> typo(WORDS[random.nextInt(WORDS.length)], random);
+                case 3 -> WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)].substring(0, 3);
+                default -> PHRASES[random.nextInt(PHRASES.length)].substring(1, 3);
+            };
+            String type = random.nextInt(3) == 0 ? TYPES[random.nextInt(TYPES.length)][0] : null;
+            int offset = random.nextInt(3) * 10;
+
+            MaterialInvertedIndex.SearchHits actual = index.search(query, type, offset, 20);
+            List<long[]> expected = referenceSearch(live, query);
+            Map<String, Long> expectedFacets = referenceFacets(expected.stream()
+                    .map(e -> reference.get(e[1])).toList());
+            List<Long> expectedIds = expected.stream()
+                    .filter(e -> type == null || type.equals(reference.get(e[1]).type()))
+                    .map(e -> e[1]).toList();
+
+            assertEquals(expectedIds.size(), actual.total(), "命中数不一致: " + query + ", 类型" + type);
+            assertEquals(expectedIds.subList(Math.min(offset, expectedIds.size()),
+                            Math.min(offset + 20, expectedIds.size())), ids(actual),
+                    "结果页不一致: " + query + ", 类型" + type + ", offset " + offset);
+            assertEquals(expectedFacets, actual.facets(), "分面不一致: " + query);
+        }
+    }
+
+    /**
+     * 逐条扫描：返回按分数、素材ID倒序排列的{分数, 素材ID}
+     */
+    private static List<long[]> referenceSearch(List<MaterialInvertedIndex.Document> live, String query) {
+        List<String> queryTerms = MaterialInvertedIndex.tokenize(query, true);
+        Map<Long, Set<String>> docTerms = new HashMap<>();
+        for (MaterialInvertedIndex.Document document : live) {
+            docTerms.put(document.materialId(), termsOf(document));
+        }
+
+        Map<Long, Long> scores = new HashMap<>();
+        live.forEach(d -> scores.put(d.materialId(), 0L));
+        for (String term : queryTerms) {
+            boolean word = Character.UnicodeScript.of(term.codePointAt(0)) != Character.UnicodeScript.HAN;
+            Map<Long, Long> termScores = new HashMap<>();
+            for (Map.Entry<Long, Set<String>> entry : docTerms.entrySet()) {
+                Set<String> terms = entry.getValue();
+                if (terms.contains(term)) {
+                    termScores.put(entry.getKey(), 4L);
+                } else if (word && terms.stream().anyMatch(t -> t.startsWith(term))) {
+                    termScores.put(entry.getKey(), 2L);
+                }
+            }
+            if (termScores.isEmpty() && word && term.length() >= 3) {
+                int maxEdits = term.length() >= 6 ? 2 : 1;
+                for (Map.Entry<Long, Set<String>> entry : docTerms.entrySet()) {
+                    if (entry.getValue().stream().anyMatch(t -> t.charAt(0) == term.charAt(0)
+                            && levenshtein(term, t) <= maxEdits)) {
+                        termScores.put(entry.getKey(), 1L);
+                    }
+                }
+            }
+            scores.keySet().retainAll(termScores.keySet());
+            scores.replaceAll((id, score) -> score + termScores.get(id));
+        }
+        return scores.entrySet().stream()
+                .map(e -> new long[]{e.getValue(), e.getKey()})
+                .sorted(Comparator.<long[]>comparingLong(e -> -e[0]).thenComparingLong(e -> -e[1]))
+                .toList();
+    }
+
+    private static Set<String> termsOf(MaterialInvertedIndex.Document document) {
+        Set<String> terms = new HashSet<>();
+        terms.addAll(MaterialInvertedIndex.tokenize(document.name(), false));
+        terms.addAll(MaterialInvertedIndex.tokenize(document.description(), false));
+        terms.addAll(MaterialInvertedIndex.tokenize(document.extension(), false));
+        String mimeType = document.mimeType();
+        terms.addAll(MaterialInvertedIndex.tokenize(mimeType.substring(mimeType.indexOf('/') + 1), false));
+        return terms;
+    }
+
+    private static Map<String, Long> referenceFacets(List<MaterialInvertedIndex.Document> documents) {
+        Map<String, Long> facets = new HashMap<>();
+        documents.forEach(d -> facets.merge(d.type(), 1L, Long::sum));
+        return facets;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                distance[i][j] = i == 0 ? j : j == 0 ? i : Math.min(Math.min(
+                        distance[i - 1][j] + 1, distance[i][j - 1] + 1),
+                        distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+            }
+        }
+        return distance[a.length()][b.length()];
+    }
+
+    // ==================== 测试数据 ====================
+
+    private void upsert(MaterialInvertedIndex.Document document) {
+        index.upsert(document);
+        reference.remove(document.materialId());
+        reference.put(document.materialId(), document);
+    }
+
+    private static MaterialInvertedIndex.Document document(long id, Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 2 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                name.append(random.nextBoolean() ? " " : "_");
+            }
+            name.append(random.nextInt(8) == 0 ? PHRASES[random.nextInt(PHRASES.length)] : WORDS[random.nextInt(WORDS.length)]);
+        }
+        name.append('_').append(id % 1000);
+        String description = random.nextInt(4) == 0 ? PHRASES[random.nextInt(PHRASES.length)] : null;
+        String[] type = TYPES[random.nextInt(TYPES.length)];
+        return new MaterialInvertedIndex.Document(id, "file-" + id % 7_000,
+                name.toString(), type[0], description, type[1], type[2]);
+    }
+
+    private static String typo(String word, Random random) {
+        int position = 1 + random.nextInt(word.length() - 1);
+        return word.substring(0, position) + (char) ('a' + random.nextInt(26)) + word.substring(position + 1);
+    }
+
+    private static List<String> pick(Random random, int count, java.util.function.Supplier<String> supplier) {
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(supplier.get());
+        }
+        return values;
+    }
+
+    private static List<Long> ids(MaterialInvertedIndex.SearchHits hits) {
+        return hits.documents().stream().map(MaterialInvertedIndex.Document::materialId).toList();
+    }
+}
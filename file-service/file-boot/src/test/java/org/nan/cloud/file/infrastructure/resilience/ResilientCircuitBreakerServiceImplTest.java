@@ -0,0 +1,237 @@
+package org.nan.cloud.file.infrastructure.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.service.CircuitBreakerService.CircuitBreakerConfig;
+import org.nan.cloud.file.application.service.CircuitBreakerService.CircuitBreakerState;
+import org.nan.cloud.file.application.service.CircuitBreakerService.CircuitBreakerStatistics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 弹性熔断器测试
+ * 不依赖Spring上下文，验证三态转换、滑动窗口失败率判断和舱壁隔离，
+ * 并测量64个线程并发调用时熔断器的额外开销
+ */
+class ResilientCircuitBreakerServiceImplTest {
+
+    private static final String SERVICE = "test-service";
+
+    private static final int BENCH_THREADS = 64;
+
+    /**
+     * 基准中每个线程的调用次数，默认5万次，可通过 -Dcircuit.test.calls 调小以加快本地迭代
+     */
+    private static final int BENCH_CALLS_PER_THREAD = Integer.getInteger("circuit.test.calls", 50_000);
+
+    private ResilientCircuitBreakerServiceImpl circuitBreakerService;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerService = new ResilientCircuitBreakerServiceImpl();
+    }
+
+    @Test
+    void testOpensWhenFailureRateExceeded() {
+        circuitBreakerService.configureCircuitBreaker(SERVICE, config(Duration.ofMinutes(1), 0));
+
+        // 请求数未达到最小请求数时不熔断
+        for (int i = 0; i < 3; i++) {
+            assertEquals("fallback", fail());
+        }
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreakerService.getCircuitBreakerState(SERVICE));
+
+        assertEquals("ok", succeed());
+        assertEquals("fallback", fail());
+        // 5次请求中4次失败，失败率0.8超过阈值0.5
+        assertEquals(CircuitBreakerState.OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+
+        // 开启状态直接降级，不调用操作
+        boolean[] called = {false};
+        String result = circuitBreakerService.executeWithCircuitBreaker(SERVICE, () -> {
+            called[0] = true;
+            return "ok";
+        }, () -> "fallback");
+        assertEquals("fallback", result);
+        assertFalse(called[0], "熔断开启时不应执行操作");
+
+        CircuitBreakerStatistics stats = circuitBreakerService.getStatistics(SERVICE);
+        assertEquals(5, stats.getTotalRequests());
+        assertEquals(4, stats.getFailedRequests());
+        assertEquals(1, stats.getCircuitBreakerOpenCount());
+    }
+
+    @Test
+    void testHalfOpenRecovery() {
+        circuitBreakerService.configureCircuitBreaker(SERVICE, config(Duration.ZERO, 0));
+        circuitBreakerService.tripCircuitBreaker(SERVICE, "测试");
+        assertEquals(CircuitBreakerState.OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+
+        // 到达重试时间后由下一个请求转入半开并放行
+        assertEquals("ok", succeed());
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+        assertEquals("ok", succeed());
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+        assertEquals("ok", succeed());
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreakerService.getCircuitBreakerState(SERVICE),
+                "半开状态连续成功3次后关闭");
+
+        // 关闭时清空窗口，单次失败不会再次熔断
+        assertEquals("fallback", fail());
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreakerService.getCircuitBreakerState(SERVICE));
+    }
+
+    @Test
+    void testHalfOpenFailureReopens() {
+        circuitBreakerService.configureCircuitBreaker(SERVICE, config(Duration.ZERO, 0));
+        circuitBreakerService.tripCircuitBreaker(SERVICE, "测试");
+
+        assertEquals("ok", succeed());
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+        assertEquals("fallback", fail());
+
+        CircuitBreakerStatistics stats = circuitBreakerService.getStatistics(SERVICE);
+        assertEquals(CircuitBreakerState.OPEN, stats.getState(), "半开探测失败应立即重新熔断");
+        assertEquals(2, stats.getCircuitBreakerOpenCount());
+    }
+
+    @Test
+    void testOpenBlocksUntilRetryAfter() {
+        circuitBreakerService.configureCircuitBreaker(SERVICE, config(Duration.ofMinutes(10), 0));
+        circuitBreakerService.tripCircuitBreaker(SERVICE, "测试");
+
+        assertEquals("fallback", succeed(), "未到重试时间时应降级");
+        assertEquals(CircuitBreakerState.OPEN, circuitBreakerService.getCircuitBreakerState(SERVICE));
+
+        circuitBreakerService.resetCircuitBreaker(SERVICE);
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreakerService.getCircuitBreakerState(SERVICE));
+        assertEquals("ok", succeed());
+    }
+
+    @Test
+    void testBulkheadRejectsWhenFull() throws Exception {
+        circuitBreakerService.configureCircuitBreaker(SERVICE, config(Duration.ofMinutes(1), 1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> inFlight = executor.submit(() -> circuitBreakerService.executeWithCircuitBreaker(SERVICE, () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }, () -> "fallback"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertEquals("fallback", succeed(), "并发数达到上限时应直接降级");
+            assertEquals(1, circuitBreakerService.getStatistics(SERVICE).getBulkheadRejectedRequests());
+
+            release.countDown();
+            assertEquals("slow", inFlight.get(5, TimeUnit.SECONDS));
+            assertEquals("ok", succeed(), "调用完成后应释放舱壁");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        CircuitBreakerStatistics stats = circuitBreakerService.getStatistics(SERVICE);
+        assertEquals(2, stats.getTotalRequests(), "被舱壁拒绝的请求不计入请求数");
+        assertEquals(CircuitBreakerState.CLOSED, stats.getState(), "舱壁拒绝不应触发熔断");
+    }
+
+    @Test
+    void testCallOverheadUnderContention() throws Exception {
+        // 64个线程同时经缓存熔断器调用空操作，与直接调用比较每次调用的额外耗时
+        double direct = nanosPerCall(() -> "ok");
+        double guarded = nanosPerCall(() -> circuitBreakerService.executeCacheWithCircuitBreaker(() -> "ok", () -> "fallback"));
+
+        System.out.printf("熔断器调用开销: %d线程 直接调用 %.0fns/次, 经熔断器 %.0fns/次, 额外 %.0fns/次%n",
+                BENCH_THREADS, direct, guarded, guarded - direct);
+
+        CircuitBreakerStatistics stats = circuitBreakerService.getStatistics("cache");
+        assertEquals(CircuitBreakerState.CLOSED, stats.getState());
+        assertEquals(0, stats.getFailedRequests());
+        assertTrue(guarded - direct < 5_000, "熔断器每次调用的额外耗时过高: " + (guarded - direct) + "ns");
+    }
+
+    private String succeed() {
+        return circuitBreakerService.executeWithCircuitBreaker(SERVICE, () -> "ok", () -> "fallback");
+    }
+
+    private String fail() {
+        return circuitBreakerService.executeWithCircuitBreaker(SERVICE, () -> {
+            throw new IllegalStateException("模拟失败");
+        }, () -> "fallback");
+    }
+
+    /**
+     * 预热后64个线程同时调用，按全部调用的总耗时折算到每次调用
+     */
+    private static double nanosPerCall(Supplier<String> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BENCH_THREADS);
+        try {
+            runCalls(executor, call, BENCH_CALLS_PER_THREAD);
+            long start = System.nanoTime();
+            runCalls(executor, call, BENCH_CALLS_PER_THREAD);
+            return (double) (System.nanoTime() - start) / ((long) BENCH_THREADS * BENCH_CALLS_PER_THREAD);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runCalls(ExecutorService executor, Supplier<String> call, int calls)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < BENCH_THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < calls; i++) {
+                    if (call.get() == null) {
+                        throw new IllegalStateException();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CircuitBreakerConfig config(Duration retryAfter, int maxConcurrentCalls) {
+        return new CircuitBreakerConfig() {
+            @Override
+            public int getFailureThreshold() { return 3; }
+            @Override
+            public Duration getTimeout() { return Duration.ofSeconds(5); }
+            @Override
+            public Duration getRetryAfter() { return retryAfter; }
+            @Override
+            public double getFailureRateThreshold() { return 0.5; }
+            @Override
+            public int getMinimumRequests() { return 5; }
+            @Override
+            public Duration getSlidingWindowSize() { return Duration.ofMinutes(1); }
+            @Override
+            public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+        };
+    }
+}
@@ -0,0 +1,288 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.repository.FileInfoRepository;
+import org.nan.cloud.file.application.service.StorageService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内容寻址Blob存储测试
+ * 不依赖Spring上下文，验证同一内容并发上传/删除时的引用计数，以及崩溃在各步骤之间时回收的正确性；
+ * 文件记录仓储以内存集合模拟，按fileId核对引用
+ */
+class ContentAddressedBlobStoreTest {
+
+    private static final byte[] CONTENT = "same advertisement video".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private StorageStatisticsLedger statisticsLedger;
+    private ContentAddressedBlobStore blobStore;
+    private String md5;
+    /**
+     * 已提交的有效文件记录：存储路径 -> fileId
+     */
+    private final Map<String, Set<String>> committedRecords = new ConcurrentHashMap<>();
+    private final AtomicInteger stagedSequence = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStorage().getLocal().setBasePath(tempDir.toString());
+        // 宽限期为0，回收只取决于引用数
+        storageProperties.getStorage().getLocal().setGcGraceMinutes(0);
+        statisticsLedger = new StorageStatisticsLedger(storageProperties);
+        FileInfoRepository fileInfoRepository = mock(FileInfoRepository.class);
+        when(fileInfoRepository.findFileIdsByStoragePath(anyString())).thenAnswer(invocation ->
+                List.copyOf(committedRecords.getOrDefault(invocation.<String>getArgument(0), Set.of())));
+        blobStore = new ContentAddressedBlobStore(storageProperties, statisticsLedger, fileInfoRepository);
+        md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(CONTENT));
+    }
+
+    @AfterEach
+    void tearDown() {
+        blobStore.shutdown();
+    }
+
+    @Test
+    void testConcurrentUploadsShareOneBlob() throws Exception {
+        int uploads = 32;
+        List<String> paths = runConcurrently(uploads, i -> blobStore.put(stage(), "file-" + i));
+
+        assertEquals(1, paths.stream().distinct().count(), "相同内容只保存一份");
+        String blobPath = paths.get(0);
+        assertEquals("blobs/" + md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5, blobPath,
+                "Blob路径只由内容哈希决定");
+        assertEquals(uploads, blobStore.refCount(blobPath));
+        assertEquals(1, statisticsLedger.getPhysicalFiles(), "物理用量只计一份");
+        assertArrayEquals(CONTENT, Files.readAllBytes(tempDir.resolve(blobPath)));
+        try (var staged = Files.list(tempDir.resolve("staging"))) {
+            assertEquals(0, staged.count(), "内容已存在时丢弃暂存文件");
+        }
+    }
+
+    @Test
+    void testConcurrentUploadAndDeleteNeverLosesReferencedBlob() throws Exception {
+        String blobPath = blobStore.put(stage(), "file-initial");
+
+        // 反复让"删除最后一个引用"与"再次上传相同内容"并发，并在中间穿插回收
+        for (int round = 0; round < 200; round++) {
+            String previous = round == 0 ? "file-initial" : "file-" + (round - 1);
+            String next = "file-" + round;
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            Future<?> delete = executor.submit(() -> {
+                start.await();
+                return blobStore.removeRef(blobPath, previous);
+            });
+            Future<?> upload = executor.submit(() -> {
+                start.await();
+                return blobStore.put(stage(), next);
+            });
+            Future<?> gc = executor.submit(() -> {
+                start.await();
+                return blobStore.collectGarbage();
+            });
+            start.countDown();
+            delete.get(10, TimeUnit.SECONDS);
+            upload.get(10, TimeUnit.SECONDS);
+            gc.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+
+            assertEquals(1, blobStore.refCount(blobPath), "第" + round + "轮后应只剩新上传的引用");
+            assertTrue(Files.exists(tempDir.resolve(blobPath)), "第" + round + "轮后被引用的Blob不能被回收");
+        }
+
+        assertTrue(blobStore.removeRef(blobPath, "file-199"));
+        assertEquals(1, blobStore.collectGarbage());
+        assertFalse(Files.exists(tempDir.resolve(blobPath)), "引用归零后应被回收");
+        assertEquals(0, statisticsLedger.getPhysicalFiles());
+        assertEquals(0, statisticsLedger.getPhysicalBytes());
+    }
+
+    @Test
+    void testReferencesAreIdempotent() throws Exception {
+        String blobPath = blobStore.put(stage(), "file-a");
+
+        assertTrue(blobStore.addRef(blobPath, "file-a"));
+        assertTrue(blobStore.addRef(blobPath, "file-b"));
+        assertEquals(2, blobStore.refCount(blobPath), "重复添加同一引用不重复计数");
+
+        assertTrue(blobStore.removeRef(blobPath, "file-a"));
+        assertFalse(blobStore.removeRef(blobPath, "file-a"), "重复删除引用不重复扣减");
+        assertEquals(1, blobStore.refCount(blobPath));
+        assertEquals(0, blobStore.collectGarbage());
+        assertTrue(Files.exists(tempDir.resolve(blobPath)));
+    }
+
+    @Test
+    void testCrashBeforeReferenceLeavesCollectableBlob() throws Exception {
+        // 模拟put在登记候选、移动Blob之后、添加引用之前崩溃
+        String blobPath = blobStore.put(stage(), "file-crashed");
+        Path blob = tempDir.resolve(blobPath);
+        deleteRecursively(blob.resolveSibling(blob.getFileName() + ".refs"));
+        assertEquals(0, blobStore.refCount(blobPath));
+
+        assertEquals(1, blobStore.collectGarbage(), "崩溃留下的孤儿Blob应被回收");
+        assertFalse(Files.exists(blob));
+        assertFalse(blobStore.addRef(blobPath, "file-late"), "已回收的Blob不能再添加引用");
+    }
+
+    @Test
+    void testCrashAfterCandidateKeepsReferencedBlob() throws Exception {
+        // 模拟removeRef在登记候选之后、删除引用之前崩溃
+        String blobPath = blobStore.put(stage(), "file-a");
+        blobStore.put(stage(), "file-b");
+        assertTrue(blobStore.removeRef(blobPath, "file-b"));
+
+        assertEquals(0, blobStore.collectGarbage(), "仍有引用的Blob不能被回收");
+        assertTrue(Files.exists(tempDir.resolve(blobPath)));
+        try (var candidates = Files.list(tempDir.resolve("blobs").resolve(".gc"))) {
+            assertEquals(0, candidates.count(), "仍被引用的候选标记应被清除");
+        }
+    }
+
+    @Test
+    void testCrashBetweenReferenceAndRecordCommit() throws Exception {
+        String blobPath = commit(blobStore.put(stage(), "file-a"), "file-a");
+        // 模拟秒传上传在写入引用之后、提交文件记录之前崩溃
+        blobStore.put(stage(), "file-crashed");
+        assertEquals(2, blobStore.refCount(blobPath));
+
+        storageProperties.getStorage().getLocal().setGcGraceMinutes(60);
+        assertEquals(0, blobStore.reconcileReferences(), "宽限期内的引用可能属于进行中的上传，不能移除");
+        assertEquals(2, blobStore.refCount(blobPath));
+
+        storageProperties.getStorage().getLocal().setGcGraceMinutes(0);
+        assertEquals(1, blobStore.reconcileReferences(), "只移除没有文件记录的fileId的引用");
+        assertEquals(1, blobStore.refCount(blobPath));
+        assertEquals(0, blobStore.collectGarbage(), "仍有文件记录引用的Blob不能被回收");
+        assertTrue(Files.exists(tempDir.resolve(blobPath)));
+
+        // 删除唯一有效的文件：先删记录再释放引用，之后可以回收
+        committedRecords.get(blobPath).remove("file-a");
+        assertTrue(blobStore.removeRef(blobPath, "file-a"));
+        assertEquals(1, blobStore.collectGarbage());
+        assertFalse(Files.exists(tempDir.resolve(blobPath)));
+        assertEquals(0, statisticsLedger.getPhysicalFiles());
+    }
+
+    @Test
+    void testCrashedUploadAloneIsCollectedAfterReconcile() throws Exception {
+        // 新内容上传写入Blob和引用后，文件记录未提交即崩溃
+        String blobPath = blobStore.put(stage(), "file-crashed");
+        assertEquals(0, blobStore.collectGarbage(), "有引用时核对前不会回收");
+
+        assertEquals(1, blobStore.reconcileReferences());
+        assertEquals(0, blobStore.refCount(blobPath));
+        assertEquals(1, blobStore.collectGarbage(), "孤儿引用移除后Blob应被回收");
+        assertFalse(Files.exists(tempDir.resolve(blobPath)));
+        assertEquals(0, statisticsLedger.getPhysicalBytes());
+    }
+
+    @Test
+    void testReconcileRestoresReferencePerFileId() throws Exception {
+        String blobPath = commit(blobStore.put(stage(), "file-a"), "file-a");
+        commit(blobStore.put(stage(), "file-b"), "file-b");
+        // 文件记录有效但引用标记丢失
+        commit(blobPath, "file-c");
+        assertEquals(2, blobStore.refCount(blobPath));
+
+        assertEquals(1, blobStore.reconcileReferences(), "只为缺少引用的fileId补回引用");
+        assertEquals(3, blobStore.refCount(blobPath), "每个有效fileId恰好一个引用");
+        assertEquals(0, blobStore.reconcileReferences(), "引用与文件记录一致后核对无修改");
+    }
+
+    @Test
+    void testGarbageCollectionSkipsBlobWithLiveRecord() throws Exception {
+        String blobPath = commit(blobStore.put(stage(), "file-a"), "file-a");
+        // 引用被误删，但文件记录仍有效
+        assertTrue(blobStore.removeRef(blobPath, "file-a"));
+
+        assertEquals(0, blobStore.collectGarbage(), "回收前复查文件记录");
+        assertTrue(Files.exists(tempDir.resolve(blobPath)));
+        assertEquals(1, blobStore.reconcileReferences());
+        assertEquals(1, blobStore.refCount(blobPath));
+    }
+
+    @Test
+    void testRejectsInvalidIdentifiers() {
+        assertThrows(IllegalArgumentException.class, () -> blobStore.put(stage(), "../escape"));
+        assertThrows(IllegalArgumentException.class, () -> blobStore.put(
+                new StorageService.StagedFile(tempDir.resolve("x"), 1, "not-a-md5", null), "file-a"));
+    }
+
+    /**
+     * 模拟提交文件记录
+     */
+    private String commit(String blobPath, String fileId) {
+        committedRecords.computeIfAbsent(blobPath, path -> ConcurrentHashMap.newKeySet()).add(fileId);
+        return blobPath;
+    }
+
+    private StorageService.StagedFile stage() throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("staging"));
+        Path staged = Files.write(dir.resolve("upload-" + stagedSequence.incrementAndGet() + ".tmp"), CONTENT);
+        return new StorageService.StagedFile(staged, CONTENT.length, md5, null);
+    }
+
+    private interface IndexedTask {
+        String run(int index) throws Exception;
+    }
+
+    private static List<String> runConcurrently(int count, IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.run(index);
+            }));
+        }
+        start.countDown();
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(java.util.Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
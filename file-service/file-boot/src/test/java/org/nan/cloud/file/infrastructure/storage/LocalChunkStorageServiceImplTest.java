@@ -0,0 +1,319 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.domain.ChunkUploadSession;
+import org.nan.cloud.file.application.service.ChunkStorageService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地分片存储集成测试
+ * 不依赖Spring上下文，在临时目录上验证并行分片上传、中断后重启续传、合并和会话状态切换
+ */
+class LocalChunkStorageServiceImplTest {
+
+    private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 测试文件大小，默认2GB，可通过 -Dchunk.test.size-mb 调整
+     */
+    private static final long FILE_SIZE = Long.getLong("chunk.test.size-mb", 2048) * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private LocalChunkStorageServiceImpl chunkStorage;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStorage().getLocal().getChunk().setPath(tempDir.resolve("chunks").toString());
+        chunkStorage = startService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        chunkStorage.shutdown();
+    }
+
+    @Test
+    void testParallelUploadResumesAfterInterruption() throws Exception {
+        Path source = createSparseFile(FILE_SIZE);
+        String expectedMd5 = md5(source);
+        ChunkUploadSession session = newSession("upload-2g", FILE_SIZE);
+        chunkStorage.createSession(session);
+
+        // 第一轮：4线程并行上传，每隔3个分片模拟一次连接中断（写入一半后断开）
+        List<Integer> interrupted = IntStream.range(0, session.getTotalChunks())
+                .filter(i -> i % 3 == 1).boxed().collect(Collectors.toList());
+        List<Throwable> failures = uploadChunks(chunkStorage, session, source,
+                IntStream.range(0, session.getTotalChunks()).boxed().collect(Collectors.toList()), interrupted);
+        assertEquals(interrupted.size(), failures.size(), "被中断的分片应上传失败");
+        failures.forEach(e -> assertInstanceOf(UncheckedIOException.class, e));
+
+        // 模拟服务重启：新实例从磁盘恢复会话和已完成分片，中断分片的临时文件不计入进度
+        chunkStorage.shutdown();
+        chunkStorage = startService();
+        ChunkUploadSession restored = chunkStorage.loadSession(session.getUploadId());
+        assertNotNull(restored, "会话应在重启后恢复");
+        assertEquals(FILE_SIZE, restored.getFileSize());
+        List<Integer> uploaded = chunkStorage.listUploadedChunks(session.getUploadId());
+        List<Integer> missing = IntStream.range(0, session.getTotalChunks())
+                .filter(i -> !uploaded.contains(i)).boxed().collect(Collectors.toList());
+        assertEquals(interrupted, missing, "只有被中断的分片需要重传");
+        try (var files = Files.list(tempDir.resolve("chunks").resolve(session.getUploadId()))) {
+            assertTrue(files.noneMatch(p -> p.getFileName().toString().endsWith(".tmp")), "中断分片的临时文件应被清理");
+        }
+
+        // 第二轮：只重传缺失分片
+        assertTrue(uploadChunks(chunkStorage, restored, source, missing, List.of()).isEmpty());
+        assertEquals(session.getTotalChunks(), chunkStorage.listUploadedChunks(session.getUploadId()).size());
+
+        ChunkUploadSession assembling = chunkStorage.beginAssembling(session.getUploadId(), "task-1");
+        assertNotNull(assembling);
+        AtomicInteger assembledChunks = new AtomicInteger();
+        ChunkStorageService.AssembleResult result = chunkStorage.assemble(assembling,
+                (chunkNumber, bytes) -> assembledChunks.incrementAndGet());
+
+        assertEquals(FILE_SIZE, result.getSize());
+        assertEquals(FILE_SIZE, Files.size(result.getAssembledFile()));
+        assertEquals(expectedMd5, result.getMd5Hash(), "合并时计算的MD5应与源文件一致");
+        assertEquals(session.getTotalChunks(), assembledChunks.get());
+
+        chunkStorage.deleteSession(session.getUploadId());
+        assertFalse(Files.exists(tempDir.resolve("chunks").resolve(session.getUploadId())));
+    }
+
+    @Test
+    void testConcurrentCompleteClaimsOnce() throws Exception {
+        ChunkUploadSession session = newSession("upload-claim", CHUNK_SIZE);
+        chunkStorage.createSession(session);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ChunkUploadSession>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String taskId = "task-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return chunkStorage.beginAssembling(session.getUploadId(), taskId);
+            }));
+        }
+        start.countDown();
+
+        int claimed = 0;
+        for (Future<ChunkUploadSession> future : futures) {
+            if (future.get(10, TimeUnit.SECONDS) != null) {
+                claimed++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, claimed, "并发complete只有一个能切换到合并状态");
+        ChunkUploadSession stored = chunkStorage.loadSession(session.getUploadId());
+        assertEquals(ChunkUploadSession.SessionStatus.ASSEMBLING, stored.getStatus());
+        assertNotNull(stored.getTaskId());
+    }
+
+    @Test
+    void testRejectsWrongChunkSizeAndMissingChunk() {
+        ChunkUploadSession session = newSession("upload-small", 3000);
+        session.setChunkSize(1024);
+        session.setTotalChunks(3);
+        chunkStorage.createSession(session);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> chunkStorage.writeChunk(session, 0, new java.io.ByteArrayInputStream(new byte[1000])),
+                "分片大小不符应拒绝");
+        assertEquals(1024, chunkStorage.writeChunk(session, 0, new java.io.ByteArrayInputStream(new byte[1024])));
+        // 最后一个分片只有剩余字节
+        assertEquals(952, chunkStorage.writeChunk(session, 2, new java.io.ByteArrayInputStream(new byte[952])));
+
+        assertThrows(IllegalStateException.class, () -> chunkStorage.assemble(session, null), "缺少分片时不能合并");
+        assertFalse(Files.exists(tempDir.resolve("chunks").resolve("upload-small").resolve("assembled.tmp")));
+    }
+
+    @Test
+    void testCleanupKeepsFreshDirectoryWithoutSession() throws IOException {
+        Files.createDirectories(tempDir.resolve("chunks").resolve("pending-create"));
+        ChunkUploadSession expired = newSession("upload-expired", CHUNK_SIZE);
+        expired.setCreateTime(LocalDateTime.now().minusHours(48));
+        chunkStorage.createSession(expired);
+
+        assertEquals(1, chunkStorage.cleanupExpiredSessions(24));
+        assertNull(chunkStorage.loadSession("upload-expired"));
+        assertTrue(Files.exists(tempDir.resolve("chunks").resolve("pending-create")), "刚创建还没有会话文件的目录不应被清理");
+    }
+
+    private LocalChunkStorageServiceImpl startService() {
+        LocalChunkStorageServiceImpl service = new LocalChunkStorageServiceImpl(storageProperties);
+        service.initialize();
+        return service;
+    }
+
+    private ChunkUploadSession newSession(String uploadId, long fileSize) {
+        return ChunkUploadSession.builder()
+                .uploadId(uploadId)
+                .fileId("file-" + uploadId)
+                .originalFilename("led-video.mp4")
+                .contentType("video/mp4")
+                .fileSize(fileSize)
+                .chunkSize(CHUNK_SIZE)
+                .totalChunks((int) ((fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE))
+                .oid(1L)
+                .uid(2L)
+                .status(ChunkUploadSession.SessionStatus.UPLOADING)
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 并行上传指定分片
+     *
+     * @return 失败分片的异常
+     */
+    private List<Throwable> uploadChunks(LocalChunkStorageServiceImpl storage, ChunkUploadSession session, Path source,
+                                         List<Integer> chunks, List<Integer> interrupted) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int chunk : chunks) {
+            Callable<Long> upload = () -> {
+                try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                    channel.position(chunk * CHUNK_SIZE);
+                    InputStream in = Channels.newInputStream(channel);
+                    long length = session.expectedChunkSize(chunk);
+                    InputStream body = interrupted.contains(chunk)
+                            ? new BrokenInputStream(in, length / 2)
+                            : new BoundedInputStream(in, length);
+                    return storage.writeChunk(session, chunk, body);
+                }
+            };
+            futures.add(executor.submit(upload));
+        }
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            try {
+                future.get(5, TimeUnit.MINUTES);
+            } catch (Exception e) {
+                failures.add(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        return failures;
+    }
+
+    /**
+     * 创建稀疏文件，每个分片边界附近写入不同内容，保证分片顺序错误时MD5不同
+     */
+    private Path createSparseFile(long size) throws IOException {
+        Path file = tempDir.resolve("source.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            for (long offset = 0; offset < size; offset += CHUNK_SIZE) {
+                channel.write(ByteBuffer.wrap(("chunk@" + offset).getBytes()), offset + 17);
+            }
+        }
+        return file;
+    }
+
+    private static String md5(Path file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 只读取指定长度
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * 读到指定位置后抛出异常，模拟客户端连接中断
+     */
+    private static class BrokenInputStream extends BoundedInputStream {
+        BrokenInputStream(InputStream in, long breakAt) {
+            super(in, breakAt);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                throw new IOException("连接中断");
+            }
+            return read;
+        }
+    }
+}
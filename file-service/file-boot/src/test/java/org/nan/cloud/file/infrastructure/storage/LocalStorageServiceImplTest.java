@@ -0,0 +1,164 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.repository.FileInfoRepository;
+import org.nan.cloud.file.application.service.StorageService;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 本地存储单遍暂存测试
+ * 不依赖Spring上下文，验证上传数据边写边算哈希、堆分配与文件大小无关，以及入库/丢弃暂存文件
+ */
+class LocalStorageServiceImplTest {
+
+    private static final long ONE_GB = 1024L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private ContentAddressedBlobStore blobStore;
+    private LocalStorageServiceImpl storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStorage().getLocal().setBasePath(tempDir.toString());
+        storageProperties.getStorage().getLocal().setSha256Enabled(true);
+        StorageStatisticsLedger statisticsLedger = new StorageStatisticsLedger(storageProperties);
+        blobStore = new ContentAddressedBlobStore(storageProperties, statisticsLedger, mock(FileInfoRepository.class));
+        storageService = new LocalStorageServiceImpl(storageProperties, blobStore, statisticsLedger);
+    }
+
+    @Test
+    void testStageOneGigabyteWithBoundedHeap() throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        enableAllocationTracking(threadBean);
+
+        PatternInputStream upload = new PatternInputStream(ONE_GB);
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        StorageService.StagedFile staged = storageService.stage(upload, "file-1g");
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.println("暂存1GB上传的堆分配: " + allocated / 1024 + "KB");
+        assertEquals(ONE_GB, staged.getSize());
+        assertEquals(ONE_GB, Files.size(staged.getPath()));
+        assertEquals(upload.md5Hex(), staged.getMd5Hash(), "MD5应在写入的同时算出");
+        assertEquals(upload.sha256Hex(), staged.getSha256Hash());
+        // 读取整个文件到堆会分配1GB，单遍流式只分配缓冲区和少量对象
+        assertTrue(allocated < 8L * 1024 * 1024, "堆分配应与文件大小无关: " + allocated);
+
+        String storagePath = storageService.store(staged.getPath(), "video.mp4", "file-1g");
+        assertFalse(Files.exists(staged.getPath()), "入库通过重命名完成，暂存文件不再存在");
+        assertEquals(ONE_GB, Files.size(tempDir.resolve(storagePath)));
+    }
+
+    @Test
+    void testStoreContentDeduplicatesByHash() throws Exception {
+        StorageService.StagedFile first = storageService.stage(new PatternInputStream(64 * 1024), "file-a");
+        StorageService.StagedFile second = storageService.stage(new PatternInputStream(64 * 1024), "file-b");
+
+        String firstPath = storageService.storeContent(first, "a.mp4", "file-a");
+        String secondPath = storageService.storeContent(second, "b.mov", "file-b");
+
+        assertEquals(firstPath, secondPath, "相同内容落到同一个Blob，与文件名扩展名无关");
+        assertFalse(firstPath.contains("."), "Blob路径只由内容哈希决定");
+        assertEquals(2, blobStore.refCount(firstPath));
+        assertFalse(Files.exists(second.getPath()), "重复内容的暂存文件被丢弃");
+
+        assertTrue(storageService.releaseContent(firstPath, "file-a"));
+        assertEquals(1, blobStore.refCount(firstPath), "释放一个引用后内容仍被另一个文件持有");
+        assertTrue(storageService.fileExists(firstPath));
+    }
+
+    @Test
+    void testDiscardStaged() throws Exception {
+        StorageService.StagedFile staged = storageService.stage(new PatternInputStream(4096), "file-dup");
+        assertTrue(Files.exists(staged.getPath()));
+
+        storageService.discardStaged(staged);
+
+        assertFalse(Files.exists(staged.getPath()), "秒传命中时丢弃暂存文件");
+    }
+
+    @Test
+    void testStageRejectsOversizedUpload() throws Exception {
+        storageProperties.getStorage().getLocal().setMaxFileSize(1024 * 1024);
+
+        assertThrows(RuntimeException.class, () -> storageService.stage(new PatternInputStream(2 * 1024 * 1024), "file-big"));
+        try (var staged = Files.list(tempDir.resolve(".staging"))) {
+            assertEquals(0, staged.count(), "超出大小限制时删除暂存文件");
+        }
+    }
+
+    private static void enableAllocationTracking(com.sun.management.ThreadMXBean threadBean) {
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * 按固定模式生成数据的上传流，生成时同步计算期望的摘要，不占用与大小成正比的内存
+     */
+    private static class PatternInputStream extends InputStream {
+        private final long size;
+        private final MessageDigest md5;
+        private final MessageDigest sha256;
+        private long position;
+
+        PatternInputStream(long size) throws Exception {
+            this.size = size;
+            this.md5 = MessageDigest.getInstance("MD5");
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            int b = (int) ((position * 31 + (position >>> 12)) & 0xFF);
+            md5.update((byte) b);
+            sha256.update((byte) b);
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(len, size - position);
+            for (int i = 0; i < count; i++) {
+                long p = position + i;
+                buffer[off + i] = (byte) (p * 31 + (p >>> 12));
+            }
+            md5.update(buffer, off, count);
+            sha256.update(buffer, off, count);
+            position += count;
+            return count;
+        }
+
+        String md5Hex() {
+            return HexFormat.of().formatHex(md5.digest());
+        }
+
+        String sha256Hex() {
+            return HexFormat.of().formatHex(sha256.digest());
+        }
+    }
+}
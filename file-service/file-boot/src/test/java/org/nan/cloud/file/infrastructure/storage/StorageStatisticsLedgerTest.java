@@ -0,0 +1,227 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.StorageService;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 存储统计账本测试
+ * 不依赖Spring上下文，在合成的百万文件目录树上验证增量计数与对账扫描结果一致、查询为常数时间，
+ * 以及对账扫描可从检查点恢复
+ */
+class StorageStatisticsLedgerTest {
+
+    /**
+     * 合成目录树的文件数，默认一百万，可通过 -Dstats.test.files 调小以加快本地迭代
+     */
+    private static final int TREE_FILES = Integer.getInteger("stats.test.files", 1_000_000);
+    private static final int FILES_PER_DIR = 1000;
+    private static final byte[][] CONTENTS = {new byte[0], new byte[1], new byte[7], new byte[64]};
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStorage().getLocal().setBasePath(tempDir.toString());
+        storageProperties.getStorage().getLocal().setStatsScanBatchSize(50_000);
+    }
+
+    @Test
+    void testReconcileMatchesIncrementalCountersOnMillionFileTree() throws Exception {
+        StorageStatisticsLedger ledger = new StorageStatisticsLedger(storageProperties);
+
+        long start = System.currentTimeMillis();
+        long[] written = createTree(TREE_FILES, ledger);
+        System.out.println("生成合成目录树: " + TREE_FILES + "个文件, 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        createExcludedEntries();
+
+        assertEquals(written[0], ledger.getPhysicalFiles());
+        assertEquals(written[1], ledger.getPhysicalBytes());
+
+        // 对账扫描完成后计数应保持不变：增量维护的结果与磁盘一致
+        start = System.currentTimeMillis();
+        ledger.startScanIfIdle();
+        int ticks = runScanToCompletion(ledger);
+        System.out.println("对账扫描: " + ticks + "轮, 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        assertEquals(written[0], ledger.getPhysicalFiles(), "对账结果应与增量计数一致");
+        assertEquals(written[1], ledger.getPhysicalBytes(), "对账结果应与增量计数一致");
+        assertTrue(ticks >= TREE_FILES / storageProperties.getStorage().getLocal().getStatsScanBatchSize(),
+                "每轮扫描的文件数受批大小限制");
+
+        // 查询只读内存计数器，与全量遍历对比
+        int queries = 100_000;
+        start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < queries; i++) {
+            sink += ledger.getPhysicalFiles() + ledger.getPhysicalBytes();
+        }
+        long queryNanos = (System.nanoTime() - start) / queries;
+
+        start = System.currentTimeMillis();
+        long walked = walkFileCount(tempDir);
+        long walkMillis = System.currentTimeMillis() - start;
+
+        System.out.println("账本查询平均耗时: " + queryNanos + "ns, 全量遍历耗时: " + walkMillis + "ms");
+        assertTrue(sink > 0);
+        assertTrue(walked >= written[0]);
+        assertTrue(queryNanos < 100_000, "查询耗时应与文件数量无关: " + queryNanos + "ns");
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() throws Exception {
+        StorageStatisticsLedger ledger = new StorageStatisticsLedger(storageProperties);
+        long[] written = createTree(5000, ledger);
+
+        // 模拟进程在写文件后、更新账本前崩溃，以及遗漏的删除事件
+        ledger.recordPhysical(-10, -1234);
+        ledger.recordPhysical(3, 99);
+
+        ledger.startScanIfIdle();
+        runScanToCompletion(ledger);
+
+        assertEquals(written[0], ledger.getPhysicalFiles(), "对账后文件数以磁盘为准");
+        assertEquals(written[1], ledger.getPhysicalBytes(), "对账后大小以磁盘为准");
+    }
+
+    @Test
+    void testScanResumesFromCheckpointAfterRestart() throws Exception {
+        storageProperties.getStorage().getLocal().setStatsScanBatchSize(1000);
+        createTree(20_000, new StorageStatisticsLedger(storageProperties));
+        long expectedFiles = 20_000;
+        long expectedBytes = walkBytes(tempDir);
+
+        // 首次启动没有快照，立即开始对账；扫描一部分后"重启"
+        StorageStatisticsLedger first = new StorageStatisticsLedger(storageProperties);
+        assertFalse(first.restore());
+        assertTrue(first.isScanInProgress());
+        for (int i = 0; i < 5; i++) {
+            first.scanTick();
+        }
+        assertTrue(first.isScanInProgress());
+        first.shutdown();
+
+        StorageStatisticsLedger second = new StorageStatisticsLedger(storageProperties);
+        second.restore();
+        assertTrue(second.isScanInProgress(), "重启后从检查点继续对账");
+        int remainingTicks = runScanToCompletion(second);
+
+        assertTrue(remainingTicks < 20, "已扫描部分不应重新扫描: " + remainingTicks);
+        assertEquals(expectedFiles, second.getPhysicalFiles(), "恢复后的对账不重复也不遗漏");
+        assertEquals(expectedBytes, second.getPhysicalBytes());
+        assertFalse(Files.exists(tempDir.resolve(StorageStatisticsLedger.STATS_DIR).resolve("scan.checkpoint")),
+                "对账完成后删除检查点");
+    }
+
+    @Test
+    void testUsageBucketsSurviveRestart() {
+        StorageStatisticsLedger ledger = new StorageStatisticsLedger(storageProperties);
+        LocalDate january = LocalDate.of(2024, 1, 15);
+        LocalDate february = LocalDate.of(2024, 2, 3);
+
+        ledger.recordUsage("1001", january, "VIDEO", 2, 2000);
+        ledger.recordUsage("1001", january, "IMAGE", 1, 100);
+        ledger.recordUsage("1001", february, "VIDEO", 1, 500);
+        ledger.recordUsage("1001", february, "VIDEO", -1, -500);
+        ledger.recordUsage("1002", january, "VIDEO", 5, 5000);
+        ledger.shutdown();
+
+        StorageStatisticsLedger restarted = new StorageStatisticsLedger(storageProperties);
+        assertTrue(restarted.restore());
+        assertFalse(restarted.isScanInProgress(), "已有快照时不立即全量对账");
+
+        assertArrayEquals(new long[]{3, 2100}, restarted.getOrganizationTotals("1001"));
+        assertArrayEquals(new long[]{5, 5000}, restarted.getOrganizationTotals("1002"));
+        assertArrayEquals(new long[]{0, 0}, restarted.getOrganizationTotals("1003"));
+
+        List<StorageService.UsageBucket> buckets = restarted.getUsageBuckets("1001");
+        assertEquals(3, buckets.size());
+        assertEquals("2024-01", buckets.get(0).getDateBucket());
+        assertEquals("IMAGE", buckets.get(0).getFileType());
+        assertEquals(100, buckets.get(0).getTotalSize());
+        assertEquals("2024-02", buckets.get(2).getDateBucket());
+        assertEquals(0, buckets.get(2).getFileCount(), "删除后桶内计数归零");
+    }
+
+    /**
+     * 按 年/月/日 分目录生成文件，并像存储服务一样逐个记录物理用量
+     *
+     * @return [文件数, 字节数]
+     */
+    private long[] createTree(int fileCount, StorageStatisticsLedger ledger) throws IOException {
+        long bytes = 0;
+        Path dir = null;
+        for (int i = 0; i < fileCount; i++) {
+            if (i % FILES_PER_DIR == 0) {
+                int d = i / FILES_PER_DIR;
+                dir = Files.createDirectories(tempDir.resolve(String.valueOf(2000 + d / 360))
+                        .resolve(String.format("%02d", d / 30 % 12 + 1))
+                        .resolve(String.format("%02d", d % 30 + 1)));
+            }
+            byte[] content = CONTENTS[i % CONTENTS.length];
+            Files.write(dir.resolve("f" + i + ".bin"), content);
+            ledger.recordPhysical(1, content.length);
+            bytes += content.length;
+        }
+        return new long[]{fileCount, bytes};
+    }
+
+    /**
+     * 统计目录、暂存目录和引用标记不计入物理用量
+     */
+    private void createExcludedEntries() throws IOException {
+        Files.write(Files.createDirectories(tempDir.resolve(".staging")).resolve("upload.tmp"), new byte[100]);
+        Files.write(Files.createDirectories(tempDir.resolve("blobs").resolve(".gc")).resolve("candidate"), new byte[0]);
+        Files.write(Files.createDirectories(tempDir.resolve("blobs").resolve("ab").resolve("cd")
+                .resolve("abcd.mp4.refs")).resolve("file-1"), new byte[0]);
+    }
+
+    private static int runScanToCompletion(StorageStatisticsLedger ledger) {
+        int ticks = 0;
+        while (ledger.isScanInProgress()) {
+            ledger.scanTick();
+            ticks++;
+        }
+        return ticks;
+    }
+
+    private static long walkFileCount(Path root) throws IOException {
+        long[] count = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                count[0]++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return count[0];
+    }
+
+    private static long walkBytes(Path root) throws IOException {
+        long[] bytes = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                bytes[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return bytes[0];
+    }
+}
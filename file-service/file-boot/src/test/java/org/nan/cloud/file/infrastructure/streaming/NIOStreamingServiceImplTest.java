@@ -0,0 +1,242 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.repository.FileInfoRepository;
+import org.nan.cloud.file.application.service.StorageService;
+import org.nan.cloud.file.infrastructure.repository.mysql.DO.MaterialFileDO;
+import org.nan.cloud.file.infrastructure.repository.mysql.impl.FileInfoRepositoryImpl;
+import org.nan.cloud.file.infrastructure.repository.mysql.mapper.MaterialFileMapper;
+import org.nan.cloud.file.infrastructure.repository.search.MaterialSearchIndex;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * NIO流式服务范围请求测试
+ * 不依赖Spring上下文，验证范围内容正确，测量100个并发客户端读取1GB文件时的吞吐和堆分配，
+ * 以及播放器拖动时预热后不再访问数据库
+ */
+class NIOStreamingServiceImplTest {
+
+    private static final long ONE_GB = 1024L * 1024 * 1024;
+    private static final int CLIENTS = 100;
+    private static final int REQUESTS_PER_CLIENT = 40;
+    private static final int RANGE_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private StreamSegmentCache segmentCache;
+    private StreamAdmissionController admissionController;
+    private NIOStreamingServiceImpl streamingService;
+    private final AtomicLong dbQueries = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        segmentCache = new StreamSegmentCache(storageProperties);
+
+        StorageService storageService = mock(StorageService.class, withSettings().stubOnly());
+        when(storageService.getAbsolutePath(anyString()))
+                .thenAnswer(invocation -> tempDir.resolve(invocation.<String>getArgument(0)).toString());
+        // 真实的仓储实现，底层Mapper只计数，用于验证预热后不再访问数据库
+        MaterialFileMapper materialFileMapper = mock(MaterialFileMapper.class, withSettings().stubOnly());
+        when(materialFileMapper.selectById(anyString())).thenAnswer(invocation -> {
+            dbQueries.incrementAndGet();
+            String fileId = invocation.getArgument(0);
+            return MaterialFileDO.builder()
+                    .fileId(fileId)
+                    .md5Hash("md5-" + fileId)
+                    .storagePath(fileId + ".mp4")
+                    .mimeType("video/mp4")
+                    .uploadTime(LocalDateTime.now())
+                    .build();
+        });
+        FileInfoRepository fileInfoRepository = new FileInfoRepositoryImpl(materialFileMapper, mock(MaterialSearchIndex.class));
+
+        admissionController = new StreamAdmissionController(storageProperties);
+        admissionController.initialize();
+        streamingService = new NIOStreamingServiceImpl(storageService, fileInfoRepository, segmentCache,
+                admissionController);
+    }
+
+    @AfterEach
+    void tearDown() {
+        admissionController.shutdown();
+    }
+
+    @Test
+    void testRangeContentAcrossSegments() throws Exception {
+        int segmentSize = storageProperties.getStreaming().getSegmentSize();
+        byte[] content = new byte[segmentSize * 2 + 123];
+        new Random(42).nextBytes(content);
+        Files.write(tempDir.resolve("small.mp4"), content);
+
+        long start = segmentSize - 10;
+        long end = segmentSize * 2L + 5;
+        ResponseEntity<Resource> response = streamingService.streamDownload("small", start, end, "client-1");
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes " + start + "-" + end + "/" + content.length,
+                response.getHeaders().getFirst("Content-Range"));
+        byte[] body;
+        try (InputStream in = response.getBody().getInputStream()) {
+            body = in.readAllBytes();
+        }
+        assertEquals(end - start + 1, body.length);
+        assertEquals(0, admissionController.getActiveCount(), "响应体读取完毕后释放许可");
+        for (int i = 0; i < body.length; i++) {
+            assertEquals(content[(int) start + i], body[i], "跨分段读取的第" + i + "字节不一致");
+        }
+    }
+
+    @Test
+    void testUnsatisfiableRange() throws Exception {
+        Files.write(tempDir.resolve("tiny.mp4"), new byte[100]);
+
+        ResponseEntity<Resource> response = streamingService.streamDownload("tiny", 50L, 100L, "client-1");
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */100", response.getHeaders().getFirst("Content-Range"));
+        assertEquals(0, admissionController.getActiveCount(), "没有响应体时立即释放许可");
+    }
+
+    @Test
+    void testConcurrentRangeRequestsOverOneGigabyteFile() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("large.mp4").toFile(), "rw")) {
+            file.setLength(ONE_GB);
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong allocated = new AtomicLong();
+        AtomicLong served = new AtomicLong();
+        AtomicLong throttled = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            long seed = c;
+            futures.add(clients.submit(() -> {
+                Random random = new Random(seed);
+                byte[] buffer = new byte[64 * 1024];
+                start.await();
+                long before = threadBean.getCurrentThreadAllocatedBytes();
+                for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                    long offset = (long) random.nextInt((int) (ONE_GB / RANGE_SIZE)) * RANGE_SIZE;
+                    ResponseEntity<Resource> response;
+                    while ((response = streamingService.streamDownload("large", offset, offset + RANGE_SIZE - 1,
+                            "client-" + seed))
+                            .getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                        throttled.incrementAndGet();
+                        Thread.yield();
+                    }
+                    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+                    long read = 0;
+                    try (InputStream in = response.getBody().getInputStream()) {
+                        int n;
+                        while ((n = in.read(buffer)) > 0) {
+                            read += n;
+                        }
+                    }
+                    assertEquals(RANGE_SIZE, read);
+                    served.addAndGet(read);
+                }
+                allocated.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - before);
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        clients.shutdown();
+
+        int requests = CLIENTS * REQUESTS_PER_CLIENT;
+        long allocatedPerRequest = allocated.get() / requests;
+        System.out.printf("100并发范围请求: %d个请求, %dMB, 耗时: %.2fs, 吞吐: %.0fMB/s, 每请求堆分配: %dKB, "
+                        + "缓存命中/未命中/淘汰: %d/%d/%d, 限流重试: %d%n",
+                requests, served.get() / RANGE_SIZE, seconds, served.get() / 1048576.0 / seconds,
+                allocatedPerRequest / 1024, segmentCache.getHitCount(), segmentCache.getMissCount(),
+                segmentCache.getEvictionCount(), throttled.get());
+
+        assertEquals((long) requests * RANGE_SIZE, served.get());
+        assertEquals(0, admissionController.getActiveCount(), "传输流关闭后许可全部归还");
+        assertTrue(segmentCache.getCachedBytes() <= storageProperties.getStreaming().getSegmentCacheMaxBytes(),
+                "映射缓存不超过上限");
+        // 范围数据直接从映射拷贝到调用方缓冲区，堆分配与范围大小无关
+        assertTrue(allocatedPerRequest < RANGE_SIZE / 4, "每个1MB范围请求的堆分配: " + allocatedPerRequest);
+    }
+
+    @Test
+    void testPlayerSeekNeedsNoDatabaseAfterWarmup() throws Exception {
+        long size = 256L * 1024 * 1024;
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("seek.mp4").toFile(), "rw")) {
+            file.setLength(size);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        Random random = new Random(7);
+
+        // 首个请求加载描述符
+        drain(streamingService.streamDownload("seek", 0L, 1023L, "player"), buffer);
+        assertEquals(1, dbQueries.get());
+
+        // 播放器拖动：随机位置的开放式范围请求，只读取开头一段后断开
+        int seeks = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < seeks; i++) {
+            long offset = (long) (random.nextDouble() * (size - 1));
+            ResponseEntity<Resource> response = streamingService.streamDownload("seek", offset, null, "player");
+            assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+            assertEquals("\"md5-seek\"", response.getHeaders().getETag());
+            try (InputStream in = response.getBody().getInputStream()) {
+                in.read(buffer);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("播放器拖动: %d次, 吞吐: %.0f请求/秒, 数据库查询: %d%n",
+                seeks, seeks / seconds, dbQueries.get());
+        assertEquals(1, dbQueries.get(), "预热后范围请求不应访问数据库");
+        assertEquals(0, admissionController.getActiveCount());
+    }
+
+    private static void drain(ResponseEntity<Resource> response, byte[] buffer) throws Exception {
+        try (InputStream in = response.getBody().getInputStream()) {
+            while (in.read(buffer) > 0) {
+                // 丢弃
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式传输准入控制测试
+ * 不依赖Spring上下文，验证并发上限在1000个同时到达的请求下严格成立，以及公平排队和超时退出
+ */
+class StreamAdmissionControllerTest {
+
+    private static final int LIMIT = 20;
+
+    private FileStorageProperties storageProperties;
+    private StreamAdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStreaming().setMaxConcurrentTransfers(LIMIT);
+        storageProperties.getStreaming().setQueueTimeoutMillis(60_000);
+        admissionController = new StreamAdmissionController(storageProperties);
+        admissionController.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        admissionController.shutdown();
+    }
+
+    @Test
+    void testLimitHoldsUnderThousandSimultaneousRequests() throws Exception {
+        int requests = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch ready = new CountDownLatch(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        AtomicInteger granted = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String clientId = "client-" + (i % 50);
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                StreamAdmissionController.Permit permit = admissionController.acquire(clientId);
+                assertNotNull(permit, "排队请求应在超时前获得许可");
+                int current = holders.incrementAndGet();
+                maxHolders.accumulateAndGet(current, Math::max);
+                assertTrue(admissionController.getActiveCount() <= LIMIT);
+                Thread.sleep(2);
+                holders.decrementAndGet();
+                permit.release();
+                granted.incrementAndGet();
+                return null;
+            }));
+        }
+
+        ready.await();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        System.out.println("1000并发请求 - 最大同时持有许可数: " + maxHolders.get());
+        assertEquals(requests, granted.get());
+        assertTrue(maxHolders.get() <= LIMIT, "同时持有许可数超出上限: " + maxHolders.get());
+        assertEquals(LIMIT, maxHolders.get(), "突发请求应占满全部许可");
+        assertEquals(0, admissionController.getActiveCount());
+        assertEquals(0, admissionController.getWaitingCount());
+        assertEquals(0, admissionController.getRejectedCount());
+        assertEquals(0, admissionController.getTimeoutCount());
+    }
+
+    @Test
+    void testPermitsRotateAcrossClients() throws Exception {
+        storageProperties.getStreaming().setMaxConcurrentTransfers(1);
+        admissionController.shutdown();
+        admissionController = new StreamAdmissionController(storageProperties);
+        admissionController.initialize();
+
+        StreamAdmissionController.Permit holder = admissionController.acquire("busy");
+        List<String> grantOrder = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // 同一客户端先排入5个请求，另一个客户端随后排入1个
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.submit(() -> acquireAndRecord("busy", grantOrder)));
+            awaitWaiting(i + 1);
+        }
+        futures.add(executor.submit(() -> acquireAndRecord("quiet", grantOrder)));
+        awaitWaiting(6);
+
+        holder.release();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(6, grantOrder.size());
+        assertTrue(grantOrder.indexOf("quiet") <= 1, "后到的客户端不应等待先到客户端的全部请求: " + grantOrder);
+    }
+
+    @Test
+    void testWaiterTimesOutAndLeavesQueue() throws Exception {
+        storageProperties.getStreaming().setMaxConcurrentTransfers(1);
+        storageProperties.getStreaming().setQueueTimeoutMillis(50);
+        admissionController.shutdown();
+        admissionController = new StreamAdmissionController(storageProperties);
+        admissionController.initialize();
+
+        StreamAdmissionController.Permit holder = admissionController.acquire("a");
+        assertNull(admissionController.acquire("b"), "等待超时应返回null");
+        assertEquals(1, admissionController.getTimeoutCount());
+        assertEquals(0, admissionController.getWaitingCount(), "超时的等待者应退出队列");
+
+        assertTrue(holder.release());
+        assertFalse(holder.release(), "许可释放是幂等的");
+        assertEquals(0, admissionController.getActiveCount());
+        assertNotNull(admissionController.acquire("b"), "释放后可再次获得许可");
+    }
+
+    @Test
+    void testQueueFullRejectsImmediately() {
+        storageProperties.getStreaming().setMaxConcurrentTransfers(1);
+        storageProperties.getStreaming().setMaxQueuedRequests(0);
+        admissionController.shutdown();
+        admissionController = new StreamAdmissionController(storageProperties);
+        admissionController.initialize();
+
+        admissionController.acquire("a");
+        long start = System.currentTimeMillis();
+        assertNull(admissionController.acquire("b"));
+        assertTrue(System.currentTimeMillis() - start < 1000, "队列已满时不应等待");
+        assertEquals(1, admissionController.getRejectedCount());
+    }
+
+    private Void acquireAndRecord(String clientId, List<String> grantOrder) {
+        StreamAdmissionController.Permit permit = admissionController.acquire(clientId);
+        assertNotNull(permit);
+        grantOrder.add(clientId);
+        permit.release();
+        return null;
+    }
+
+    private void awaitWaiting(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (admissionController.getWaitingCount() < expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待者未按预期排队");
+            Thread.sleep(1);
+        }
+    }
+}
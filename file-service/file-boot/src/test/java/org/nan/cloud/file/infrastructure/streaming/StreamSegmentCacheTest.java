@@ -0,0 +1,150 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式传输范围缓存测试
+ * 不依赖Spring上下文，使用临时文件验证分段映射、LRU淘汰和失效
+ */
+class StreamSegmentCacheTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private StreamSegmentCache cache;
+    private Path file;
+    private long fileSize;
+    private long lastModified;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getStreaming().setSegmentSize(SEGMENT_SIZE);
+        storageProperties.getStreaming().setSegmentCacheMaxBytes(2L * SEGMENT_SIZE);
+        cache = new StreamSegmentCache(storageProperties);
+
+        // 3个完整分段加半个分段
+        byte[] content = new byte[SEGMENT_SIZE * 3 + SEGMENT_SIZE / 2];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i / SEGMENT_SIZE);
+        }
+        file = Files.write(tempDir.resolve("video.mp4"), content);
+        fileSize = content.length;
+        lastModified = Files.getLastModifiedTime(file).toMillis();
+    }
+
+    @Test
+    void testSegmentContentAndHit() throws IOException {
+        ByteBuffer first = cache.getSegment(file, fileSize, lastModified, 1);
+        assertEquals(0, first.position(), "分段视图应从0开始");
+        assertEquals(SEGMENT_SIZE, first.remaining());
+        assertEquals(1, first.get(0), "分段1的内容应来自文件第二段");
+        assertTrue(first.isReadOnly(), "分段视图应为只读");
+        assertEquals(1, cache.getMissCount());
+
+        ByteBuffer second = cache.getSegment(file, fileSize, lastModified, 1);
+        assertEquals(1, cache.getHitCount(), "再次读取同一分段应命中缓存");
+        assertEquals(SEGMENT_SIZE, second.remaining());
+
+        // 调用方移动position不影响后续读取
+        first.position(100);
+        assertEquals(0, cache.getSegment(file, fileSize, lastModified, 1).position());
+    }
+
+    @Test
+    void testLastSegmentIsPartial() throws IOException {
+        ByteBuffer last = cache.getSegment(file, fileSize, lastModified, 3);
+        assertEquals(SEGMENT_SIZE / 2, last.remaining(), "最后一段只映射剩余字节");
+        assertEquals(3, last.get(0));
+    }
+
+    @Test
+    void testSegmentBeyondFileRejected() {
+        assertThrows(IOException.class, () -> cache.getSegment(file, fileSize, lastModified, 4));
+        assertEquals(0, cache.getCachedBytes(), "失败的映射不应计入缓存");
+    }
+
+    @Test
+    void testLruEviction() throws IOException {
+        cache.getSegment(file, fileSize, lastModified, 0);
+        cache.getSegment(file, fileSize, lastModified, 1);
+        // 访问分段0，使分段1成为最久未访问
+        cache.getSegment(file, fileSize, lastModified, 0);
+        cache.getSegment(file, fileSize, lastModified, 2);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2L * SEGMENT_SIZE, cache.getCachedBytes(), "缓存字节数不应超过上限");
+
+        long hits = cache.getHitCount();
+        cache.getSegment(file, fileSize, lastModified, 0);
+        assertEquals(hits + 1, cache.getHitCount(), "最近访问的分段0应保留");
+
+        long misses = cache.getMissCount();
+        cache.getSegment(file, fileSize, lastModified, 1);
+        assertEquals(misses + 1, cache.getMissCount(), "最久未访问的分段1应被淘汰");
+    }
+
+    @Test
+    void testOversizedSegmentIsKept() throws IOException {
+        storageProperties.getStreaming().setSegmentCacheMaxBytes(SEGMENT_SIZE / 2);
+
+        cache.getSegment(file, fileSize, lastModified, 0);
+        cache.getSegment(file, fileSize, lastModified, 1);
+
+        assertEquals(SEGMENT_SIZE, cache.getCachedBytes(), "超过上限时至少保留刚放入的分段");
+        long hits = cache.getHitCount();
+        cache.getSegment(file, fileSize, lastModified, 1);
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    @Test
+    void testModifiedFileMissesCache() throws IOException {
+        cache.getSegment(file, fileSize, lastModified, 0);
+        cache.getSegment(file, fileSize, lastModified + 1000, 0);
+
+        assertEquals(0, cache.getHitCount(), "最后修改时间变化后不应命中旧分段");
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testInvalidate() throws IOException {
+        Path other = Files.write(tempDir.resolve("other.mp4"), new byte[SEGMENT_SIZE]);
+        storageProperties.getStreaming().setSegmentCacheMaxBytes(10L * SEGMENT_SIZE);
+        cache.getSegment(file, fileSize, lastModified, 0);
+        cache.getSegment(file, fileSize, lastModified, 1);
+        cache.getSegment(other, SEGMENT_SIZE, lastModified, 0);
+
+        cache.invalidate(file);
+
+        assertEquals(SEGMENT_SIZE, cache.getCachedBytes(), "只移除被失效文件的分段");
+        long misses = cache.getMissCount();
+        cache.getSegment(file, fileSize, lastModified, 0);
+        assertEquals(misses + 1, cache.getMissCount());
+        long hits = cache.getHitCount();
+        cache.getSegment(other, SEGMENT_SIZE, lastModified, 0);
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    @Test
+    void testWarmStopsAtLimit() throws IOException {
+        storageProperties.getStreaming().setSegmentCacheMaxBytes(10L * SEGMENT_SIZE);
+
+        long warmed = cache.warm(file, fileSize, lastModified, SEGMENT_SIZE + 1);
+
+        assertEquals(2L * SEGMENT_SIZE, warmed, "预热按整段进行，达到上限后停止");
+        assertEquals(2, cache.getMissCount());
+    }
+}
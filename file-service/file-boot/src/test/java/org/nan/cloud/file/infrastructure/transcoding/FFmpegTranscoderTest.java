@@ -0,0 +1,165 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * FFmpeg单次转码测试
+ * 不依赖Spring上下文，用真实ffmpeg生成测试片源，验证一次ffmpeg调用同时产出转码文件、封面帧和输出流元数据，
+ * 以及管道写入时计算的MD5与落盘文件一致。
+ * ffmpeg路径取系统属性ffmpeg.path，默认从PATH查找；环境中没有ffmpeg时跳过
+ */
+@DisabledOnOs(OS.WINDOWS)
+class FFmpegTranscoderTest {
+
+    private static final String FFMPEG = System.getProperty("ffmpeg.path", "ffmpeg");
+
+    /**
+     * 记录每次调用后再交给真实ffmpeg执行
+     */
+    private static final String COUNTING_FFMPEG = """
+            #!/bin/sh
+            echo "$*" >> "%s"
+            exec "%s" "$@"
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path invocationLog;
+    private FFmpegTranscoder transcoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        invocationLog = tempDir.resolve("invocations.log");
+        Path script = tempDir.resolve("counting-ffmpeg.sh");
+        Files.writeString(script, COUNTING_FFMPEG.formatted(invocationLog, FFMPEG));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        transcoder = new FFmpegTranscoder();
+        ReflectionTestUtils.setField(transcoder, "ffmpegPath", script.toString());
+        ReflectionTestUtils.setField(transcoder, "defaultThreads", 1);
+        ReflectionTestUtils.setField(transcoder, "timeoutSeconds", 120);
+        ReflectionTestUtils.setField(transcoder, "enableGpu", false);
+        ReflectionTestUtils.setField(transcoder, "tempDir", tempDir.toString());
+    }
+
+    @Test
+    void testSinglePassProducesOutputPosterAndMetadata() throws Exception {
+        assumeTrue(transcoder.isFFmpegAvailable(), "环境中没有可用的ffmpeg: " + FFMPEG);
+        Path input = generateTestMedia(3);
+        Files.deleteIfExists(invocationLog);
+
+        Path output = tempDir.resolve("output.mp4");
+        Path poster = tempDir.resolve("poster.jpg");
+        List<Integer> progress = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        FFmpegTranscoder.TranscodingResult result = transcoder.transcode(input.toString(), output.toString(),
+                FFmpegTranscoder.TranscodingConfig.builder()
+                        .videoCodec("mpeg4")
+                        .audioCodec("aac")
+                        .threads(1)
+                        .poster(poster.toString(), 1.0)
+                        .build(),
+                (percent, fps, currentTime) -> progress.add(percent));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<String> invocations = Files.readAllLines(invocationLog);
+        Map<String, Object> metadata = result.getOutputMetadata();
+        System.out.printf("单次转码: 耗时%.2fs, ffmpeg调用%d次, 输出%d字节, 进度回调%d次, 元数据%s%n",
+                seconds, invocations.size(), result.getOutputFileSize(), progress.size(), metadata);
+
+        assertTrue(result.isSuccess(), "转码应成功: " + result.getErrorMessage());
+        assertEquals(1, invocations.size(), "转码、封面和元数据应由同一次ffmpeg调用产出: " + invocations);
+        assertTrue(Files.size(output) > 0, "应生成转码文件");
+        assertEquals(Files.size(output), result.getOutputFileSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(Files.readAllBytes(output))),
+                result.getOutputMd5(), "写入时计算的MD5应与落盘文件一致");
+        byte[] head = Files.readAllBytes(output);
+        int ftypSize = ByteBuffer.wrap(head).getInt();
+        assertEquals("moov", new String(head, ftypSize + 4, 4, StandardCharsets.US_ASCII),
+                "分片MP4的moov应紧跟ftyp位于文件头，可边下边播");
+        assertDecodable(output);
+
+        assertEquals(poster.toString(), result.getPosterPath());
+        BufferedImage image = ImageIO.read(poster.toFile());
+        assertNotNull(image, "封面应为可解码的JPEG");
+        assertEquals(320, image.getWidth());
+        assertEquals(240, image.getHeight());
+
+        assertEquals("mpeg4", metadata.get("videoCodec"));
+        assertEquals(640, metadata.get("width"));
+        assertEquals(360, metadata.get("height"));
+        assertEquals("aac", metadata.get("audioCodec"));
+        assertEquals(3.0, Double.parseDouble((String) metadata.get("duration")), 0.2, "输出时长取自进度统计");
+        assertNotNull(metadata.get("bitRate"));
+
+        assertFalse(progress.isEmpty(), "应解析-progress输出");
+        assertEquals(100, progress.get(progress.size() - 1), "结束时进度应为100");
+    }
+
+    @Test
+    void testMissingInputFailsWithoutPoster() throws Exception {
+        assumeTrue(transcoder.isFFmpegAvailable(), "环境中没有可用的ffmpeg: " + FFMPEG);
+        Path poster = tempDir.resolve("poster.jpg");
+
+        FFmpegTranscoder.TranscodingResult result = transcoder.transcode(
+                tempDir.resolve("missing.mp4").toString(), tempDir.resolve("output.mp4").toString(),
+                FFmpegTranscoder.TranscodingConfig.builder().videoCodec("mpeg4").poster(poster.toString(), null).build(),
+                (percent, fps, currentTime) -> { });
+
+        assertFalse(result.isSuccess());
+        assertFalse(Files.exists(poster));
+    }
+
+    /**
+     * 用ffmpeg完整解码一遍，确认输出文件可播放
+     */
+    private static void assertDecodable(Path file) throws Exception {
+        Process process = new ProcessBuilder(FFMPEG, "-v", "error", "-i", file.toString(), "-f", "null", "-")
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS), "解码转码文件超时");
+        assertEquals(0, process.exitValue(), "转码文件应可完整解码: " + output);
+        assertTrue(output.isBlank(), "解码不应有错误: " + output);
+    }
+
+    /**
+     * 用lavfi测试源生成带音频的片源（640x360、25fps）
+     */
+    private Path generateTestMedia(int durationSeconds) throws Exception {
+        Path input = tempDir.resolve("input.mp4");
+        Process process = new ProcessBuilder(FFMPEG, "-y", "-hide_banner", "-loglevel", "error",
+                "-f", "lavfi", "-i", "testsrc=duration=" + durationSeconds + ":size=640x360:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=" + durationSeconds,
+                "-c:v", "mpeg4", "-c:a", "aac", "-shortest", input.toString())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS), "生成测试片源超时");
+        assertEquals(0, process.exitValue(), "生成测试片源失败: " + output);
+        return input;
+    }
+}
@@ -0,0 +1,203 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.TaskContextService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 转码调度器与ffmpeg进程集成测试
+ * 不依赖Spring上下文，用shell脚本冒充ffmpeg（stderr输出进度、按输入文件中的秒数休眠、stdout写出结果），
+ * 验证并发进程数不超过CPU预算、组织间公平、吞吐随并发提升，以及取消会终止ffmpeg进程树
+ */
+@DisabledOnOs(OS.WINDOWS)
+class FakeFfmpegSchedulingTest {
+
+    private static final String FAKE_FFMPEG = """
+            #!/bin/sh
+            prev=""
+            for arg in "$@"; do
+              [ "$prev" = "-i" ] && input="$arg"
+              prev="$arg"
+            done
+            seconds=$(cat "$input")
+            echo "Duration: 00:00:10.00, start: 0.000000, bitrate: 1000 kb/s" >&2
+            echo "frame=    1 fps=25.0 q=28.0 size=       1kB time=00:00:01.00 bitrate=1.0kbits/s" >&2
+            sleep "$seconds"
+            echo "frame=  250 fps=25.0 q=28.0 size=     100kB time=00:00:10.00 bitrate=1.0kbits/s" >&2
+            echo transcoded
+            """;
+
+    private static final double JOB_SECONDS = 0.2;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private FFmpegTranscoder transcoder;
+    private TranscodingJobExecutor jobExecutor;
+    private TranscodingScheduler scheduler;
+
+    private final AtomicInteger runningProcesses = new AtomicInteger();
+    private final AtomicInteger maxRunningProcesses = new AtomicInteger();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final List<String> succeeded = new CopyOnWriteArrayList<>();
+    private final List<TranscodingJob> attached = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path script = tempDir.resolve("fake-ffmpeg.sh");
+        Files.writeString(script, FAKE_FFMPEG);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Files.createDirectories(tempDir.resolve("in"));
+        Files.createDirectories(tempDir.resolve("out"));
+
+        transcoder = new FFmpegTranscoder();
+        ReflectionTestUtils.setField(transcoder, "ffmpegPath", script.toString());
+        ReflectionTestUtils.setField(transcoder, "defaultThreads", 1);
+        ReflectionTestUtils.setField(transcoder, "timeoutSeconds", 60);
+        ReflectionTestUtils.setField(transcoder, "enableGpu", false);
+        ReflectionTestUtils.setField(transcoder, "tempDir", tempDir.toString());
+
+        storageProperties = new FileStorageProperties();
+        FileStorageProperties.Transcoding transcoding = storageProperties.getTranscoding();
+        transcoding.getTemp().setDir(tempDir.toString());
+        transcoding.getFfmpeg().setThreads(1);
+        transcoding.getQueue().setMaxConcurrentTasks(2);
+        transcoding.getQueue().setMaxQueueSize(100);
+        transcoding.getQueue().setPriorityEnabled(false);
+
+        // 执行器只保留调用ffmpeg这一步，其余持久化和事件发布与调度无关
+        jobExecutor = mock(TranscodingJobExecutor.class);
+        doAnswer(invocation -> {
+            runFakeTranscode(invocation.getArgument(0));
+            return null;
+        }).when(jobExecutor).execute(any());
+
+        scheduler = new TranscodingScheduler(storageProperties, jobExecutor, mock(TaskContextService.class));
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testThroughputAndFairness() throws Exception {
+        int concurrency = scheduler.getConcurrency();
+        int busyJobs = 12;
+        int quietJobs = 3;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < busyJobs; i++) {
+            assertTrue(scheduler.submit(job("busy-" + i, 1L, 1000 + i, JOB_SECONDS)));
+        }
+        // 另一个组织稍后提交少量作业
+        for (int i = 0; i < quietJobs; i++) {
+            assertTrue(scheduler.submit(job("quiet-" + i, 2L, 2000 + i, JOB_SECONDS)));
+        }
+        waitUntil(() -> scheduler.getFinishedCount() == busyJobs + quietJobs, 30_000);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        int lastQuietStart = 0;
+        for (int i = 0; i < started.size(); i++) {
+            if (started.get(i).startsWith("quiet")) {
+                lastQuietStart = i;
+            }
+        }
+        double serialSeconds = (busyJobs + quietJobs) * JOB_SECONDS;
+        System.out.printf("假ffmpeg调度: 并发%d, %d个作业耗时%.2fs (串行约%.2fs), 吞吐%.1f作业/秒, "
+                        + "最大同时进程%d, 启动顺序%s%n",
+                concurrency, busyJobs + quietJobs, seconds, serialSeconds, (busyJobs + quietJobs) / seconds,
+                maxRunningProcesses.get(), started);
+
+        assertEquals(busyJobs + quietJobs, succeeded.size(), "所有作业都应转码成功");
+        assertTrue(maxRunningProcesses.get() <= concurrency, "同时运行的ffmpeg进程不能超过CPU预算");
+        // 轮转调度下，后到组织的作业不必等前一个组织的全部作业
+        assertTrue(lastQuietStart < concurrency + 2 * quietJobs,
+                "后到组织的作业应与先到组织交替执行: " + started);
+        if (concurrency > 1) {
+            assertEquals(concurrency, maxRunningProcesses.get(), "排队充足时应占满并发");
+            assertTrue(seconds < serialSeconds * 0.8, "并发执行的耗时应明显低于串行");
+        }
+    }
+
+    @Test
+    void testCancelKillsFfmpegProcessTree() throws Exception {
+        assertTrue(scheduler.submit(job("long", 1L, 1000, 30)));
+        waitUntil(() -> !attached.isEmpty() && attached.get(0).getProcess() != null, 5000);
+        Process process = attached.get(0).getProcess();
+        // 等脚本启动sleep子进程
+        waitUntil(() -> process.descendants().findAny().isPresent(), 5000);
+        List<ProcessHandle> children = new ArrayList<>(process.descendants().toList());
+
+        assertTrue(scheduler.cancelTask("long"));
+
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS), "取消后ffmpeg进程应被终止");
+        waitUntil(() -> children.stream().noneMatch(ProcessHandle::isAlive), 5000);
+        waitUntil(() -> scheduler.getFinishedCount() == 1, 5000);
+        assertTrue(succeeded.isEmpty(), "被取消的作业不应成功");
+        assertEquals(1, scheduler.getCancelledCount());
+    }
+
+    private void runFakeTranscode(TranscodingJob job) {
+        int running = runningProcesses.incrementAndGet();
+        maxRunningProcesses.accumulateAndGet(running, Math::max);
+        started.add(job.getTaskId());
+        try {
+            attached.add(job);
+            FFmpegTranscoder.TranscodingResult result = transcoder.transcode(
+                    tempDir.resolve("in").resolve(job.getTaskId()).toString(),
+                    tempDir.resolve("out").resolve(job.getTaskId() + ".mp4").toString(),
+                    FFmpegTranscoder.TranscodingConfig.builder().videoCodec("libx264").threads(1).build(),
+                    (progress, fps, currentTime) -> { },
+                    job::attachProcess);
+            if (result.isSuccess() && !job.isInterrupted()) {
+                succeeded.add(job.getTaskId());
+            }
+        } finally {
+            runningProcesses.decrementAndGet();
+        }
+    }
+
+    private TranscodingJob job(String taskId, Long oid, long enqueueTime, double seconds) throws Exception {
+        Files.writeString(tempDir.resolve("in").resolve(taskId), String.valueOf(seconds));
+        return TranscodingJob.builder()
+                .taskId(taskId)
+                .oid(oid)
+                .uid(10L)
+                .sourceMaterialId(20L)
+                .detailId("detail-" + taskId)
+                .priority(TranscodingJob.DEFAULT_PRIORITY)
+                .enqueueTime(enqueueTime)
+                .build();
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.TaskContextService;
+import org.nan.cloud.file.infrastructure.mq.producer.TranscodingEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 转码进度上报测试
+ * 不依赖Spring上下文，模拟多个并发作业以ffmpeg的频率回调进度，验证消息量下降超过95%、
+ * 用户看到的进度步长有界，以及结束后不再出现进度消息
+ */
+class TranscodingProgressReporterTest {
+
+    private static final int JOBS = 10;
+    private static final int USERS = 4;
+    private static final int CALLBACKS_PER_PERCENT = 20;
+
+    private FileStorageProperties storageProperties;
+    private TranscodingEventPublisher eventPublisher;
+    private TranscodingProgressReporter reporter;
+
+    /**
+     * 按发布顺序记录的每个任务可见进度
+     */
+    private final Map<String, List<Integer>> visibleProgress = new ConcurrentHashMap<>();
+    private final List<String> publishLog = new CopyOnWriteArrayList<>();
+    private final Set<String> finishedTasks = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        FileStorageProperties.Transcoding.Progress progress = storageProperties.getTranscoding().getProgress();
+        // 缩短时间参数，使测试在1秒左右完成；比例与默认配置（1s周期、5%步长）一致
+        progress.setFlushIntervalMillis(20);
+        progress.setMinIntervalMillis(20);
+        progress.setMaxIntervalMillis(200);
+        progress.setMinPercentDelta(5);
+
+        eventPublisher = mock(TranscodingEventPublisher.class);
+        doAnswer(invocation -> {
+            String taskId = invocation.getArgument(0);
+            if (finishedTasks.contains(taskId)) {
+                publishLog.add("late:" + taskId);
+            }
+            visibleProgress.computeIfAbsent(taskId, k -> new CopyOnWriteArrayList<>())
+                    .add(invocation.<Integer>getArgument(3));
+            return null;
+        }).when(eventPublisher).publishTranscodingProgress(anyString(), anyLong(), anyLong(), anyInt(), anyString());
+
+        reporter = new TranscodingProgressReporter(storageProperties, eventPublisher, mock(TaskContextService.class));
+        reporter.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reporter.shutdown();
+    }
+
+    @Test
+    void testConcurrentJobsReduceMessagesByOverNinetyFivePercent() throws Exception {
+        ExecutorService ffmpeg = Executors.newFixedThreadPool(JOBS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            TranscodingJob job = job("task-" + i, (long) (i % USERS));
+            futures.add(ffmpeg.submit(() -> {
+                start.await();
+                reporter.started(job);
+                for (int percent = 0; percent <= 100; percent++) {
+                    for (int line = 0; line < CALLBACKS_PER_PERCENT; line++) {
+                        reporter.progress(job.getTaskId(), percent);
+                    }
+                    Thread.sleep(10);
+                }
+                reporter.finished(job.getTaskId());
+                finishedTasks.add(job.getTaskId());
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        // 再等几个周期，确认结束后不会再推送
+        Thread.sleep(100);
+        ffmpeg.shutdown();
+
+        long received = reporter.getReceivedCount();
+        long published = reporter.getPublishedCount();
+        double reduction = 1 - (double) published / received;
+        System.out.printf("转码进度上报: 收到回调%d次, 推送消息%d条, 减少%.2f%%%n", received, published, reduction * 100);
+
+        assertEquals((long) JOBS * 101 * CALLBACKS_PER_PERCENT, received);
+        assertTrue(reduction > 0.95, "MQ消息量应下降超过95%: " + reduction);
+        verify(eventPublisher, times(JOBS)).publishTranscodingStarted(anyString(), anyLong(), anyLong(), anyLong());
+        verify(eventPublisher, never()).publishTranscodingProgress(anyString(), anyInt(), anyString());
+        assertTrue(publishLog.isEmpty(), "任务结束后不应再推送进度: " + publishLog);
+
+        for (int i = 0; i < JOBS; i++) {
+            List<Integer> seen = visibleProgress.get("task-" + i);
+            assertNotNull(seen, "每个任务都应有进度更新");
+            int previous = 0;
+            int maxStep = 0;
+            for (int value : seen) {
+                assertTrue(value >= previous, "进度不应回退");
+                maxStep = Math.max(maxStep, value - previous);
+                previous = value;
+            }
+            assertTrue(maxStep <= 20, "用户可见的进度步长应有界: " + seen);
+            assertTrue(previous >= 80, "结束前应已看到接近完成的进度: " + seen);
+        }
+    }
+
+    @Test
+    void testSmallChangesPublishedAfterMaxInterval() throws Exception {
+        TranscodingJob job = job("slow", 1L);
+        reporter.started(job);
+        reporter.progress("slow", 1);
+
+        Thread.sleep(100);
+        assertNull(visibleProgress.get("slow"), "变化不足阈值时在最长间隔内不推送");
+
+        Thread.sleep(300);
+        assertEquals(List.of(1), visibleProgress.get("slow"), "超过最长间隔后推送最新进度");
+        reporter.finished("slow");
+    }
+
+    @Test
+    void testUnknownTaskIgnored() throws Exception {
+        reporter.progress("missing", 50);
+        Thread.sleep(100);
+
+        assertEquals(1, reporter.getReceivedCount());
+        assertEquals(0, reporter.getPublishedCount());
+    }
+
+    private static TranscodingJob job(String taskId, Long uid) {
+        return TranscodingJob.builder()
+                .taskId(taskId)
+                .oid(1L)
+                .uid(uid)
+                .sourceMaterialId(20L)
+                .detailId("detail-" + taskId)
+                .priority(TranscodingJob.DEFAULT_PRIORITY)
+                .enqueueTime(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,241 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.TaskContextService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 转码调度器测试
+ * 不依赖Spring上下文，单并发下用阻塞作业占住工作线程，验证组织间轮转、队列上限、取消和作业日志恢复
+ */
+class TranscodingSchedulerTest {
+
+    private static final String BLOCKER = "blocker";
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageProperties storageProperties;
+    private TranscodingJobExecutor jobExecutor;
+    private TaskContextService taskContextService;
+    private TranscodingScheduler scheduler;
+
+    /**
+     * 执行顺序（taskId）
+     */
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        FileStorageProperties.Transcoding transcoding = storageProperties.getTranscoding();
+        transcoding.getTemp().setDir(tempDir.toString());
+        transcoding.getFfmpeg().setThreads(1);
+        transcoding.getQueue().setMaxConcurrentTasks(1);
+        transcoding.getQueue().setMaxQueueSize(3);
+        transcoding.getQueue().setPriorityEnabled(false);
+
+        jobExecutor = mock(TranscodingJobExecutor.class);
+        doAnswer(invocation -> {
+            TranscodingJob job = invocation.getArgument(0);
+            executed.add(job.getTaskId());
+            if (BLOCKER.equals(job.getTaskId())) {
+                blockerStarted.countDown();
+                // 停机中止时结束，模拟ffmpeg进程被终止
+                while (!job.isInterrupted()) {
+                    if (release.await(10, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                }
+            }
+            return null;
+        }).when(jobExecutor).execute(any());
+        taskContextService = mock(TaskContextService.class);
+
+        scheduler = new TranscodingScheduler(storageProperties, jobExecutor, taskContextService);
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testOrganizationsRoundRobin() throws InterruptedException {
+        occupyWorker();
+        transcoding().getQueue().setMaxQueueSize(10);
+        assertTrue(scheduler.submit(job("a1", 1L, 1000)));
+        assertTrue(scheduler.submit(job("a2", 1L, 1001)));
+        assertTrue(scheduler.submit(job("a3", 1L, 1002)));
+        assertTrue(scheduler.submit(job("b1", 2L, 1003)));
+        assertEquals(4, scheduler.getQueuedCount());
+
+        release.countDown();
+        waitUntil(() -> scheduler.getFinishedCount() == 5);
+
+        // 组织1排队较早也不能独占，组织2的作业在组织1的第二个作业之前执行
+        assertEquals(List.of(BLOCKER, "a1", "b1", "a2", "a3"), executed);
+        assertEquals(0, scheduler.getQueuedCount());
+        assertFalse(Files.exists(journal("a1")), "作业完成后删除作业日志");
+    }
+
+    @Test
+    void testPriorityWithinOrganization() throws InterruptedException {
+        transcoding().getQueue().setPriorityEnabled(true);
+        transcoding().getQueue().setPriorityAgingSeconds(3600);
+        restartScheduler();
+        occupyWorker();
+
+        long now = System.currentTimeMillis();
+        assertTrue(scheduler.submit(job("low", 1L, now, 1)));
+        assertTrue(scheduler.submit(job("high", 1L, now + 1, 9)));
+
+        release.countDown();
+        waitUntil(() -> scheduler.getFinishedCount() == 3);
+
+        assertEquals(List.of(BLOCKER, "high", "low"), executed);
+    }
+
+    @Test
+    void testQueueLimitAndDuplicateSubmit() throws InterruptedException {
+        occupyWorker();
+        assertTrue(scheduler.submit(job("j1", 1L, 1000)));
+        assertTrue(scheduler.submit(job("j2", 1L, 1001)));
+        assertTrue(scheduler.submit(job("j3", 2L, 1002)));
+
+        assertFalse(scheduler.hasCapacity());
+        assertFalse(scheduler.submit(job("j4", 2L, 1003)), "队列已满时应拒绝");
+        assertTrue(scheduler.submit(job("j1", 1L, 1000)), "重复提交排队中的作业视为已接受");
+        assertTrue(scheduler.submit(job(BLOCKER, 1L, 0)), "重复提交执行中的作业视为已接受");
+        assertEquals(4, scheduler.getSubmittedCount(), "重复提交不计数");
+        assertTrue(scheduler.isScheduled(BLOCKER));
+        assertTrue(scheduler.isScheduled("j1"));
+        assertFalse(scheduler.isScheduled("j4"));
+    }
+
+    @Test
+    void testCancelQueuedJob() throws InterruptedException {
+        occupyWorker();
+        assertTrue(scheduler.submit(job("j1", 1L, 1000)));
+        assertTrue(scheduler.submit(job("j2", 1L, 1001)));
+        assertTrue(Files.exists(journal("j1")), "入队时写入作业日志");
+
+        assertTrue(scheduler.cancelTask("j1"));
+        assertFalse(scheduler.cancelTask("missing"));
+
+        assertFalse(Files.exists(journal("j1")), "取消后删除作业日志");
+        assertFalse(scheduler.isScheduled("j1"));
+        verify(jobExecutor).recordCancelled(argThat(job -> "j1".equals(job.getTaskId()) && job.isInterrupted()));
+
+        release.countDown();
+        waitUntil(() -> scheduler.getFinishedCount() == 2);
+        assertEquals(List.of(BLOCKER, "j2"), executed);
+        assertEquals(1, scheduler.getCancelledCount());
+    }
+
+    @Test
+    void testJournalRecoveredAfterRestart() throws Exception {
+        occupyWorker();
+        assertTrue(scheduler.submit(job("j2", 2L, 2000)));
+        assertTrue(scheduler.submit(job("j1", 1L, 1000)));
+
+        // 停机中止执行中的作业，日志保留
+        scheduler.shutdown();
+        assertEquals(0, scheduler.getFinishedCount());
+        assertTrue(Files.exists(journal(BLOCKER)));
+        assertTrue(Files.exists(journal("j1")));
+        assertTrue(Files.exists(journal("j2")));
+        assertFalse(scheduler.submit(job("j3", 1L, 3000)), "停止后不再接受作业");
+
+        executed.clear();
+        when(taskContextService.existsTask(anyString())).thenReturn(false);
+        scheduler = new TranscodingScheduler(storageProperties, jobExecutor, taskContextService);
+        release.countDown();
+        scheduler.initialize();
+        waitUntil(() -> scheduler.getFinishedCount() == 3);
+
+        // 按原入队时间恢复
+        assertEquals(List.of(BLOCKER, "j1", "j2"), executed);
+        verify(taskContextService, times(3)).createTaskContext(anyString(), any(), anyLong(), anyLong(), anyString(), eq(0L));
+        try (var remaining = Files.list(tempDir.resolve("jobs"))) {
+            assertEquals(0, remaining.count(), "恢复的作业完成后删除作业日志");
+        }
+    }
+
+    @Test
+    void testCorruptJournalIgnored() throws Exception {
+        scheduler.shutdown();
+        Files.writeString(tempDir.resolve("jobs").resolve("broken.job"), "taskId=broken\n");
+
+        scheduler = new TranscodingScheduler(storageProperties, jobExecutor, taskContextService);
+        scheduler.initialize();
+
+        assertEquals(0, scheduler.getQueuedCount());
+        assertFalse(Files.exists(tempDir.resolve("jobs").resolve("broken.job")), "损坏的作业日志应被删除");
+    }
+
+    private void occupyWorker() throws InterruptedException {
+        assertTrue(scheduler.submit(job(BLOCKER, 9L, 0)));
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    private void restartScheduler() {
+        scheduler.shutdown();
+        scheduler = new TranscodingScheduler(storageProperties, jobExecutor, taskContextService);
+        scheduler.initialize();
+    }
+
+    private FileStorageProperties.Transcoding transcoding() {
+        return storageProperties.getTranscoding();
+    }
+
+    private Path journal(String taskId) {
+        return tempDir.resolve("jobs").resolve(taskId + ".job");
+    }
+
+    private static TranscodingJob job(String taskId, Long oid, long enqueueTime) {
+        return job(taskId, oid, enqueueTime, TranscodingJob.DEFAULT_PRIORITY);
+    }
+
+    private static TranscodingJob job(String taskId, Long oid, long enqueueTime, int priority) {
+        return TranscodingJob.builder()
+                .taskId(taskId)
+                .oid(oid)
+                .uid(10L)
+                .sourceMaterialId(20L)
+                .detailId("detail-" + taskId)
+                .priority(priority)
+                .enqueueTime(enqueueTime)
+                .build();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.nan.cloud.file.infrastructure.vsn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.port.VsnResultPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * VSN生成调度测试
+ * 不依赖Spring上下文，单个工作线程下验证按节目合并（含连续快速更新和多线程并发提交）、排队上限和停机时的失败结果发布
+ */
+class VsnGenerationDispatcherTest {
+
+    private FileStorageProperties storageProperties;
+    private VsnResultPublisher resultPublisher;
+    private VsnGenerationDispatcher dispatcher;
+
+    /**
+     * 生成服务收到的请求，按执行顺序记录 programId:version
+     */
+    private final List<String> generated = new CopyOnWriteArrayList<>();
+    private CountDownLatch firstStarted;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new FileStorageProperties();
+        storageProperties.getVsnGeneration().setWorkerThreads(1);
+        storageProperties.getVsnGeneration().setMaxPendingPrograms(10);
+        storageProperties.getVsnGeneration().setAcceptTimeoutSeconds(0);
+        storageProperties.getVsnGeneration().setShutdownTimeoutSeconds(5);
+
+        firstStarted = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        resultPublisher = mock(VsnResultPublisher.class);
+        dispatcher = new VsnGenerationDispatcher(payload -> {
+            generated.add(payload.get("programId") + ":" + payload.get("version"));
+            firstStarted.countDown();
+            // 忽略中断，模拟强制停止时仍未结束的生成
+            while (true) {
+                try {
+                    if (release.await(5, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException ignored) {
+                    // 继续等待
+                }
+            }
+        }, resultPublisher, storageProperties);
+        dispatcher.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void testPendingRequestsCoalesced() throws InterruptedException {
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        // 执行v1期间到达的请求只保留最新版本
+        assertTrue(dispatcher.submit(payload(1L, 2)));
+        assertTrue(dispatcher.submit(payload(1L, 3)));
+        // 不晚于排队版本的请求直接丢弃
+        assertTrue(dispatcher.submit(payload(1L, 2)));
+        // 不晚于进行中版本的请求直接丢弃
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+
+        release.countDown();
+        waitUntil(() -> statistic("generated") == 2 && statistic("pendingPrograms") == 0);
+
+        assertEquals(List.of("1:1", "1:3"), generated);
+        assertEquals(5, statistic("accepted"));
+        assertEquals(3, statistic("superseded"));
+        verifyNoInteractions(resultPublisher);
+    }
+
+    @Test
+    void testRapidUpdatesGenerateOnlyLatest() throws InterruptedException {
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        // v1生成期间连续到达99个更新，只应再生成最终版本
+        for (int version = 2; version <= 100; version++) {
+            assertTrue(dispatcher.submit(payload(1L, version)));
+        }
+
+        release.countDown();
+        waitUntil(() -> statistic("generated") == 2 && statistic("pendingPrograms") == 0);
+
+        assertEquals(List.of("1:1", "1:100"), generated);
+        assertEquals(100, statistic("accepted"));
+        assertEquals(98, statistic("superseded"));
+    }
+
+    @Test
+    void testConcurrentSubmittersConvergeToLatest() throws Exception {
+        int programs = 4;
+        int updates = 100;
+        int threads = 8;
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        // 8个线程交错提交4个节目的2..100版本，生成线程阻塞在节目1的v1上
+        ExecutorService submitters = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(submitters.submit(() -> {
+                await(start);
+                for (int version = 2 + offset; version <= updates; version += threads) {
+                    for (long programId = 1; programId <= programs; programId++) {
+                        assertTrue(dispatcher.submit(payload(programId, version)));
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        submitters.shutdown();
+
+        release.countDown();
+        waitUntil(() -> statistic("pendingPrograms") == 0 && generated.size() >= programs + 1);
+
+        Map<String, List<String>> byProgram = generated.stream()
+                .collect(Collectors.groupingBy(g -> g.substring(0, g.indexOf(':'))));
+        assertEquals(programs, byProgram.size());
+        byProgram.forEach((programId, versions) -> {
+            assertEquals(programId + ":" + updates, versions.get(versions.size() - 1), "每个节目最终应生成最新版本");
+            assertTrue(versions.size() <= 2, "每个节目最多生成两次: " + versions);
+        });
+        System.out.printf("VSN生成合并: %d个节目x%d次更新(%d线程) -> 生成%d次, 合并%d次%n",
+                programs, updates, threads, generated.size(), statistic("superseded"));
+    }
+
+    @Test
+    void testProgramsRotate() throws InterruptedException {
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.submit(payload(2L, 1)));
+        assertTrue(dispatcher.submit(payload(1L, 2)));
+
+        release.countDown();
+        waitUntil(() -> statistic("generated") == 3);
+
+        // 节目1完成后重新排到队尾，节目2先执行
+        assertEquals(List.of("1:1", "2:1", "1:2"), generated);
+    }
+
+    @Test
+    void testRejectedWhenPendingProgramsFull() throws InterruptedException {
+        dispatcher.shutdown();
+        storageProperties.getVsnGeneration().setMaxPendingPrograms(1);
+        dispatcher = new VsnGenerationDispatcher(payload -> {
+            generated.add(payload.get("programId") + ":" + payload.get("version"));
+            firstStarted.countDown();
+            await(release);
+        }, resultPublisher, storageProperties);
+        dispatcher.initialize();
+
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        assertFalse(dispatcher.submit(payload(2L, 1)), "等待节目数达到上限时应拒绝新节目");
+        assertTrue(dispatcher.submit(payload(1L, 2)), "已有槽位的节目不占用新的空位");
+        assertEquals(1, statistic("rejected"));
+
+        release.countDown();
+        waitUntil(() -> statistic("pendingPrograms") == 0);
+        assertTrue(dispatcher.submit(payload(2L, 1)), "槽位释放后应接受新节目");
+        waitUntil(() -> statistic("generated") == 3);
+    }
+
+    @Test
+    void testShutdownPublishesFailedForUnfinished() throws InterruptedException {
+        storageProperties.getVsnGeneration().setShutdownTimeoutSeconds(0);
+        assertTrue(dispatcher.submit(payload(1L, 1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.submit(payload(1L, 2)));
+
+        dispatcher.shutdown();
+
+        verify(resultPublisher).publishResultFailed(eq(100L), eq(1L), eq(1), eq("服务停止，VSN生成被中断"), any());
+        verify(resultPublisher).publishResultFailed(eq(100L), eq(1L), eq(2), eq("服务停止，VSN生成请求未执行"), any());
+        assertEquals(0, statistic("pendingPrograms"));
+
+        // 停机后提交的请求同样发布失败结果
+        assertTrue(dispatcher.submit(payload(2L, 1)));
+        verify(resultPublisher).publishResultFailed(eq(100L), eq(2L), eq(1), anyString(), any());
+        verify(resultPublisher, never()).publishResultCompleted(any(), anyLong(), any(), any(), any(), any());
+    }
+
+    private Map<String, Object> payload(Long programId, int version) {
+        return Map.of("programId", programId, "version", version, "organizationId", 100L);
+    }
+
+    private long statistic(String name) {
+        return ((Number) dispatcher.getStatistics().get(name)).longValue();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
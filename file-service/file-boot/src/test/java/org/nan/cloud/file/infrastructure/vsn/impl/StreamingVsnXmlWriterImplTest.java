@@ -0,0 +1,278 @@
+package org.nan.cloud.file.infrastructure.vsn.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nan.cloud.file.application.port.StreamingVsnXmlWriter;
+import org.nan.cloud.program.document.ProgramInformation;
+import org.nan.cloud.program.document.ProgramItem;
+import org.nan.cloud.program.document.ProgramPage;
+import org.nan.cloud.program.document.ProgramRegion;
+import org.nan.cloud.program.document.VsnProgram;
+import org.nan.cloud.program.vsn.DisplayRect;
+import org.nan.cloud.program.vsn.LogFont;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.nan.cloud.file.infrastructure.vsn.VsnFormatUtils.colorFromInt;
+import static org.nan.cloud.file.infrastructure.vsn.VsnFormatUtils.ensure01;
+
+/**
+ * 流式VSN写出测试
+ * 不依赖Spring上下文，与按字符串拼接标签的参考写法逐字节比对输出，
+ * 并测量参考写法与片段缓存冷、热两种情况下的吞吐（MB/s）和每MB输出的分配量
+ */
+class StreamingVsnXmlWriterImplTest {
+
+    /**
+     * 基准节目页数，默认200页（约1.6MB），可通过 -Dvsn.test.bench-pages 调小以加快本地迭代
+     */
+    private static final int BENCH_PAGES = Integer.getInteger("vsn.test.bench-pages", 200);
+
+    private static final String[] TEXTS = {
+            "Hello VSN 1234567890",
+            "欢迎光临，今日特价商品八折优惠",
+            "表情😀🎉混排 & <b>粗体</b> > 结束",
+            "孤立代理\uD800字符\uDC00结尾",
+            "",
+    };
+
+    private StreamingVsnXmlWriterImpl writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new StreamingVsnXmlWriterImpl();
+    }
+
+    @Test
+    void testOutputMatchesStringReference() throws Exception {
+        List<VsnProgram> programs = List.of(buildProgram(20));
+        byte[] expected = referenceWrite(programs);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingVsnXmlWriter.WriteResult result = writer.writeToStream(programs,
+                StreamingVsnXmlWriter.PageSource.inMemory(), out);
+        assertArrayEquals(expected, out.toByteArray(), "输出应与参考写法逐字节一致");
+        assertEquals(expected.length, result.bytes());
+
+        // 区域片段缓存命中时输出和指纹不变
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        StreamingVsnXmlWriter.WriteResult cached = writer.writeToStream(programs,
+                StreamingVsnXmlWriter.PageSource.inMemory(), again);
+        assertArrayEquals(expected, again.toByteArray(), "片段缓存命中时输出应不变");
+        assertEquals(result.fingerprint(), cached.fingerprint());
+        assertEquals(result.fingerprint(), writer.fingerprint(programs, StreamingVsnXmlWriter.PageSource.inMemory()),
+                "写出时的指纹应与单独计算的指纹一致");
+    }
+
+    @Test
+    void testLongValuesSpanBufferBoundary() throws Exception {
+        // 超过64KB缓冲区的文本，代理对和转义字符落在分段边界附近
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 200_000) {
+            text.append("ab😀&中<");
+        }
+        VsnProgram program = buildProgram(1);
+        program.getPages().get(0).getRegions().get(0).getItems().get(0).setText(text.toString());
+        List<VsnProgram> programs = List.of(program);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeToStream(programs, StreamingVsnXmlWriter.PageSource.inMemory(), out);
+        assertArrayEquals(referenceWrite(programs), out.toByteArray());
+    }
+
+    @Test
+    void testFingerprintChangesWithContent() throws Exception {
+        VsnProgram program = buildProgram(2);
+        String before = writer.fingerprint(List.of(program), StreamingVsnXmlWriter.PageSource.inMemory());
+        program.getPages().get(1).getRegions().get(0).getItems().get(0).setText("changed");
+        String after = writer.fingerprint(List.of(program), StreamingVsnXmlWriter.PageSource.inMemory());
+        assertNotEquals(before, after, "内容变化时指纹应变化");
+    }
+
+    @Test
+    void testThroughputAndAllocation() throws Exception {
+        List<VsnProgram> programs = List.of(buildProgram(BENCH_PAGES));
+        long size = referenceWrite(programs).length;
+        double mb = size / 1024.0 / 1024.0;
+
+        Measurement reference = measure(() -> referenceWrite(programs, OutputStream.nullOutputStream()), size);
+        // 每轮新建写入器，片段缓存为空
+        Measurement cold = measure(() -> new StreamingVsnXmlWriterImpl().writeToStream(programs,
+                StreamingVsnXmlWriter.PageSource.inMemory(), OutputStream.nullOutputStream()), size);
+        Measurement warm = measure(() -> writer.writeToStream(programs,
+                StreamingVsnXmlWriter.PageSource.inMemory(), OutputStream.nullOutputStream()), size);
+
+        System.out.printf("VSN写出基准: %d页 %.2fMB, 参考写法 %.0fMB/s 分配%.2fMB/MB, "
+                        + "片段缓存冷 %.0fMB/s 分配%.2fMB/MB, 片段缓存热 %.0fMB/s 分配%.3fMB/MB%n",
+                BENCH_PAGES, mb, reference.mbPerSecond, reference.allocatedPerMb,
+                cold.mbPerSecond, cold.allocatedPerMb, warm.mbPerSecond, warm.allocatedPerMb);
+
+        // 缓存为空时的分配主要是渲染出的区域片段本身
+        assertTrue(cold.allocatedPerMb < 8.0, "缓存为空时每MB输出的分配量过高: " + cold.allocatedPerMb);
+        assertTrue(warm.allocatedPerMb < reference.allocatedPerMb / 10,
+                "缓存命中时分配量应远低于参考写法: " + warm.allocatedPerMb);
+    }
+
+    // ==================== 测量 ====================
+
+    @FunctionalInterface
+    private interface Run {
+        void run() throws Exception;
+    }
+
+    private record Measurement(double mbPerSecond, double allocatedPerMb) {
+    }
+
+    /**
+     * 预热后取5轮中吞吐最高的一轮，分配量按当前线程统计
+     */
+    private static Measurement measure(Run run, long bytesPerRun) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int rounds = 10;
+        for (int i = 0; i < rounds; i++) {
+            run.run();
+        }
+        double bestSeconds = Double.MAX_VALUE;
+        long bestAllocated = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                run.run();
+            }
+            bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+            bestAllocated = Math.min(bestAllocated, threads.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+        double totalMb = (double) bytesPerRun * rounds / 1024 / 1024;
+        return new Measurement(totalMb / bestSeconds, bestAllocated / 1024.0 / 1024.0 / totalMb);
+    }
+
+    // ==================== 参考写法 ====================
+
+    private static byte[] referenceWrite(List<VsnProgram> programs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        referenceWrite(programs, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 改造前的编码方式：每个标签拼接为字符串、replace转义，经缓冲的Writer编码为UTF-8，
+     * 不含指纹和片段缓存，只覆盖buildProgram用到的字段
+     */
+    private static void referenceWrite(List<VsnProgram> programs, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16384);
+        w.write("<Programs>");
+        for (VsnProgram program : programs) {
+            w.write("<Program><Information>");
+            tag(w, "Height", program.getInformation().getHeight());
+            tag(w, "Width", program.getInformation().getWidth());
+            w.write("</Information><Pages>");
+            for (ProgramPage page : program.getPages()) {
+                w.write("<Page>");
+                tag(w, "LoopType", page.getLoopType());
+                tag(w, "bgColor", colorFromInt(page.getBgColor()));
+                w.write("<Regions>");
+                for (ProgramRegion region : page.getRegions()) {
+                    DisplayRect rect = region.getRect();
+                    w.write("<Region><Rect>");
+                    tag(w, "X", String.valueOf(rect.getX()));
+                    tag(w, "Y", String.valueOf(rect.getY()));
+                    tag(w, "Height", String.valueOf(rect.getHeight()));
+                    tag(w, "Width", String.valueOf(rect.getWidth()));
+                    tag(w, "BorderWidth", String.valueOf(rect.getBorderWidth()));
+                    w.write("</Rect>");
+                    tag(w, "Name", region.getName());
+                    tag(w, "isScheduleRegion", ensure01(region.getIsScheduleRegion()));
+                    w.write("<Items>");
+                    for (ProgramItem item : region.getItems()) {
+                        w.write("<Item>");
+                        tag(w, "Type", item.getType());
+                        tag(w, "TextColor", item.getTextColor());
+                        tag(w, "Text", item.getText());
+                        w.write("<LogFont>");
+                        tag(w, "lfHeight", item.getLogFont().getLfHeight());
+                        tag(w, "lfFaceName", item.getLogFont().getLfFaceName());
+                        w.write("</LogFont>");
+                        tag(w, "duration", item.getDuration());
+                        tag(w, "isscroll", ensure01(item.getIsScroll()));
+                        w.write("</Item>");
+                    }
+                    w.write("</Items></Region>");
+                }
+                w.write("</Regions></Page>");
+            }
+            w.write("</Pages></Program>");
+        }
+        w.write("</Programs>");
+        w.flush();
+    }
+
+    private static void tag(Writer w, String name, String value) throws IOException {
+        w.write("<" + name + ">" + value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                + "</" + name + ">");
+    }
+
+    // ==================== 测试数据 ====================
+
+    /**
+     * 每页4个区域、每区域8个文本项，含负数和空坐标
+     */
+    private static VsnProgram buildProgram(int pageCount) {
+        List<ProgramPage> pages = new ArrayList<>();
+        for (int p = 0; p < pageCount; p++) {
+            List<ProgramRegion> regions = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                List<ProgramItem> items = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    LogFont font = new LogFont();
+                    font.setLfHeight(String.valueOf(12 + i));
+                    font.setLfFaceName(i % 2 == 0 ? "宋体" : "Arial");
+                    ProgramItem item = new ProgramItem();
+                    item.setType("5");
+                    item.setTextColor("#FF00FF00");
+                    item.setText(TEXTS[(p + r + i) % TEXTS.length] + " 第" + p + "页");
+                    item.setLogFont(font);
+                    item.setDuration(String.valueOf(1000 * (i + 1)));
+                    item.setIsScroll(i % 3 == 0 ? "true" : "0");
+                    items.add(item);
+                }
+                DisplayRect rect = new DisplayRect();
+                rect.setX(-r * 64);
+                rect.setY(r == 3 ? null : p);
+                rect.setWidth(64);
+                rect.setHeight(32);
+                rect.setBorderWidth(Integer.MAX_VALUE);
+                ProgramRegion region = new ProgramRegion();
+                region.setRect(rect);
+                region.setName("区域-" + r);
+                region.setIsScheduleRegion("no");
+                region.setItems(items);
+                regions.add(region);
+            }
+            ProgramPage page = new ProgramPage();
+            page.setLoopType("1");
+            page.setBgColor(0xFF102030 + p);
+            page.setRegions(regions);
+            pages.add(page);
+        }
+        ProgramInformation information = new ProgramInformation();
+        information.setWidth("640");
+        information.setHeight("32");
+        VsnProgram program = new VsnProgram();
+        program.setInformation(information);
+        program.setPages(pages);
+        return program;
+    }
+}
@@ -0,0 +1,714 @@
+package org.nan.cloud.file.infrastructure.analysis;
+
+import lombok.Data;
+import org.nan.cloud.common.basic.domain.MaterialMetadata;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+
+/**
+ * 图片文件头解析
+ *
+ * 只读取文件头获取尺寸、色彩模型、透明通道和EXIF，不解码像素：
+ * 1. PNG：IHDR/tRNS/acTL/eXIf块，读到IDAT为止
+ * 2. JPEG：逐段跳过，读取APP1(Exif)和SOF段，读到SOS为止
+ * 3. WebP：RIFF块头，VP8X扩展格式按块跳转读取ANIM/ANMF/EXIF
+ * 4. GIF：顺序遍历块结构统计帧数、延迟和循环次数，跳过LZW数据不解压
+ * 5. 其他格式：ImageReader只读头信息，不读取栅格
+ *
+ * 透明通道以文件声明为准（PNG带alpha的颜色类型或tRNS、GIF透明色、WebP alpha标志），不逐像素检测。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public final class ImageHeaderReader {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final DateTimeFormatter EXIF_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    /**
+     * 浏览器对过小的GIF帧延迟按100ms播放
+     */
+    private static final int GIF_MIN_DELAY_MILLIS = 20;
+    private static final int GIF_DEFAULT_DELAY_MILLIS = 100;
+
+    /**
+     * EXIF块长度上限，与JPEG APP1段（最大64KB）一致，超过时跳过该块
+     */
+    private static final int MAX_EXIF_LENGTH = 64 * 1024;
+
+    private ImageHeaderReader() {
+    }
+
+    /**
+     * 解析图片文件头
+     *
+     * @param file 图片文件
+     * @return 文件头信息；无法识别的格式返回null
+     */
+    public static ImageHeader read(File file) throws IOException {
+        byte[] magic = new byte[16];
+        int length;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            length = in.readNBytes(magic, 0, magic.length);
+        }
+        if (length >= 8 && startsWith(magic, PNG_SIGNATURE)) {
+            return readPng(file);
+        }
+        if (length >= 3 && (magic[0] & 0xFF) == 0xFF && (magic[1] & 0xFF) == 0xD8 && (magic[2] & 0xFF) == 0xFF) {
+            return readJpeg(file);
+        }
+        if (length >= 6 && magic[0] == 'G' && magic[1] == 'I' && magic[2] == 'F') {
+            return readGif(file);
+        }
+        if (length >= 12 && magic[0] == 'R' && magic[1] == 'I' && magic[2] == 'F' && magic[3] == 'F'
+                && magic[8] == 'W' && magic[9] == 'E' && magic[10] == 'B' && magic[11] == 'P') {
+            return readWebp(file);
+        }
+        return readWithImageReader(file);
+    }
+
+    // ==================== PNG ====================
+
+    private static ImageHeader readPng(File file) throws IOException {
+        ImageHeader header = new ImageHeader("png");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long pos = PNG_SIGNATURE.length;
+            long fileLength = raf.length();
+            byte[] chunkHeader = new byte[8];
+            int colorType = -1;
+            while (pos + 8 <= fileLength) {
+                raf.seek(pos);
+                raf.readFully(chunkHeader);
+                long chunkLength = readInt(chunkHeader, 0, false) & 0xFFFFFFFFL;
+                String type = new String(chunkHeader, 4, 4, StandardCharsets.ISO_8859_1);
+
+                switch (type) {
+                    case "IHDR" -> {
+                        byte[] data = readBytes(raf, 13);
+                        header.setWidth(readInt(data, 0, false));
+                        header.setHeight(readInt(data, 4, false));
+                        int bitDepth = data[8] & 0xFF;
+                        colorType = data[9] & 0xFF;
+                        int channels = switch (colorType) {
+                            case 2 -> 3;
+                            case 4 -> 2;
+                            case 6 -> 4;
+                            default -> 1;
+                        };
+                        header.setColorDepth(bitDepth * channels);
+                        header.setColorSpace(colorType == 0 || colorType == 4 ? "GRAY" : "RGB");
+                        header.setHasAlpha(colorType == 4 || colorType == 6);
+                    }
+                    case "tRNS" -> header.setHasAlpha(true);
+                    case "acTL" -> {
+                        byte[] data = readBytes(raf, 8);
+                        int frames = readInt(data, 0, false);
+                        header.setAnimated(frames > 1);
+                        header.setFrameCount(frames);
+                        header.setLoopCount(readInt(data, 4, false));
+                    }
+                    case "eXIf" -> {
+                        if (isReadableExif(chunkLength, pos + 8, fileLength)) {
+                            byte[] data = readBytes(raf, (int) chunkLength);
+                            applyExif(header, data, 0, data.length);
+                        }
+                    }
+                    case "IDAT", "IEND" -> {
+                        return colorType < 0 ? null : header;
+                    }
+                    default -> {
+                    }
+                }
+                // 长度 + 类型 + 数据 + CRC
+                pos += 12 + chunkLength;
+            }
+        }
+        return header.getWidth() != null ? header : null;
+    }
+
+    // ==================== JPEG ====================
+
+    private static ImageHeader readJpeg(File file) throws IOException {
+        ImageHeader header = new ImageHeader("jpeg");
+        header.setHasAlpha(false);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long pos = 2;
+            long fileLength = raf.length();
+            byte[] segmentHeader = new byte[4];
+            while (pos + 4 <= fileLength) {
+                raf.seek(pos);
+                raf.readFully(segmentHeader);
+                if ((segmentHeader[0] & 0xFF) != 0xFF) {
+                    break;
+                }
+                int marker = segmentHeader[1] & 0xFF;
+                if (marker == 0xFF) {
+                    // 填充字节
+                    pos++;
+                    continue;
+                }
+                if (marker == 0xD8 || (marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                    pos += 2;
+                    continue;
+                }
+                if (marker == 0xDA || marker == 0xD9) {
+                    // 到达图像数据，SOF和EXIF都在此之前
+                    break;
+                }
+                int segmentLength = ((segmentHeader[2] & 0xFF) << 8) | (segmentHeader[3] & 0xFF);
+
+                if (marker == 0xE1 && header.getExifInfo() == null && segmentLength > 8) {
+                    byte[] data = readBytes(raf, segmentLength - 2);
+                    if (data[0] == 'E' && data[1] == 'x' && data[2] == 'i' && data[3] == 'f' && data[4] == 0 && data[5] == 0) {
+                        applyExif(header, data, 6, data.length);
+                    }
+                } else if (isStartOfFrame(marker) && segmentLength >= 8) {
+                    byte[] data = readBytes(raf, 6);
+                    int precision = data[0] & 0xFF;
+                    int components = data[5] & 0xFF;
+                    header.setHeight(((data[1] & 0xFF) << 8) | (data[2] & 0xFF));
+                    header.setWidth(((data[3] & 0xFF) << 8) | (data[4] & 0xFF));
+                    header.setColorDepth(precision * components);
+                    header.setColorSpace(components == 1 ? "GRAY" : components == 4 ? "CMYK" : "RGB");
+                    break;
+                }
+                pos += 2 + segmentLength;
+            }
+        }
+        return header.getWidth() != null ? header : null;
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    // ==================== GIF ====================
+
+    /**
+     * GIF的帧数和时长分布在整个文件中，需要顺序遍历块结构，但只读块长度并跳过压缩数据
+     */
+    private static ImageHeader readGif(File file) throws IOException {
+        ImageHeader header = new ImageHeader("gif");
+        header.setColorSpace("RGB");
+        header.setHasAlpha(false);
+        int frameCount = 0;
+        long totalDelay = 0;
+        Integer loopCount = null;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 8192)) {
+            byte[] screen = new byte[13];
+            if (in.readNBytes(screen, 0, screen.length) < screen.length) {
+                return null;
+            }
+            header.setWidth(readShort(screen, 6, true));
+            header.setHeight(readShort(screen, 8, true));
+            int packed = screen[10] & 0xFF;
+            header.setColorDepth((packed & 0x80) != 0 ? (packed & 0x07) + 1 : 8);
+            if ((packed & 0x80) != 0) {
+                in.skipNBytes(3L * (1 << ((packed & 0x07) + 1)));
+            }
+
+            int pendingDelay = 0;
+            boolean done = false;
+            while (!done) {
+                int block = in.read();
+                switch (block) {
+                    case 0x21 -> {
+                        int label = readByte(in);
+                        if (label == 0xF9) {
+                            // 块大小、标志、延迟(1/100秒)、透明色索引
+                            byte[] control = new byte[5];
+                            readFully(in, control);
+                            if ((control[1] & 0x01) != 0) {
+                                header.setHasAlpha(true);
+                            }
+                            pendingDelay = readShort(control, 2, true) * 10;
+                        } else if (label == 0xFF) {
+                            byte[] application = new byte[12];
+                            readFully(in, application);
+                            String identifier = new String(application, 1, 11, StandardCharsets.ISO_8859_1);
+                            if ("NETSCAPE2.0".equals(identifier) || "ANIMEXTS1.0".equals(identifier)) {
+                                byte[] loop = new byte[4];
+                                readFully(in, loop);
+                                if (loop[0] == 3 && loop[1] == 1) {
+                                    loopCount = readShort(loop, 2, true);
+                                }
+                            }
+                        }
+                        skipSubBlocks(in);
+                    }
+                    case 0x2C -> {
+                        byte[] descriptor = new byte[9];
+                        readFully(in, descriptor);
+                        int localPacked = descriptor[8] & 0xFF;
+                        if ((localPacked & 0x80) != 0) {
+                            in.skipNBytes(3L * (1 << ((localPacked & 0x07) + 1)));
+                        }
+                        // LZW最小码长
+                        readByte(in);
+                        skipSubBlocks(in);
+                        frameCount++;
+                        totalDelay += pendingDelay < GIF_MIN_DELAY_MILLIS ? GIF_DEFAULT_DELAY_MILLIS : pendingDelay;
+                        pendingDelay = 0;
+                    }
+                    default -> done = true;
+                }
+            }
+        } catch (EOFException e) {
+            // 截断的GIF，保留已解析的信息
+        }
+
+        boolean animated = frameCount > 1;
+        header.setAnimated(animated);
+        header.setFrameCount(Math.max(1, frameCount));
+        if (animated) {
+            header.setAnimationDuration(totalDelay);
+            header.setAverageFrameDelay((double) totalDelay / frameCount);
+            // 没有NETSCAPE扩展时只播放一次
+            header.setLoopCount(loopCount != null ? loopCount : 1);
+        }
+        return header;
+    }
+
+    private static void skipSubBlocks(InputStream in) throws IOException {
+        int size;
+        while ((size = readByte(in)) > 0) {
+            in.skipNBytes(size);
+        }
+    }
+
+    // ==================== WebP ====================
+
+    private static ImageHeader readWebp(File file) throws IOException {
+        ImageHeader header = new ImageHeader("webp");
+        header.setColorSpace("RGB");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long fileLength = raf.length();
+            raf.seek(12);
+            byte[] first = readBytes(raf, (int) Math.min(30, fileLength - 12));
+            if (first.length < 18) {
+                return null;
+            }
+            String type = new String(first, 0, 4, StandardCharsets.ISO_8859_1);
+            switch (type) {
+                case "VP8X" -> {
+                    int flags = first[8] & 0xFF;
+                    header.setWidth(1 + readUInt24(first, 12));
+                    header.setHeight(1 + readUInt24(first, 15));
+                    header.setHasAlpha((flags & 0x10) != 0);
+                    boolean animated = (flags & 0x02) != 0;
+                    header.setAnimated(animated);
+                    if (animated || (flags & 0x08) != 0) {
+                        readWebpChunks(raf, header, fileLength);
+                    }
+                    if (!animated) {
+                        header.setFrameCount(1);
+                    }
+                }
+                case "VP8L" -> {
+                    if ((first[8] & 0xFF) != 0x2F) {
+                        return null;
+                    }
+                    int bits = readInt(first, 9, true);
+                    header.setWidth((bits & 0x3FFF) + 1);
+                    header.setHeight(((bits >>> 14) & 0x3FFF) + 1);
+                    header.setHasAlpha(((bits >>> 28) & 0x01) != 0);
+                }
+                case "VP8 " -> {
+                    if ((first[11] & 0xFF) != 0x9D || (first[12] & 0xFF) != 0x01 || (first[13] & 0xFF) != 0x2A) {
+                        return null;
+                    }
+                    header.setWidth(readShort(first, 14, true) & 0x3FFF);
+                    header.setHeight(readShort(first, 16, true) & 0x3FFF);
+                    header.setHasAlpha(false);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        header.setColorDepth(Boolean.TRUE.equals(header.getHasAlpha()) ? 32 : 24);
+        return header;
+    }
+
+    /**
+     * 按块头跳转读取扩展格式中的动画和EXIF块
+     */
+    private static void readWebpChunks(RandomAccessFile raf, ImageHeader header, long fileLength) throws IOException {
+        long pos = 12;
+        int frameCount = 0;
+        long totalDuration = 0;
+        byte[] chunkHeader = new byte[8];
+        while (pos + 8 <= fileLength) {
+            raf.seek(pos);
+            raf.readFully(chunkHeader);
+            String type = new String(chunkHeader, 0, 4, StandardCharsets.ISO_8859_1);
+            long chunkLength = readInt(chunkHeader, 4, true) & 0xFFFFFFFFL;
+            switch (type) {
+                case "ANIM" -> header.setLoopCount(readShort(readBytes(raf, 6), 4, true));
+                case "ANMF" -> {
+                    frameCount++;
+                    totalDuration += readUInt24(readBytes(raf, 15), 12);
+                }
+                case "EXIF" -> {
+                    if (isReadableExif(chunkLength, pos + 8, fileLength)) {
+                        byte[] data = readBytes(raf, (int) chunkLength);
+                        // 部分编码器会保留JPEG的Exif前缀
+                        int offset = data.length > 6 && data[0] == 'E' && data[1] == 'x' && data[2] == 'i' && data[3] == 'f' ? 6 : 0;
+                        applyExif(header, data, offset, data.length);
+                    }
+                }
+                default -> {
+                }
+            }
+            // 块数据按偶数字节对齐
+            pos += 8 + chunkLength + (chunkLength & 1);
+        }
+        if (Boolean.TRUE.equals(header.getAnimated())) {
+            header.setFrameCount(frameCount);
+            header.setAnimationDuration(totalDuration);
+            header.setAverageFrameDelay(frameCount > 0 ? (double) totalDuration / frameCount : null);
+        }
+    }
+
+    // ==================== 其他格式 ====================
+
+    /**
+     * 通过ImageReader读取头信息，不调用read()解码栅格
+     */
+    private static ImageHeader readWithImageReader(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageHeader header = new ImageHeader(reader.getFormatName().toLowerCase());
+                header.setWidth(reader.getWidth(0));
+                header.setHeight(reader.getHeight(0));
+
+                ImageTypeSpecifier type = reader.getRawImageType(0);
+                if (type == null) {
+                    Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                    type = types.hasNext() ? types.next() : null;
+                }
+                if (type != null) {
+                    ColorModel colorModel = type.getColorModel();
+                    header.setColorDepth(colorModel.getPixelSize());
+                    header.setHasAlpha(colorModel.hasAlpha());
+                    int colorSpace = colorModel.getColorSpace().getType();
+                    header.setColorSpace(colorSpace == ColorSpace.TYPE_RGB ? "RGB"
+                            : colorSpace == ColorSpace.TYPE_GRAY ? "GRAY"
+                            : colorSpace == ColorSpace.TYPE_CMYK ? "CMYK" : "OTHER");
+                }
+                return header;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // ==================== EXIF ====================
+
+    /**
+     * 解析TIFF结构的EXIF数据：IFD0、Exif子IFD和GPS子IFD
+     */
+    private static void applyExif(ImageHeader header, byte[] data, int tiff, int end) {
+        try {
+            if (tiff + 8 > end) {
+                return;
+            }
+            boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+            MaterialMetadata.ExifInfo.ExifInfoBuilder builder = MaterialMetadata.ExifInfo.builder();
+            TiffReader reader = new TiffReader(data, tiff, end, littleEndian);
+
+            int ifd0 = reader.readInt(tiff + 4);
+            int exifIfd = -1;
+            int gpsIfd = -1;
+            for (int entry : reader.entries(ifd0)) {
+                switch (reader.tag(entry)) {
+                    case 0x010F -> builder.cameraMake(reader.ascii(entry));
+                    case 0x0110 -> builder.cameraModel(reader.ascii(entry));
+                    case 0x0112 -> {
+                        int orientation = reader.integer(entry);
+                        if (orientation >= 1 && orientation <= 8) {
+                            header.setOrientation(orientation);
+                            builder.orientation(String.valueOf(orientation));
+                        }
+                    }
+                    case 0x8769 -> exifIfd = reader.integer(entry);
+                    case 0x8825 -> gpsIfd = reader.integer(entry);
+                    default -> {
+                    }
+                }
+            }
+
+            if (exifIfd > 0) {
+                for (int entry : reader.entries(exifIfd)) {
+                    switch (reader.tag(entry)) {
+                        case 0x9003 -> builder.dateTaken(parseDateTime(reader.ascii(entry)));
+                        case 0x829A -> {
+                            long[] exposure = reader.rational(entry, 0);
+                            if (exposure != null && exposure[0] > 0 && exposure[1] > 0) {
+                                // 1秒以内按分数显示，如1/250
+                                builder.shutterSpeed(exposure[0] < exposure[1] && exposure[1] % exposure[0] == 0
+                                        ? "1/" + exposure[1] / exposure[0]
+                                        : formatDecimal((double) exposure[0] / exposure[1]));
+                            }
+                        }
+                        case 0x829D -> {
+                            Double fNumber = reader.rationalValue(entry, 0);
+                            if (fNumber != null) {
+                                builder.aperture("f/" + formatDecimal(fNumber));
+                            }
+                        }
+                        case 0x8827 -> builder.iso(reader.integer(entry));
+                        case 0x920A -> builder.focalLength(reader.rationalValue(entry, 0));
+                        case 0xA434 -> builder.lensModel(reader.ascii(entry));
+                        default -> {
+                        }
+                    }
+                }
+            }
+
+            if (gpsIfd > 0) {
+                String latitudeRef = null;
+                String longitudeRef = null;
+                Double latitude = null;
+                Double longitude = null;
+                Double altitude = null;
+                boolean belowSeaLevel = false;
+                for (int entry : reader.entries(gpsIfd)) {
+                    switch (reader.tag(entry)) {
+                        case 1 -> latitudeRef = reader.ascii(entry);
+                        case 2 -> latitude = reader.degrees(entry);
+                        case 3 -> longitudeRef = reader.ascii(entry);
+                        case 4 -> longitude = reader.degrees(entry);
+                        case 5 -> belowSeaLevel = reader.integer(entry) == 1;
+                        case 6 -> altitude = reader.rationalValue(entry, 0);
+                        default -> {
+                        }
+                    }
+                }
+                if (latitude != null && longitude != null) {
+                    builder.gpsLatitude("S".equalsIgnoreCase(latitudeRef) ? -latitude : latitude);
+                    builder.gpsLongitude("W".equalsIgnoreCase(longitudeRef) ? -longitude : longitude);
+                }
+                if (altitude != null) {
+                    builder.gpsAltitude(belowSeaLevel ? -altitude : altitude);
+                }
+            }
+
+            header.setExifInfo(builder.build());
+        } catch (RuntimeException e) {
+            // EXIF损坏时忽略，不影响尺寸等基础信息
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.length() < 19) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.substring(0, 19), EXIF_DATE_FORMAT);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String formatDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * TIFF IFD读取，越界时返回null或跳过
+     */
+    private static class TiffReader {
+        private final byte[] data;
+        private final int tiff;
+        private final int end;
+        private final boolean littleEndian;
+
+        TiffReader(byte[] data, int tiff, int end, boolean littleEndian) {
+            this.data = data;
+            this.tiff = tiff;
+            this.end = end;
+            this.littleEndian = littleEndian;
+        }
+
+        int[] entries(int ifdOffset) {
+            int ifd = tiff + ifdOffset;
+            if (ifdOffset < 8 || ifd + 2 > end) {
+                return new int[0];
+            }
+            int count = Math.min(readShort(data, ifd, littleEndian), (end - ifd - 2) / 12);
+            int[] entries = new int[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = ifd + 2 + i * 12;
+            }
+            return entries;
+        }
+
+        int tag(int entry) {
+            return readShort(data, entry, littleEndian);
+        }
+
+        int readInt(int offset) {
+            return ImageHeaderReader.readInt(data, offset, littleEndian);
+        }
+
+        /**
+         * SHORT或LONG类型的单个整数值
+         */
+        int integer(int entry) {
+            int type = readShort(data, entry + 2, littleEndian);
+            return type == 3 ? readShort(data, entry + 8, littleEndian) : readInt(entry + 8);
+        }
+
+        String ascii(int entry) {
+            int count = readInt(entry + 4);
+            int offset = count <= 4 ? entry + 8 : tiff + readInt(entry + 8);
+            if (count <= 0 || offset < tiff || offset + count > end) {
+                return null;
+            }
+            int length = 0;
+            while (length < count && data[offset + length] != 0) {
+                length++;
+            }
+            String value = new String(data, offset, length, StandardCharsets.UTF_8).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        long[] rational(int entry, int index) {
+            int offset = tiff + readInt(entry + 8) + index * 8;
+            if (offset < tiff || offset + 8 > end) {
+                return null;
+            }
+            return new long[]{readInt(offset) & 0xFFFFFFFFL, readInt(offset + 4) & 0xFFFFFFFFL};
+        }
+
+        Double rationalValue(int entry, int index) {
+            long[] value = rational(entry, index);
+            return value == null || value[1] == 0 ? null : (double) value[0] / value[1];
+        }
+
+        /**
+         * 度、分、秒三个有理数转换为十进制度数
+         */
+        Double degrees(int entry) {
+            Double d = rationalValue(entry, 0);
+            Double m = rationalValue(entry, 1);
+            Double s = rationalValue(entry, 2);
+            if (d == null) {
+                return null;
+            }
+            return d + (m != null ? m / 60 : 0) + (s != null ? s / 3600 : 0);
+        }
+    }
+
+    // ==================== 字节读取 ====================
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * EXIF块长度是否可读：非负、不超过文件剩余字节且不超过上限，损坏或恶意的长度不分配缓冲
+     */
+    private static boolean isReadableExif(long chunkLength, long dataPos, long fileLength) {
+        return chunkLength >= 0 && chunkLength <= MAX_EXIF_LENGTH && chunkLength <= fileLength - dataPos;
+    }
+
+    private static byte[] readBytes(RandomAccessFile raf, int length) throws IOException {
+        byte[] data = new byte[length];
+        raf.readFully(data);
+        return data;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException();
+        }
+        return value;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        if (in.readNBytes(buffer, 0, buffer.length) < buffer.length) {
+            throw new EOFException();
+        }
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readUInt24(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8) | ((data[offset + 2] & 0xFF) << 16);
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        int b2 = data[offset + 2] & 0xFF;
+        int b3 = data[offset + 3] & 0xFF;
+        return littleEndian
+                ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0
+                : (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+    }
+
+    // ==================== 内部类 ====================
+
+    /**
+     * 图片文件头信息
+     */
+    @Data
+    public static class ImageHeader {
+        private final String format;
+        private Integer width;
+        private Integer height;
+        private Integer colorDepth;
+        private String colorSpace;
+        private Boolean hasAlpha;
+        private Boolean animated;
+        private Integer frameCount;
+        private Long animationDuration;
+        private Integer loopCount;
+        private Double averageFrameDelay;
+        /**
+         * EXIF方向（1-8），没有EXIF时为1
+         */
+        private int orientation = 1;
+        private MaterialMetadata.ExifInfo exifInfo;
+    }
+}
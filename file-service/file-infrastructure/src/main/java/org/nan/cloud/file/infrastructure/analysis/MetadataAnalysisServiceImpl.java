@@ -17,7 +17,6 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.stream.ImageInputStream;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
@@ -67,6 +66,11 @@ public class MetadataAnalysisServiceImpl implements MetadataAnalysisService {
             "text/plain", "text/html", "text/xml"
     );
 
+    /**
+     * 文件头解析器能完整读取EXIF的格式，这些格式没有EXIF时不再回退到Tika
+     */
+    private static final Set<String> HEADER_EXIF_FORMATS = Set.of("jpeg", "png", "webp", "gif");
+
     @Override
     public MaterialMetadata analyzeMetadata(FileInfo fileInfo, String taskId) {
         log.info("开始分析文件元数据 - 文件ID: {}, 任务ID: {}", fileInfo.getFileId(), taskId);
@@ -139,302 +143,50 @@ public class MetadataAnalysisServiceImpl implements MetadataAnalysisService {
 
     /**
      * 分析图片元数据
+     *
+     * 只解析文件头，不解码像素；透明通道以文件声明为准
      */
     private void analyzeImageMetadata(MaterialMetadata.MaterialMetadataBuilder builder, File file, FileInfo fileInfo) {
         try {
-            BufferedImage image = ImageIO.read(file);
-            if (image != null) {
-                // 🔍 精确的透明度检测
-                boolean hasActualTransparency = detectActualTransparency(image, fileInfo.getMimeType());
-                
+            ImageHeaderReader.ImageHeader header = ImageHeaderReader.read(file);
+            if (header != null) {
                 MaterialMetadata.ImageMetadata.ImageMetadataBuilder imageBuilder = MaterialMetadata.ImageMetadata.builder()
-                        .width(image.getWidth())
-                        .height(image.getHeight())
-                        .colorDepth(image.getColorModel().getPixelSize())
-                        .colorSpace(image.getColorModel().getColorSpace().getType() == java.awt.color.ColorSpace.TYPE_RGB ? "RGB" : "OTHER")
-                        .hasAlpha(hasActualTransparency);
-
-                // 🎯 GIF动画特殊处理
-                if ("image/gif".equalsIgnoreCase(fileInfo.getMimeType())) {
-                    analyzeGifAnimation(imageBuilder, file);
+                        .width(header.getWidth())
+                        .height(header.getHeight())
+                        .colorDepth(header.getColorDepth())
+                        .colorSpace(header.getColorSpace())
+                        .hasAlpha(header.getHasAlpha());
+
+                // 🎯 动画信息（GIF/APNG/WebP）
+                if (header.getAnimated() != null) {
+                    imageBuilder
+                        .isAnimated(header.getAnimated())
+                        .frameCount(header.getFrameCount())
+                        .animationDuration(header.getAnimationDuration())
+                        .loopCount(header.getLoopCount())
+                        .averageFrameDelay(header.getAverageFrameDelay());
                 }
 
                 MaterialMetadata.ImageMetadata imageMetadata = imageBuilder.build();
 
-                // 尝试提取EXIF信息
-                MaterialMetadata.ExifInfo exifInfo = extractExifInfo(file);
+                // EXIF信息：已解析格式直接使用文件头中的EXIF，其他格式回退到Tika
+                MaterialMetadata.ExifInfo exifInfo = header.getExifInfo();
+                if (exifInfo == null && !HEADER_EXIF_FORMATS.contains(header.getFormat())) {
+                    exifInfo = extractExifInfo(file);
+                }
                 if (exifInfo != null) {
                     imageMetadata.setExifInfo(exifInfo);
                 }
 
                 builder.imageMetadata(imageMetadata);
-                log.debug("图片元数据分析完成 - 尺寸: {}x{}, GIF动画: {}", 
-                         image.getWidth(), image.getHeight(), imageMetadata.getIsAnimated());
+                log.debug("图片元数据分析完成 - 尺寸: {}x{}, 动画: {}", 
+                         header.getWidth(), header.getHeight(), imageMetadata.getIsAnimated());
             }
         } catch (Exception e) {
             log.warn("图片元数据分析失败: {}", e.getMessage());
         }
     }
 
-    /**
-     * 分析GIF动画信息
-     */
-    private void analyzeGifAnimation(MaterialMetadata.ImageMetadata.ImageMetadataBuilder imageBuilder, File file) {
-        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
-            if (readers.hasNext()) {
-                ImageReader reader = readers.next();
-                reader.setInput(iis);
-                
-                // 🔍 分析GIF帧信息
-                int frameCount = reader.getNumImages(true);
-                boolean isAnimated = frameCount > 1;
-                
-                long totalDuration = 0; // 毫秒
-                int loopCount = 0;
-                
-                if (isAnimated) {
-                    // 📊 分析每帧的延迟时间
-                    List<Integer> frameDelays = new ArrayList<>();
-                    
-                    for (int i = 0; i < frameCount; i++) {
-                        try {
-                            IIOMetadata imageMetadata = reader.getImageMetadata(i);
-                            if (imageMetadata != null) {
-                                // 解析GIF帧延迟（GIF使用1/100秒为单位）
-                                String[] metadataNames = imageMetadata.getMetadataFormatNames();
-                                for (String format : metadataNames) {
-                                    // 简化实现：使用默认帧延迟
-                                    int frameDelay = 100; // 默认100毫秒
-                                    frameDelays.add(frameDelay);
-                                    totalDuration += frameDelay;
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.debug("解析GIF帧{}延迟失败: {}", i, e.getMessage());
-                            // 使用默认延迟
-                            int defaultDelay = 100;
-                            frameDelays.add(defaultDelay);
-                            totalDuration += defaultDelay;
-                        }
-                    }
-                    
-                    // 计算平均帧延迟
-                    double averageDelay = frameDelays.isEmpty() ? 100.0 : 
-                                         frameDelays.stream().mapToInt(Integer::intValue).average().orElse(100.0);
-                    
-                    // 🔧 设置GIF动画属性
-                    imageBuilder
-                        .isAnimated(true)
-                        .frameCount(frameCount)
-                        .animationDuration(totalDuration)
-                        .loopCount(loopCount) // GIF默认无限循环
-                        .averageFrameDelay(averageDelay);
-                    
-                    log.debug("GIF动画分析完成 - 帧数: {}, 总时长: {}ms, 平均延迟: {}ms", 
-                             frameCount, totalDuration, averageDelay);
-                } else {
-                    // 静态GIF
-                    imageBuilder
-                        .isAnimated(false)
-                        .frameCount(1)
-                        .animationDuration(null)
-                        .loopCount(null)
-                        .averageFrameDelay(null);
-                    
-                    log.debug("静态GIF图片分析完成");
-                }
-                
-                reader.dispose();
-            } else {
-                log.warn("未找到GIF格式的ImageReader");
-                // 设置默认值
-                imageBuilder
-                    .isAnimated(false)
-                    .frameCount(1)
-                    .animationDuration(null)
-                    .loopCount(null)
-                    .averageFrameDelay(null);
-            }
-        } catch (Exception e) {
-            log.error("GIF动画分析失败: {}", e.getMessage(), e);
-            // 设置默认值
-            imageBuilder
-                .isAnimated(false)
-                .frameCount(null)
-                .animationDuration(null)
-                .loopCount(null)
-                .averageFrameDelay(null);
-        }
-    }
-
-    /**
-     * 检测图片是否实际使用了透明度
-     */
-    private boolean detectActualTransparency(BufferedImage image, String mimeType) {
-        try {
-            // 🚀 首先检查颜色模型是否支持透明度
-            if (!image.getColorModel().hasAlpha()) {
-                return false;
-            }
-            
-            int width = image.getWidth();
-            int height = image.getHeight();
-            
-            // 🔧 根据图片格式使用不同的检测策略
-            if ("image/png".equalsIgnoreCase(mimeType)) {
-                return detectPngTransparency(image, width, height);
-            } else if ("image/gif".equalsIgnoreCase(mimeType)) {
-                return detectGifTransparency(image, width, height);
-            } else {
-                // 对于其他格式，使用通用检测方法
-                return detectGeneralTransparency(image, width, height);
-            }
-            
-        } catch (Exception e) {
-            log.debug("透明度检测失败，使用颜色模型判断: {}", e.getMessage());
-            return image.getColorModel().hasAlpha();
-        }
-    }
-    
-    /**
-     * 检测PNG图片的透明度
-     */
-    private boolean detectPngTransparency(BufferedImage image, int width, int height) {
-        // 🎯 PNG透明度检测：采样检测法，避免处理大图片时的性能问题
-        int sampleSize = Math.min(100, Math.max(width, height)); // 最多采样100个像素
-        int stepX = Math.max(1, width / sampleSize);
-        int stepY = Math.max(1, height / sampleSize);
-        
-        for (int y = 0; y < height; y += stepY) {
-            for (int x = 0; x < width; x += stepX) {
-                int rgb = image.getRGB(x, y);
-                int alpha = (rgb >> 24) & 0xFF;
-                
-                // 如果发现任何非完全不透明的像素（alpha < 255）
-                if (alpha < 255) {
-                    log.debug("PNG透明度检测：发现透明像素 at ({}, {}), alpha={}", x, y, alpha);
-                    return true;
-                }
-            }
-        }
-        
-        return false;
-    }
-    
-    /**
-     * 检测GIF图片的透明度
-     */
-    private boolean detectGifTransparency(BufferedImage image, int width, int height) {
-        // 🎯 GIF透明度检测：GIF使用索引色彩模式，需要检查调色板
-        try {
-            // GIF图片通常使用IndexColorModel
-            if (image.getColorModel() instanceof java.awt.image.IndexColorModel) {
-                java.awt.image.IndexColorModel icm = (java.awt.image.IndexColorModel) image.getColorModel();
-                
-                // 检查是否有透明颜色索引
-                int transparentPixel = icm.getTransparentPixel();
-                if (transparentPixel != -1) {
-                    log.debug("GIF透明度检测：发现透明色索引 {}", transparentPixel);
-                    return true;
-                }
-            }
-            
-            // 备用方法：像素采样检测
-            return detectGeneralTransparency(image, width, height);
-            
-        } catch (Exception e) {
-            log.debug("GIF透明度检测异常: {}", e.getMessage());
-            return detectGeneralTransparency(image, width, height);
-        }
-    }
-    
-    /**
-     * 通用透明度检测方法
-     */
-    private boolean detectGeneralTransparency(BufferedImage image, int width, int height) {
-        // 🚀 性能优化：对于大图片，只检测边缘和中心区域
-        if (width > 1000 || height > 1000) {
-            return detectTransparencyOptimized(image, width, height);
-        }
-        
-        // 🔍 小图片：完整检测（最多检测前1000个像素）
-        int maxPixels = Math.min(1000, width * height);
-        int stepSize = Math.max(1, (width * height) / maxPixels);
-        
-        int checkedPixels = 0;
-        for (int y = 0; y < height && checkedPixels < maxPixels; y++) {
-            for (int x = 0; x < width && checkedPixels < maxPixels; x += stepSize) {
-                int rgb = image.getRGB(x, y);
-                int alpha = (rgb >> 24) & 0xFF;
-                
-                if (alpha < 255) {
-                    log.debug("通用透明度检测：发现透明像素 at ({}, {}), alpha={}", x, y, alpha);
-                    return true;
-                }
-                checkedPixels++;
-            }
-        }
-        
-        return false;
-    }
-    
-    /**
-     * 大图片的优化透明度检测
-     */
-    private boolean detectTransparencyOptimized(BufferedImage image, int width, int height) {
-        // 🎯 检测策略：边缘检测 + 中心区域采样
-        int edgeSize = Math.min(50, Math.min(width, height) / 4); // 边缘检测范围
-        
-        // 检测四个边缘
-        for (int i = 0; i < edgeSize; i++) {
-            // 上边缘
-            for (int x = 0; x < width; x += 10) {
-                if (isTransparentPixel(image.getRGB(x, i))) return true;
-            }
-            // 下边缘
-            for (int x = 0; x < width; x += 10) {
-                if (isTransparentPixel(image.getRGB(x, height - 1 - i))) return true;
-            }
-            // 左边缘
-            for (int y = 0; y < height; y += 10) {
-                if (isTransparentPixel(image.getRGB(i, y))) return true;
-            }
-            // 右边缘
-            for (int y = 0; y < height; y += 10) {
-                if (isTransparentPixel(image.getRGB(width - 1 - i, y))) return true;
-            }
-        }
-        
-        // 中心区域采样检测
-        int centerX = width / 2;
-        int centerY = height / 2;
-        int sampleRadius = Math.min(100, Math.min(width, height) / 8);
-        
-        for (int dy = -sampleRadius; dy <= sampleRadius; dy += 10) {
-            for (int dx = -sampleRadius; dx <= sampleRadius; dx += 10) {
-                int x = centerX + dx;
-                int y = centerY + dy;
-                if (x >= 0 && x < width && y >= 0 && y < height) {
-                    if (isTransparentPixel(image.getRGB(x, y))) {
-                        log.debug("大图透明度检测：中心区域发现透明像素 at ({}, {})", x, y);
-                        return true;
-                    }
-                }
-            }
-        }
-        
-        return false;
-    }
-    
-    /**
-     * 检查单个像素是否透明
-     */
-    private boolean isTransparentPixel(int rgb) {
-        int alpha = (rgb >> 24) & 0xFF;
-        return alpha < 255; // 任何非完全不透明的像素都视为透明
-    }
-
     /**
      * 分析视频元数据
      */
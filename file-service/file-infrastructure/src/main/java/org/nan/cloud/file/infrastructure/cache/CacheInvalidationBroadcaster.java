@@ -0,0 +1,158 @@
+package org.nan.cloud.file.infrastructure.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效广播
+ *
+ * 各实例的Caffeine本地缓存在Redis之前，某个实例修改或删除缓存后，
+ * 通过Redis发布订阅通知其他实例丢弃本地副本：
+ * 1. 失效的键先进入待广播集合，同一周期内重复的键只广播一次
+ * 2. 广播线程每隔BROADCAST_INTERVAL_MILLIS把待广播的键合并成少量消息发布
+ * 3. 收到的消息忽略本实例发出的部分
+ *
+ * 消息格式：首行为实例ID，其后每行一个完整缓存键。
+ * 发布订阅不保证送达（如订阅连接重连期间），本地缓存的过期时间仍是兜底。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBroadcaster {
+
+    private static final String CHANNEL = "file:cache:invalidation";
+    private static final long BROADCAST_INTERVAL_MILLIS = 20;
+    private static final int MAX_KEYS_PER_MESSAGE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 待广播的完整缓存键
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile Consumer<List<String>> remoteHandler = keys -> { };
+
+    private final AtomicLong publishedMessages = new AtomicLong(0);
+    private final AtomicLong publishedKeys = new AtomicLong(0);
+    private final AtomicLong receivedKeys = new AtomicLong(0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Cache-Invalidation");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        executor.scheduleWithFixedDelay(this::flush, BROADCAST_INTERVAL_MILLIS,
+                BROADCAST_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("缓存失效广播已启动 - 实例ID: {}, 频道: {}", nodeId, CHANNEL);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 设置其他实例失效通知的处理
+     */
+    public void onRemoteInvalidation(Consumer<List<String>> handler) {
+        this.remoteHandler = handler;
+    }
+
+    /**
+     * 登记需要通知其他实例的键，不阻塞调用方
+     */
+    public void broadcast(Collection<String> fullKeys) {
+        pending.addAll(fullKeys);
+    }
+
+    /**
+     * 广播统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("pendingKeys", pending.size());
+        stats.put("publishedMessages", publishedMessages.get());
+        stats.put("publishedKeys", publishedKeys.get());
+        stats.put("receivedKeys", receivedKeys.get());
+        return stats;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(nodeId);
+        int count = 0;
+        for (Iterator<String> iterator = pending.iterator(); iterator.hasNext(); ) {
+            String key = iterator.next();
+            iterator.remove();
+            message.append('\n').append(key);
+            if (++count >= MAX_KEYS_PER_MESSAGE) {
+                publish(message.toString(), count);
+                message.setLength(0);
+                message.append(nodeId);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            publish(message.toString(), count);
+        }
+    }
+
+    private void publish(String message, int keyCount) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message);
+            publishedMessages.incrementAndGet();
+            publishedKeys.addAndGet(keyCount);
+        } catch (Exception e) {
+            // 不重试：失败通常意味着Redis不可用，此时其他实例也读不到新值，本地缓存过期兜底
+            log.warn("缓存失效广播失败 - 键数量: {}, 错误: {}", keyCount, e.getMessage());
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] lines = body.split("\n");
+        if (lines.length < 2 || nodeId.equals(lines[0])) {
+            return;
+        }
+        List<String> keys = Arrays.asList(lines).subList(1, lines.length);
+        receivedKeys.addAndGet(keys.size());
+        try {
+            remoteHandler.accept(keys);
+        } catch (Exception e) {
+            log.error("处理缓存失效通知失败 - 键数量: {}", keys.size(), e);
+        }
+    }
+}
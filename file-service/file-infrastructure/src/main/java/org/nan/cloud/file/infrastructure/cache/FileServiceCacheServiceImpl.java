@@ -4,12 +4,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.application.enums.FileCacheType;
 import org.nan.cloud.file.application.service.CacheService;
 import org.nan.cloud.file.application.service.CacheStatistics;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
@@ -33,6 +37,11 @@ import java.util.stream.Collectors;
  * 4. 分布式锁：基于Redis的分布式锁实现
  * 5. 统计监控：详细的缓存性能统计
  * 6. 自动清理：过期缓存自动清理机制
+ * 7. 跨实例一致：本地缓存条目带版本，修改和删除通过{@link CacheInvalidationBroadcaster}通知其他实例
+ * 8. 标签分组：按标签整组删除，不使用KEYS
+ * 
+ * 本地缓存条目的版本为读取Redis前的时间戳，每个键最近一次失效的时间戳单独记录。
+ * 读取期间键被失效时（读到的可能是旧值），条目版本不晚于失效时间戳，不会被使用。
  * 
  * @author Nan
  * @since 1.0.0
@@ -43,19 +52,48 @@ import java.util.stream.Collectors;
 public class FileServiceCacheServiceImpl implements CacheService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final AsyncCache<String, Object> localCache;
     private final ObjectMapper objectMapper;
+    private final CacheInvalidationBroadcaster invalidationBroadcaster;
     
     // 统一缓存键前缀
     private static final String CACHE_KEY_PREFIX = "file:cache:";
+    private static final String TAG_KEY_PREFIX = "file:cache-tag:";
     private static final String LOCK_KEY_PREFIX = "file:lock:";
     private static final String STATS_KEY_PREFIX = "file:stats:";
+
+    /**
+     * 失效记录保留时间，需长于一次Redis读取的最长耗时
+     */
+    private static final long INVALIDATION_RETENTION_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int INVALIDATION_PRUNE_THRESHOLD = 10000;
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    /**
+     * 键 -> 最近一次失效的时间戳
+     */
+    private final ConcurrentHashMap<String, Long> invalidationVersions = new ConcurrentHashMap<>();
     
     // 访问统计
     private final Map<String, Long> accessStats = new ConcurrentHashMap<>();
     private final Map<String, Long> hitStats = new ConcurrentHashMap<>();
     private final Map<String, Long> missStats = new ConcurrentHashMap<>();
     private final Map<String, Long> responseTimeStats = new ConcurrentHashMap<>();
+
+    /**
+     * 本地缓存条目
+     *
+     * @param value 缓存值
+     * @param version 从Redis读取前或写入后的时间戳
+     */
+    private record LocalEntry(Object value, long version) {
+    }
+
+    @PostConstruct
+    public void initialize() {
+        invalidationBroadcaster.onRemoteInvalidation(keys -> keys.forEach(this::invalidateLocal));
+    }
     
     // ==================== 基础缓存操作 ====================
     
@@ -79,21 +117,19 @@ public class FileServiceCacheServiceImpl implements CacheService {
             accessStats.merge(key, 1L, Long::sum);
             
             // 首先尝试从本地缓存获取
-            CompletableFuture<Object> localResult = localCache.getIfPresent(fullKey);
-            if (localResult != null && !localResult.isCompletedExceptionally()) {
-                Object localValue = localResult.join();
-                if (localValue != null) {
-                    hitStats.merge(key, 1L, Long::sum);
-                    recordResponseTime(key, System.currentTimeMillis() - startTime);
-                    return convertValue(localValue, clazz);
-                }
+            Object localValue = getLocalValue(fullKey);
+            if (localValue != null) {
+                hitStats.merge(key, 1L, Long::sum);
+                recordResponseTime(key, System.currentTimeMillis() - startTime);
+                return convertValue(localValue, clazz);
             }
             
-            // 从Redis获取
+            // 从Redis获取，版本取读取前的时间
+            long version = System.nanoTime();
             Object redisValue = redisTemplate.opsForValue().get(fullKey);
             if (redisValue != null) {
                 // 回写到本地缓存
-                localCache.put(fullKey, CompletableFuture.completedFuture(redisValue));
+                putLocal(fullKey, redisValue, version);
                 hitStats.merge(key, 1L, Long::sum);
                 recordResponseTime(key, System.currentTimeMillis() - startTime);
                 return convertValue(redisValue, clazz);
@@ -208,8 +244,9 @@ public class FileServiceCacheServiceImpl implements CacheService {
             // 存储到Redis
             redisTemplate.opsForValue().set(fullKey, value, ttl.toMillis(), TimeUnit.MILLISECONDS);
             
-            // 存储到本地缓存
-            localCache.put(fullKey, CompletableFuture.completedFuture(value));
+            // 存储到本地缓存，并通知其他实例
+            putLocalAfterWrite(fullKey, value);
+            invalidationBroadcaster.broadcast(List.of(fullKey));
             
             log.debug("缓存存储成功 - key: {}, ttl: {}ms", fullKey, ttl.toMillis());
             
@@ -231,10 +268,11 @@ public class FileServiceCacheServiceImpl implements CacheService {
             // 根据缓存类型配置选择存储策略
             if (cacheType.isUseDistributedCache()) {
                 redisTemplate.opsForValue().set(fullKey, value, ttl.toMillis(), TimeUnit.MILLISECONDS);
+                invalidationBroadcaster.broadcast(List.of(fullKey));
             }
             
             if (cacheType.isUseLocalCache()) {
-                localCache.put(fullKey, CompletableFuture.completedFuture(value));
+                putLocalAfterWrite(fullKey, value);
             }
             
             log.debug("按类型存储缓存成功 - key: {}, type: {}, ttl: {}ms", 
@@ -267,11 +305,9 @@ public class FileServiceCacheServiceImpl implements CacheService {
                     redisTemplate.expire(fullKey, ttl.toMillis(), TimeUnit.MILLISECONDS)
             );
             
-            // 存储到本地缓存
-            keyValueMap.forEach((key, value) -> {
-                String fullKey = buildFullKey(key);
-                localCache.put(fullKey, CompletableFuture.completedFuture(value));
-            });
+            // 存储到本地缓存，并通知其他实例
+            redisMap.forEach(this::putLocalAfterWrite);
+            invalidationBroadcaster.broadcast(redisMap.keySet());
             
             log.debug("批量缓存存储成功 - size: {}, ttl: {}ms", keyValueMap.size(), ttl.toMillis());
             
@@ -290,8 +326,9 @@ public class FileServiceCacheServiceImpl implements CacheService {
             // 从Redis删除
             redisTemplate.delete(fullKey);
             
-            // 从本地缓存删除
-            localCache.synchronous().invalidate(fullKey);
+            // 从本地缓存删除，并通知其他实例
+            invalidateLocal(fullKey);
+            invalidationBroadcaster.broadcast(List.of(fullKey));
             
             log.debug("缓存删除成功 - key: {}", fullKey);
             
@@ -315,8 +352,9 @@ public class FileServiceCacheServiceImpl implements CacheService {
             // 批量从Redis删除
             redisTemplate.delete(fullKeys);
             
-            // 从本地缓存删除
-            localCache.synchronous().invalidateAll(fullKeys);
+            // 从本地缓存删除，并通知其他实例
+            fullKeys.forEach(this::invalidateLocal);
+            invalidationBroadcaster.broadcast(fullKeys);
             
             log.debug("批量缓存删除成功 - size: {}", keys.size());
             
@@ -325,26 +363,69 @@ public class FileServiceCacheServiceImpl implements CacheService {
         }
     }
     
+    /**
+     * 按模式删除缓存
+     *
+     * 使用SCAN分批遍历，不阻塞Redis；可预知分组的缓存应使用标签删除
+     */
     @Override
     public void evictByPattern(String pattern) {
-        try {
-            String fullPattern = CACHE_KEY_PREFIX + pattern;
-            Set<String> keys = redisTemplate.keys(fullPattern);
-            
-            if (keys != null && !keys.isEmpty()) {
-                // 批量删除Redis中的键
-                redisTemplate.delete(keys);
-                
-                // 删除本地缓存中的对应键
-                localCache.synchronous().invalidateAll(keys);
-                
-                log.debug("按模式删除缓存成功 - pattern: {}, count: {}", fullPattern, keys.size());
+        String fullPattern = CACHE_KEY_PREFIX + pattern;
+        ScanOptions options = ScanOptions.scanOptions().match(fullPattern).count(SCAN_BATCH_SIZE).build();
+        int count = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    count += evictFullKeys(batch);
+                    batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                }
             }
+            count += evictFullKeys(batch);
+            log.debug("按模式删除缓存成功 - pattern: {}, count: {}", fullPattern, count);
             
         } catch (Exception e) {
             log.error("按模式删除缓存失败 - pattern: {}", pattern, e);
         }
     }
+
+    @Override
+    public void putWithTags(String key, Object value, Duration ttl, Collection<String> tags) {
+        put(key, value, ttl);
+        if (value == null || tags == null || tags.isEmpty()) {
+            return;
+        }
+
+        String fullKey = buildFullKey(key);
+        long ttlSeconds = Math.max(1, ttl.toSeconds());
+        try {
+            for (String tag : tags) {
+                String tagKey = TAG_KEY_PREFIX + tag;
+                stringRedisTemplate.opsForSet().add(tagKey, fullKey);
+                // 标签集合的过期时间不短于其中最长的缓存
+                Long remaining = stringRedisTemplate.getExpire(tagKey, TimeUnit.SECONDS);
+                if (remaining == null || remaining < ttlSeconds) {
+                    stringRedisTemplate.expire(tagKey, ttlSeconds, TimeUnit.SECONDS);
+                }
+            }
+        } catch (Exception e) {
+            log.error("关联缓存标签失败 - key: {}, tags: {}", fullKey, tags, e);
+        }
+    }
+
+    @Override
+    public void evictByTag(String tag) {
+        String tagKey = TAG_KEY_PREFIX + tag;
+        try {
+            Set<String> members = stringRedisTemplate.opsForSet().members(tagKey);
+            stringRedisTemplate.delete(tagKey);
+            int count = members != null ? evictFullKeys(new ArrayList<>(members)) : 0;
+            log.debug("按标签删除缓存成功 - tag: {}, count: {}", tag, count);
+        } catch (Exception e) {
+            log.error("按标签删除缓存失败 - tag: {}", tag, e);
+        }
+    }
     
     @Override
     public boolean hasKey(String key) {
@@ -352,9 +433,8 @@ public class FileServiceCacheServiceImpl implements CacheService {
         
         try {
             // 首先检查本地缓存
-            CompletableFuture<Object> localResult = localCache.getIfPresent(fullKey);
-            if (localResult != null && !localResult.isCompletedExceptionally()) {
-                return localResult.join() != null;
+            if (getLocalValue(fullKey) != null) {
+                return true;
             }
             
             // 检查Redis
@@ -651,16 +731,84 @@ public class FileServiceCacheServiceImpl implements CacheService {
      */
     private <T> T getFromLocal(String key, Class<T> clazz) {
         try {
-            CompletableFuture<Object> result = localCache.getIfPresent(key);
-            if (result != null && !result.isCompletedExceptionally()) {
-                return convertValue(result.join(), clazz);
-            }
+            return convertValue(getLocalValue(key), clazz);
         } catch (Exception e) {
             log.error("从本地缓存获取失败 - key: {}", key, e);
         }
         return null;
     }
     
+    /**
+     * 读取本地缓存，条目版本不晚于该键最近一次失效时视为未命中
+     */
+    private Object getLocalValue(String fullKey) {
+        CompletableFuture<Object> result = localCache.getIfPresent(fullKey);
+        if (result == null || !result.isDone() || result.isCompletedExceptionally()) {
+            return null;
+        }
+        if (!(result.join() instanceof LocalEntry entry)) {
+            return null;
+        }
+        Long invalidated = invalidationVersions.get(fullKey);
+        if (invalidated != null && invalidated >= entry.version()) {
+            localCache.synchronous().invalidate(fullKey);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * 写入本地缓存
+     *
+     * 写入后再次检查失效记录：读取期间到达的失效通知可能早于本次写入，此时撤销写入
+     */
+    private void putLocal(String fullKey, Object value, long version) {
+        localCache.put(fullKey, CompletableFuture.completedFuture(new LocalEntry(value, version)));
+        Long invalidated = invalidationVersions.get(fullKey);
+        if (invalidated != null && invalidated >= version) {
+            localCache.synchronous().invalidate(fullKey);
+        }
+    }
+
+    /**
+     * 本实例写入Redis后更新本地缓存，使同一实例上并发读到的旧值失效
+     */
+    private void putLocalAfterWrite(String fullKey, Object value) {
+        long invalidated = invalidateLocal(fullKey);
+        putLocal(fullKey, value, invalidated + 1);
+    }
+
+    /**
+     * 记录失效时间并删除本地条目
+     *
+     * @return 失效时间戳
+     */
+    private long invalidateLocal(String fullKey) {
+        long version = System.nanoTime();
+        invalidationVersions.merge(fullKey, version, Math::max);
+        localCache.synchronous().invalidate(fullKey);
+        if (invalidationVersions.size() > INVALIDATION_PRUNE_THRESHOLD) {
+            long expired = version - INVALIDATION_RETENTION_NANOS;
+            invalidationVersions.values().removeIf(invalidated -> invalidated < expired);
+        }
+        return version;
+    }
+
+    /**
+     * 删除Redis和本地的缓存，并通知其他实例
+     *
+     * @return 删除的键数量
+     */
+    private int evictFullKeys(List<String> fullKeys) {
+        if (fullKeys.isEmpty()) {
+            return 0;
+        }
+        redisTemplate.delete(fullKeys);
+        fullKeys.forEach(this::invalidateLocal);
+        invalidationBroadcaster.broadcast(fullKeys);
+        return fullKeys.size();
+    }
+    
     /**
      * 记录响应时间
      */
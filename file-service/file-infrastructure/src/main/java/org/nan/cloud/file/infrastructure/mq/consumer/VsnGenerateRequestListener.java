@@ -5,17 +5,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.common.mq.consumer.ConsumeResult;
 import org.nan.cloud.common.mq.consumer.MessageConsumer;
 import org.nan.cloud.common.mq.core.message.Message;
-import org.nan.cloud.file.application.service.VsnGenerationService;
+import org.nan.cloud.file.infrastructure.vsn.VsnGenerationDispatcher;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+/**
+ * VSN生成请求监听器
+ * 请求交给{@link VsnGenerationDispatcher}按节目合并后并行生成，接受后即确认消息；
+ * 停机时未完成的请求由调度发布失败结果，不依赖消息重投
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class VsnGenerateRequestListener implements MessageConsumer {
 
-    private final VsnGenerationService vsnGenerationService;
+    private final VsnGenerationDispatcher vsnGenerationDispatcher;
 
     @Override
     public String[] getSupportedMessageTypes() {
@@ -34,7 +39,10 @@ public class VsnGenerateRequestListener implements MessageConsumer {
                 return ConsumeResult.success(message.getMessageId(), getConsumerId(), System.currentTimeMillis() - start);
             }
             Map<String, Object> payload = (Map<String, Object>) message.getPayload();
-            vsnGenerationService.generate(payload);
+            if (!vsnGenerationDispatcher.submit(payload)) {
+                return ConsumeResult.failure(message.getMessageId(), getConsumerId(), "VSN_GENERATE_BUSY",
+                        "VSN生成排队已满", null);
+            }
             return ConsumeResult.success(message.getMessageId(), getConsumerId(), System.currentTimeMillis() - start);
         } catch (Exception e) {
             log.error("❌ 处理VSN生成请求失败: id={}, err={}", message.getMessageId(), e.getMessage(), e);
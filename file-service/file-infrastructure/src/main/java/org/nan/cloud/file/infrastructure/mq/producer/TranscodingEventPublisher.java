@@ -44,13 +44,20 @@ public class TranscodingEventPublisher {
         if (ctx == null) {
             return;
         }
+        publishTranscodingProgress(taskId, ctx.getOid(), ctx.getUid(), progress, status);
+    }
+
+    /**
+     * 推送单个任务的进度，调用方已知组织和用户时使用，省去任务上下文查询
+     */
+    public void publishTranscodingProgress(String taskId, Long oid, Long uid, int progress, String status) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("eventType", "PROGRESS");
         payload.put("taskId", taskId);
         payload.put("progress", progress);
         payload.put("status", status);
         payload.put("timestamp", LocalDateTime.now());
-        publishStomp(taskId, ctx.getOid(), ctx.getUid(), payload, "转码进度");
+        publishStomp(taskId, oid, uid, payload, "转码进度");
     }
 
     public void publishTranscodingCompleted(String taskId, Long oid, Long uid, Long sourceMaterialId,
@@ -0,0 +1,184 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * 文件头魔数前缀树
+ *
+ * 所有签名在启动时编译为一棵按字节分支的前缀树，匹配时对文件头逐字节下行一次，
+ * 不再把文件头转成十六进制字符串后逐个startsWith比较。
+ *
+ * 签名支持通配字节（如RIFF容器的长度字段、MP4的box长度），匹配结果取最长的签名，
+ * 例如"RIFF????WEBP"优先于"RIFF"。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public final class FileSignatureTrie {
+
+    /**
+     * 通配字节
+     */
+    private static final int ANY = -1;
+
+    private final Node root = new Node();
+    private int maxLength = 0;
+
+    /**
+     * 文件签名
+     *
+     * @param mimeType 内容对应的MIME类型
+     * @param extensions 与该内容一致的扩展名
+     * @param executable 是否为可执行文件
+     */
+    public record Signature(String mimeType, Set<String> extensions, boolean executable) {
+    }
+
+    /**
+     * 添加十六进制签名，"??"表示通配字节
+     */
+    public FileSignatureTrie hex(String pattern, String mimeType, String... extensions) {
+        return add(parseHex(pattern), new Signature(mimeType, Set.of(extensions), false));
+    }
+
+    /**
+     * 添加ASCII签名，'?'表示通配字节
+     */
+    public FileSignatureTrie ascii(String pattern, String mimeType, String... extensions) {
+        byte[] chars = pattern.getBytes(StandardCharsets.ISO_8859_1);
+        int[] bytes = new int[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            bytes[i] = chars[i] == '?' ? ANY : chars[i] & 0xFF;
+        }
+        return add(bytes, new Signature(mimeType, Set.of(extensions), false));
+    }
+
+    /**
+     * 添加可执行文件签名（十六进制）
+     */
+    public FileSignatureTrie executable(String pattern, String description) {
+        return add(parseHex(pattern), new Signature(description, Set.of(), true));
+    }
+
+    /**
+     * 匹配文件头
+     *
+     * @param header 文件头缓冲
+     * @param length 缓冲中的有效字节数
+     * @return 最长的匹配签名，无匹配时返回null
+     */
+    public Signature match(byte[] header, int length) {
+        Match match = match(root, header, 0, Math.min(length, header.length), null);
+        return match != null ? match.signature : null;
+    }
+
+    /**
+     * 签名覆盖的全部扩展名，这些扩展名的文件内容应能匹配到签名
+     */
+    public Set<String> coveredExtensions() {
+        Set<String> extensions = new HashSet<>();
+        collectExtensions(root, extensions);
+        return extensions;
+    }
+
+    /**
+     * 匹配需要读取的文件头长度
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private FileSignatureTrie add(int[] bytes, Signature signature) {
+        Node node = root;
+        for (int b : bytes) {
+            if (b == ANY) {
+                if (node.any == null) {
+                    node.any = new Node();
+                }
+                node = node.any;
+            } else {
+                if (node.children == null) {
+                    node.children = new Node[256];
+                }
+                if (node.children[b] == null) {
+                    node.children[b] = new Node();
+                }
+                node = node.children[b];
+            }
+        }
+        if (node.signature != null) {
+            throw new IllegalArgumentException("重复的文件签名: " + signature.mimeType());
+        }
+        node.signature = signature;
+        maxLength = Math.max(maxLength, bytes.length);
+        return this;
+    }
+
+    /**
+     * 沿精确分支和通配分支下行，返回深度最大的签名，深度相同时精确分支优先
+     */
+    private Match match(Node node, byte[] header, int depth, int length, Match best) {
+        // 连续通配字节（如tar偏移257前的占位）直接跳过，不递归
+        while (node.signature == null && node.children == null && node.any != null) {
+            if (depth >= length) {
+                return best;
+            }
+            node = node.any;
+            depth++;
+        }
+        if (node.signature != null && (best == null || depth > best.depth)) {
+            best = new Match(node.signature, depth);
+        }
+        if (depth < length) {
+            if (node.children != null) {
+                Node next = node.children[header[depth] & 0xFF];
+                if (next != null) {
+                    best = match(next, header, depth + 1, length, best);
+                }
+            }
+            if (node.any != null) {
+                best = match(node.any, header, depth + 1, length, best);
+            }
+        }
+        return best;
+    }
+
+    private void collectExtensions(Node node, Set<String> extensions) {
+        if (node.signature != null) {
+            extensions.addAll(node.signature.extensions());
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    collectExtensions(child, extensions);
+                }
+            }
+        }
+        if (node.any != null) {
+            collectExtensions(node.any, extensions);
+        }
+    }
+
+    private static int[] parseHex(String pattern) {
+        int[] bytes = new int[pattern.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            String part = pattern.substring(i * 2, i * 2 + 2);
+            bytes[i] = "??".equals(part) ? ANY : HexFormat.fromHexDigits(part);
+        }
+        return bytes;
+    }
+
+    private record Match(Signature signature, int depth) {
+    }
+
+    private static final class Node {
+        private Node[] children;
+        private Node any;
+        private Signature signature;
+    }
+}
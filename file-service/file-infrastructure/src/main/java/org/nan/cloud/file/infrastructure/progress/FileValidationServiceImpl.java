@@ -11,6 +11,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -26,6 +29,9 @@ import java.util.regex.Pattern;
  * 5. 黑名单扩展名过滤
  * 6. MIME类型检测
  * 
+ * 内容检查只读取一次文件头缓冲（{@link #HEADER_SIZE}字节），魔数校验、MIME检测、
+ * 可执行文件检测和扩展名一致性检查共用该缓冲，签名预编译为前缀树逐字节匹配。
+ * 
  * 开发环境配置：
  * - 宽松的文件类型限制，支持常见格式
  * - 合理的文件大小限制
@@ -84,6 +90,11 @@ public class FileValidationServiceImpl implements FileValidationService {
 
     // ==================== 静态配置 ====================
     
+    /**
+     * 内容检查读取的文件头长度，覆盖tar的ustar标记（偏移257）
+     */
+    static final int HEADER_SIZE = 1024;
+    
     /**
      * 支持的文件类型配置
      */
@@ -97,9 +108,14 @@ public class FileValidationServiceImpl implements FileValidationService {
     private Set<String> blacklistedExtensions;
     
     /**
-     * 文件魔数映射（用于文件头验证）
+     * 文件签名前缀树（用于文件头验证、MIME检测和可执行文件检测）
+     */
+    private FileSignatureTrie fileSignatures;
+    
+    /**
+     * 签名覆盖的扩展名，这些扩展名的文件头应与扩展名一致
      */
-    private Map<String, String> fileMagicNumbers;
+    private Set<String> signedExtensions;
     
     /**
      * 文件名验证正则表达式
@@ -110,7 +126,7 @@ public class FileValidationServiceImpl implements FileValidationService {
     public void initialize() {
         initializeSupportedTypes();
         initializeBlacklist();
-        initializeFileMagicNumbers();
+        initializeFileSignatures();
         initializeFilenamePattern();
         
         log.info("FileValidationService initialized - 默认大小限制: {}MB, 严格检查: {}, 病毒扫描: {}", 
@@ -157,8 +173,8 @@ public class FileValidationServiceImpl implements FileValidationService {
                         ValidationErrorCode.FILE_TOO_LARGE);
             }
 
-            // 6. 验证文件内容安全性
-            if (!validateFileSecurity(file)) {
+            // 6. 验证文件内容安全性（只读取一次文件头）
+            if (!validateFileSecurity(filename, readHeader(file))) {
                 return FileValidationResult.failure("文件安全检查未通过", ValidationErrorCode.MALICIOUS_FILE);
             }
 
@@ -235,53 +251,34 @@ public class FileValidationServiceImpl implements FileValidationService {
     @Override
     public boolean validateFileSecurity(MultipartFile file) {
         try {
-            // 1. 检查文件头魔数
-            byte[] header = new byte[Math.min(16, (int) file.getSize())];
-            file.getInputStream().read(header);
-            
-            String headerHex = bytesToHex(header);
-            
-            // 2. 验证文件头是否匹配扩展名
-            String filename = file.getOriginalFilename();
-            if (filename != null) {
-                String extension = getFileExtension(filename).toLowerCase();
-                String expectedMagic = fileMagicNumbers.get(extension);
-                
-                if (expectedMagic != null && !headerHex.startsWith(expectedMagic)) {
-                    log.warn("文件头魔数不匹配 - 扩展名: {}, 期望: {}, 实际: {}", 
-                            extension, expectedMagic, headerHex.substring(0, Math.min(8, headerHex.length())));
-                    // 开发环境不严格检查魔数，仅记录警告
-                    if (strictMimeCheck) {
-                        return false;
-                    }
-                }
-            }
-            
-            // 3. 检查文件是否可能是可执行文件
-            if (isPotentiallyExecutable(headerHex)) {
-                log.error("检测到可能的可执行文件 - 文件头: {}", headerHex.substring(0, Math.min(16, headerHex.length())));
-                return false;
-            }
-            
-            return true;
-            
+            return validateFileSecurity(file.getOriginalFilename(), readHeader(file));
         } catch (IOException e) {
             log.error("文件安全检查失败", e);
             return false;
         }
     }
 
+    @Override
+    public FileValidationResult validateContent(Path file, String filename) {
+        try {
+            if (!validateFileSecurity(filename, readHeader(file))) {
+                return FileValidationResult.failure("文件安全检查未通过", ValidationErrorCode.MALICIOUS_FILE);
+            }
+            return FileValidationResult.success();
+        } catch (IOException e) {
+            log.error("文件内容检查失败 - 文件: {}, 错误: {}", file, e.getMessage(), e);
+            return FileValidationResult.failure("文件验证失败: " + e.getMessage(), "VALIDATION_ERROR");
+        }
+    }
+
     @Override
     public String detectMimeType(MultipartFile file) {
         try {
             // 1. 优先使用文件内容检测
-            byte[] header = new byte[Math.min(1024, (int) file.getSize())];
-            file.getInputStream().read(header);
-            
-            // 基于文件头检测MIME类型
-            String detectedMime = detectMimeTypeFromHeader(header);
-            if (detectedMime != null) {
-                return detectedMime;
+            FileHeader header = readHeader(file);
+            FileSignatureTrie.Signature signature = header.signature();
+            if (signature != null && !signature.executable()) {
+                return signature.mimeType();
             }
             
             // 2. 回退到文件扩展名检测
@@ -425,6 +422,68 @@ public class FileValidationServiceImpl implements FileValidationService {
 
     // ==================== 私有辅助方法 ====================
     
+    /**
+     * 文件头缓冲及其匹配到的签名
+     */
+    private record FileHeader(byte[] bytes, int length, FileSignatureTrie.Signature signature) {
+        String hexPrefix(int maxBytes) {
+            return HexFormat.of().withUpperCase().formatHex(bytes, 0, Math.min(maxBytes, length));
+        }
+    }
+    
+    /**
+     * 读取文件头并匹配签名，每次上传只读取一次
+     */
+    private FileHeader readHeader(MultipartFile file) throws IOException {
+        byte[] bytes = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream in = file.getInputStream()) {
+            length = in.readNBytes(bytes, 0, bytes.length);
+        }
+        return new FileHeader(bytes, length, fileSignatures.match(bytes, length));
+    }
+    
+    /**
+     * 读取本地文件头并匹配签名
+     */
+    private FileHeader readHeader(Path file) throws IOException {
+        byte[] bytes = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(file)) {
+            length = in.readNBytes(bytes, 0, bytes.length);
+        }
+        return new FileHeader(bytes, length, fileSignatures.match(bytes, length));
+    }
+    
+    /**
+     * 基于文件头的安全检查：可执行文件检测和扩展名一致性
+     */
+    private boolean validateFileSecurity(String filename, FileHeader header) {
+        FileSignatureTrie.Signature signature = header.signature();
+        
+        // 1. 检查文件是否可能是可执行文件
+        if (signature != null && signature.executable()) {
+            log.error("检测到可能的可执行文件 - 类型: {}, 文件头: {}", signature.mimeType(), header.hexPrefix(8));
+            return false;
+        }
+        
+        // 2. 验证文件头是否匹配扩展名
+        if (filename != null) {
+            String extension = getFileExtension(filename).toLowerCase();
+            if (signedExtensions.contains(extension)
+                    && (signature == null || !signature.extensions().contains(extension))) {
+                log.warn("文件头魔数不匹配 - 扩展名: {}, 检测类型: {}, 实际: {}", extension,
+                        signature != null ? signature.mimeType() : "unknown", header.hexPrefix(4));
+                // 开发环境不严格检查魔数，仅记录警告
+                if (strictMimeCheck) {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+    }
+    
     /**
      * 初始化支持的文件类型
      */
@@ -511,18 +570,59 @@ public class FileValidationServiceImpl implements FileValidationService {
     }
     
     /**
-     * 初始化文件魔数映射
+     * 初始化文件签名前缀树
      */
-    private void initializeFileMagicNumbers() {
-        fileMagicNumbers = Map.of(
-                "jpg", "FFD8FF",
-                "jpeg", "FFD8FF",
-                "png", "89504E47",
-                "gif", "474946",
-                "pdf", "25504446",
-                "zip", "504B0304",
-                "mp4", "66747970"
-        );
+    private void initializeFileSignatures() {
+        fileSignatures = new FileSignatureTrie()
+                // 图片
+                .hex("FFD8FF", "image/jpeg", "jpg", "jpeg")
+                .hex("89504E470D0A1A0A", "image/png", "png")
+                .ascii("GIF87a", "image/gif", "gif")
+                .ascii("GIF89a", "image/gif", "gif")
+                .ascii("BM", "image/bmp", "bmp")
+                .ascii("RIFF????WEBP", "image/webp", "webp")
+                .hex("49492A00", "image/tiff", "tiff")
+                .hex("4D4D002A", "image/tiff", "tiff")
+                .hex("00000100", "image/x-icon", "ico")
+                // 视频
+                .ascii("????ftyp", "video/mp4", "mp4", "m4v", "mov", "3gp", "m4a")
+                .ascii("????ftypqt", "video/quicktime", "mov")
+                .ascii("????ftyp3g", "video/3gpp", "3gp")
+                .ascii("????ftypM4A", "audio/mp4", "m4a")
+                .ascii("RIFF????AVI ", "video/avi", "avi")
+                .hex("1A45DFA3", "video/x-matroska", "mkv", "webm")
+                .ascii("FLV", "video/x-flv", "flv")
+                .hex("3026B2758E66CF11A6D900AA0062CE6C", "video/x-ms-wmv", "wmv", "wma")
+                // 音频
+                .ascii("ID3", "audio/mpeg", "mp3")
+                .hex("FFFB", "audio/mpeg", "mp3")
+                .hex("FFF3", "audio/mpeg", "mp3")
+                .hex("FFF2", "audio/mpeg", "mp3")
+                .hex("FFFA", "audio/mpeg", "mp3")
+                .hex("FFF1", "audio/aac", "aac")
+                .hex("FFF9", "audio/aac", "aac")
+                .ascii("RIFF????WAVE", "audio/wav", "wav")
+                .ascii("fLaC", "audio/flac", "flac")
+                .ascii("OggS", "audio/ogg", "ogg", "opus")
+                // 文档
+                .ascii("%PDF", "application/pdf", "pdf")
+                .hex("D0CF11E0A1B11AE1", "application/x-tika-msoffice", "doc", "xls", "ppt")
+                .ascii("{\\rtf", "application/rtf", "rtf")
+                // 压缩包（OOXML文档也是zip容器）
+                .hex("504B0304", "application/zip", "zip", "docx", "xlsx", "pptx")
+                .ascii("Rar!", "application/x-rar-compressed", "rar")
+                .hex("377ABCAF271C", "application/x-7z-compressed", "7z")
+                .hex("1F8B", "application/gzip", "gz")
+                .ascii("?".repeat(257) + "ustar", "application/x-tar", "tar")
+                // 可执行文件
+                .executable("4D5A", "PE executable (Windows)")
+                .executable("7F454C46", "ELF executable (Linux)")
+                .executable("CAFEBABE", "Java class file")
+                .executable("FEEDFACE", "Mach-O executable (macOS)")
+                .executable("FEEDFACF", "Mach-O executable (macOS)")
+                .executable("CEFAEDFE", "Mach-O executable (macOS)")
+                .executable("CFFAEDFE", "Mach-O executable (macOS)");
+        signedExtensions = fileSignatures.coveredExtensions();
     }
     
     /**
@@ -545,42 +645,6 @@ public class FileValidationServiceImpl implements FileValidationService {
         return lastDotIndex > 0 ? filename.substring(lastDotIndex + 1) : "";
     }
     
-    /**
-     * 字节数组转十六进制字符串
-     */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X", b));
-        }
-        return sb.toString();
-    }
-    
-    /**
-     * 检查是否为可能的可执行文件
-     */
-    private boolean isPotentiallyExecutable(String headerHex) {
-        return headerHex.startsWith("4D5A") || // PE executable (Windows)
-               headerHex.startsWith("7F454C46") || // ELF executable (Linux)
-               headerHex.startsWith("CAFEBABE") || // Java class file
-               headerHex.startsWith("FEEDFACE"); // Mach-O executable (macOS)
-    }
-    
-    /**
-     * 基于文件头检测MIME类型
-     */
-    private String detectMimeTypeFromHeader(byte[] header) {
-        String headerHex = bytesToHex(header);
-        
-        if (headerHex.startsWith("FFD8FF")) return "image/jpeg";
-        if (headerHex.startsWith("89504E47")) return "image/png";
-        if (headerHex.startsWith("474946")) return "image/gif";
-        if (headerHex.startsWith("25504446")) return "application/pdf";
-        if (headerHex.startsWith("504B0304")) return "application/zip";
-        
-        return null;
-    }
-    
     /**
      * 根据扩展名获取MIME类型
      */
@@ -0,0 +1,227 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 进度状态的Redis复制器
+ *
+ * 进度在各实例本地内存中读写，变化时只登记待复制的键（至多一次ConcurrentHashMap写入，不访问Redis），
+ * 复制线程每隔flushIntervalMillis取出登记的键，读取最新快照，以管道批量写入Redis哈希：
+ * 1. 同一键在一个周期内多次变化只写一次
+ * 2. 其他实例读取到的进度最多落后一个复制周期
+ * 3. Redis不可用时上传线程不受影响，未写入的键在下个周期重试
+ *
+ * 快照字段均为字符串，null写为空串，以便覆盖哈希中已有的旧值。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProgressReplicator {
+
+    /**
+     * 删除标记
+     */
+    private static final Supplier<Map<String, String>> REMOVED = () -> null;
+
+    private final StringRedisTemplate redisTemplate;
+    private final FileStorageProperties storageProperties;
+
+    /**
+     * 待复制的键 -> 快照提供者，复制时才生成快照
+     */
+    private final ConcurrentHashMap<String, Supplier<Map<String, String>>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong replicatedCount = new AtomicLong(0);
+    private final AtomicLong failedFlushCount = new AtomicLong(0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Progress-Replicator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.ProgressStore config = getConfig();
+        if (!config.isReplicationEnabled()) {
+            log.info("进度复制未启用，进度仅本实例可见");
+            return;
+        }
+        executor.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMillis(),
+                config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        log.info("进度复制初始化完成 - 复制间隔: {}ms, 过期时间: {}min",
+                config.getFlushIntervalMillis(), config.getTtlMinutes());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        if (getConfig().isReplicationEnabled()) {
+            // 停机前写出最后的进度
+            flush();
+        }
+    }
+
+    /**
+     * 登记变化，复制时调用snapshot生成快照
+     *
+     * @param key Redis键
+     * @param snapshot 快照提供者，在复制线程中调用，需自行保证读取一致；
+     *                 同一对象重复登记时不产生写入
+     */
+    public void markDirty(String key, Supplier<Map<String, String>> snapshot) {
+        // 已登记时只读不写：复制线程先移除登记再生成快照，快照必然包含本次变化
+        if (getConfig().isReplicationEnabled() && pending.get(key) != snapshot) {
+            pending.put(key, snapshot);
+        }
+    }
+
+    /**
+     * 登记删除
+     */
+    public void markRemoved(String key) {
+        if (getConfig().isReplicationEnabled()) {
+            pending.put(key, REMOVED);
+        }
+    }
+
+    /**
+     * 读取其他实例复制的快照
+     *
+     * @return 快照字段，不存在或读取失败时返回空Map
+     */
+    public Map<String, String> read(String key) {
+        if (!getConfig().isReplicationEnabled()) {
+            return Map.of();
+        }
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+            Map<String, String> fields = new HashMap<>(entries.size() * 2);
+            entries.forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+            return fields;
+        } catch (Exception e) {
+            log.warn("读取共享进度失败 - 键: {}, 错误: {}", key, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * 复制统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("replicated", replicatedCount.get());
+        stats.put("failedFlushes", failedFlushCount.get());
+        return stats;
+    }
+
+    // ==================== 字段转换工具 ====================
+
+    public static String str(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    public static String text(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public static long longValue(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    public static Long longObject(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int batchSize = getConfig().getBatchSize();
+        List<String> keys = new ArrayList<>(Math.min(pending.size(), batchSize));
+        List<Supplier<Map<String, String>>> suppliers = new ArrayList<>(keys.size());
+        for (Map.Entry<String, Supplier<Map<String, String>>> entry : pending.entrySet()) {
+            // 仅当未被更新的登记替换时移除，复制期间的新变化留到下个周期
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                keys.add(entry.getKey());
+                suppliers.add(entry.getValue());
+            }
+            if (keys.size() >= batchSize) {
+                write(keys, suppliers);
+                keys.clear();
+                suppliers.clear();
+            }
+        }
+        if (!keys.isEmpty()) {
+            write(keys, suppliers);
+        }
+    }
+
+    private void write(List<String> keys, List<Supplier<Map<String, String>>> suppliers) {
+        List<Map<String, String>> snapshots = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Map<String, String> snapshot = null;
+            try {
+                snapshot = suppliers.get(i).get();
+            } catch (Exception e) {
+                log.warn("生成进度快照失败 - 键: {}, 错误: {}", keys.get(i), e.getMessage());
+            }
+            snapshots.add(snapshot);
+        }
+
+        long ttlSeconds = TimeUnit.MINUTES.toSeconds(getConfig().getTtlMinutes());
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (int i = 0; i < keys.size(); i++) {
+                    String key = keys.get(i);
+                    Map<String, String> snapshot = snapshots.get(i);
+                    if (suppliers.get(i) == REMOVED) {
+                        stringConnection.del(key);
+                    } else if (snapshot != null && !snapshot.isEmpty()) {
+                        stringConnection.hMSet(key, snapshot);
+                        stringConnection.expire(key, ttlSeconds);
+                    }
+                }
+                return null;
+            });
+            replicatedCount.addAndGet(keys.size());
+        } catch (Exception e) {
+            failedFlushCount.incrementAndGet();
+            log.warn("进度复制失败，下个周期重试 - 条目数: {}, 错误: {}", keys.size(), e.getMessage());
+            for (int i = 0; i < keys.size(); i++) {
+                // 期间已有新的登记时以新的为准
+                pending.putIfAbsent(keys.get(i), suppliers.get(i));
+            }
+        }
+    }
+
+    private FileStorageProperties.ProgressStore getConfig() {
+        return storageProperties.getProgressStore();
+    }
+}
@@ -1,5 +1,6 @@
 package org.nan.cloud.file.infrastructure.progress;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.api.dto.UploadProgressResponse;
 import org.nan.cloud.file.application.service.ProgressTrackingService;
@@ -12,19 +13,23 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
- * 进度跟踪服务实现 - 内存缓存版本
+ * 进度跟踪服务实现 - 本地存储 + Redis复制
  * 
- * 开发环境实现，使用ConcurrentHashMap作为内存缓存。
- * 生产环境建议使用Redis实现以支持分布式场景。
+ * 进度在本地ConcurrentHashMap中读写，每个任务的进度只由自身锁保护，
+ * 不同任务的更新互不阻塞。变化由{@link ProgressReplicator}异步批量复制到Redis哈希，
+ * 本实例没有的任务从Redis读取其他实例复制的快照，延迟不超过一个复制周期。
+ * 
+ * 分片可能由不同实例接收，每个实例把自己收到的分片编号写入同一哈希的独立字段，
+ * 读取时取并集。进度回调只在本实例触发。
  * 
  * 特性：
- * 1. 线程安全的进度存储和更新
+ * 1. 线程安全的进度存储和更新，无全局锁
  * 2. 实时进度计算（速度、剩余时间等）
  * 3. 自动过期清理（默认1小时）
- * 4. 支持单文件上传进度跟踪
+ * 4. 支持单文件上传和分片上传进度跟踪
  * 5. 质量指标统计（平均速度、稳定性等）
  * 6. 进度回调支持
  * 
@@ -33,22 +38,34 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ProgressTrackingServiceImpl implements ProgressTrackingService {
 
+    private static final String UPLOAD_KEY_PREFIX = "file:progress:upload:";
+    private static final String CHUNK_KEY_PREFIX = "file:progress:chunk:";
+    private static final String CHUNK_FIELD_PREFIX = "chunk.";
+
+    private final ProgressReplicator replicator;
+
     /**
      * 进度信息存储 - 线程安全
      */
     private final ConcurrentHashMap<String, ProgressInfo> progressMap = new ConcurrentHashMap<>();
     
     /**
-     * 进度回调存储
+     * 分片上传进度存储
      */
-    private final ConcurrentHashMap<String, ProgressCallback> callbackMap = new ConcurrentHashMap<>();
-    
+    private final ConcurrentHashMap<String, ChunkProgressInfo> chunkProgressMap = new ConcurrentHashMap<>();
+
+    /**
+     * 分片上传已完成的分片编号，用于重复上传同一分片时去重计数
+     */
+    private final ConcurrentHashMap<String, Set<Integer>> completedChunksMap = new ConcurrentHashMap<>();
+
     /**
-     * 读写锁，保护复杂操作
+     * 进度回调存储
      */
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<String, ProgressCallback> callbackMap = new ConcurrentHashMap<>();
     
     /**
      * 定时清理服务
@@ -72,7 +89,7 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
             15, 15, TimeUnit.MINUTES
         );
         
-        log.info("ProgressTrackingService initialized with memory cache, auto-cleanup every 15 minutes");
+        log.info("ProgressTrackingService initialized with local store and Redis replication, auto-cleanup every 15 minutes");
     }
 
     @Override
@@ -83,6 +100,7 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
 
         ProgressInfo progressInfo = new ProgressInfo(taskId, totalSize);
         progressMap.put(taskId, progressInfo);
+        replicate(progressInfo);
         
         log.debug("初始化单文件上传进度 - 任务ID: {}, 总大小: {}B", taskId, totalSize);
         
@@ -92,8 +110,15 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
 
     @Override
     public void initializeChunkProgress(String uploadId, int totalChunks) {
-        // 分片上传已移除，这个方法保留为空实现以保持接口兼容
-        log.warn("分片上传功能已移除，initializeChunkProgress方法调用被忽略 - 上传ID: {}", uploadId);
+        if (uploadId == null) {
+            throw new IllegalArgumentException("uploadId 不能为空");
+        }
+
+        completedChunksMap.put(uploadId, ConcurrentHashMap.newKeySet());
+        chunkProgressMap.put(uploadId, new ChunkProgressInfo(uploadId, totalChunks));
+        replicateChunk(uploadId);
+
+        log.debug("初始化分片上传进度 - 上传ID: {}, 总分片: {}", uploadId, totalChunks);
     }
 
     @Override
@@ -104,8 +129,9 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
             return;
         }
 
-        lock.writeLock().lock();
-        try {
+        double progress;
+        // 只锁当前任务，不同任务的上传线程互不阻塞
+        synchronized (progressInfo) {
             long previousUploaded = progressInfo.getUploadedSize();
             long currentTime = System.currentTimeMillis();
             long previousTime = progressInfo.getLastUpdateTime();
@@ -133,32 +159,56 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
                     log.debug("跳过速度计算 - 时间间隔太小: {}ms", deltaTime);
                 }
             }
-            
-            log.debug("更新单文件上传进度 - 任务ID: {}, 进度: {}%, 速度: {}KB/s", 
-                    taskId, progressInfo.getProgress(), progressInfo.getUploadSpeed() / 1024);
-            
-            // 触发回调
-            triggerCallback(taskId, (int) progressInfo.getProgress(), 
-                    String.format("已上传 %.1f%%", progressInfo.getProgress()));
-            
-        } finally {
-            lock.writeLock().unlock();
+            progress = progressInfo.getProgress();
         }
+        replicate(progressInfo);
+        
+        log.debug("更新单文件上传进度 - 任务ID: {}, 进度: {}%", taskId, progress);
+        
+        // 触发回调
+        triggerCallback(taskId, (int) progress, String.format("已上传 %.1f%%", progress));
     }
 
     @Override
     public void updateChunkProgress(String uploadId, int chunkNumber) {
-        // 分片上传已移除，这个方法保留为空实现以保持接口兼容
-        log.warn("分片上传功能已移除，updateChunkProgress方法调用被忽略 - 上传ID: {}", uploadId);
+        ChunkProgressInfo chunkProgress = chunkProgressMap.get(uploadId);
+        Set<Integer> completedChunks = completedChunksMap.get(uploadId);
+        if ((chunkProgress == null || completedChunks == null) && adoptChunkProgress(uploadId)) {
+            chunkProgress = chunkProgressMap.get(uploadId);
+            completedChunks = completedChunksMap.get(uploadId);
+        }
+        if (chunkProgress == null || completedChunks == null) {
+            log.warn("分片进度信息不存在，无法更新 - 上传ID: {}", uploadId);
+            return;
+        }
+
+        // 分片可并行上传，同一会话的计数更新需串行
+        completedChunks.add(chunkNumber);
+        synchronized (chunkProgress) {
+            chunkProgress.updateProgress(completedChunks.size());
+            if (chunkProgress.getCompletedChunks() >= chunkProgress.getTotalChunks()) {
+                chunkProgress.setStatus(ProgressStatus.COMPLETED);
+            }
+        }
+        replicateChunk(uploadId);
+
+        log.debug("更新分片上传进度 - 上传ID: {}, 分片: {}, 进度: {}/{}", uploadId, chunkNumber,
+                chunkProgress.getCompletedChunks(), chunkProgress.getTotalChunks());
+
+        triggerCallback(uploadId, chunkProgress.getProgress(),
+                String.format("已上传分片 %d/%d", chunkProgress.getCompletedChunks(), chunkProgress.getTotalChunks()));
     }
 
     @Override
     public void completeProgress(String taskId) {
         ProgressInfo progressInfo = progressMap.get(taskId);
         if (progressInfo != null) {
-            progressInfo.setStatus(ProgressStatus.COMPLETED);
-            progressInfo.setProgress(100.0);
-            progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            synchronized (progressInfo) {
+                progressInfo.setStatus(ProgressStatus.COMPLETED);
+                progressInfo.setProgress(100.0);
+                progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            }
+            replicate(progressInfo);
             
             log.debug("标记进度完成 - 任务ID: {}", taskId);
             
@@ -171,8 +221,11 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
     public void cancelProgress(String taskId) {
         ProgressInfo progressInfo = progressMap.get(taskId);
         if (progressInfo != null) {
-            progressInfo.setStatus(ProgressStatus.CANCELLED);
-            progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            synchronized (progressInfo) {
+                progressInfo.setStatus(ProgressStatus.CANCELLED);
+                progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            }
+            replicate(progressInfo);
             
             log.debug("取消进度跟踪 - 任务ID: {}", taskId);
             
@@ -185,9 +238,12 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
     public void failProgress(String taskId, String errorMessage) {
         ProgressInfo progressInfo = progressMap.get(taskId);
         if (progressInfo != null) {
-            progressInfo.setStatus(ProgressStatus.FAILED);
-            progressInfo.setErrorMessage(errorMessage);
-            progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            synchronized (progressInfo) {
+                progressInfo.setStatus(ProgressStatus.FAILED);
+                progressInfo.setErrorMessage(errorMessage);
+                progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            }
+            replicate(progressInfo);
             
             log.debug("标记进度失败 - 任务ID: {}, 错误: {}", taskId, errorMessage);
             
@@ -200,40 +256,20 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
     public UploadProgressResponse getProgress(String taskId) {
         ProgressInfo progressInfo = progressMap.get(taskId);
         if (progressInfo == null) {
-            return null;
+            progressInfo = loadReplicatedProgress(taskId);
+            if (progressInfo == null) {
+                return null;
+            }
+        }
+        synchronized (progressInfo) {
+            return buildProgressResponse(taskId, progressInfo);
         }
-
-        UploadProgressResponse.UploadProgressResponseBuilder builder = UploadProgressResponse.builder()
-                .uploadId(taskId)
-                .fileName(progressInfo.getFileName())
-                .status(progressInfo.getStatus().name())
-                .progress(progressInfo.getProgress())
-                .uploadedSize(progressInfo.getUploadedSize())
-                .totalSize(progressInfo.getTotalSize())
-                .uploadSpeed(progressInfo.getUploadSpeed())
-                .estimatedTimeRemaining(calculateEstimatedTime(progressInfo))
-                .startTime(progressInfo.getStartTimeAsLocalDateTime())
-                .lastUpdateTime(progressInfo.getLastUpdateTimeAsLocalDateTime())
-                .errorMessage(progressInfo.getErrorMessage())
-                .retryCount(progressInfo.getRetryCount());
-
-        // 添加质量指标
-        UploadProgressResponse.QualityMetrics qualityMetrics = UploadProgressResponse.QualityMetrics.builder()
-                .avgSpeed(progressInfo.getAverageSpeed())
-                .maxSpeed(progressInfo.getMaxSpeed())
-                .minSpeed(progressInfo.getMinSpeed())
-                .stability(calculateStability(progressInfo))
-                .build();
-        
-        builder.qualityMetrics(qualityMetrics);
-
-        return builder.build();
     }
 
     @Override
     public ChunkProgressInfo getChunkProgress(String uploadId) {
-        // 分片上传已移除，返回null
-        return null;
+        ChunkProgressInfo chunkProgress = chunkProgressMap.get(uploadId);
+        return chunkProgress != null ? chunkProgress : loadReplicatedChunkProgress(uploadId, null);
     }
 
     @Override
@@ -272,6 +308,17 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
             }
         }
 
+        // 清理分片进度记录（分片会话本身由分片存储服务负责清理）
+        for (var iterator = chunkProgressMap.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            if (entry.getValue().getUpdateTime() < expireTime) {
+                iterator.remove();
+                completedChunksMap.remove(entry.getKey());
+                callbackMap.remove(entry.getKey());
+                cleanedCount++;
+            }
+        }
+
         if (cleanedCount > 0) {
             log.info("清理过期进度记录完成 - 清理数量: {}, 剩余进度记录: {}", cleanedCount, progressMap.size());
         }
@@ -289,12 +336,15 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
 
     @Override
     public boolean existsProgress(String taskId) {
-        return progressMap.containsKey(taskId);
+        return progressMap.containsKey(taskId) || loadReplicatedProgress(taskId) != null;
     }
 
     @Override
     public ProgressStatus getProgressStatus(String taskId) {
         ProgressInfo progressInfo = progressMap.get(taskId);
+        if (progressInfo == null) {
+            progressInfo = loadReplicatedProgress(taskId);
+        }
         return progressInfo != null ? progressInfo.getStatus() : null;
     }
 
@@ -302,8 +352,11 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
     public void updateProgressMessage(String taskId, String message) {
         ProgressInfo progressInfo = progressMap.get(taskId);
         if (progressInfo != null) {
-            progressInfo.setMessage(message);
-            progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            synchronized (progressInfo) {
+                progressInfo.setMessage(message);
+                progressInfo.setLastUpdateTime(System.currentTimeMillis());
+            }
+            replicate(progressInfo);
             
             log.debug("更新进度消息 - 任务ID: {}, 消息: {}", taskId, message);
             
@@ -313,7 +366,124 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
     }
 
     // ==================== 私有辅助方法 ====================
+
+    private void replicate(ProgressInfo progressInfo) {
+        replicator.markDirty(UPLOAD_KEY_PREFIX + progressInfo.getTaskId(), progressInfo.snapshot);
+    }
+
+    private void replicateChunk(String uploadId) {
+        replicator.markDirty(CHUNK_KEY_PREFIX + uploadId, () -> chunkFields(uploadId));
+    }
+
+    /**
+     * 读取其他实例复制的单文件进度快照
+     */
+    private ProgressInfo loadReplicatedProgress(String taskId) {
+        Map<String, String> fields = replicator.read(UPLOAD_KEY_PREFIX + taskId);
+        return fields.isEmpty() ? null : ProgressInfo.fromFields(taskId, fields);
+    }
+
+    /**
+     * 生成分片进度快照，包含本实例收到的分片编号
+     */
+    private Map<String, String> chunkFields(String uploadId) {
+        ChunkProgressInfo chunkProgress = chunkProgressMap.get(uploadId);
+        Set<Integer> completedChunks = completedChunksMap.get(uploadId);
+        if (chunkProgress == null || completedChunks == null) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        synchronized (chunkProgress) {
+            fields.put("totalChunks", ProgressReplicator.str(chunkProgress.getTotalChunks()));
+            fields.put("status", ProgressReplicator.str(chunkProgress.getStatus()));
+            fields.put("message", ProgressReplicator.str(chunkProgress.getMessage()));
+            fields.put("startTime", ProgressReplicator.str(chunkProgress.getStartTime()));
+            fields.put("updateTime", ProgressReplicator.str(chunkProgress.getUpdateTime()));
+        }
+        for (Integer chunkNumber : completedChunks) {
+            fields.put(CHUNK_FIELD_PREFIX + chunkNumber, "1");
+        }
+        return fields;
+    }
+
+    /**
+     * 读取复制的分片进度快照，完成数取各实例分片编号的并集
+     *
+     * @param completedChunks 非null时收集已完成的分片编号
+     */
+    private ChunkProgressInfo loadReplicatedChunkProgress(String uploadId, Set<Integer> completedChunks) {
+        Map<String, String> fields = replicator.read(CHUNK_KEY_PREFIX + uploadId);
+        if (fields.isEmpty()) {
+            return null;
+        }
+        ChunkProgressInfo chunkProgress = new ChunkProgressInfo(uploadId,
+                (int) ProgressReplicator.longValue(fields, "totalChunks"));
+        int completed = 0;
+        for (String field : fields.keySet()) {
+            if (field.startsWith(CHUNK_FIELD_PREFIX)) {
+                completed++;
+                if (completedChunks != null) {
+                    completedChunks.add(Integer.valueOf(field.substring(CHUNK_FIELD_PREFIX.length())));
+                }
+            }
+        }
+        chunkProgress.updateProgress(completed);
+        String status = ProgressReplicator.text(fields, "status");
+        if (status != null) {
+            chunkProgress.setStatus(ProgressStatus.valueOf(status));
+        }
+        chunkProgress.setMessage(ProgressReplicator.text(fields, "message"));
+        chunkProgress.setStartTime(ProgressReplicator.longValue(fields, "startTime"));
+        chunkProgress.setUpdateTime(ProgressReplicator.longValue(fields, "updateTime"));
+        return chunkProgress;
+    }
+
+    /**
+     * 本实例没有该分片会话时，接管其他实例复制的进度继续计数
+     */
+    private boolean adoptChunkProgress(String uploadId) {
+        Set<Integer> completedChunks = ConcurrentHashMap.newKeySet();
+        ChunkProgressInfo chunkProgress = loadReplicatedChunkProgress(uploadId, completedChunks);
+        if (chunkProgress == null) {
+            return false;
+        }
+        completedChunksMap.putIfAbsent(uploadId, completedChunks);
+        chunkProgressMap.putIfAbsent(uploadId, chunkProgress);
+        log.debug("接管共享分片进度 - 上传ID: {}, 已完成: {}", uploadId, completedChunks.size());
+        return true;
+    }
     
+    /**
+     * 构建进度响应，调用方持有进度锁
+     */
+    private UploadProgressResponse buildProgressResponse(String taskId, ProgressInfo progressInfo) {
+        UploadProgressResponse.UploadProgressResponseBuilder builder = UploadProgressResponse.builder()
+                .uploadId(taskId)
+                .fileName(progressInfo.getFileName())
+                .status(progressInfo.getStatus().name())
+                .progress(progressInfo.getProgress())
+                .uploadedSize(progressInfo.getUploadedSize())
+                .totalSize(progressInfo.getTotalSize())
+                .uploadSpeed(progressInfo.getUploadSpeed())
+                .estimatedTimeRemaining(calculateEstimatedTime(progressInfo))
+                .startTime(progressInfo.getStartTimeAsLocalDateTime())
+                .lastUpdateTime(progressInfo.getLastUpdateTimeAsLocalDateTime())
+                .errorMessage(progressInfo.getErrorMessage())
+                .retryCount(progressInfo.getRetryCount());
+
+        // 添加质量指标
+        UploadProgressResponse.QualityMetrics qualityMetrics = UploadProgressResponse.QualityMetrics.builder()
+                .avgSpeed(progressInfo.getAverageSpeed())
+                .maxSpeed(progressInfo.getMaxSpeed())
+                .minSpeed(progressInfo.getMinSpeed())
+                .stability(calculateStability(progressInfo))
+                .build();
+        
+        builder.qualityMetrics(qualityMetrics);
+
+        return builder.build();
+    }
+
     /**
      * 触发进度回调
      */
@@ -401,6 +571,11 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
         private int speedMeasurements;
         private List<Long> speedHistory;
 
+        /**
+         * 复制快照提供者，复用同一实例使重复登记可合并
+         */
+        private final Supplier<Map<String, String>> snapshot = this::toFields;
+
         public ProgressInfo(String taskId, long totalSize) {
             this.taskId = taskId;
             this.totalSize = totalSize;
@@ -446,6 +621,63 @@ public class ProgressTrackingServiceImpl implements ProgressTrackingService {
         public long getAverageSpeed() {
             return speedMeasurements > 0 ? totalSpeedSum / speedMeasurements : 0;
         }
+
+        /**
+         * 生成复制快照，与更新使用同一把锁
+         */
+        public synchronized Map<String, String> toFields() {
+            Map<String, String> fields = new HashMap<>();
+            fields.put("fileName", ProgressReplicator.str(fileName));
+            fields.put("totalSize", ProgressReplicator.str(totalSize));
+            fields.put("uploadedSize", ProgressReplicator.str(uploadedSize));
+            fields.put("progress", ProgressReplicator.str(progress));
+            fields.put("status", ProgressReplicator.str(status));
+            fields.put("message", ProgressReplicator.str(message));
+            fields.put("errorMessage", ProgressReplicator.str(errorMessage));
+            fields.put("startTime", ProgressReplicator.str(startTime));
+            fields.put("lastUpdateTime", ProgressReplicator.str(lastUpdateTime));
+            fields.put("retryCount", ProgressReplicator.str(retryCount));
+            fields.put("uploadSpeed", ProgressReplicator.str(uploadSpeed));
+            fields.put("maxSpeed", ProgressReplicator.str(maxSpeed));
+            fields.put("minSpeed", ProgressReplicator.str(minSpeed));
+            fields.put("totalSpeedSum", ProgressReplicator.str(totalSpeedSum));
+            fields.put("speedMeasurements", ProgressReplicator.str(speedMeasurements));
+            StringJoiner history = new StringJoiner(",");
+            speedHistory.forEach(speed -> history.add(speed.toString()));
+            fields.put("speedHistory", history.toString());
+            return fields;
+        }
+
+        /**
+         * 从复制快照恢复
+         */
+        public static ProgressInfo fromFields(String taskId, Map<String, String> fields) {
+            ProgressInfo info = new ProgressInfo(taskId, ProgressReplicator.longValue(fields, "totalSize"));
+            info.fileName = ProgressReplicator.text(fields, "fileName");
+            info.uploadedSize = ProgressReplicator.longValue(fields, "uploadedSize");
+            String progress = ProgressReplicator.text(fields, "progress");
+            info.progress = progress != null ? Double.parseDouble(progress) : 0.0;
+            String status = ProgressReplicator.text(fields, "status");
+            info.status = status != null ? ProgressStatus.valueOf(status) : ProgressStatus.IN_PROGRESS;
+            info.message = ProgressReplicator.text(fields, "message");
+            info.errorMessage = ProgressReplicator.text(fields, "errorMessage");
+            info.startTime = ProgressReplicator.longValue(fields, "startTime");
+            info.lastUpdateTime = ProgressReplicator.longValue(fields, "lastUpdateTime");
+            info.retryCount = (int) ProgressReplicator.longValue(fields, "retryCount");
+            info.uploadSpeed = ProgressReplicator.longValue(fields, "uploadSpeed");
+            info.maxSpeed = ProgressReplicator.longValue(fields, "maxSpeed");
+            String minSpeed = ProgressReplicator.text(fields, "minSpeed");
+            info.minSpeed = minSpeed != null ? Long.parseLong(minSpeed) : Long.MAX_VALUE;
+            info.totalSpeedSum = ProgressReplicator.longValue(fields, "totalSpeedSum");
+            info.speedMeasurements = (int) ProgressReplicator.longValue(fields, "speedMeasurements");
+            String history = ProgressReplicator.text(fields, "speedHistory");
+            if (history != null) {
+                for (String speed : history.split(",")) {
+                    info.speedHistory.add(Long.valueOf(speed));
+                }
+            }
+            return info;
+        }
         
         public LocalDateTime getStartTimeAsLocalDateTime() {
             return LocalDateTime.ofEpochSecond(startTime / 1000, (int) (startTime % 1000) * 1000000, 
@@ -0,0 +1,149 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import org.nan.cloud.file.infrastructure.analysis.ImageHeaderReader;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 缩略图降采样解码
+ *
+ * 直接按接近目标尺寸的分辨率解码图片，而不是先解码全尺寸再缩放：
+ * 1. 只解码所有目标尺寸居中裁剪区域的并集（区域解码）
+ * 2. 按最小缩放比的一半做源降采样，保留2倍余量供后续高质量缩放，避免隔点采样的锯齿
+ * 3. 一次解码供所有尺寸使用
+ * 4. 按EXIF方向旋转，与Thumbnailator直接读文件时的行为一致
+ *
+ * 5000万像素的图片生成600px以内的缩略图时，解码栅格约为原图的1/16。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public final class SubsampledImageDecoder {
+
+    /**
+     * 解码结果相对目标尺寸的最小倍数
+     */
+    private static final int OVERSAMPLE = 2;
+
+    private SubsampledImageDecoder() {
+    }
+
+    /**
+     * 按目标尺寸降采样解码
+     *
+     * @param file 图片文件
+     * @param targetSizes 目标尺寸列表，每项为{宽, 高}，生成方式为保持比例居中裁剪
+     * @return 已按EXIF方向旋转的图片；没有可用的ImageIO解码器时返回null
+     */
+    public static BufferedImage decode(File file, List<int[]> targetSizes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+
+                String format = reader.getFormatName().toLowerCase();
+                int orientation = format.contains("jp") ? readExifOrientation(file) : 1;
+                boolean swapped = orientation >= 5 && orientation <= 8;
+
+                // 在旋转后的坐标系中计算各尺寸的居中裁剪区域
+                int orientedWidth = swapped ? sourceHeight : sourceWidth;
+                int orientedHeight = swapped ? sourceWidth : sourceHeight;
+                double unionWidth = 0;
+                double unionHeight = 0;
+                double minRatio = Double.MAX_VALUE;
+                for (int[] size : targetSizes) {
+                    double cropWidth = Math.min(orientedWidth, (double) orientedHeight * size[0] / size[1]);
+                    double cropHeight = Math.min(orientedHeight, (double) orientedWidth * size[1] / size[0]);
+                    unionWidth = Math.max(unionWidth, cropWidth);
+                    unionHeight = Math.max(unionHeight, cropHeight);
+                    minRatio = Math.min(minRatio, Math.min(cropWidth / size[0], cropHeight / size[1]));
+                }
+
+                // 区域居中，旋转和镜像不改变其在原图中的位置
+                int regionWidth = (int) Math.ceil(swapped ? unionHeight : unionWidth);
+                int regionHeight = (int) Math.ceil(swapped ? unionWidth : unionHeight);
+                regionWidth = Math.min(sourceWidth, Math.max(1, regionWidth));
+                regionHeight = Math.min(sourceHeight, Math.max(1, regionHeight));
+                int subsampling = Math.max(1, (int) Math.floor(minRatio / OVERSAMPLE));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(
+                        (sourceWidth - regionWidth) / 2, (sourceHeight - regionHeight) / 2,
+                        regionWidth, regionHeight));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                BufferedImage image = reader.read(0, param);
+                return applyOrientation(image, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 按EXIF方向值（1-8）变换图片
+     */
+    static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean swapped = orientation >= 5;
+
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.scale(-1, 1); transform.translate(-w, 0); }
+            case 3 -> { transform.translate(w, h); transform.rotate(Math.PI); }
+            case 4 -> { transform.scale(1, -1); transform.translate(0, -h); }
+            case 5 -> { transform.rotate(-Math.PI / 2); transform.scale(-1, 1); }
+            case 6 -> { transform.translate(h, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.scale(-1, 1); transform.translate(-h, w); transform.rotate(3 * Math.PI / 2); }
+            case 8 -> { transform.translate(0, w); transform.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+
+        int type = image.getType() != BufferedImage.TYPE_CUSTOM ? image.getType()
+                : image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage result = new BufferedImage(swapped ? h : w, swapped ? w : h, type);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * 从JPEG文件头的APP1段读取EXIF方向，读取失败或不存在时返回1
+     */
+    static int readExifOrientation(File file) {
+        try {
+            ImageHeaderReader.ImageHeader header = ImageHeaderReader.read(file);
+            return header != null ? header.getOrientation() : 1;
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+}
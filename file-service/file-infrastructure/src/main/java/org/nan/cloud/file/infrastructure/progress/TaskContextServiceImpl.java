@@ -1,21 +1,26 @@
 package org.nan.cloud.file.infrastructure.progress;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.application.domain.TaskContext;
 import org.nan.cloud.file.application.service.TaskContextService;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
- * 任务上下文服务实现 - 内存缓存版本
+ * 任务上下文服务实现 - 本地存储 + Redis复制
  * 
- * 开发环境实现，使用ConcurrentHashMap作为内存缓存。
- * 生产环境建议使用Redis实现以支持分布式场景。
+ * 上下文在本地ConcurrentHashMap中读写，变化由{@link ProgressReplicator}异步批量复制到Redis哈希。
+ * 本实例没有的任务（如上传在其他实例完成、转码消息由本实例消费）从Redis读取；
+ * 需要在本实例更新时先接管到本地，多个实例更新同一任务以最后复制的快照为准。
  * 
  * 特性：
  * 1. 线程安全的任务上下文存储
@@ -28,8 +33,13 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TaskContextServiceImpl implements TaskContextService {
 
+    private static final String TASK_KEY_PREFIX = "file:progress:task:";
+
+    private final ProgressReplicator replicator;
+
     /**
      * 任务上下文存储 - 线程安全
      */
@@ -49,14 +59,15 @@ public class TaskContextServiceImpl implements TaskContextService {
      */
     private static final int DEFAULT_EXPIRE_MINUTES = 120;
 
-    public TaskContextServiceImpl() {
+    @PostConstruct
+    public void initialize() {
         // 启动定时清理任务，每30分钟执行一次
         cleanupExecutor.scheduleWithFixedDelay(
             () -> cleanupExpiredTasks(DEFAULT_EXPIRE_MINUTES),
             30, 30, TimeUnit.MINUTES
         );
         
-        log.info("TaskContextService initialized with memory cache, auto-cleanup every 30 minutes");
+        log.info("TaskContextService initialized with local store and Redis replication, auto-cleanup every 30 minutes");
     }
 
     @Override
@@ -68,6 +79,7 @@ public class TaskContextServiceImpl implements TaskContextService {
 
         TaskContext context = TaskContext.create(taskId, fileId, uid, oid, originalFilename, fileSize);
         taskContextMap.put(taskId, context);
+        replicate(context);
         
         log.debug("创建任务上下文 - 任务ID: {}, 用户ID: {}, 组织ID: {}, 文件: {}", 
                 taskId, uid, oid, originalFilename);
@@ -80,6 +92,9 @@ public class TaskContextServiceImpl implements TaskContextService {
         }
         
         TaskContext context = taskContextMap.get(taskId);
+        if (context == null) {
+            context = loadReplicated(taskId);
+        }
         if (context != null) {
             log.debug("获取任务上下文 - 任务ID: {}, 状态: {}, 进度: {}%", 
                     taskId, context.getStatus(), context.getProgress());
@@ -90,9 +105,12 @@ public class TaskContextServiceImpl implements TaskContextService {
 
     @Override
     public void updateTaskStatus(String taskId, TaskContext.TaskStatus status) {
-        TaskContext context = taskContextMap.get(taskId);
+        TaskContext context = localOrAdopt(taskId);
         if (context != null) {
-            context.updateStatus(status);
+            synchronized (context) {
+                context.updateStatus(status);
+            }
+            replicate(context);
             log.debug("更新任务状态 - 任务ID: {}, 新状态: {}", taskId, status);
         } else {
             log.warn("任务上下文不存在，无法更新状态 - 任务ID: {}", taskId);
@@ -101,9 +119,12 @@ public class TaskContextServiceImpl implements TaskContextService {
 
     @Override
     public void updateTaskProgress(String taskId, Integer progress) {
-        TaskContext context = taskContextMap.get(taskId);
+        TaskContext context = localOrAdopt(taskId);
         if (context != null) {
-            context.updateProgress(progress);
+            synchronized (context) {
+                context.updateProgress(progress);
+            }
+            replicate(context);
             log.debug("更新任务进度 - 任务ID: {}, 进度: {}%", taskId, progress);
         } else {
             log.warn("任务上下文不存在，无法更新进度 - 任务ID: {}", taskId);
@@ -112,10 +133,13 @@ public class TaskContextServiceImpl implements TaskContextService {
 
     @Override
     public void setTaskMaterialId(String taskId, Long materialId) {
-        TaskContext context = taskContextMap.get(taskId);
+        TaskContext context = localOrAdopt(taskId);
         if (context != null) {
-            context.setMaterialId(materialId);
-            context.setUpdateTime(LocalDateTime.now());
+            synchronized (context) {
+                context.setMaterialId(materialId);
+                context.setUpdateTime(LocalDateTime.now());
+            }
+            replicate(context);
             log.debug("设置任务素材ID - 任务ID: {}, 素材ID: {}", taskId, materialId);
         } else {
             log.warn("任务上下文不存在，无法设置素材ID - 任务ID: {}", taskId);
@@ -124,13 +148,14 @@ public class TaskContextServiceImpl implements TaskContextService {
 
     @Override
     public boolean existsTask(String taskId) {
-        return taskId != null && taskContextMap.containsKey(taskId);
+        return taskId != null && (taskContextMap.containsKey(taskId) || loadReplicated(taskId) != null);
     }
 
     @Override
     public void clearTaskContext(String taskId) {
         if (taskId != null) {
             TaskContext removed = taskContextMap.remove(taskId);
+            replicator.markRemoved(TASK_KEY_PREFIX + taskId);
             if (removed != null) {
                 log.debug("清理任务上下文 - 任务ID: {}, 最终状态: {}", taskId, removed.getStatus());
             }
@@ -176,6 +201,73 @@ public class TaskContextServiceImpl implements TaskContextService {
         return context != null ? context.getOid() : null;
     }
 
+    // ==================== 私有辅助方法 ====================
+
+    private void replicate(TaskContext context) {
+        replicator.markDirty(TASK_KEY_PREFIX + context.getTaskId(), () -> toFields(context));
+    }
+
+    /**
+     * 本地没有时接管其他实例复制的上下文，后续更新在本实例进行
+     */
+    private TaskContext localOrAdopt(String taskId) {
+        TaskContext context = taskContextMap.get(taskId);
+        if (context != null || taskId == null) {
+            return context;
+        }
+        TaskContext replicated = loadReplicated(taskId);
+        if (replicated == null) {
+            return null;
+        }
+        TaskContext existing = taskContextMap.putIfAbsent(taskId, replicated);
+        log.debug("接管共享任务上下文 - 任务ID: {}, 状态: {}", taskId, replicated.getStatus());
+        return existing != null ? existing : replicated;
+    }
+
+    private TaskContext loadReplicated(String taskId) {
+        Map<String, String> fields = replicator.read(TASK_KEY_PREFIX + taskId);
+        return fields.isEmpty() ? null : fromFields(taskId, fields);
+    }
+
+    private static Map<String, String> toFields(TaskContext context) {
+        Map<String, String> fields = new HashMap<>();
+        synchronized (context) {
+            fields.put("fileId", ProgressReplicator.str(context.getFileId()));
+            fields.put("uid", ProgressReplicator.str(context.getUid()));
+            fields.put("oid", ProgressReplicator.str(context.getOid()));
+            fields.put("originalFilename", ProgressReplicator.str(context.getOriginalFilename()));
+            fields.put("fileSize", ProgressReplicator.str(context.getFileSize()));
+            fields.put("status", ProgressReplicator.str(context.getStatus()));
+            fields.put("progress", ProgressReplicator.str(context.getProgress()));
+            fields.put("materialId", ProgressReplicator.str(context.getMaterialId()));
+            fields.put("createTime", ProgressReplicator.str(context.getCreateTime()));
+            fields.put("updateTime", ProgressReplicator.str(context.getUpdateTime()));
+            fields.put("errorMessage", ProgressReplicator.str(context.getErrorMessage()));
+        }
+        return fields;
+    }
+
+    private static TaskContext fromFields(String taskId, Map<String, String> fields) {
+        String status = ProgressReplicator.text(fields, "status");
+        String progress = ProgressReplicator.text(fields, "progress");
+        String createTime = ProgressReplicator.text(fields, "createTime");
+        String updateTime = ProgressReplicator.text(fields, "updateTime");
+        return TaskContext.builder()
+                .taskId(taskId)
+                .fileId(ProgressReplicator.text(fields, "fileId"))
+                .uid(ProgressReplicator.longObject(fields, "uid"))
+                .oid(ProgressReplicator.longObject(fields, "oid"))
+                .originalFilename(ProgressReplicator.text(fields, "originalFilename"))
+                .fileSize(ProgressReplicator.longObject(fields, "fileSize"))
+                .status(status != null ? TaskContext.TaskStatus.valueOf(status) : TaskContext.TaskStatus.CREATED)
+                .progress(progress != null ? Integer.valueOf(progress) : 0)
+                .materialId(ProgressReplicator.longObject(fields, "materialId"))
+                .createTime(createTime != null ? LocalDateTime.parse(createTime) : LocalDateTime.now())
+                .updateTime(updateTime != null ? LocalDateTime.parse(updateTime) : LocalDateTime.now())
+                .errorMessage(ProgressReplicator.text(fields, "errorMessage"))
+                .build();
+    }
+
     /**
      * 获取当前任务数量（用于监控）
      */
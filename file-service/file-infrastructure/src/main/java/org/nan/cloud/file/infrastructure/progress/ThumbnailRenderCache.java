@@ -0,0 +1,270 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 按需生成缩略图的两级缓存
+ *
+ * 1. 内存层：Caffeine按图片字节数加权，W-TinyLFU淘汰，总字节数有上限
+ * 2. 磁盘层（可选）：生成时直接流式写入磁盘缓存文件，不在内存中拼接完整字节数组；
+ *    按LRU淘汰，总字节数有上限，重启后从目录恢复索引
+ *
+ * 内存层淘汰的条目仍保留在磁盘层，再次命中时重新提升到内存。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ThumbnailRenderCache {
+
+    private static final String CACHE_FILE_SUFFIX = ".thumb";
+    private static final String DEFAULT_DISK_DIR = ".render-cache";
+
+    private final FileStorageProperties storageProperties;
+
+    private Cache<String, byte[]> memoryCache;
+    private Path diskDir;
+
+    /**
+     * 磁盘层索引：缓存键摘要 -> 文件大小，按访问顺序排列，由自身锁保护
+     */
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes = 0;
+
+    private final AtomicLong memoryHits = new AtomicLong(0);
+    private final AtomicLong diskHits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * 缩略图输出，直接写入目标流
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.Thumbnail.Cache config = getConfig();
+        memoryCache = Caffeine.newBuilder()
+                .maximumWeight(config.getMemoryMaxBytes())
+                .weigher((String key, byte[] value) -> value.length)
+                .recordStats()
+                .build();
+
+        if (config.isDiskEnabled()) {
+            diskDir = StringUtils.hasText(config.getDiskPath())
+                    ? Paths.get(config.getDiskPath())
+                    : Paths.get(storageProperties.getStorage().getLocal().getThumbnailBasePath(), DEFAULT_DISK_DIR);
+            try {
+                Files.createDirectories(diskDir);
+                loadDiskIndex();
+            } catch (IOException e) {
+                log.warn("缩略图磁盘缓存不可用，仅使用内存缓存 - 目录: {}, 错误: {}", diskDir, e.getMessage());
+                diskDir = null;
+            }
+        }
+
+        log.info("缩略图缓存初始化完成 - 内存上限: {}MB, 磁盘缓存: {}, 磁盘上限: {}MB",
+                config.getMemoryMaxBytes() / 1024 / 1024, diskDir, config.getDiskMaxBytes() / 1024 / 1024);
+    }
+
+    /**
+     * 获取缓存的缩略图，未命中时生成并缓存
+     *
+     * @param key 缓存键，需包含源文件版本和全部生成参数
+     * @param renderer 缩略图生成
+     * @return 缩略图数据流
+     */
+    public InputStream getOrRender(String key, Renderer renderer) throws IOException {
+        byte[] cached = memoryCache.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return new ByteArrayInputStream(cached);
+        }
+
+        String digest = digest(key);
+        if (diskDir != null) {
+            InputStream fromDisk = readFromDisk(key, digest);
+            if (fromDisk != null) {
+                diskHits.incrementAndGet();
+                return fromDisk;
+            }
+        }
+
+        misses.incrementAndGet();
+        return diskDir != null ? renderToDisk(key, digest, renderer) : renderToMemory(key, renderer);
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("memoryEntries", memoryCache.estimatedSize());
+        stats.put("memoryEvictions", memoryCache.stats().evictionCount());
+        synchronized (diskIndex) {
+            stats.put("diskEntries", diskIndex.size());
+            stats.put("diskBytes", diskBytes);
+        }
+        return stats;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private InputStream renderToMemory(String key, Renderer renderer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        renderer.render(out);
+        byte[] data = out.toByteArray();
+        cacheInMemory(key, data);
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * 直接写入磁盘临时文件，完成后原子替换为缓存文件
+     */
+    private InputStream renderToDisk(String key, String digest, Renderer renderer) throws IOException {
+        Path target = diskDir.resolve(digest + CACHE_FILE_SUFFIX);
+        Path temp = Files.createTempFile(diskDir, digest, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                renderer.render(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        long size = Files.size(target);
+        addToDiskIndex(digest, size);
+        return openCached(key, target, size);
+    }
+
+    private InputStream readFromDisk(String key, String digest) throws IOException {
+        Long size;
+        synchronized (diskIndex) {
+            // 访问顺序LinkedHashMap的get会刷新LRU位置
+            size = diskIndex.get(digest);
+        }
+        if (size == null) {
+            return null;
+        }
+        Path path = diskDir.resolve(digest + CACHE_FILE_SUFFIX);
+        try {
+            return openCached(key, path, size);
+        } catch (NoSuchFileException e) {
+            removeFromDiskIndex(digest);
+            return null;
+        }
+    }
+
+    /**
+     * 小于单条上限的缩略图提升到内存层，其余直接以文件流返回
+     */
+    private InputStream openCached(String key, Path path, long size) throws IOException {
+        if (size <= getConfig().getMaxEntryBytes()) {
+            byte[] data = Files.readAllBytes(path);
+            cacheInMemory(key, data);
+            return new ByteArrayInputStream(data);
+        }
+        return new BufferedInputStream(Files.newInputStream(path));
+    }
+
+    private void cacheInMemory(String key, byte[] data) {
+        if (data.length <= getConfig().getMaxEntryBytes()) {
+            memoryCache.put(key, data);
+        }
+    }
+
+    private void addToDiskIndex(String digest, long size) {
+        List<String> evicted = new ArrayList<>();
+        long maxBytes = getConfig().getDiskMaxBytes();
+        synchronized (diskIndex) {
+            Long previous = diskIndex.put(digest, size);
+            diskBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> iterator = diskIndex.entrySet().iterator();
+            while (diskBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(digest)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String key : evicted) {
+            try {
+                Files.deleteIfExists(diskDir.resolve(key + CACHE_FILE_SUFFIX));
+            } catch (IOException e) {
+                log.debug("删除缩略图缓存文件失败 - {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private void removeFromDiskIndex(String digest) {
+        synchronized (diskIndex) {
+            Long size = diskIndex.remove(digest);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * 启动时按最后修改时间恢复磁盘索引，并清理残留的临时文件
+     */
+    private void loadDiskIndex() throws IOException {
+        List<DiskEntry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(diskDir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(CACHE_FILE_SUFFIX)) {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new DiskEntry(name.substring(0, name.length() - CACHE_FILE_SUFFIX.length()),
+                            attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(DiskEntry::lastModified));
+        for (DiskEntry entry : entries) {
+            addToDiskIndex(entry.digest(), entry.size());
+        }
+        log.info("恢复缩略图磁盘缓存 - 文件数: {}, 大小: {}KB", diskIndex.size(), diskBytes / 1024);
+    }
+
+    private String digest(String key) {
+        return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private FileStorageProperties.Thumbnail.Cache getConfig() {
+        return storageProperties.getThumbnail().getCache();
+    }
+
+    private record DiskEntry(String digest, long size, long lastModified) {
+    }
+}
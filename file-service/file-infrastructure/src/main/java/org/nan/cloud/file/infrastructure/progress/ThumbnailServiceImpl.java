@@ -1,5 +1,7 @@
 package org.nan.cloud.file.infrastructure.progress;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
 import net.coobird.thumbnailator.geometry.Positions;
@@ -23,8 +25,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -32,22 +33,18 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.imageio.ImageIO;
 
 // JavaCV相关导入 - 用于视频处理
-import org.bytedeco.javacv.FFmpegFrameGrabber;
-import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.Java2DFrameConverter;
-import org.bytedeco.javacv.FrameGrabber;
 import org.bytedeco.ffmpeg.global.avutil;
 
 /**
  * 缩略图生成服务实现
  * 
  * 基于Thumbnailator库实现高质量图片缩略图生成。
+ * 图片先按目标尺寸做区域+降采样解码（SubsampledImageDecoder），所有尺寸共用一次解码结果。
  * 支持多种图片格式和尺寸配置，提供异步批量处理能力。
  * 
  * 支持的图片格式：JPG, JPEG, PNG, GIF, BMP, WEBP
@@ -72,15 +69,21 @@ public class ThumbnailServiceImpl implements ThumbnailService {
     private final FileStorageProperties storageProperties;
     private final CacheService cacheService;
     private final FileInfoRepository fileInfoRepository;
+    private final VideoFrameGrabberPool frameGrabberPool;
+    private final ThumbnailRenderCache renderCache;
     
     public ThumbnailServiceImpl(StorageService storageService,
                               FileStorageProperties storageProperties,
                               CacheService cacheService,
-                              FileInfoRepository fileInfoRepository) {
+                              FileInfoRepository fileInfoRepository,
+                              VideoFrameGrabberPool frameGrabberPool,
+                              ThumbnailRenderCache renderCache) {
         this.storageService = storageService;
         this.storageProperties = storageProperties;
         this.cacheService = cacheService;
         this.fileInfoRepository = fileInfoRepository;
+        this.frameGrabberPool = frameGrabberPool;
+        this.renderCache = renderCache;
     }
     
     /**
@@ -139,9 +142,9 @@ public class ThumbnailServiceImpl implements ThumbnailService {
     
     /**
      * 本地缩略图缓存
-     * 用于存储已生成的缩略图信息，避免重复生成
+     * 用于存储已生成的缩略图信息，避免重复生成；按缩略图条数加权，总量有上限
      */
-    private final ConcurrentHashMap<String, List<ThumbnailInfo>> thumbnailCache = new ConcurrentHashMap<>();
+    private Cache<String, List<ThumbnailInfo>> thumbnailCache;
 
     @PostConstruct
     public void initialize() {
@@ -162,6 +165,12 @@ public class ThumbnailServiceImpl implements ThumbnailService {
         // 解析缩略图尺寸配置
         parseThumbnailSizes();
         
+        // 缩略图信息缓存，按每个文件的缩略图数量加权
+        this.thumbnailCache = Caffeine.newBuilder()
+                .maximumWeight(thumbnailConfig.getCache().getMetadataMaxEntries())
+                .weigher((String fileId, List<ThumbnailInfo> thumbnails) -> Math.max(1, thumbnails.size()))
+                .build();
+        
         // 初始化JavaCV日志级别（减少日志输出）
         avutil.av_log_set_level(avutil.AV_LOG_ERROR);
         
@@ -203,13 +212,18 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                 return ThumbnailResult.failure("原始文件不存在: " + originalFilePath);
             }
             
+            // 按最大尺寸降采样解码一次，所有尺寸共用
+            BufferedImage decoded = decodeForSizes(originalFile, sizeConfigs.stream()
+                    .map(c -> new int[]{c.width, c.height})
+                    .collect(Collectors.toList()));
+
             // 生成所有配置的尺寸
             List<ThumbnailInfo> thumbnails = new ArrayList<>();
             
             for (ThumbnailSizeConfig sizeConfig : sizeConfigs) {
                 try {
                     ThumbnailInfo thumbnail = generateSingleThumbnail(
-                        fileInfo, originalFile, sizeConfig.width, sizeConfig.height);
+                        fileInfo, originalFile, decoded, sizeConfig.width, sizeConfig.height);
 
                     thumbnails.add(thumbnail);
                     log.debug("生成缩略图成功 - {}x{}, 文件: {}",
@@ -246,6 +260,11 @@ public class ThumbnailServiceImpl implements ThumbnailService {
 
     @Override
     public ThumbnailResult generateVideoThumbnail(FileInfo fileInfo, double timeOffset) {
+        return generateVideoThumbnails(fileInfo, List.of(timeOffset));
+    }
+
+    @Override
+    public ThumbnailResult generateVideoThumbnails(FileInfo fileInfo, List<Double> timeOffsets) {
         if (!thumbnailEnabled || !videoThumbnailEnabled) {
             return ThumbnailResult.failure("视频缩略图生成功能已禁用");
         }
@@ -254,14 +273,17 @@ public class ThumbnailServiceImpl implements ThumbnailService {
             return ThumbnailResult.failure("不支持的视频文件类型: " + fileInfo.getMimeType());
         }
         
+        if (timeOffsets == null || timeOffsets.isEmpty()) {
+            return ThumbnailResult.failure("时间偏移不能为空");
+        }
+        
         long startTime = System.currentTimeMillis();
-        FFmpegFrameGrabber frameGrabber = null;
         
         try {
-            log.debug("开始生成视频缩略图 - 文件ID: {}, 时间偏移: {}s", fileInfo.getFileId(), timeOffset);
+            log.debug("开始生成视频缩略图 - 文件ID: {}, 时间偏移: {}", fileInfo.getFileId(), timeOffsets);
             
             // 检查缓存
-            List<ThumbnailInfo> cachedThumbnails = thumbnailCache.get(fileInfo.getFileId());
+            List<ThumbnailInfo> cachedThumbnails = thumbnailCache.getIfPresent(fileInfo.getFileId());
             if (cachedThumbnails != null && !cachedThumbnails.isEmpty()) {
                 log.debug("使用缓存的视频缩略图 - 文件ID: {}", fileInfo.getFileId());
                 return ThumbnailResult.success(cachedThumbnails);
@@ -275,64 +297,29 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                 return ThumbnailResult.failure("原始视频文件不存在: " + originalFilePath);
             }
             
-            // 初始化FFmpeg帧抓取器
-            frameGrabber = new FFmpegFrameGrabber(originalFilePath);
-            
-            // 配置GPU加速（如果启用）
-            if (gpuAcceleration) {
-                // 尝试使用NVIDIA NVDEC硬件解码
-                frameGrabber.setVideoOption("hwaccel", "nvdec");
-                frameGrabber.setVideoOption("hwaccel_device", "0");
-                log.debug("启用GPU硬件加速 - NVIDIA NVDEC");
-            }
-            
-            frameGrabber.start();
-            
-            // 获取视频信息
-            double duration = frameGrabber.getLengthInTime() / 1000000.0; // 转换为秒
-            int totalFrames = frameGrabber.getLengthInFrames();
-            double fps = frameGrabber.getFrameRate();
-            
-            log.debug("视频信息 - 时长: {}s, 总帧数: {}, 帧率: {}", duration, totalFrames, fps);
-            
-            // 调整时间偏移量（确保在视频范围内）
-            double actualTimeOffset = Math.max(0, Math.min(timeOffset, duration - 1));
-            if (actualTimeOffset != timeOffset) {
-                log.debug("调整时间偏移量 - 原始: {}s, 实际: {}s", timeOffset, actualTimeOffset);
-            }
-            
-            // 跳转到指定时间点
-            long timestampMicros = (long) (actualTimeOffset * 1000000);
-            frameGrabber.setTimestamp(timestampMicros);
-            
-            // 抓取帧
-            Frame frame = frameGrabber.grabImage();
-            if (frame == null) {
-                return ThumbnailResult.failure("无法从视频中抓取帧");
-            }
-            
-            // 转换为BufferedImage
-            Java2DFrameConverter converter = new Java2DFrameConverter();
-            BufferedImage image = converter.convert(frame);
-            
-            if (image == null) {
-                return ThumbnailResult.failure("帧转换为图片失败");
-            }
+            // 一次解码会话抓取所有时间点的关键帧
+            List<VideoFrameGrabberPool.GrabbedFrame> frames = frameGrabberPool.grabFrames(originalFile, timeOffsets);
             
-            // 生成所有配置的尺寸
+            // 每个时间点生成所有配置的尺寸
             List<ThumbnailInfo> thumbnails = new ArrayList<>();
             
-            for (ThumbnailSizeConfig sizeConfig : sizeConfigs) {
-                try {
-                    ThumbnailInfo thumbnail = generateVideoThumbnailFromImage(
-                        fileInfo, image, sizeConfig.width, sizeConfig.height, actualTimeOffset);
+            for (VideoFrameGrabberPool.GrabbedFrame frame : frames) {
+                if (frame.image() == null) {
+                    log.warn("无法从视频中抓取帧 - 文件ID: {}, 时间偏移: {}s", fileInfo.getFileId(), frame.timeOffset());
+                    continue;
+                }
+                for (ThumbnailSizeConfig sizeConfig : sizeConfigs) {
+                    try {
+                        ThumbnailInfo thumbnail = generateVideoThumbnailFromImage(
+                            fileInfo, frame.image(), sizeConfig.width, sizeConfig.height, frame.timeOffset());
 
-                    thumbnails.add(thumbnail);
-                    log.debug("生成视频缩略图成功 - {}x{}, 文件: {}",
-                            sizeConfig.width, sizeConfig.height, thumbnail.getThumbnailPath());
-                } catch (Exception e) {
-                    log.warn("视频缩略图 - 生成{}x{}视频缩略图失败 - 文件ID: {}, 错误: {}",
-                            sizeConfig.width, sizeConfig.height, fileInfo.getFileId(), e.getMessage());
+                        thumbnails.add(thumbnail);
+                        log.debug("生成视频缩略图成功 - {}x{}, 文件: {}",
+                                sizeConfig.width, sizeConfig.height, thumbnail.getThumbnailPath());
+                    } catch (Exception e) {
+                        log.warn("视频缩略图 - 生成{}x{}视频缩略图失败 - 文件ID: {}, 错误: {}",
+                                sizeConfig.width, sizeConfig.height, fileInfo.getFileId(), e.getMessage());
+                    }
                 }
             }
             
@@ -347,8 +334,8 @@ public class ThumbnailServiceImpl implements ThumbnailService {
             ThumbnailResult result = ThumbnailResult.success(thumbnails);
             result.setProcessingTime(processingTime);
             
-            log.info("视频缩略图生成完成 - 文件ID: {}, 生成数量: {}, 时间偏移: {}s, 耗时: {}ms", 
-                    fileInfo.getFileId(), thumbnails.size(), actualTimeOffset, processingTime);
+            log.info("视频缩略图生成完成 - 文件ID: {}, 生成数量: {}, 时间点: {}, 耗时: {}ms", 
+                    fileInfo.getFileId(), thumbnails.size(), frames.size(), processingTime);
             
             return result;
             
@@ -357,16 +344,6 @@ public class ThumbnailServiceImpl implements ThumbnailService {
             log.error("生成视频缩略图失败 - 文件ID: {}, 耗时: {}ms", 
                     fileInfo.getFileId(), processingTime, e);
             return ThumbnailResult.failure("视频缩略图生成异常: " + e.getMessage());
-        } finally {
-            // 确保释放资源
-            if (frameGrabber != null) {
-                try {
-                    frameGrabber.stop();
-                    frameGrabber.release();
-                } catch (Exception e) {
-                    log.warn("释放FFmpeg资源失败", e);
-                }
-            }
         }
     }
 
@@ -488,7 +465,8 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                 return ThumbnailResult.failure("原始文件不存在: " + originalFilePath);
             }
             
-            ThumbnailInfo thumbnail = generateSingleThumbnail(fileInfo, originalFile, width, height);
+            BufferedImage decoded = decodeForSizes(originalFile, List.of(new int[]{width, height}));
+            ThumbnailInfo thumbnail = generateSingleThumbnail(fileInfo, originalFile, decoded, width, height);
 
             long processingTime = System.currentTimeMillis() - startTime;
             ThumbnailResult result = ThumbnailResult.success(List.of(thumbnail));
@@ -510,7 +488,7 @@ public class ThumbnailServiceImpl implements ThumbnailService {
             log.debug("删除缩略图 - 文件ID: {}", fileId);
             
             // 从缓存中移除
-            List<ThumbnailInfo> thumbnails = thumbnailCache.remove(fileId);
+            List<ThumbnailInfo> thumbnails = thumbnailCache.asMap().remove(fileId);
             
             if (thumbnails == null || thumbnails.isEmpty()) {
                 log.debug("没有找到缓存的缩略图 - 文件ID: {}", fileId);
@@ -547,13 +525,13 @@ public class ThumbnailServiceImpl implements ThumbnailService {
 
     @Override
     public List<ThumbnailInfo> getThumbnails(String fileId) {
-        List<ThumbnailInfo> thumbnails = thumbnailCache.get(fileId);
+        List<ThumbnailInfo> thumbnails = thumbnailCache.getIfPresent(fileId);
         return thumbnails != null ? new ArrayList<>(thumbnails) : new ArrayList<>();
     }
 
     @Override
     public boolean hasThumbnails(String fileId) {
-        List<ThumbnailInfo> thumbnails = thumbnailCache.get(fileId);
+        List<ThumbnailInfo> thumbnails = thumbnailCache.getIfPresent(fileId);
         return thumbnails != null && !thumbnails.isEmpty();
     }
 
@@ -640,7 +618,7 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                     });
             
             // 清理缓存中的过期条目
-            thumbnailCache.entrySet().removeIf(entry -> {
+            thumbnailCache.asMap().entrySet().removeIf(entry -> {
                 List<ThumbnailInfo> thumbnails = entry.getValue();
                 return thumbnails.stream().anyMatch(thumb -> 
                         thumb.getCreateTime().isBefore(LocalDateTime.now().minusHours(expireHours)));
@@ -696,22 +674,24 @@ public class ThumbnailServiceImpl implements ThumbnailService {
             String outputFormat = request.getOutputFormat() != null ? request.getOutputFormat() : "jpg";
             double quality = request.getQuality() != null ? request.getQuality() / 100.0 : 0.85;
             
-            // 生成缩略图到内存
-            BufferedImage thumbnail = Thumbnails.of(sourceFile)
-                    .size(targetWidth, targetHeight)
-                    .keepAspectRatio(true)
-                    .crop(Positions.CENTER)
-                    .outputQuality(quality)
-                    .asBufferedImage();
-            
-            // 将BufferedImage转换为InputStream
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(thumbnail, outputFormat.toLowerCase(), baos);
+            // 命中缓存直接返回，否则降采样解码后直接写入缓存
+            String cacheKey = String.format("image:%s:%d:%dx%d:%s:%.2f", sourceFile.getAbsolutePath(),
+                    sourceFile.lastModified(), targetWidth, targetHeight, outputFormat.toLowerCase(), quality);
+            InputStream result = renderCache.getOrRender(cacheKey, out -> {
+                BufferedImage decoded = decodeForSizes(sourceFile, List.of(new int[]{targetWidth, targetHeight}));
+                BufferedImage thumbnail = (decoded != null ? Thumbnails.of(decoded) : Thumbnails.of(sourceFile))
+                        .size(targetWidth, targetHeight)
+                        .keepAspectRatio(true)
+                        .crop(Positions.CENTER)
+                        .outputQuality(quality)
+                        .asBufferedImage();
+                writeImage(thumbnail, outputFormat, out);
+            });
             
             long processingTime = System.currentTimeMillis() - startTime;
             log.debug("缩略图生成完成 - 文件ID: {}, 耗时: {}ms", request.getSourceFileId(), processingTime);
             
-            return new ByteArrayInputStream(baos.toByteArray());
+            return result;
             
         } catch (BaseException e) {
             // 重新抛出业务异常
@@ -738,7 +718,6 @@ public class ThumbnailServiceImpl implements ThumbnailService {
         }
         
         long startTime = System.currentTimeMillis();
-        FFmpegFrameGrabber frameGrabber = null;
         
         try {
             log.debug("生成视频帧缩略图流 - 文件ID: {}, 时间偏移: {}s, 尺寸: {}x{}", 
@@ -761,68 +740,36 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                     "不支持的视频文件格式: " + mimeType, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
             }
             
-            // 初始化FFmpeg帧抓取器
-            frameGrabber = new FFmpegFrameGrabber(sourceFilePath);
-            
-            // 配置GPU加速（如果启用）
-            if (gpuAcceleration) {
-                frameGrabber.setVideoOption("hwaccel", "nvdec");
-                frameGrabber.setVideoOption("hwaccel_device", "0");
-                log.debug("启用GPU硬件加速 - NVIDIA NVDEC");
-            }
-            
-            frameGrabber.start();
-            
-            // 获取视频信息
-            double duration = frameGrabber.getLengthInTime() / 1000000.0;
-            
-            // 设置时间偏移
+            // 设置默认参数
             double timeOffset = request.getTimeOffset() != null ? request.getTimeOffset() : 1.0;
-            double actualTimeOffset = Math.max(0, Math.min(timeOffset, duration - 1));
-            
-            // 跳转到指定时间点
-            long timestampMicros = (long) (actualTimeOffset * 1000000);
-            frameGrabber.setTimestamp(timestampMicros);
-            
-            // 抓取帧
-            Frame frame = frameGrabber.grabImage();
-            if (frame == null) {
-                throw new BaseException(ExceptionEnum.VIDEO_FRAME_EXTRACTION_FAILED, 
-                    "无法从视频中抓取帧", HttpStatus.NOT_FOUND);
-            }
-            
-            // 转换为BufferedImage
-            Java2DFrameConverter converter = new Java2DFrameConverter();
-            BufferedImage image = converter.convert(frame);
-            
-            if (image == null) {
-                throw new BaseException(ExceptionEnum.VIDEO_FRAME_EXTRACTION_FAILED, 
-                    "帧转换为图片失败", HttpStatus.INTERNAL_SERVER_ERROR);
-            }
-            
-            // 设置默认尺寸
             int targetWidth = request.getTargetWidth() != null ? request.getTargetWidth() : 300;
             int targetHeight = request.getTargetHeight() != null ? request.getTargetHeight() : 300;
             String outputFormat = request.getOutputFormat() != null ? request.getOutputFormat() : "jpg";
             double quality = request.getQuality() != null ? request.getQuality() / 100.0 : 0.85;
             
-            // 使用Thumbnailator处理BufferedImage生成缩略图
-            BufferedImage thumbnail = Thumbnails.of(image)
-                    .size(targetWidth, targetHeight)
-                    .keepAspectRatio(true)
-                    .crop(Positions.CENTER)
-                    .outputQuality(quality)
-                    .asBufferedImage();
-            
-            // 将BufferedImage转换为InputStream
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(thumbnail, outputFormat.toLowerCase(), baos);
+            // 命中缓存直接返回，否则从解码器池抓取关键帧后直接写入缓存
+            String cacheKey = String.format("video:%s:%d:%.3f:%dx%d:%s:%.2f", sourceFile.getAbsolutePath(),
+                    sourceFile.lastModified(), timeOffset, targetWidth, targetHeight, outputFormat.toLowerCase(), quality);
+            InputStream result = renderCache.getOrRender(cacheKey, out -> {
+                BufferedImage image = frameGrabberPool.grabFrames(sourceFile, List.of(timeOffset)).get(0).image();
+                if (image == null) {
+                    throw new BaseException(ExceptionEnum.VIDEO_FRAME_EXTRACTION_FAILED, 
+                        "无法从视频中抓取帧", HttpStatus.NOT_FOUND);
+                }
+                BufferedImage thumbnail = Thumbnails.of(image)
+                        .size(targetWidth, targetHeight)
+                        .keepAspectRatio(true)
+                        .crop(Positions.CENTER)
+                        .outputQuality(quality)
+                        .asBufferedImage();
+                writeImage(thumbnail, outputFormat, out);
+            });
             
             long processingTime = System.currentTimeMillis() - startTime;
             log.info("视频帧缩略图生成完成 - 文件ID: {}, 时间偏移: {}s, 耗时: {}ms", 
-                    request.getSourceFileId(), actualTimeOffset, processingTime);
+                    request.getSourceFileId(), timeOffset, processingTime);
             
-            return new ByteArrayInputStream(baos.toByteArray());
+            return result;
             
         } catch (BaseException e) {
             // 重新抛出业务异常
@@ -833,21 +780,21 @@ public class ThumbnailServiceImpl implements ThumbnailService {
                     request.getSourceFileId(), processingTime, e);
             throw new BaseException(ExceptionEnum.VIDEO_FRAME_EXTRACTION_FAILED, 
                 "视频帧缩略图生成异常: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
-        } finally {
-            // 确保释放资源
-            if (frameGrabber != null) {
-                try {
-                    frameGrabber.stop();
-                    frameGrabber.release();
-                } catch (Exception e) {
-                    log.warn("释放FFmpeg资源失败", e);
-                }
-            }
         }
     }
 
     // ==================== 私有辅助方法 ====================
     
+    /**
+     * 按指定格式写出图片，没有对应格式的ImageWriter时报错，避免返回空内容
+     */
+    private void writeImage(BufferedImage image, String format, OutputStream out) throws IOException {
+        if (!ImageIO.write(image, format.toLowerCase(), out)) {
+            throw new BaseException(ExceptionEnum.UNSUPPORTED_FILE_FORMAT, 
+                "不支持的输出格式: " + format, HttpStatus.BAD_REQUEST);
+        }
+    }
+    
     /**
      * 获取源文件路径
      */
@@ -869,10 +816,24 @@ public class ThumbnailServiceImpl implements ThumbnailService {
         }
     }
     
+    /**
+     * 降采样解码源图片，失败或没有可用解码器时返回null，由调用方回退为Thumbnailator直接读取文件
+     */
+    private BufferedImage decodeForSizes(File sourceFile, List<int[]> targetSizes) {
+        try {
+            return SubsampledImageDecoder.decode(sourceFile, targetSizes);
+        } catch (Exception e) {
+            log.debug("降采样解码失败，回退为全尺寸解码 - 文件: {}, 错误: {}", sourceFile, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 生成单个缩略图
+     *
+     * @param decoded 降采样解码后的图片，为null时直接读取原始文件
      */
-    private ThumbnailInfo generateSingleThumbnail(FileInfo fileInfo, File originalFile, 
+    private ThumbnailInfo generateSingleThumbnail(FileInfo fileInfo, File originalFile, BufferedImage decoded,
                                                  int width, int height) throws IOException {
         // 生成缩略图文件名
         String thumbnailFileName = generateThumbnailFileName(fileInfo, width, height);
@@ -883,17 +844,11 @@ public class ThumbnailServiceImpl implements ThumbnailService {
         File thumbnailFile = new File(thumbnailAbsolutePath);
         thumbnailFile.getParentFile().mkdirs();
         
-        // 使用Thumbnailator生成缩略图
-        BufferedImage thumbnail = Thumbnails.of(originalFile)
+        // 使用Thumbnailator缩放裁剪并保存缩略图
+        (decoded != null ? Thumbnails.of(decoded) : Thumbnails.of(originalFile))
                 .size(width, height)
                 .keepAspectRatio(true)
                 .crop(Positions.CENTER)
-                .outputQuality(thumbnailQuality)
-                .asBufferedImage();
-        
-        // 保存缩略图
-        Thumbnails.of(thumbnail)
-                .size(width, height)
                 .outputFormat(thumbnailFormat)
                 .outputQuality(thumbnailQuality)
                 .toFile(thumbnailFile);
@@ -964,17 +919,11 @@ public class ThumbnailServiceImpl implements ThumbnailService {
         File thumbnailFile = new File(thumbnailAbsolutePath);
         thumbnailFile.getParentFile().mkdirs();
         
-        // 使用Thumbnailator处理BufferedImage生成缩略图
-        BufferedImage thumbnail = Thumbnails.of(image)
+        // 使用Thumbnailator缩放裁剪并直接写入缩略图文件
+        Thumbnails.of(image)
                 .size(width, height)
                 .keepAspectRatio(true)
                 .crop(Positions.CENTER)
-                .outputQuality(thumbnailQuality)
-                .asBufferedImage();
-        
-        // 保存缩略图
-        Thumbnails.of(thumbnail)
-                .size(width, height)
                 .outputFormat(thumbnailFormat)
                 .outputQuality(thumbnailQuality)
                 .toFile(thumbnailFile);
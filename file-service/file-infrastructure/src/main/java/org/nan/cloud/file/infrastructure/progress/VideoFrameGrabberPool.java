@@ -0,0 +1,328 @@
+package org.nan.cloud.file.infrastructure.progress;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 视频帧抓取解码器池
+ *
+ * 1. 解码器数量受限：同时打开的FFmpegFrameGrabber（使用中+空闲）不超过上限，保护堆外内存；
+ *    达到上限时优先关闭最久未用的空闲解码器，否则排队等待
+ * 2. 解码器复用：同一视频文件的解码器用完后放回空闲池，再次取帧时无需重新打开和探测
+ * 3. 关键帧抓取：解码器只解码关键帧（skip_frame=nokey），不逐帧顺序解码。定位时先回退到目标时间点
+ *    之前的关键帧，再向后读取到时间戳不早于目标的帧，由于非关键帧被跳过，返回的是目标时间点
+ *    当时或之后的第一个关键帧，最多比目标晚一个关键帧间隔（GOP）
+ * 4. 一次会话抓取多个时间点：按时间顺序依次定位，共用同一个解码器
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VideoFrameGrabberPool {
+
+    private final FileStorageProperties storageProperties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    /**
+     * 空闲解码器，按放回顺序排列（最久未用在前），由lock保护
+     */
+    private final LinkedHashMap<IdleKey, PooledGrabber> idleGrabbers = new LinkedHashMap<>();
+    private int openCount = 0;
+    private volatile boolean closed = false;
+
+    private final AtomicLong openedCount = new AtomicLong(0);
+    private final AtomicLong reusedCount = new AtomicLong(0);
+    private final AtomicLong grabbedFrameCount = new AtomicLong(0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Video-Grabber-Reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        executor.scheduleWithFixedDelay(this::closeExpiredIdle, 30, 30, TimeUnit.SECONDS);
+        log.info("视频解码器池初始化完成 - 解码器上限: {}, 空闲保留: {}s",
+                getConfig().getMaxConcurrentDecoders(), getConfig().getDecoderIdleSeconds());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        executor.shutdown();
+        List<PooledGrabber> toClose;
+        lock.lock();
+        try {
+            toClose = new ArrayList<>(idleGrabbers.values());
+            idleGrabbers.clear();
+            openCount -= toClose.size();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        toClose.forEach(this::closeQuietly);
+    }
+
+    /**
+     * 在一次会话中抓取多个时间点的视频帧
+     *
+     * @param videoFile 视频文件
+     * @param timeOffsets 时间偏移（秒），超出视频范围时调整到范围内
+     * @return 与timeOffsets顺序一致的帧；某个时间点抓取失败时对应位置的image为null
+     */
+    public List<GrabbedFrame> grabFrames(File videoFile, List<Double> timeOffsets) throws IOException {
+        PooledGrabber pooled = acquire(videoFile);
+        boolean reusable = false;
+        try {
+            FFmpegFrameGrabber grabber = pooled.grabber;
+            double duration = grabber.getLengthInTime() / 1000000.0;
+
+            // 按时间顺序定位，减少回退定位
+            Integer[] order = new Integer[timeOffsets.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(timeOffsets::get));
+
+            GrabbedFrame[] frames = new GrabbedFrame[timeOffsets.size()];
+            for (int index : order) {
+                double requested = timeOffsets.get(index);
+                double actual = Math.max(0, Math.min(requested, duration - 1));
+                // 返回目标时间点当时或之后的第一个关键帧（可能晚于目标，最多一个GOP）
+                grabber.setTimestamp((long) (actual * 1000000));
+                Frame frame = grabber.grabImage();
+                BufferedImage image = null;
+                if (frame != null) {
+                    // 转换器复用内部图片缓冲，多帧时需要复制
+                    image = Java2DFrameConverter.cloneBufferedImage(pooled.converter.convert(frame));
+                    grabbedFrameCount.incrementAndGet();
+                }
+                frames[index] = new GrabbedFrame(actual, duration, image);
+            }
+            reusable = true;
+            return Arrays.asList(frames);
+        } catch (Exception e) {
+            throw new IOException("视频帧抓取失败: " + e.getMessage(), e);
+        } finally {
+            release(pooled, reusable);
+        }
+    }
+
+    public int getOpenCount() {
+        lock.lock();
+        try {
+            return openCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    public long getGrabbedFrameCount() {
+        return grabbedFrameCount.get();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 获取解码器：优先复用同一文件的空闲解码器；达到上限时关闭最久未用的空闲解码器或等待
+     */
+    private PooledGrabber acquire(File videoFile) throws IOException {
+        IdleKey key = new IdleKey(videoFile.getAbsolutePath(), videoFile.lastModified());
+        FileStorageProperties.Thumbnail.Video config = getConfig();
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(config.getDecoderAcquireTimeoutMillis());
+        PooledGrabber evicted = null;
+
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IOException("视频解码器池已关闭");
+                }
+                PooledGrabber idle = idleGrabbers.remove(key);
+                if (idle != null) {
+                    reusedCount.incrementAndGet();
+                    return idle;
+                }
+                if (openCount < config.getMaxConcurrentDecoders()) {
+                    openCount++;
+                    break;
+                }
+                if (!idleGrabbers.isEmpty()) {
+                    // 关闭最久未用的空闲解码器，把名额让给当前请求
+                    Iterator<PooledGrabber> iterator = idleGrabbers.values().iterator();
+                    evicted = iterator.next();
+                    iterator.remove();
+                    break;
+                }
+                if (remainingNanos <= 0) {
+                    throw new IOException("视频解码器繁忙，请稍后重试");
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待视频解码器被中断", e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (evicted != null) {
+            closeQuietly(evicted);
+        }
+
+        try {
+            PooledGrabber pooled = open(videoFile, key);
+            openedCount.incrementAndGet();
+            return pooled;
+        } catch (Exception e) {
+            lock.lock();
+            try {
+                openCount--;
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw new IOException("打开视频解码器失败: " + e.getMessage(), e);
+        }
+    }
+
+    private PooledGrabber open(File videoFile, IdleKey key) throws Exception {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile);
+        // 只解码关键帧，定位后跳过非关键帧，直接取目标时间点之后的第一个关键帧
+        grabber.setVideoOption("skip_frame", "nokey");
+        if (getConfig().isGpuAcceleration()) {
+            grabber.setVideoOption("hwaccel", "nvdec");
+            grabber.setVideoOption("hwaccel_device", "0");
+        }
+        try {
+            grabber.start();
+        } catch (Exception e) {
+            grabber.release();
+            throw e;
+        }
+        return new PooledGrabber(key, grabber);
+    }
+
+    private void release(PooledGrabber pooled, boolean reusable) {
+        boolean close = !reusable || closed;
+        lock.lock();
+        try {
+            if (close) {
+                openCount--;
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                PooledGrabber replaced = idleGrabbers.put(pooled.key, pooled);
+                if (replaced != null) {
+                    // 同一文件已有空闲解码器，保留一个即可
+                    openCount--;
+                    pooled = replaced;
+                    close = true;
+                }
+            }
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (close) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private void closeExpiredIdle() {
+        long expireMillis = TimeUnit.SECONDS.toMillis(getConfig().getDecoderIdleSeconds());
+        long now = System.currentTimeMillis();
+        List<PooledGrabber> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<PooledGrabber> iterator = idleGrabbers.values().iterator();
+            while (iterator.hasNext()) {
+                PooledGrabber pooled = iterator.next();
+                if (now - pooled.lastUsed >= expireMillis) {
+                    iterator.remove();
+                    expired.add(pooled);
+                }
+            }
+            openCount -= expired.size();
+            if (!expired.isEmpty()) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::closeQuietly);
+        if (!expired.isEmpty()) {
+            log.debug("关闭空闲视频解码器 - 数量: {}", expired.size());
+        }
+    }
+
+    private void closeQuietly(PooledGrabber pooled) {
+        try {
+            pooled.grabber.stop();
+            pooled.grabber.release();
+        } catch (Exception e) {
+            log.warn("释放FFmpeg资源失败 - 文件: {}, 错误: {}", pooled.key.path(), e.getMessage());
+        }
+    }
+
+    private FileStorageProperties.Thumbnail.Video getConfig() {
+        return storageProperties.getThumbnail().getVideo();
+    }
+
+    // ==================== 内部类 ====================
+
+    /**
+     * 抓取的视频帧
+     *
+     * @param timeOffset 实际抓取的时间偏移（秒）
+     * @param duration 视频时长（秒）
+     * @param image 帧图片，抓取失败时为null
+     */
+    public record GrabbedFrame(double timeOffset, double duration, BufferedImage image) {
+    }
+
+    private record IdleKey(String path, long lastModified) {
+    }
+
+    private static class PooledGrabber {
+        private final IdleKey key;
+        private final FFmpegFrameGrabber grabber;
+        private final Java2DFrameConverter converter = new Java2DFrameConverter();
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledGrabber(IdleKey key, FFmpegFrameGrabber grabber) {
+            this.key = key;
+            this.grabber = grabber;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package org.nan.cloud.file.infrastructure.repository.mongodb;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.common.basic.domain.MaterialMetadata;
+import org.nan.cloud.file.application.domain.PreviewVariantIndex;
 import org.nan.cloud.file.application.repository.MaterialMetadataRepository;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -10,7 +13,9 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.*;
 
 /**
  * 素材元数据MongoDB存储库实现
@@ -20,6 +25,7 @@ import java.time.LocalDateTime;
  * 2. 保持_class字段，确保跨服务兼容性
  * 3. 支持缩略图信息的完整存储和查询
  * 4. 优化的MongoDB操作性能
+ * 5. 预生成缩略图索引本地缓存：本实例内的写操作同步失效，其他实例更新缩略图时依赖过期时间兜底
  * 
  * ⚠️  字段映射说明：
  * - MaterialMetadata类无MongoDB注解，依赖Spring Data默认映射
@@ -39,6 +45,25 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
     
     private static final String COLLECTION_NAME = "material_metadata";
 
+    private static final long PREVIEW_INDEX_CACHE_MAX_SIZE = 10_000;
+    private static final Duration PREVIEW_INDEX_CACHE_TTL = Duration.ofMinutes(10);
+
+    /**
+     * 构建缩略图索引所需的字段
+     */
+    private static final String[] PREVIEW_INDEX_FIELDS = {
+            "fileId", "basicInfo.mimeType", "basicInfo.fileType", "basicInfo.md5Hash", "thumbnails"
+    };
+
+    /**
+     * 预生成缩略图索引缓存，只缓存元数据已存在的文件
+     */
+    private final Cache<String, PreviewVariantIndex> previewIndexCache = Caffeine.newBuilder()
+            .maximumSize(PREVIEW_INDEX_CACHE_MAX_SIZE)
+            .expireAfterWrite(PREVIEW_INDEX_CACHE_TTL)
+            .recordStats()
+            .build();
+
     @Override
     public String save(MaterialMetadata metadata) {
         try {
@@ -46,6 +71,7 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
                 metadata.setCreatedAt(LocalDateTime.now());
             }
             metadata.setUpdatedAt(LocalDateTime.now());
+            invalidatePreviewIndex(metadata.getFileId());
             
             MaterialMetadata saved = mongoTemplate.save(metadata, COLLECTION_NAME);
             log.debug("✅ 元数据保存成功 - ID: {}, 文件ID: {}, 类型: {}", 
@@ -95,6 +121,7 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
     public boolean update(MaterialMetadata metadata) {
         try {
             metadata.setUpdatedAt(LocalDateTime.now());
+            invalidatePreviewIndex(metadata.getFileId());
             MaterialMetadata saved = mongoTemplate.save(metadata, COLLECTION_NAME);
             log.debug("✅ 元数据更新成功 - ID: {}, 文件ID: {}", saved.getId(), saved.getFileId());
             return true;
@@ -109,6 +136,7 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
         try {
             Query query = new Query(Criteria.where("id").is(id));
             mongoTemplate.remove(query, MaterialMetadata.class, COLLECTION_NAME);
+            previewIndexCache.asMap().values().removeIf(index -> id.equals(index.getMetadataId()));
             log.debug("✅ 元数据删除成功 - ID: {}", id);
             return true;
         } catch (Exception e) {
@@ -122,6 +150,7 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
         try {
             Query query = new Query(Criteria.where("fileId").is(fileId));
             mongoTemplate.remove(query, MaterialMetadata.class, COLLECTION_NAME);
+            invalidatePreviewIndex(fileId);
             log.debug("✅ 根据文件ID删除元数据成功 - 文件ID: {}", fileId);
             return true;
         } catch (Exception e) {
@@ -145,6 +174,7 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
                     .set("updatedAt", LocalDateTime.now());
             
             mongoTemplate.updateFirst(query, update, MaterialMetadata.class, COLLECTION_NAME);
+            invalidatePreviewIndex(fileId);
             log.debug("✅ 缩略图信息更新成功 - 文件ID: {}, 缩略图数量: {}", 
                     fileId, thumbnails.getAllThumbnails() != null ? thumbnails.getAllThumbnails().size() : 0);
             return true;
@@ -181,4 +211,48 @@ public class MaterialMetadataRepositoryImpl implements MaterialMetadataRepositor
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public Optional<PreviewVariantIndex> findPreviewIndexByFileId(String fileId) {
+        PreviewVariantIndex cached = previewIndexCache.getIfPresent(fileId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(findPreviewIndexesByFileIds(List.of(fileId)).get(fileId));
+    }
+
+    @Override
+    public Map<String, PreviewVariantIndex> findPreviewIndexesByFileIds(Collection<String> fileIds) {
+        Map<String, PreviewVariantIndex> result = new HashMap<>(previewIndexCache.getAllPresent(fileIds));
+        if (result.size() == fileIds.size()) {
+            return result;
+        }
+
+        List<String> misses = new ArrayList<>();
+        for (String fileId : fileIds) {
+            if (!result.containsKey(fileId)) {
+                misses.add(fileId);
+            }
+        }
+        try {
+            Query query = new Query(Criteria.where("fileId").in(misses));
+            query.fields().include(PREVIEW_INDEX_FIELDS);
+            for (MaterialMetadata metadata : mongoTemplate.find(query, MaterialMetadata.class, COLLECTION_NAME)) {
+                PreviewVariantIndex index = PreviewVariantIndex.of(metadata);
+                previewIndexCache.put(metadata.getFileId(), index);
+                result.put(metadata.getFileId(), index);
+            }
+            log.debug("✅ 批量加载缩略图索引 - 请求: {}, 缓存命中: {}, 查询: {}",
+                    fileIds.size(), fileIds.size() - misses.size(), misses.size());
+        } catch (Exception e) {
+            log.error("❌ 批量加载缩略图索引失败 - 文件数: {}, 错误: {}", misses.size(), e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private void invalidatePreviewIndex(String fileId) {
+        if (fileId != null) {
+            previewIndexCache.invalidate(fileId);
+        }
+    }
+}
@@ -2,18 +2,30 @@ package org.nan.cloud.file.infrastructure.repository.mongodb;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.nan.cloud.file.application.repository.ProgramContentRepository;
 import org.nan.cloud.program.document.ProgramContent;
+import org.nan.cloud.program.document.ProgramPage;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class ProgramContentRepositoryImpl implements ProgramContentRepository {
 
+    /**
+     * 页面游标每批拉取的页数
+     */
+    private static final int PAGE_CURSOR_BATCH_SIZE = 20;
+
     private final MongoTemplate mongoTemplate;
 
     @Override
@@ -25,5 +37,30 @@ public class ProgramContentRepositoryImpl implements ProgramContentRepository {
     public ProgramContent findByProgramId(Long programId) {
         return mongoTemplate.findOne(Query.query(Criteria.where("program_id").is(programId)), ProgramContent.class);
     }
-}
 
+    @Override
+    public ProgramContent findHeaderByProgramId(Long programId) {
+        Query query = Query.query(Criteria.where("program_id").is(programId));
+        query.fields()
+                .include("program_id", "version", "org_id", "updated_time")
+                .include("vsn_programs.information", "vsn_programs.vsn_program_id", "vsn_programs.is_bucket_program");
+        return mongoTemplate.findOne(query, ProgramContent.class);
+    }
+
+    @Override
+    public Stream<ProgramPage> streamVsnPages(String contentId, int programIndex) {
+        // 服务端展开页面数组，每个页面作为一条结果经游标分批返回；
+        // 非类型化聚合不做ID转换，按文档ID的存储类型匹配
+        Object id = ObjectId.isValid(contentId) ? new ObjectId(contentId) : contentId;
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(id)),
+                Aggregation.project()
+                        .and(ArrayOperators.ArrayElemAt.arrayOf("vsn_programs.pages").elementAt(programIndex)).as("pages")
+                        .andExclude("_id"),
+                Aggregation.unwind("pages"),
+                Aggregation.replaceRoot("pages")
+        ).withOptions(AggregationOptions.builder().cursorBatchSize(PAGE_CURSOR_BATCH_SIZE).build());
+        return mongoTemplate.aggregateStream(aggregation, mongoTemplate.getCollectionName(ProgramContent.class),
+                ProgramPage.class);
+    }
+}
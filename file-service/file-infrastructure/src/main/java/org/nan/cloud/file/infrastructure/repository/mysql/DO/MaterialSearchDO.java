@@ -0,0 +1,36 @@
+package org.nan.cloud.file.infrastructure.repository.mysql.DO;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 素材搜索索引行：material与material_file的关联查询结果
+ * 仅供建立搜索索引，素材的增删改在core-service进行
+ */
+@Data
+public class MaterialSearchDO {
+
+    private Long mid;
+
+    private Long oid;
+
+    private String fileId;
+
+    private String materialName;
+
+    private String materialType;
+
+    private String description;
+
+    private String fileExtension;
+
+    private String mimeType;
+
+    /**
+     * 关联文件是否已删除，文件记录不存在时为null
+     */
+    private Integer fileDeleted;
+
+    private LocalDateTime updateTime;
+}
@@ -2,17 +2,26 @@ package org.nan.cloud.file.infrastructure.repository.mysql.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.domain.FileDescriptor;
 import org.nan.cloud.file.application.domain.FileInfo;
 import org.nan.cloud.file.application.repository.FileInfoRepository;
 import org.nan.cloud.file.infrastructure.repository.mysql.DO.MaterialFileDO;
 import org.nan.cloud.file.infrastructure.repository.mysql.mapper.MaterialFileMapper;
+import org.nan.cloud.file.infrastructure.repository.search.MaterialInvertedIndex;
+import org.nan.cloud.file.infrastructure.repository.search.MaterialSearchIndex;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +32,10 @@ import java.util.stream.Collectors;
  * 2. 数据库CRUD操作的封装
  * 3. 复杂查询逻辑的实现
  * 4. 事务管理和异常处理
+ * 5. 文件描述符本地缓存：写操作在本实例内同步失效；描述符字段在文件创建后不再变化，
+ *    其他实例删除文件时依赖过期时间兜底
+ * 6. 素材搜索、按类型查询和类型统计走本地倒排索引（{@link MaterialSearchIndex}），
+ *    只按命中的文件ID回表
  * 
  * @author LedDeviceCloudPlatform Team
  * @since 1.0.0
@@ -32,11 +45,25 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FileInfoRepositoryImpl implements FileInfoRepository {
 
+    private static final long DESCRIPTOR_CACHE_MAX_SIZE = 10_000;
+    private static final Duration DESCRIPTOR_CACHE_TTL = Duration.ofMinutes(10);
+
     private final MaterialFileMapper materialFileMapper;
+    private final MaterialSearchIndex materialSearchIndex;
+
+    /**
+     * 文件描述符缓存，只缓存存在的文件，避免上传完成前的查询留下空结果
+     */
+    private final Cache<String, FileDescriptor> descriptorCache = Caffeine.newBuilder()
+            .maximumSize(DESCRIPTOR_CACHE_MAX_SIZE)
+            .expireAfterWrite(DESCRIPTOR_CACHE_TTL)
+            .recordStats()
+            .build();
 
     @Override
     public FileInfo save(FileInfo fileInfo) {
         log.debug("保存文件信息 - 文件ID: {}", fileInfo.getFileId());
+        descriptorCache.invalidate(fileInfo.getFileId());
         
         try {
             // 转换为DO对象
@@ -45,37 +72,14 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
             // 判断是插入还是更新
             MaterialFileDO existing = materialFileMapper.selectById(fileInfo.getFileId());
             if (existing == null) {
-                // 检查MD5是否已存在（处理去重逻辑）
-                MaterialFileDO existingByMd5 = null;
-                if (fileInfo.getMd5Hash() != null && !fileInfo.getMd5Hash().trim().isEmpty()) {
-                    existingByMd5 = materialFileMapper.findByMd5Hash(fileInfo.getMd5Hash());
-                }
-                
-                if (existingByMd5 != null) {
-                    // MD5已存在，增加引用计数而不是插入新记录
-                    existingByMd5.setRefCount(existingByMd5.getRefCount() + 1);
-                    existingByMd5.setUpdateTime(LocalDateTime.now());
-                    int result = materialFileMapper.updateById(existingByMd5);
-                    if (result <= 0) {
-                        throw new RuntimeException("更新文件引用计数失败");
-                    }
-                    log.info("文件MD5重复，增加引用计数 - MD5: {}, 原文件ID: {}, 引用计数: {}", 
-                            fileInfo.getMd5Hash(), existingByMd5.getFileId(), existingByMd5.getRefCount());
-                    
-                    // 返回现有文件信息，但使用新的文件ID
-                    FileInfo resultFile = convertToFileInfo(existingByMd5);
-                    resultFile.setFileId(fileInfo.getFileId()); // 保持原请求的文件ID
-                    return resultFile;
-                } else {
-                    // 插入新记录
-                    materialFileDO.setCreateTime(LocalDateTime.now());
-                    materialFileDO.setUpdateTime(LocalDateTime.now());
-                    int result = materialFileMapper.insert(materialFileDO);
-                    if (result <= 0) {
-                        throw new RuntimeException("插入文件信息失败");
-                    }
-                    log.debug("文件信息插入成功 - 文件ID: {}", fileInfo.getFileId());
+                // 每个fileId一条记录（秒传也独立插入），存储内容按storagePath共享
+                materialFileDO.setCreateTime(LocalDateTime.now());
+                materialFileDO.setUpdateTime(LocalDateTime.now());
+                int result = materialFileMapper.insert(materialFileDO);
+                if (result <= 0) {
+                    throw new RuntimeException("插入文件信息失败");
                 }
+                log.debug("文件信息插入成功 - 文件ID: {}", fileInfo.getFileId());
             } else {
                 // 更新现有记录
                 materialFileDO.setUpdateTime(LocalDateTime.now());
@@ -115,12 +119,25 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
         }
     }
 
+    @Override
+    public Optional<FileDescriptor> findDescriptorByFileId(String fileId) {
+        FileDescriptor cached = descriptorCache.getIfPresent(fileId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<FileDescriptor> descriptor = findByFileId(fileId).map(this::toDescriptor);
+        descriptor.ifPresent(d -> descriptorCache.put(fileId, d));
+        return descriptor;
+    }
+
     @Override
     public void updateFileMetadata(String fileId, String metadataId) {
         MaterialFileDO materialFileDO = new MaterialFileDO();
         materialFileDO.setFileId(fileId);
         materialFileDO.setMetadataId(metadataId);
         materialFileMapper.updateById(materialFileDO);
+        descriptorCache.invalidate(fileId);
     }
 
     @Override
@@ -129,6 +146,7 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
         materialFileDO.setFileId(fileId);
         materialFileDO.setThumbnailPath(thumbnailPath);
         materialFileMapper.updateById(materialFileDO);
+        descriptorCache.invalidate(fileId);
     }
 
     @Override
@@ -214,17 +232,15 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
 
     @Override
     public List<FileInfo> findByFileTypeAndOrganizationId(String fileType, String organizationId, int page, int size) {
-        // 此方法需要与material表关联查询，暂时返回空列表
         log.debug("根据文件类型和组织ID查询文件 - 文件类型: {}, 组织ID: {}, 页码: {}, 大小: {}", 
                 fileType, organizationId, page, size);
-        return List.of();
+        return searchIndexed(null, fileType, organizationId, page, size);
     }
 
     @Override
     public List<FileInfo> searchFiles(String keyword, String organizationId, int page, int size) {
-        // 此方法需要与material表关联查询，暂时返回空列表
         log.debug("搜索文件 - 关键词: {}, 组织ID: {}, 页码: {}, 大小: {}", keyword, organizationId, page, size);
-        return List.of();
+        return searchIndexed(keyword, null, organizationId, page, size);
     }
 
     @Override
@@ -245,9 +261,15 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
 
     @Override
     public List<FileTypeCount> countByFileTypeAndOrganizationId(String organizationId) {
-        // 此方法需要复杂的统计查询，暂时返回空列表
         log.debug("统计组织各类型文件数量 - 组织ID: {}", organizationId);
-        return List.of();
+        Optional<Map<String, Long>> counts = materialSearchIndex.typeCounts(Long.valueOf(organizationId));
+        if (counts.isEmpty()) {
+            log.debug("素材搜索索引未就绪 - 组织ID: {}", organizationId);
+            return List.of();
+        }
+        return counts.get().entrySet().stream()
+                .map(entry -> new FileTypeCount(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -314,6 +336,7 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
         try {
             Integer statusValue = mapFileStatusToInteger(newStatus);
             int updateCount = materialFileMapper.updateStatusBatch(fileIds, statusValue);
+            descriptorCache.invalidateAll(fileIds);
             log.debug("批量更新文件状态完成 - 更新数量: {}", updateCount);
             return updateCount;
             
@@ -334,6 +357,8 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
                         .set(MaterialFileDO::getUpdateTime, LocalDateTime.now());
             
             int result = materialFileMapper.update(null, updateWrapper);
+            descriptorCache.invalidate(fileId);
+            materialSearchIndex.removeByFileIds(List.of(fileId));
             boolean success = result > 0;
             log.debug("软删除文件结果 - 文件ID: {}, 成功: {}", fileId, success);
             return success;
@@ -344,6 +369,16 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
         }
     }
 
+    @Override
+    public List<String> findFileIdsByStoragePath(String storagePath) {
+        try {
+            return materialFileMapper.findFileIdsByStoragePath(storagePath);
+        } catch (Exception e) {
+            log.error("根据存储路径查找文件失败 - 路径: {}, 错误: {}", storagePath, e.getMessage(), e);
+            throw new RuntimeException("根据存储路径查找文件失败: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public int deleteBatchByFileIds(List<String> fileIds) {
         log.debug("批量软删除文件 - 文件数量: {}", fileIds.size());
@@ -355,6 +390,8 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
                         .set(MaterialFileDO::getUpdateTime, LocalDateTime.now());
             
             int deleteCount = materialFileMapper.update(null, updateWrapper);
+            descriptorCache.invalidateAll(fileIds);
+            materialSearchIndex.removeByFileIds(fileIds);
             log.debug("批量软删除文件完成 - 删除数量: {}", deleteCount);
             return deleteCount;
             
@@ -370,6 +407,8 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
         
         try {
             int result = materialFileMapper.deleteById(fileId);
+            descriptorCache.invalidate(fileId);
+            materialSearchIndex.removeByFileIds(List.of(fileId));
             boolean success = result > 0;
             log.debug("物理删除文件结果 - 文件ID: {}, 成功: {}", fileId, success);
             return success;
@@ -417,6 +456,46 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
 
     // 私有辅助方法
 
+    /**
+     * 通过搜索索引查询一页文件，再按文件ID批量回表，保持索引排序
+     * 文件名取素材名称；索引未就绪时返回空列表
+     */
+    private List<FileInfo> searchIndexed(String keyword, String materialType, String organizationId, int page, int size) {
+        try {
+            Long orgId = Long.valueOf(organizationId);
+            Optional<MaterialInvertedIndex.SearchHits> hits =
+                    materialSearchIndex.search(orgId, keyword, materialType, page * size, size);
+            if (hits.isEmpty()) {
+                log.debug("素材搜索索引未就绪 - 组织ID: {}", organizationId);
+                return List.of();
+            }
+
+            List<MaterialInvertedIndex.Document> documents = hits.get().documents();
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            Map<String, MaterialFileDO> files = materialFileMapper.selectBatchIds(
+                            documents.stream().map(MaterialInvertedIndex.Document::fileId).distinct().toList())
+                    .stream()
+                    .collect(Collectors.toMap(MaterialFileDO::getFileId, Function.identity()));
+
+            List<FileInfo> fileInfos = documents.stream()
+                    .filter(document -> files.containsKey(document.fileId()))
+                    .map(document -> {
+                        FileInfo fileInfo = convertToFileInfo(files.get(document.fileId()));
+                        fileInfo.setOriginalFilename(document.name());
+                        return fileInfo;
+                    })
+                    .collect(Collectors.toList());
+            log.debug("素材搜索完成 - 组织ID: {}, 命中: {}, 返回数量: {}", organizationId, hits.get().total(), fileInfos.size());
+            return fileInfos;
+
+        } catch (NumberFormatException e) {
+            log.error("组织ID格式错误 - 组织ID: {}", organizationId);
+            throw new IllegalArgumentException("组织ID格式错误: " + organizationId);
+        }
+    }
+
     /**
      * 将FileInfo转换为MaterialFileDO
      */
@@ -459,6 +538,27 @@ public class FileInfoRepositoryImpl implements FileInfoRepository {
                 .build();
     }
 
+    /**
+     * 将FileInfo转换为文件描述符
+     * 内容不可变，ETag取内容MD5，最后修改时间取上传时间
+     */
+    private FileDescriptor toDescriptor(FileInfo fileInfo) {
+        String etag = fileInfo.getMd5Hash() != null
+                ? "\"" + fileInfo.getMd5Hash() + "\""
+                : "\"" + fileInfo.getFileId() + "-" + fileInfo.getFileSize() + "\"";
+        LocalDateTime modified = fileInfo.getUploadTime() != null ? fileInfo.getUploadTime() : fileInfo.getUpdateTime();
+
+        return FileDescriptor.builder()
+                .fileId(fileInfo.getFileId())
+                .storagePath(fileInfo.getStoragePath())
+                .fileSize(fileInfo.getFileSize() != null ? fileInfo.getFileSize() : 0L)
+                .mimeType(fileInfo.getMimeType())
+                .originalFilename(fileInfo.getOriginalFilename())
+                .etag(etag)
+                .lastModified(modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L)
+                .build();
+    }
+
     /**
      * 将FileStatus枚举转换为数据库整数值
      */
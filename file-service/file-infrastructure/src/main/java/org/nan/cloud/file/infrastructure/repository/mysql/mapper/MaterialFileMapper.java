@@ -27,6 +27,15 @@ public interface MaterialFileMapper extends BaseMapper<MaterialFileDO> {
     @Select("SELECT * FROM material_file WHERE md5_hash = #{md5Hash} AND deleted = 0 LIMIT 1")
     MaterialFileDO findByMd5Hash(String md5Hash);
 
+    /**
+     * 查找指向同一存储路径的有效文件ID
+     * 
+     * @param storagePath 存储路径
+     * @return 文件ID列表
+     */
+    @Select("SELECT file_id FROM material_file WHERE storage_path = #{storagePath} AND deleted = 0")
+    List<String> findFileIdsByStoragePath(String storagePath);
+
     /**
      * 根据MD5和组织ID查找文件（用于去重）
      * 
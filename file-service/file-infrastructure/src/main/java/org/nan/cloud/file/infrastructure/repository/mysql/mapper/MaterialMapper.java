@@ -3,10 +3,40 @@ package org.nan.cloud.file.infrastructure.repository.mysql.mapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.nan.cloud.file.infrastructure.repository.mysql.DO.MaterialSearchDO;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface MaterialMapper {
     @Select("SELECT file_id FROM material WHERE mid = #{mid} LIMIT 1")
     String selectFileIdByMaterialId(@Param("mid") Long materialId);
-}
 
+    String SEARCH_COLUMNS = "m.mid, m.oid, m.file_id, m.material_name, m.material_type, m.description, " +
+            "mf.file_extension, mf.mime_type, mf.deleted AS file_deleted, m.update_time ";
+
+    /**
+     * 按素材ID顺序分批读取搜索索引行（全量重建）
+     */
+    @Select("SELECT " + SEARCH_COLUMNS +
+            "FROM material m LEFT JOIN material_file mf ON mf.file_id = m.file_id " +
+            "WHERE m.mid > #{afterMid} ORDER BY m.mid LIMIT #{limit}")
+    List<MaterialSearchDO> selectSearchRows(@Param("afterMid") long afterMid, @Param("limit") int limit);
+
+    /**
+     * 读取指定时间后修改过的素材（增量同步：新增、重命名、移动类型）
+     */
+    @Select("SELECT " + SEARCH_COLUMNS +
+            "FROM material m LEFT JOIN material_file mf ON mf.file_id = m.file_id " +
+            "WHERE m.update_time >= #{since} ORDER BY m.update_time LIMIT #{limit}")
+    List<MaterialSearchDO> selectSearchRowsUpdatedSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    /**
+     * 读取指定时间后文件记录有变化的素材（增量同步：其他实例删除文件）
+     */
+    @Select("SELECT " + SEARCH_COLUMNS +
+            "FROM material_file mf INNER JOIN material m ON m.file_id = mf.file_id " +
+            "WHERE mf.update_time >= #{since} ORDER BY mf.update_time LIMIT #{limit}")
+    List<MaterialSearchDO> selectSearchRowsByFileUpdatedSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+}
@@ -0,0 +1,445 @@
+package org.nan.cloud.file.infrastructure.repository.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个组织的素材倒排索引
+ *
+ * 1. 索引字段：素材名称、描述、文件扩展名、MIME子类型；素材类型作为分面
+ * 2. 分词：字母数字按非字母数字切分并转小写；中文按单字和相邻二字切分，查询时按二字匹配
+ * 3. 查询：多个词之间为AND；每个词依次做精确、前缀匹配，都没有命中时按编辑距离做模糊匹配；
+ *    按精确 > 前缀 > 模糊计分，同分按素材ID倒序
+ * 4. 分面：对关键词命中结果按素材类型计数，不受类型过滤影响
+ *
+ * 文档更新时旧文档只打删除标记，倒排表不回收，由定期全量重建整理。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public final class MaterialInvertedIndex {
+
+    private static final int SCORE_EXACT = 4;
+    private static final int SCORE_PREFIX = 2;
+    private static final int SCORE_FUZZY = 1;
+
+    /**
+     * 模糊匹配的最短词长
+     */
+    private static final int FUZZY_MIN_LENGTH = 3;
+
+    /**
+     * 允许2次编辑的最短词长，更短的词只允许1次编辑
+     */
+    private static final int FUZZY_TWO_EDITS_LENGTH = 6;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 内部文档号 -> 文档，文档号按写入顺序递增，倒排表因此天然有序
+     */
+    private final List<Document> documents = new ArrayList<>();
+    private long[] materialIds = new long[16];
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> docByMaterialId = new HashMap<>();
+    private final Map<String, IntList> docsByFileId = new HashMap<>();
+    private final TreeMap<String, IntList> terms = new TreeMap<>();
+    private final Map<String, BitSet> types = new HashMap<>();
+
+    /**
+     * 素材文档
+     */
+    public record Document(long materialId, String fileId, String name, String type,
+                           String description, String extension, String mimeType) {
+    }
+
+    /**
+     * 搜索结果
+     *
+     * @param documents 当前页文档
+     * @param total 命中总数（已按类型过滤）
+     * @param facets 关键词命中结果的类型分面计数
+     */
+    public record SearchHits(List<Document> documents, int total, Map<String, Long> facets) {
+    }
+
+    /**
+     * 写入或更新文档，内容未变化时不做任何修改
+     */
+    public void upsert(Document document) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByMaterialId.get(document.materialId());
+            if (existing != null) {
+                if (document.equals(documents.get(existing))) {
+                    return;
+                }
+                markDeleted(existing);
+            }
+
+            int docId = documents.size();
+            documents.add(document);
+            if (docId == materialIds.length) {
+                materialIds = Arrays.copyOf(materialIds, docId * 2);
+            }
+            materialIds[docId] = document.materialId();
+            live.set(docId);
+            docByMaterialId.put(document.materialId(), docId);
+            docsByFileId.computeIfAbsent(document.fileId(), k -> new IntList()).add(docId);
+            if (document.type() != null) {
+                types.computeIfAbsent(document.type(), k -> new BitSet()).set(docId);
+            }
+
+            Set<String> docTerms = new HashSet<>();
+            docTerms.addAll(tokenize(document.name(), false));
+            docTerms.addAll(tokenize(document.description(), false));
+            docTerms.addAll(tokenize(document.extension(), false));
+            if (document.mimeType() != null) {
+                int slash = document.mimeType().indexOf('/');
+                docTerms.addAll(tokenize(document.mimeType().substring(slash + 1), false));
+            }
+            for (String term : docTerms) {
+                terms.computeIfAbsent(term, k -> new IntList()).add(docId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按素材ID删除
+     */
+    public boolean remove(long materialId) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docByMaterialId.get(materialId);
+            if (docId == null) {
+                return false;
+            }
+            markDeleted(docId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除引用该文件的全部素材
+     *
+     * @return 删除的文档数
+     */
+    public int removeByFileId(String fileId) {
+        lock.writeLock().lock();
+        try {
+            IntList docIds = docsByFileId.get(fileId);
+            if (docIds == null) {
+                return 0;
+            }
+            int removed = 0;
+            for (int i = 0; i < docIds.size; i++) {
+                if (live.get(docIds.values[i])) {
+                    markDeleted(docIds.values[i]);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 关键词搜索
+     *
+     * @param keyword 关键词，为空时返回全部文档
+     * @param type 素材类型过滤，为空时不过滤
+     * @param offset 起始位置
+     * @param limit 返回数量
+     */
+    public SearchHits search(String keyword, String type, int offset, int limit) {
+        List<String> queryTerms = tokenize(keyword, true);
+        lock.readLock().lock();
+        try {
+            BitSet matched = (BitSet) live.clone();
+            List<BitSet[]> termMatches = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                BitSet[] match = matchTerm(term);
+                matched.and(match[0]);
+                termMatches.add(match);
+                if (matched.isEmpty()) {
+                    break;
+                }
+            }
+
+            Map<String, Long> facets = new HashMap<>();
+            for (Map.Entry<String, BitSet> entry : types.entrySet()) {
+                BitSet typed = (BitSet) matched.clone();
+                typed.and(entry.getValue());
+                int count = typed.cardinality();
+                if (count > 0) {
+                    facets.put(entry.getKey(), (long) count);
+                }
+            }
+
+            if (type != null) {
+                BitSet typeDocs = types.get(type);
+                if (typeDocs == null) {
+                    return new SearchHits(List.of(), 0, facets);
+                }
+                matched.and(typeDocs);
+            }
+
+            int total = matched.cardinality();
+            return new SearchHits(topDocuments(matched, termMatches, offset, limit), total, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 各素材类型的文档数
+     */
+    public Map<String, Long> typeCounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            for (Map.Entry<String, BitSet> entry : types.entrySet()) {
+                BitSet typed = (BitSet) entry.getValue().clone();
+                typed.and(live);
+                int count = typed.cardinality();
+                if (count > 0) {
+                    counts.put(entry.getKey(), (long) count);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有效文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除但尚未回收的文档数
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size() - live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 分词 ====================
+
+    /**
+     * 分词
+     *
+     * @param text 文本
+     * @param query 是否为查询：查询时中文只取二字（单字时取单字），索引时单字和二字都取
+     */
+    static List<String> tokenize(String text, boolean query) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        StringBuilder han = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                flushWord(word, tokens);
+                han.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushHan(han, tokens, query);
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                flushWord(word, tokens);
+                flushHan(han, tokens, query);
+            }
+        }
+        flushWord(word, tokens);
+        flushHan(han, tokens, query);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushHan(StringBuilder han, List<String> tokens, boolean query) {
+        int[] cps = han.codePoints().toArray();
+        if (cps.length == 0) {
+            return;
+        }
+        if (!query || cps.length == 1) {
+            for (int cp : cps) {
+                tokens.add(new String(Character.toChars(cp)));
+            }
+        }
+        for (int i = 0; i + 1 < cps.length; i++) {
+            tokens.add(new String(cps, i, 2));
+        }
+        han.setLength(0);
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void markDeleted(int docId) {
+        live.clear(docId);
+        Document document = documents.get(docId);
+        if (document.type() != null) {
+            BitSet typeDocs = types.get(document.type());
+            if (typeDocs != null) {
+                typeDocs.clear(docId);
+            }
+        }
+        if (Integer.valueOf(docId).equals(docByMaterialId.get(document.materialId()))) {
+            docByMaterialId.remove(document.materialId());
+        }
+    }
+
+    /**
+     * 单个查询词的匹配集合：[全部命中, 精确命中, 前缀命中]，其余命中为模糊命中
+     */
+    private BitSet[] matchTerm(String term) {
+        BitSet exact = new BitSet();
+        BitSet prefix = new BitSet();
+        IntList postings = terms.get(term);
+        if (postings != null) {
+            postings.setAll(exact);
+        }
+
+        // 中文二字词只做精确匹配
+        boolean word = Character.UnicodeScript.of(term.codePointAt(0)) != Character.UnicodeScript.HAN;
+        if (word) {
+            for (IntList list : terms.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                list.setAll(prefix);
+            }
+        }
+
+        BitSet all = (BitSet) exact.clone();
+        all.or(prefix);
+        all.and(live);
+        if (all.isEmpty() && word && term.length() >= FUZZY_MIN_LENGTH) {
+            matchFuzzy(term, all);
+            all.and(live);
+        }
+        return new BitSet[]{all, exact, prefix};
+    }
+
+    /**
+     * 模糊匹配：只比较首字符相同、长度相差不超过编辑距离的词
+     */
+    private void matchFuzzy(String term, BitSet result) {
+        int maxEdits = term.length() >= FUZZY_TWO_EDITS_LENGTH ? 2 : 1;
+        String first = term.substring(0, 1);
+        String next = String.valueOf((char) (first.charAt(0) + 1));
+        for (Map.Entry<String, IntList> entry : terms.subMap(first, true, next, false).entrySet()) {
+            String candidate = entry.getKey();
+            if (Math.abs(candidate.length() - term.length()) <= maxEdits
+                    && withinEditDistance(term, candidate, maxEdits)) {
+                entry.getValue().setAll(result);
+            }
+        }
+    }
+
+    /**
+     * 带上限的编辑距离判断，某一行最小值超过上限时提前结束
+     */
+    static boolean withinEditDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    /**
+     * 按分数和素材ID取一页结果，小顶堆只保留offset+limit个
+     * 文档号从大到小遍历，素材ID大致随文档号递增，堆填满后多数文档直接被淘汰
+     */
+    private List<Document> topDocuments(BitSet matched, List<BitSet[]> termMatches, int offset, int limit) {
+        int keep = offset + limit;
+        if (keep <= 0) {
+            return List.of();
+        }
+        Comparator<long[]> order = Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]);
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.min(keep, 1024) + 1, order);
+        for (int docId = matched.previousSetBit(matched.length()); docId >= 0; docId = matched.previousSetBit(docId - 1)) {
+            long score = 0;
+            for (BitSet[] match : termMatches) {
+                score += match[1].get(docId) ? SCORE_EXACT : match[2].get(docId) ? SCORE_PREFIX : SCORE_FUZZY;
+            }
+            long materialId = materialIds[docId];
+            if (heap.size() == keep) {
+                long[] lowest = heap.peek();
+                if (score < lowest[0] || (score == lowest[0] && materialId <= lowest[1])) {
+                    continue;
+                }
+                heap.poll();
+            }
+            heap.add(new long[]{score, materialId, docId});
+        }
+
+        List<long[]> ranked = new ArrayList<>(heap);
+        ranked.sort(order.reversed());
+        List<Document> page = new ArrayList<>(Math.max(0, ranked.size() - offset));
+        for (int i = offset; i < ranked.size(); i++) {
+            page.add(documents.get((int) ranked.get(i)[2]));
+        }
+        return page;
+    }
+
+    /**
+     * 递增的整数列表，用作倒排表
+     */
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.nan.cloud.file.infrastructure.repository.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.infrastructure.repository.mysql.DO.MaterialSearchDO;
+import org.nan.cloud.file.infrastructure.repository.mysql.mapper.MaterialMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 素材搜索索引
+ *
+ * 按组织维护内存倒排索引（{@link MaterialInvertedIndex}），查询不访问数据库：
+ * 1. 全量重建：启动时及每隔rebuildIntervalMinutes按素材ID分批读取，建好后整体替换
+ * 2. 增量同步：每隔refreshIntervalSeconds读取material和material_file中update_time之后变化的行，
+ *    覆盖新增、重命名和其他实例的文件删除
+ * 3. 本实例删除文件时同步从索引中移除
+ *
+ * core-service物理删除的素材没有更新时间可查，由全量重建清理。
+ * 索引未就绪（首次重建完成前）时调用方应回退到数据库查询。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MaterialSearchIndex {
+
+    /**
+     * 增量同步回看时间，容忍应用与数据库之间的时钟偏差
+     */
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    private final MaterialMapper materialMapper;
+    private final FileStorageProperties storageProperties;
+
+    private volatile Map<Long, MaterialInvertedIndex> indexes = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+    private volatile boolean rebuilding = false;
+
+    /**
+     * 重建期间发生的文件删除，替换索引后重放
+     */
+    private final Queue<String> removalsDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 增量同步起点，仅由索引线程访问
+     */
+    private LocalDateTime syncSince;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Material-Search-Index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.Search config = storageProperties.getSearch();
+        if (!config.isEnabled()) {
+            log.info("素材搜索索引未启用");
+            return;
+        }
+        executor.scheduleWithFixedDelay(this::rebuild, 0, config.getRebuildIntervalMinutes(), TimeUnit.MINUTES);
+        executor.scheduleWithFixedDelay(this::refresh, config.getRefreshIntervalSeconds(),
+                config.getRefreshIntervalSeconds(), TimeUnit.SECONDS);
+        log.info("素材搜索索引初始化完成 - 增量同步: {}s, 全量重建: {}min",
+                config.getRefreshIntervalSeconds(), config.getRebuildIntervalMinutes());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 索引是否已完成首次构建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 组织内关键词搜索
+     *
+     * @return 索引未就绪时返回空
+     */
+    public Optional<MaterialInvertedIndex.SearchHits> search(Long orgId, String keyword, String materialType,
+                                                           int offset, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        MaterialInvertedIndex index = indexes.get(orgId);
+        if (index == null) {
+            return Optional.of(new MaterialInvertedIndex.SearchHits(List.of(), 0, Map.of()));
+        }
+        return Optional.of(index.search(keyword, materialType, offset, limit));
+    }
+
+    /**
+     * 组织内各素材类型的数量
+     *
+     * @return 索引未就绪时返回空
+     */
+    public Optional<Map<String, Long>> typeCounts(Long orgId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        MaterialInvertedIndex index = indexes.get(orgId);
+        return Optional.of(index != null ? index.typeCounts() : Map.of());
+    }
+
+    /**
+     * 移除引用这些文件的素材
+     */
+    public void removeByFileIds(Collection<String> fileIds) {
+        if (rebuilding) {
+            removalsDuringRebuild.addAll(fileIds);
+        }
+        for (MaterialInvertedIndex index : indexes.values()) {
+            for (String fileId : fileIds) {
+                index.removeByFileId(fileId);
+            }
+        }
+    }
+
+    /**
+     * 索引统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long documents = 0;
+        long deleted = 0;
+        for (MaterialInvertedIndex index : indexes.values()) {
+            documents += index.size();
+            deleted += index.deletedCount();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("organizations", indexes.size());
+        stats.put("documents", documents);
+        stats.put("deletedDocuments", deleted);
+        return stats;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusSeconds(SYNC_OVERLAP_SECONDS);
+        int batchSize = storageProperties.getSearch().getBatchSize();
+        rebuilding = true;
+        try {
+            Map<Long, MaterialInvertedIndex> rebuilt = new ConcurrentHashMap<>();
+            long afterMid = 0;
+            long rows = 0;
+            while (true) {
+                List<MaterialSearchDO> batch = materialMapper.selectSearchRows(afterMid, batchSize);
+                for (MaterialSearchDO row : batch) {
+                    apply(row, rebuilt::computeIfAbsent);
+                }
+                rows += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                afterMid = batch.get(batch.size() - 1).getMid();
+            }
+
+            indexes = rebuilt;
+            syncSince = since;
+            ready = true;
+            log.info("素材搜索索引重建完成 - 组织数: {}, 素材数: {}, 耗时: {}ms",
+                    rebuilt.size(), rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("素材搜索索引重建失败: {}", e.getMessage(), e);
+        } finally {
+            rebuilding = false;
+            List<String> removals = new ArrayList<>();
+            for (String fileId; (fileId = removalsDuringRebuild.poll()) != null; ) {
+                removals.add(fileId);
+            }
+            if (!removals.isEmpty()) {
+                removeByFileIds(removals);
+            }
+        }
+    }
+
+    private void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            LocalDateTime next = syncSince;
+            next = max(next, refreshFrom(materialMapper::selectSearchRowsUpdatedSince));
+            next = max(next, refreshFrom(materialMapper::selectSearchRowsByFileUpdatedSince));
+            syncSince = next;
+        } catch (Exception e) {
+            log.warn("素材搜索索引增量同步失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 分页读取增量行并写入索引
+     *
+     * @return 读到的最大更新时间，没有变化时返回null
+     */
+    private LocalDateTime refreshFrom(IncrementalQuery query) {
+        int batchSize = storageProperties.getSearch().getBatchSize();
+        LocalDateTime since = syncSince;
+        LocalDateTime latest = null;
+        while (true) {
+            List<MaterialSearchDO> batch = query.select(since, batchSize);
+            for (MaterialSearchDO row : batch) {
+                apply(row, indexes::computeIfAbsent);
+                latest = max(latest, row.getUpdateTime());
+            }
+            if (batch.size() < batchSize || latest == null || !latest.isAfter(since)) {
+                // 同一时间点的变化超过一批时无法继续翻页，留给全量重建
+                return latest;
+            }
+            since = latest;
+        }
+    }
+
+    private void apply(MaterialSearchDO row, IndexResolver resolver) {
+        if (row.getOid() == null || row.getMid() == null) {
+            return;
+        }
+        MaterialInvertedIndex index = resolver.resolve(row.getOid(), oid -> new MaterialInvertedIndex());
+        boolean fileAvailable = row.getFileDeleted() != null && row.getFileDeleted() == 0;
+        if (!fileAvailable) {
+            index.remove(row.getMid());
+            return;
+        }
+        index.upsert(new MaterialInvertedIndex.Document(row.getMid(), row.getFileId(), row.getMaterialName(),
+                row.getMaterialType(), row.getDescription(), row.getFileExtension(), row.getMimeType()));
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    @FunctionalInterface
+    private interface IncrementalQuery {
+        List<MaterialSearchDO> select(LocalDateTime since, int limit);
+    }
+
+    @FunctionalInterface
+    private interface IndexResolver {
+        MaterialInvertedIndex resolve(Long orgId, Function<Long, MaterialInvertedIndex> factory);
+    }
+}
@@ -5,7 +5,9 @@ import org.nan.cloud.file.application.service.CircuitBreakerService;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,7 +15,9 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 /**
@@ -21,9 +25,9 @@ import java.util.function.Supplier;
  * 
  * 基于滑动窗口的智能熔断器实现：
  * 1. 三态熔断器 - CLOSED/OPEN/HALF_OPEN状态管理
- * 2. 滑动窗口统计 - 基于时间窗口的失败率计算
- * 3. 自适应阈值 - 根据历史表现动态调整阈值
- * 4. 智能恢复 - 基于成功率的渐进式恢复
+ * 2. 滑动窗口统计 - 时间分桶的环形计数，调用路径无锁
+ * 3. 舱壁隔离 - 按服务限制并发调用数，超出时直接降级
+ * 4. 智能恢复 - 半开状态连续成功后恢复，失败立即重新熔断
  * 5. 多策略降级 - 针对不同服务的定制化降级策略
  * 
  * Backend可靠性保证：
@@ -167,7 +171,7 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
      * 初始化默认配置
      */
     private void initializeDefaultConfigurations() {
-        // FFmpeg服务配置 - 容忍度较低，因为处理时间长
+        // FFmpeg服务配置 - 容忍度较低，因为处理时间长；进程占用CPU，限制并发
         serviceConfigs.put(FFMPEG_SERVICE, CircuitBreakerConfigImpl.builder()
                 .failureThreshold(3)
                 .timeout(Duration.ofSeconds(30))
@@ -175,9 +179,10 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
                 .failureRateThreshold(0.5)
                 .minimumRequests(5)
                 .slidingWindowSize(Duration.ofMinutes(2))
+                .maxConcurrentCalls(4)
                 .build());
         
-        // 缓存服务配置 - 高容忍度，快速恢复
+        // 缓存服务配置 - 高容忍度，快速恢复；不限并发，降级路径是数据源，限流只会加重数据源压力
         serviceConfigs.put(CACHE_SERVICE, CircuitBreakerConfigImpl.builder()
                 .failureThreshold(5)
                 .timeout(Duration.ofSeconds(5))
@@ -195,6 +200,7 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
                 .failureRateThreshold(0.6)
                 .minimumRequests(8)
                 .slidingWindowSize(Duration.ofMinutes(1))
+                .maxConcurrentCalls(64)
                 .build());
     }
     
@@ -218,9 +224,6 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
     private void startHealthCheckScheduler() {
         // 定期健康检查
         healthCheckExecutor.scheduleAtFixedRate(this::performHealthCheck, 30, 30, TimeUnit.SECONDS);
-        
-        // 定期清理过期统计数据
-        healthCheckExecutor.scheduleAtFixedRate(this::cleanupExpiredStatistics, 5, 5, TimeUnit.MINUTES);
     }
     
     /**
@@ -234,17 +237,6 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
         }
     }
     
-    /**
-     * 清理过期统计数据
-     */
-    private void cleanupExpiredStatistics() {
-        try {
-            circuitBreakers.values().forEach(CircuitBreakerInstance::cleanupExpiredStatistics);
-        } catch (Exception e) {
-            log.error("清理过期统计数据失败", e);
-        }
-    }
-    
     /**
      * 生成改进建议
      */
@@ -280,259 +272,340 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
     }
     
     // ==================== 内部类 ====================
-    
+
     /**
      * 熔断器实例
+     *
+     * 调用路径无锁：
+     * 1. 状态保存在AtomicReference中，状态转换均为CAS，并发时只有一个线程完成转换并记录
+     * 2. 请求结果计入时间分桶的滑动窗口（{@link SlidingWindow}），只在失败时汇总窗口判断是否熔断
+     * 3. 舱壁限制同时进行的调用数，超出时直接降级，不排队
+     * 4. 开启状态超过retryAfter后由下一个请求转入半开，不等待健康检查周期
      */
     private static class CircuitBreakerInstance {
+        /**
+         * 半开状态下连续成功多少次后关闭熔断器
+         */
+        private static final int HALF_OPEN_SUCCESSES_TO_CLOSE = 3;
+
         private final String serviceId;
         private volatile CircuitBreakerConfigImpl config;
-        private volatile CircuitBreakerState state = CircuitBreakerState.CLOSED;
-        private volatile LocalDateTime lastStateChange = LocalDateTime.now();
-        private volatile LocalDateTime lastRetryTime = LocalDateTime.now();
-        
+        private volatile SlidingWindow window;
+        private final AtomicReference<CircuitBreakerState> state = new AtomicReference<>(CircuitBreakerState.CLOSED);
+        private volatile long lastStateChangeMillis = System.currentTimeMillis();
+        private final AtomicInteger halfOpenSuccesses = new AtomicInteger(0);
+
+        // 舱壁
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+
         // 统计数据
-        private final AtomicLong totalRequests = new AtomicLong(0);
-        private final AtomicLong successfulRequests = new AtomicLong(0);
-        private final AtomicLong failedRequests = new AtomicLong(0);
+        private final LongAdder totalRequests = new LongAdder();
+        private final LongAdder successfulRequests = new LongAdder();
+        private final LongAdder failedRequests = new LongAdder();
+        private final LongAdder bulkheadRejected = new LongAdder();
         private final AtomicInteger circuitBreakerOpenCount = new AtomicInteger(0);
-        
-        // 滑动窗口统计
-        private final Queue<RequestRecord> requestHistory = new LinkedList<>();
-        private final Object historyLock = new Object();
-        
+
         public CircuitBreakerInstance(String serviceId, CircuitBreakerConfigImpl config) {
             this.serviceId = serviceId;
             this.config = config;
+            this.window = new SlidingWindow(config.getSlidingWindowSize());
         }
-        
+
         public <T> T execute(Supplier<T> operation, Supplier<T> fallback) {
             if (!canExecute()) {
-                log.debug("熔断器拦截请求 - service: {}, state: {}", serviceId, state);
+                log.debug("熔断器拦截请求 - service: {}, state: {}", serviceId, state.get());
                 return fallback.get();
             }
-            
+            // 取用时的上限，释放时使用同一值，配置更新不会使计数失衡
+            int bulkheadLimit = config.getMaxConcurrentCalls();
+            if (!acquireBulkhead(bulkheadLimit)) {
+                bulkheadRejected.increment();
+                return fallback.get();
+            }
+
             long startTime = System.currentTimeMillis();
-            totalRequests.incrementAndGet();
-            
+            totalRequests.increment();
+
+            T result;
             try {
-                T result = operation.get();
-                recordSuccess(startTime);
-                return result;
+                result = operation.get();
             } catch (Exception e) {
+                releaseBulkhead(bulkheadLimit);
                 recordFailure(startTime, e);
-                
-                if (shouldTrip()) {
-                    tripBreaker("失败率超过阈值");
-                }
-                
                 return fallback.get();
             }
+            releaseBulkhead(bulkheadLimit);
+            recordSuccess(startTime);
+            return result;
         }
-        
-        public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> operation, 
+
+        public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> operation,
                                                    Supplier<CompletableFuture<T>> fallback) {
             if (!canExecute()) {
                 return fallback.get();
             }
-            
+            int bulkheadLimit = config.getMaxConcurrentCalls();
+            if (!acquireBulkhead(bulkheadLimit)) {
+                bulkheadRejected.increment();
+                return fallback.get();
+            }
+
             long startTime = System.currentTimeMillis();
-            totalRequests.incrementAndGet();
-            
-            return operation.get()
+            totalRequests.increment();
+
+            CompletableFuture<T> future;
+            try {
+                future = operation.get();
+            } catch (Exception e) {
+                releaseBulkhead(bulkheadLimit);
+                recordFailure(startTime, e);
+                return fallback.get();
+            }
+            return future
                     .whenComplete((result, throwable) -> {
+                        releaseBulkhead(bulkheadLimit);
                         if (throwable == null) {
                             recordSuccess(startTime);
                         } else {
                             recordFailure(startTime, throwable);
-                            if (shouldTrip()) {
-                                tripBreaker("异步操作失败率超过阈值");
-                            }
                         }
                     })
                     .exceptionally(throwable -> {
                         return fallback.get().join();
                     });
         }
-        
+
         public CircuitBreakerState getState() {
-            return state;
+            return state.get();
         }
-        
+
         public void tripBreaker(String reason) {
-            state = CircuitBreakerState.OPEN;
-            lastStateChange = LocalDateTime.now();
-            circuitBreakerOpenCount.incrementAndGet();
-            log.warn("熔断器开启 - service: {}, reason: {}", serviceId, reason);
+            state.set(CircuitBreakerState.OPEN);
+            onStateChanged(CircuitBreakerState.OPEN, reason);
         }
-        
+
         public void reset() {
-            state = CircuitBreakerState.CLOSED;
-            lastStateChange = LocalDateTime.now();
-            log.info("熔断器重置 - service: {}", serviceId);
+            state.set(CircuitBreakerState.CLOSED);
+            onStateChanged(CircuitBreakerState.CLOSED, "手动重置");
         }
-        
+
         public void updateConfig(CircuitBreakerConfig newConfig) {
             this.config = new CircuitBreakerConfigImpl(newConfig);
+            this.window = new SlidingWindow(config.getSlidingWindowSize());
         }
-        
+
         public CircuitBreakerStatistics getStatistics() {
+            long total = totalRequests.sum();
             return new CircuitBreakerStatisticsImpl(
-                    state,
-                    totalRequests.get(),
-                    successfulRequests.get(),
-                    failedRequests.get(),
-                    calculateFailureRate(),
-                    calculateAverageResponseTime(),
+                    state.get(),
+                    total,
+                    successfulRequests.sum(),
+                    failedRequests.sum(),
+                    total == 0 ? 0.0 : (double) failedRequests.sum() / total,
+                    window.averageResponseTime(System.currentTimeMillis()),
                     circuitBreakerOpenCount.get(),
-                    lastStateChange
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(lastStateChangeMillis), ZoneId.systemDefault()),
+                    bulkheadRejected.sum()
             );
         }
-        
+
         public void performHealthCheck() {
-            if (state == CircuitBreakerState.OPEN && shouldAttemptReset()) {
-                state = CircuitBreakerState.HALF_OPEN;
-                lastStateChange = LocalDateTime.now();
-                log.info("熔断器进入半开状态 - service: {}", serviceId);
-            } else if (state == CircuitBreakerState.HALF_OPEN && shouldCloseFromHalfOpen()) {
-                state = CircuitBreakerState.CLOSED;
-                lastStateChange = LocalDateTime.now();
-                log.info("熔断器恢复关闭状态 - service: {}", serviceId);
-            }
-        }
-        
-        public void cleanupExpiredStatistics() {
-            synchronized (historyLock) {
-                LocalDateTime cutoff = LocalDateTime.now().minus(config.getSlidingWindowSize());
-                requestHistory.removeIf(record -> record.getTimestamp().isBefore(cutoff));
+            if (state.get() == CircuitBreakerState.OPEN && shouldAttemptReset()) {
+                transition(CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN, "到达重试时间");
+            } else if (state.get() == CircuitBreakerState.HALF_OPEN
+                    && halfOpenSuccesses.get() >= HALF_OPEN_SUCCESSES_TO_CLOSE) {
+                transition(CircuitBreakerState.HALF_OPEN, CircuitBreakerState.CLOSED, "半开探测成功");
             }
         }
-        
+
         // ==================== 私有方法 ====================
-        
+
         private boolean canExecute() {
-            return state == CircuitBreakerState.CLOSED || state == CircuitBreakerState.HALF_OPEN;
+            if (state.get() != CircuitBreakerState.OPEN) {
+                return true;
+            }
+            if (shouldAttemptReset()) {
+                transition(CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN, "到达重试时间");
+            }
+            return state.get() != CircuitBreakerState.OPEN;
         }
-        
+
+        private boolean acquireBulkhead(int limit) {
+            if (limit <= 0) {
+                return true;
+            }
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseBulkhead(int limit) {
+            if (limit > 0) {
+                inFlight.decrementAndGet();
+            }
+        }
+
         private void recordSuccess(long startTime) {
-            successfulRequests.incrementAndGet();
-            long responseTime = System.currentTimeMillis() - startTime;
-            
-            synchronized (historyLock) {
-                requestHistory.offer(new RequestRecord(LocalDateTime.now(), true, responseTime));
+            long now = System.currentTimeMillis();
+            successfulRequests.increment();
+            window.record(now, true, now - startTime);
+
+            if (state.get() == CircuitBreakerState.HALF_OPEN
+                    && halfOpenSuccesses.incrementAndGet() >= HALF_OPEN_SUCCESSES_TO_CLOSE) {
+                transition(CircuitBreakerState.HALF_OPEN, CircuitBreakerState.CLOSED, "半开探测成功");
             }
-            
-            log.debug("请求成功 - service: {}, responseTime: {}ms", serviceId, responseTime);
         }
-        
+
         private void recordFailure(long startTime, Throwable throwable) {
-            failedRequests.incrementAndGet();
-            long responseTime = System.currentTimeMillis() - startTime;
-            
-            synchronized (historyLock) {
-                requestHistory.offer(new RequestRecord(LocalDateTime.now(), false, responseTime));
+            long now = System.currentTimeMillis();
+            failedRequests.increment();
+            window.record(now, false, now - startTime);
+
+            if (log.isDebugEnabled()) {
+                log.debug("请求失败 - service: {}, responseTime: {}ms, error: {}",
+                         serviceId, now - startTime, throwable.getMessage());
+            }
+
+            CircuitBreakerState current = state.get();
+            if (current == CircuitBreakerState.HALF_OPEN) {
+                transition(CircuitBreakerState.HALF_OPEN, CircuitBreakerState.OPEN, "半开探测失败");
+            } else if (current == CircuitBreakerState.CLOSED
+                    && window.exceeds(now, config.getMinimumRequests(), config.getFailureRateThreshold())) {
+                transition(CircuitBreakerState.CLOSED, CircuitBreakerState.OPEN, "失败率超过阈值");
             }
-            
-            log.debug("请求失败 - service: {}, responseTime: {}ms, error: {}", 
-                     serviceId, responseTime, throwable.getMessage());
         }
-        
-        private boolean shouldTrip() {
-            synchronized (historyLock) {
-                if (requestHistory.size() < config.getMinimumRequests()) {
-                    return false;
+
+        private boolean shouldAttemptReset() {
+            return System.currentTimeMillis() - lastStateChangeMillis >= config.getRetryAfter().toMillis();
+        }
+
+        /**
+         * CAS状态转换，只有转换成功的线程执行后续处理
+         */
+        private void transition(CircuitBreakerState from, CircuitBreakerState to, String reason) {
+            if (state.compareAndSet(from, to)) {
+                onStateChanged(to, reason);
+            }
+        }
+
+        private void onStateChanged(CircuitBreakerState to, String reason) {
+            lastStateChangeMillis = System.currentTimeMillis();
+            switch (to) {
+                case OPEN -> {
+                    circuitBreakerOpenCount.incrementAndGet();
+                    log.warn("熔断器开启 - service: {}, reason: {}", serviceId, reason);
                 }
-                
-                LocalDateTime windowStart = LocalDateTime.now().minus(config.getSlidingWindowSize());
-                long recentRequests = requestHistory.stream()
-                        .filter(record -> record.getTimestamp().isAfter(windowStart))
-                        .count();
-                
-                if (recentRequests < config.getMinimumRequests()) {
-                    return false;
+                case HALF_OPEN -> {
+                    halfOpenSuccesses.set(0);
+                    log.info("熔断器进入半开状态 - service: {}", serviceId);
+                }
+                case CLOSED -> {
+                    // 清除导致熔断的失败记录，避免关闭后第一次失败就再次熔断
+                    window.reset();
+                    log.info("熔断器恢复关闭状态 - service: {}, reason: {}", serviceId, reason);
                 }
-                
-                double failureRate = calculateRecentFailureRate(windowStart);
-                return failureRate >= config.getFailureRateThreshold();
             }
         }
-        
-        private boolean shouldAttemptReset() {
-            return Duration.between(lastStateChange, LocalDateTime.now()).compareTo(config.getRetryAfter()) >= 0;
-        }
-        
-        private boolean shouldCloseFromHalfOpen() {
-            // 半开状态下，如果最近几次请求都成功，则关闭熔断器
-            synchronized (historyLock) {
-                LocalDateTime recentTime = LocalDateTime.now().minusMinutes(1);
-                long recentSuccesses = requestHistory.stream()
-                        .filter(record -> record.getTimestamp().isAfter(recentTime))
-                        .filter(RequestRecord::isSuccess)
-                        .count();
-                
-                return recentSuccesses >= 3; // 至少3次成功请求
+    }
+
+    /**
+     * 时间分桶的滑动窗口
+     *
+     * 窗口均分为BUCKETS个桶，桶按时间循环复用，计数用LongAdder分散竞争。
+     * 过期桶由第一个访问的线程CAS更新时间片后清零，清零与并发计数交错时可能丢失个别计数，
+     * 不影响失败率判断。
+     */
+    private static final class SlidingWindow {
+        private static final int BUCKETS = 10;
+
+        private final long bucketMillis;
+        private final Bucket[] buckets = new Bucket[BUCKETS];
+
+        SlidingWindow(Duration size) {
+            this.bucketMillis = Math.max(1, size.toMillis() / BUCKETS);
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new Bucket();
             }
         }
-        
-        private double calculateFailureRate() {
-            long total = totalRequests.get();
-            if (total == 0) {
-                return 0.0;
+
+        void record(long now, boolean success, long responseMillis) {
+            long slice = now / bucketMillis;
+            Bucket bucket = buckets[(int) (slice % BUCKETS)];
+            long seen = bucket.slice;
+            if (seen != slice && seen < slice && Bucket.SLICE.compareAndSet(bucket, seen, slice)) {
+                bucket.clear();
             }
-            return (double) failedRequests.get() / total;
+            (success ? bucket.successes : bucket.failures).increment();
+            bucket.responseMillis.add(responseMillis);
         }
-        
-        private double calculateRecentFailureRate(LocalDateTime windowStart) {
-            List<RequestRecord> recentRecords = requestHistory.stream()
-                    .filter(record -> record.getTimestamp().isAfter(windowStart))
-                    .toList();
-            
-            if (recentRecords.isEmpty()) {
-                return 0.0;
+
+        /**
+         * 窗口内请求数达到最小请求数且失败率达到阈值
+         */
+        boolean exceeds(long now, int minimumRequests, double failureRateThreshold) {
+            long slice = now / bucketMillis;
+            long successes = 0;
+            long failures = 0;
+            for (Bucket bucket : buckets) {
+                if (inWindow(slice, bucket)) {
+                    successes += bucket.successes.sum();
+                    failures += bucket.failures.sum();
+                }
             }
-            
-            long failures = recentRecords.stream()
-                    .filter(record -> !record.isSuccess())
-                    .count();
-            
-            return (double) failures / recentRecords.size();
+            long total = successes + failures;
+            return total > 0 && total >= minimumRequests && (double) failures / total >= failureRateThreshold;
         }
-        
-        private Duration calculateAverageResponseTime() {
-            synchronized (historyLock) {
-                if (requestHistory.isEmpty()) {
-                    return Duration.ZERO;
+
+        Duration averageResponseTime(long now) {
+            long slice = now / bucketMillis;
+            long requests = 0;
+            long millis = 0;
+            for (Bucket bucket : buckets) {
+                if (inWindow(slice, bucket)) {
+                    requests += bucket.successes.sum() + bucket.failures.sum();
+                    millis += bucket.responseMillis.sum();
                 }
-                
-                double avgMs = requestHistory.stream()
-                        .mapToLong(RequestRecord::getResponseTime)
-                        .average()
-                        .orElse(0.0);
-                
-                return Duration.ofMillis((long) avgMs);
+            }
+            return requests == 0 ? Duration.ZERO : Duration.ofMillis(millis / requests);
+        }
+
+        void reset() {
+            for (Bucket bucket : buckets) {
+                bucket.clear();
             }
         }
+
+        private static boolean inWindow(long slice, Bucket bucket) {
+            long age = slice - bucket.slice;
+            return age >= 0 && age < BUCKETS;
+        }
     }
-    
+
     /**
-     * 请求记录
+     * 滑动窗口中的一个时间片
      */
-    private static class RequestRecord {
-        private final LocalDateTime timestamp;
-        private final boolean success;
-        private final long responseTime;
-        
-        public RequestRecord(LocalDateTime timestamp, boolean success, long responseTime) {
-            this.timestamp = timestamp;
-            this.success = success;
-            this.responseTime = responseTime;
+    private static final class Bucket {
+        private static final AtomicLongFieldUpdater<Bucket> SLICE =
+                AtomicLongFieldUpdater.newUpdater(Bucket.class, "slice");
+
+        private volatile long slice = -1;
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder responseMillis = new LongAdder();
+
+        void clear() {
+            successes.reset();
+            failures.reset();
+            responseMillis.reset();
         }
-        
-        public LocalDateTime getTimestamp() { return timestamp; }
-        public boolean isSuccess() { return success; }
-        public long getResponseTime() { return responseTime; }
     }
-    
+
     // ==================== 配置和统计实现类 ====================
     
     @lombok.Data
@@ -544,6 +617,7 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
         private final double failureRateThreshold;
         private final int minimumRequests;
         private final Duration slidingWindowSize;
+        private final int maxConcurrentCalls;
         
         public CircuitBreakerConfigImpl(CircuitBreakerConfig config) {
             this.failureThreshold = config.getFailureThreshold();
@@ -552,16 +626,19 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
             this.failureRateThreshold = config.getFailureRateThreshold();
             this.minimumRequests = config.getMinimumRequests();
             this.slidingWindowSize = config.getSlidingWindowSize();
+            this.maxConcurrentCalls = config.getMaxConcurrentCalls();
         }
         
         private CircuitBreakerConfigImpl(int failureThreshold, Duration timeout, Duration retryAfter,
-                                       double failureRateThreshold, int minimumRequests, Duration slidingWindowSize) {
+                                       double failureRateThreshold, int minimumRequests, Duration slidingWindowSize,
+                                       int maxConcurrentCalls) {
             this.failureThreshold = failureThreshold;
             this.timeout = timeout;
             this.retryAfter = retryAfter;
             this.failureRateThreshold = failureRateThreshold;
             this.minimumRequests = minimumRequests;
             this.slidingWindowSize = slidingWindowSize;
+            this.maxConcurrentCalls = maxConcurrentCalls;
         }
     }
     
@@ -573,7 +650,8 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
             double failureRate,
             Duration averageResponseTime,
             long circuitBreakerOpenCount,
-            LocalDateTime lastStateChange
+            LocalDateTime lastStateChange,
+            long bulkheadRejectedRequests
     ) implements CircuitBreakerStatistics {
         
         @Override
@@ -592,6 +670,8 @@ public class ResilientCircuitBreakerServiceImpl implements CircuitBreakerService
         public long getCircuitBreakerOpenCount() { return circuitBreakerOpenCount; }
         @Override
         public LocalDateTime getLastStateChange() { return lastStateChange; }
+        @Override
+        public long getBulkheadRejectedRequests() { return bulkheadRejectedRequests; }
     }
     
     private record CircuitBreakerHealthReportImpl(
@@ -0,0 +1,424 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.repository.FileInfoRepository;
+import org.nan.cloud.file.application.service.StorageService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 内容寻址Blob存储
+ *
+ * 目录结构（位于存储根目录下）：
+ * - blobs/{md5[0,2)}/{md5[2,4)}/{md5}               文件内容，只按内容哈希命名
+ * - blobs/{md5[0,2)}/{md5[2,4)}/{md5}.refs/{fileId}  引用标记，每个fileId一个空文件
+ * - blobs/.gc/{md5}                                  待回收候选标记
+ *
+ * 设计考虑：
+ * - 引用以标记文件表示，增减引用都是幂等的单文件操作，崩溃重试不会重复计数
+ * - 同一内容的写入、引用变更和回收在同一把分段锁下进行，回收前在锁内复查引用数
+ * - 引用归零时只登记回收候选，由后台任务在宽限期后删除，避免与并发上传竞争
+ * - 候选标记总是先于可能产生孤儿Blob的操作写入，崩溃后孤儿Blob仍会被回收
+ *
+ * 崩溃一致性（与文件记录之间）：
+ * - 每个fileId（包括秒传）都有独立的文件记录和一个引用标记，两者一一对应
+ * - 上传先添加引用再保存文件记录，删除先软删除文件记录再释放引用，中断只会多出引用
+ * - 按fileId核对：引用对应的fileId已没有有效文件记录且超过宽限期时视为孤儿并移除；
+ *   有效文件记录指向该Blob却没有引用时，为该fileId补回引用
+ * - 回收前再次确认没有有效文件记录指向该Blob，核对之前也不会误删仍在使用的内容
+ * - 早期按"{md5}.{ext}"命名的Blob仍按存储路径查找，引用与回收逻辑不变
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentAddressedBlobStore {
+
+    static final String BLOB_DIR = "blobs";
+    private static final String GC_DIR = ".gc";
+    private static final String REFS_SUFFIX = ".refs";
+    private static final int LOCK_STRIPES = 256;
+
+    private final FileStorageProperties storageProperties;
+
+    private final StorageStatisticsLedger statisticsLedger;
+
+    private final FileInfoRepository fileInfoRepository;
+
+    private final ReentrantLock[] locks = createLocks();
+
+    /**
+     * 后台垃圾回收服务
+     */
+    private final ScheduledExecutorService gcExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "BlobStore-GC");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        if (!storageProperties.getStorage().getLocal().isContentAddressed()) {
+            return;
+        }
+        gcExecutor.scheduleWithFixedDelay(this::collectGarbage, 5, 10, TimeUnit.MINUTES);
+        int reconcileMinutes = storageProperties.getStorage().getLocal().getRefReconcileIntervalMinutes();
+        gcExecutor.scheduleWithFixedDelay(this::reconcileReferences, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+        log.info("内容寻址存储已启用 - 回收宽限期: {}分钟", storageProperties.getStorage().getLocal().getGcGraceMinutes());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gcExecutor.shutdown();
+    }
+
+    /**
+     * 写入内容并为fileId增加引用；内容已存在时丢弃暂存文件
+     *
+     * @param stagedFile 已计算MD5的暂存文件
+     * @param fileId 引用方文件ID
+     * @return Blob存储路径（相对存储根目录）
+     */
+    public String put(StorageService.StagedFile stagedFile, String fileId) throws IOException {
+        String blobName = blobName(stagedFile.getMd5Hash());
+        String blobPath = blobPath(blobName);
+        Path blob = resolve(blobPath);
+
+        ReentrantLock lock = lockFor(blobName);
+        lock.lock();
+        try {
+            if (Files.exists(blob)) {
+                Files.deleteIfExists(stagedFile.getPath());
+                log.debug("内容已存在，复用Blob - 路径: {}, 文件ID: {}", blobPath, fileId);
+            } else {
+                // 先登记回收候选，若在添加引用前崩溃，孤儿Blob仍会被回收
+                markCandidate(blobName);
+                Files.createDirectories(blob.getParent());
+                try {
+                    Files.move(stagedFile.getPath(), blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(stagedFile.getPath(), blob, StandardCopyOption.REPLACE_EXISTING);
+                }
+                statisticsLedger.recordPhysical(1, stagedFile.getSize());
+                log.debug("写入新Blob - 路径: {}, 大小: {}", blobPath, stagedFile.getSize());
+            }
+            addRefLocked(blob, fileId);
+            return blobPath;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 为已有Blob增加引用（秒传场景）
+     *
+     * @return Blob存在且引用添加成功返回true
+     */
+    public boolean addRef(String blobPath, String fileId) throws IOException {
+        Path blob = resolve(blobPath);
+        ReentrantLock lock = lockFor(blob.getFileName().toString());
+        lock.lock();
+        try {
+            if (!Files.exists(blob)) {
+                return false;
+            }
+            addRefLocked(blob, fileId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除fileId对Blob的引用；引用归零时登记回收候选，由后台任务删除
+     *
+     * @return 引用存在并被移除返回true
+     */
+    public boolean removeRef(String blobPath, String fileId) throws IOException {
+        Path blob = resolve(blobPath);
+        String blobName = blob.getFileName().toString();
+        ReentrantLock lock = lockFor(blobName);
+        lock.lock();
+        try {
+            // 先登记候选再删除引用，保证引用归零的Blob一定有候选标记
+            markCandidate(blobName);
+            boolean removed = Files.deleteIfExists(refsDir(blob).resolve(validateFileId(fileId)));
+            log.debug("移除Blob引用 - 路径: {}, 文件ID: {}, 剩余引用: {}", blobPath, fileId, countRefs(blob));
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取Blob的引用数
+     */
+    public long refCount(String blobPath) throws IOException {
+        return countRefs(resolve(blobPath));
+    }
+
+    /**
+     * 判断存储路径是否为内容寻址Blob
+     */
+    public boolean isBlobPath(String storagePath) {
+        return storagePath != null && storagePath.replace('\\', '/').startsWith(BLOB_DIR + "/");
+    }
+
+    /**
+     * 回收引用数为零且超过宽限期的Blob
+     *
+     * @return 回收的Blob数量
+     */
+    public int collectGarbage() {
+        Path gcDir = root().resolve(BLOB_DIR).resolve(GC_DIR);
+        if (!Files.isDirectory(gcDir)) {
+            return 0;
+        }
+
+        long graceMillis = TimeUnit.MINUTES.toMillis(storageProperties.getStorage().getLocal().getGcGraceMinutes());
+        long now = System.currentTimeMillis();
+        int collected = 0;
+
+        try (DirectoryStream<Path> candidates = Files.newDirectoryStream(gcDir)) {
+            for (Path candidate : candidates) {
+                String blobName = candidate.getFileName().toString();
+                ReentrantLock lock = lockFor(blobName);
+                lock.lock();
+                try {
+                    Path blob = resolve(blobPath(blobName));
+                    if (!Files.exists(blob) || countRefs(blob) > 0) {
+                        // 已被回收或重新被引用
+                        if (!Files.exists(blob)) {
+                            deleteRecursively(refsDir(blob));
+                        }
+                        Files.deleteIfExists(candidate);
+                        continue;
+                    }
+                    if (now - Files.getLastModifiedTime(candidate).toMillis() < graceMillis) {
+                        continue;
+                    }
+                    if (isReferencedByRecord(blobPath(blobName))) {
+                        // 引用丢失但文件记录仍有效，保留内容，由引用核对补回引用
+                        log.warn("Blob无引用但仍有文件记录，跳过回收 - 名称: {}", blobName);
+                        Files.deleteIfExists(candidate);
+                        continue;
+                    }
+                    long size = Files.size(blob);
+                    if (Files.deleteIfExists(blob)) {
+                        statisticsLedger.recordPhysical(-1, -size);
+                    }
+                    deleteRecursively(refsDir(blob));
+                    Files.deleteIfExists(candidate);
+                    collected++;
+                    log.debug("回收无引用Blob - 名称: {}", blobName);
+                } catch (Exception e) {
+                    log.warn("回收Blob失败 - 名称: {}, 错误: {}", blobName, e.getMessage());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Blob垃圾回收失败 - 错误: {}", e.getMessage(), e);
+        }
+
+        if (collected > 0) {
+            log.info("Blob垃圾回收完成 - 回收数量: {}", collected);
+        }
+        return collected;
+    }
+
+    /**
+     * 核对Blob引用与文件记录，修复上传或删除中断留下的不一致
+     *
+     * @return 修复的引用数量
+     */
+    public int reconcileReferences() {
+        Path blobRoot = root().resolve(BLOB_DIR);
+        if (!Files.isDirectory(blobRoot)) {
+            return 0;
+        }
+
+        long graceMillis = TimeUnit.MINUTES.toMillis(storageProperties.getStorage().getLocal().getGcGraceMinutes());
+        long now = System.currentTimeMillis();
+        int repaired = 0;
+
+        List<Path> blobs;
+        try (Stream<Path> paths = Files.walk(blobRoot, 3)) {
+            blobs = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getParent().getFileName().toString().endsWith(REFS_SUFFIX))
+                    .filter(path -> !path.getParent().getFileName().toString().equals(GC_DIR))
+                    .toList();
+        } catch (IOException e) {
+            log.error("Blob引用核对失败 - 错误: {}", e.getMessage(), e);
+            return 0;
+        }
+
+        for (Path blob : blobs) {
+            String blobName = blob.getFileName().toString();
+            ReentrantLock lock = lockFor(blobName);
+            lock.lock();
+            try {
+                if (!Files.exists(blob)) {
+                    continue;
+                }
+                Set<String> liveFileIds = new HashSet<>(fileInfoRepository.findFileIdsByStoragePath(blobPath(blobName)));
+                Set<String> refFileIds = new HashSet<>();
+                for (Path ref : listRefs(blob)) {
+                    String fileId = ref.getFileName().toString();
+                    refFileIds.add(fileId);
+                    // 没有有效文件记录：上传在保存记录前中断，或删除在释放引用前中断；
+                    // 宽限期内的引用可能属于尚未提交记录的上传，暂不处理
+                    if (!liveFileIds.contains(fileId) && now - Files.getLastModifiedTime(ref).toMillis() >= graceMillis) {
+                        markCandidate(blobName);
+                        Files.deleteIfExists(ref);
+                        repaired++;
+                        log.info("移除孤儿Blob引用 - 名称: {}, 文件ID: {}", blobName, fileId);
+                    }
+                }
+                for (String fileId : liveFileIds) {
+                    if (!refFileIds.contains(fileId)) {
+                        addRefLocked(blob, fileId);
+                        repaired++;
+                        log.info("补回Blob引用 - 名称: {}, 文件ID: {}", blobName, fileId);
+                    }
+                }
+            } catch (Exception e) {
+                // 查询失败时不做任何修改，下一轮再核对
+                log.warn("核对Blob引用失败 - 名称: {}, 错误: {}", blobName, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("Blob引用核对完成 - 修复数量: {}", repaired);
+        }
+        return repaired;
+    }
+
+    // 私有辅助方法
+
+    /**
+     * 回收前的复查；查询失败时按仍被引用处理，宁可推迟回收
+     */
+    private boolean isReferencedByRecord(String blobPath) {
+        try {
+            return !fileInfoRepository.findFileIdsByStoragePath(blobPath).isEmpty();
+        } catch (Exception e) {
+            log.warn("查询Blob文件记录失败，推迟回收 - 路径: {}, 错误: {}", blobPath, e.getMessage());
+            return true;
+        }
+    }
+
+    private List<Path> listRefs(Path blob) throws IOException {
+        Path refsDir = refsDir(blob);
+        if (!Files.isDirectory(refsDir)) {
+            return List.of();
+        }
+        try (Stream<Path> refs = Files.list(refsDir)) {
+            return refs.toList();
+        }
+    }
+
+    private void addRefLocked(Path blob, String fileId) throws IOException {
+        Path refsDir = refsDir(blob);
+        Files.createDirectories(refsDir);
+        Path ref = refsDir.resolve(validateFileId(fileId));
+        if (!Files.exists(ref)) {
+            Files.createFile(ref);
+        }
+        // 刷新修改时间，重新被引用的Blob不会在宽限期内被误判
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    private long countRefs(Path blob) throws IOException {
+        Path refsDir = refsDir(blob);
+        if (!Files.isDirectory(refsDir)) {
+            return 0;
+        }
+        try (Stream<Path> refs = Files.list(refsDir)) {
+            return refs.count();
+        }
+    }
+
+    private void markCandidate(String blobName) throws IOException {
+        Path gcDir = root().resolve(BLOB_DIR).resolve(GC_DIR);
+        Files.createDirectories(gcDir);
+        Path candidate = gcDir.resolve(blobName);
+        if (Files.exists(candidate)) {
+            Files.setLastModifiedTime(candidate, FileTime.fromMillis(System.currentTimeMillis()));
+        } else {
+            Files.createFile(candidate);
+        }
+    }
+
+    private void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(java.util.Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static String blobName(String md5Hash) {
+        if (md5Hash == null || !md5Hash.matches("[0-9a-f]{32}")) {
+            throw new IllegalArgumentException("非法的MD5: " + md5Hash);
+        }
+        return md5Hash;
+    }
+
+    private static String blobPath(String blobName) {
+        return BLOB_DIR + "/" + blobName.substring(0, 2) + "/" + blobName.substring(2, 4) + "/" + blobName;
+    }
+
+    private static Path refsDir(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + REFS_SUFFIX);
+    }
+
+    private static String validateFileId(String fileId) {
+        if (fileId == null || !fileId.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("非法的文件ID: " + fileId);
+        }
+        return fileId;
+    }
+
+    private ReentrantLock lockFor(String blobName) {
+        return locks[Math.floorMod(blobName.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Path root() {
+        return Paths.get(storageProperties.getStorage().getLocal().getBasePath());
+    }
+
+    private Path resolve(String storagePath) {
+        return root().resolve(storagePath);
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,400 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.domain.ChunkUploadSession;
+import org.nan.cloud.file.application.service.ChunkStorageService;
+import org.nan.cloud.file.application.utils.StreamingHashCalculator;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘分片存储服务实现
+ *
+ * 目录结构：{chunkRoot}/{uploadId}/
+ * - session.properties  会话信息
+ * - {n}.chunk           已完成的分片
+ * - {n}.chunk.*.tmp     写入中的分片
+ * - assembled.tmp       合并结果
+ *
+ * 设计考虑：
+ * - 分片先写临时文件再原子重命名，并行/重复上传同一分片互不干扰
+ * - 已完成分片以文件形式存在，重启后直接扫描目录即可恢复进度
+ * - 合并时顺序读取分片，通过HashingOutputStream边写边算MD5，只做一次IO
+ * - 会话状态切换按上传ID串行化（ConcurrentHashMap.compute），重复complete只有一个生效
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LocalChunkStorageServiceImpl implements ChunkStorageService {
+
+    private static final String SESSION_FILE = "session.properties";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String ASSEMBLED_FILE = "assembled.tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int ASSEMBLE_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileStorageProperties storageProperties;
+
+    /**
+     * 定时清理服务
+     */
+    private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ChunkStorage-Cleanup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 会话状态切换锁，compute返回null不保留条目，只在切换期间占用该键
+     */
+    private final ConcurrentMap<String, Object> sessionLocks = new ConcurrentHashMap<>();
+
+    private Path chunkRoot;
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.Storage.Local local = storageProperties.getStorage().getLocal();
+        String configured = local.getChunk().getPath();
+        chunkRoot = configured != null && !configured.isBlank()
+                ? Paths.get(configured)
+                : Paths.get(local.getTempPath(), "chunks");
+        try {
+            Files.createDirectories(chunkRoot);
+        } catch (IOException e) {
+            log.warn("创建分片目录失败 - 路径: {}, 错误: {}", chunkRoot, e.getMessage());
+        }
+
+        // 每小时清理一次过期的未完成会话
+        int expireHours = local.getChunk().getSessionExpireHours();
+        cleanupExecutor.scheduleWithFixedDelay(() -> cleanupExpiredSessions(expireHours), 10, 60, TimeUnit.MINUTES);
+
+        log.info("分片存储服务初始化完成 - 分片目录: {}, 会话过期: {}小时", chunkRoot, expireHours);
+    }
+
+    @Override
+    public void createSession(ChunkUploadSession session) {
+        try {
+            Files.createDirectories(sessionDir(session.getUploadId()));
+            writeSessionFile(session);
+            log.debug("创建分片上传会话 - 上传ID: {}, 总分片: {}", session.getUploadId(), session.getTotalChunks());
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建分片上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ChunkUploadSession loadSession(String uploadId) {
+        Path sessionFile = sessionDir(uploadId).resolve(SESSION_FILE);
+        if (!Files.exists(sessionFile)) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(sessionFile)) {
+            props.load(reader);
+        } catch (IOException e) {
+            log.error("读取分片上传会话失败 - 上传ID: {}, 错误: {}", uploadId, e.getMessage());
+            return null;
+        }
+
+        return ChunkUploadSession.builder()
+                .uploadId(props.getProperty("uploadId"))
+                .fileId(props.getProperty("fileId"))
+                .taskId(props.getProperty("taskId"))
+                .originalFilename(props.getProperty("originalFilename"))
+                .contentType(props.getProperty("contentType"))
+                .fileSize(Long.parseLong(props.getProperty("fileSize")))
+                .chunkSize(Long.parseLong(props.getProperty("chunkSize")))
+                .totalChunks(Integer.parseInt(props.getProperty("totalChunks")))
+                .oid(parseLong(props.getProperty("oid")))
+                .uid(parseLong(props.getProperty("uid")))
+                .ugid(parseLong(props.getProperty("ugid")))
+                .folderId(props.getProperty("folderId"))
+                .materialName(props.getProperty("materialName"))
+                .description(props.getProperty("description"))
+                .status(ChunkUploadSession.SessionStatus.valueOf(props.getProperty("status")))
+                .createTime(LocalDateTime.parse(props.getProperty("createTime")))
+                .build();
+    }
+
+    @Override
+    public void updateSession(ChunkUploadSession session) {
+        try {
+            writeSessionFile(session);
+        } catch (IOException e) {
+            throw new UncheckedIOException("更新分片上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ChunkUploadSession beginAssembling(String uploadId, String taskId) {
+        ChunkUploadSession[] claimed = new ChunkUploadSession[1];
+        sessionLocks.compute(uploadId, (id, ignored) -> {
+            ChunkUploadSession session = loadSession(id);
+            if (session != null && session.getStatus() == ChunkUploadSession.SessionStatus.UPLOADING
+                    && session.getTaskId() == null) {
+                session.setTaskId(taskId);
+                session.setStatus(ChunkUploadSession.SessionStatus.ASSEMBLING);
+                updateSession(session);
+                claimed[0] = session;
+            }
+            return null;
+        });
+        return claimed[0];
+    }
+
+    @Override
+    public long writeChunk(ChunkUploadSession session, int chunkNumber, InputStream inputStream) {
+        long expectedSize = session.expectedChunkSize(chunkNumber);
+        Path dir = sessionDir(session.getUploadId());
+        Path tempFile = dir.resolve(chunkNumber + CHUNK_SUFFIX + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            long written;
+            try (InputStream in = inputStream;
+                 OutputStream out = Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW)) {
+                written = copy(in, out, expectedSize);
+            }
+
+            if (written != expectedSize) {
+                throw new IllegalArgumentException(String.format(
+                        "分片大小不匹配 - 分片: %d, 期望: %d bytes, 实际: %d bytes", chunkNumber, expectedSize, written));
+            }
+
+            // 原子替换：同一分片的并发/重复上传以最后完成者为准
+            try {
+                Files.move(tempFile, chunkFile(session.getUploadId(), chunkNumber),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, chunkFile(session.getUploadId(), chunkNumber), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            log.debug("分片写入完成 - 上传ID: {}, 分片: {}, 大小: {}", session.getUploadId(), chunkNumber, written);
+            return written;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("分片写入失败: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public List<Integer> listUploadedChunks(String uploadId) {
+        Path dir = sessionDir(uploadId);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> chunks = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + CHUNK_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    chunks.add(Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // 非分片文件
+                }
+            }
+        } catch (IOException e) {
+            log.error("列举分片失败 - 上传ID: {}, 错误: {}", uploadId, e.getMessage());
+        }
+        Collections.sort(chunks);
+        return chunks;
+    }
+
+    @Override
+    public AssembleResult assemble(ChunkUploadSession session, AssembleProgressListener listener) {
+        String uploadId = session.getUploadId();
+        Path target = sessionDir(uploadId).resolve(ASSEMBLED_FILE);
+
+        try (StreamingHashCalculator.HashingOutputStream out = new StreamingHashCalculator.HashingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), ASSEMBLE_BUFFER_SIZE))) {
+
+            for (int i = 0; i < session.getTotalChunks(); i++) {
+                Path chunk = chunkFile(uploadId, i);
+                if (!Files.exists(chunk)) {
+                    throw new IllegalStateException("缺少分片: " + i);
+                }
+                Files.copy(chunk, out);
+                if (listener != null) {
+                    listener.onChunkAssembled(i, out.getBytesWritten());
+                }
+            }
+            out.flush();
+
+            if (out.getBytesWritten() != session.getFileSize()) {
+                throw new IllegalStateException(String.format(
+                        "合并后文件大小不匹配 - 期望: %d bytes, 实际: %d bytes", session.getFileSize(), out.getBytesWritten()));
+            }
+
+            log.info("分片合并完成 - 上传ID: {}, 大小: {}", uploadId, out.getBytesWritten());
+            return new AssembleResult(target, out.getBytesWritten(), out.getMD5Hex());
+
+        } catch (IOException | java.security.NoSuchAlgorithmException e) {
+            deleteQuietly(target);
+            throw new IllegalStateException("分片合并失败: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteSession(String uploadId) {
+        Path dir = sessionDir(uploadId);
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(this::deleteQuietly);
+            log.debug("删除分片上传会话 - 上传ID: {}", uploadId);
+        } catch (IOException e) {
+            log.warn("删除分片上传会话失败 - 上传ID: {}, 错误: {}", uploadId, e.getMessage());
+        }
+    }
+
+    @Override
+    public int cleanupExpiredSessions(int expireHours) {
+        if (!Files.isDirectory(chunkRoot)) {
+            return 0;
+        }
+
+        LocalDateTime expireTime = LocalDateTime.now().minusHours(expireHours);
+        long expireMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(expireHours);
+        int cleaned = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(chunkRoot, Files::isDirectory)) {
+            for (Path dir : stream) {
+                String uploadId = dir.getFileName().toString();
+                ChunkUploadSession session = loadSession(uploadId);
+                boolean expired = session != null
+                        ? session.getCreateTime().isBefore(expireTime)
+                        // createSession先建目录再写会话文件，新目录可能暂时没有会话文件
+                        : lastModifiedMillis(dir) < expireMillis;
+                if (expired) {
+                    deleteSession(uploadId);
+                    cleaned++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("清理过期分片会话失败 - 错误: {}", e.getMessage());
+        }
+
+        if (cleaned > 0) {
+            log.info("清理过期分片上传会话完成 - 清理数量: {}", cleaned);
+        }
+        return cleaned;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdown();
+    }
+
+    // 私有辅助方法
+
+    private Path sessionDir(String uploadId) {
+        if (uploadId == null || !uploadId.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("非法的上传ID: " + uploadId);
+        }
+        return chunkRoot.resolve(uploadId);
+    }
+
+    private Path chunkFile(String uploadId, int chunkNumber) {
+        return sessionDir(uploadId).resolve(chunkNumber + CHUNK_SUFFIX);
+    }
+
+    private void writeSessionFile(ChunkUploadSession session) throws IOException {
+        Properties props = new Properties();
+        putIfNotNull(props, "uploadId", session.getUploadId());
+        putIfNotNull(props, "fileId", session.getFileId());
+        putIfNotNull(props, "taskId", session.getTaskId());
+        putIfNotNull(props, "originalFilename", session.getOriginalFilename());
+        putIfNotNull(props, "contentType", session.getContentType());
+        putIfNotNull(props, "fileSize", session.getFileSize());
+        putIfNotNull(props, "chunkSize", session.getChunkSize());
+        putIfNotNull(props, "totalChunks", session.getTotalChunks());
+        putIfNotNull(props, "oid", session.getOid());
+        putIfNotNull(props, "uid", session.getUid());
+        putIfNotNull(props, "ugid", session.getUgid());
+        putIfNotNull(props, "folderId", session.getFolderId());
+        putIfNotNull(props, "materialName", session.getMaterialName());
+        putIfNotNull(props, "description", session.getDescription());
+        putIfNotNull(props, "status", session.getStatus());
+        putIfNotNull(props, "createTime", session.getCreateTime());
+
+        // 先写临时文件再原子替换，避免进程崩溃留下半个会话文件
+        Path dir = sessionDir(session.getUploadId());
+        Path temp = dir.resolve(SESSION_FILE + "." + UUID.randomUUID() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            props.store(writer, "chunk upload session");
+        }
+        try {
+            Files.move(temp, dir.resolve(SESSION_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, dir.resolve(SESSION_FILE), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void putIfNotNull(Properties props, String key, Object value) {
+        if (value != null) {
+            props.setProperty(key, value.toString());
+        }
+    }
+
+    private static Long parseLong(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * 拷贝数据，超过期望大小时提前失败，避免客户端写入超大分片
+     */
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > limit) {
+                return total;
+            }
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+
+    private long lastModifiedMillis(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir).toMillis();
+        } catch (IOException e) {
+            // 目录已被删除或不可读，视为未过期，留给下一轮清理
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("删除临时文件失败 - 路径: {}, 错误: {}", path, e.getMessage());
+        }
+    }
+}
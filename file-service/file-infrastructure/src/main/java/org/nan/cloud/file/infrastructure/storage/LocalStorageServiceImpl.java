@@ -5,15 +5,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.api.dto.FileUploadRequest;
 import org.nan.cloud.file.application.service.StorageService;
 import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.utils.StreamingHashCalculator;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * 本地文件系统存储服务实现
@@ -23,8 +23,11 @@ import java.time.format.DateTimeFormatter;
  * 2. 文件访问URL生成
  * 3. 存储空间统计和健康检查
  * 
+ * 存储统计由StorageStatisticsLedger增量维护，查询不再遍历存储目录
+ * 
  * 设计考虑：
- * - 按日期分目录存储，便于管理和备份
+ * - 启用内容寻址时按哈希分目录存储（见ContentAddressedBlobStore），相同内容只保留一份
+ * - 未启用时按日期分目录存储，便于管理和备份
  * - 完善的错误处理和资源清理
  * 
  * @author LedDeviceCloudPlatform Team
@@ -35,9 +38,25 @@ import java.time.format.DateTimeFormatter;
 @RequiredArgsConstructor
 public class LocalStorageServiceImpl implements StorageService {
 
+    /**
+     * 暂存目录名（位于存储根目录下，保证入库时只需重命名）
+     */
+    private static final String STAGING_DIR = ".staging";
+
+    /**
+     * 暂存写入缓冲区大小
+     */
+    private static final int STAGE_BUFFER_SIZE = 64 * 1024;
+
     // 文件存储配置属性
     private final FileStorageProperties storageProperties;
 
+    // 内容寻址存储
+    private final ContentAddressedBlobStore blobStore;
+
+    // 存储统计账本
+    private final StorageStatisticsLedger statisticsLedger;
+
     @Override
     public String store(MultipartFile file, String fileId) {
         return store(file, null, fileId);
@@ -60,9 +79,12 @@ public class LocalStorageServiceImpl implements StorageService {
             Files.createDirectories(targetPath.getParent());
 
             // 4. 保存文件
+            long replacedSize = Files.exists(targetPath) ? Files.size(targetPath) : -1;
+            long written;
             try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                written = Files.copy(inputStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
             }
+            recordReplace(replacedSize, written);
 
             log.info("文件存储成功 - 文件ID: {}, 存储路径: {}", fileId, storagePath);
             return storagePath;
@@ -73,6 +95,130 @@ public class LocalStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public String store(Path sourceFile, String originalFilename, String fileId) {
+        log.info("开始存储本地文件 - 文件ID: {}, 文件名: {}, 源文件: {}", fileId, originalFilename, sourceFile);
+
+        try {
+            // 1. 验证文件大小
+            validateFileSize(Files.size(sourceFile));
+
+            // 2. 确定存储路径
+            String storagePath = generateStoragePath(fileId, originalFilename);
+            Path targetPath = Paths.get(storageProperties.getStorage().getLocal().getBasePath(), storagePath);
+
+            // 3. 创建目录
+            Files.createDirectories(targetPath.getParent());
+
+            // 4. 移动文件：同一文件系统下为重命名，不产生额外IO
+            long size = Files.size(sourceFile);
+            long replacedSize = Files.exists(targetPath) ? Files.size(targetPath) : -1;
+            try {
+                Files.move(sourceFile, targetPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(sourceFile, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            recordReplace(replacedSize, size);
+
+            log.info("本地文件存储成功 - 文件ID: {}, 存储路径: {}", fileId, storagePath);
+            return storagePath;
+
+        } catch (Exception e) {
+            log.error("本地文件存储失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage(), e);
+            throw new RuntimeException("文件存储失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public StagedFile stage(InputStream inputStream, String fileId) {
+        Path stagingPath = Paths.get(storageProperties.getStorage().getLocal().getBasePath(), STAGING_DIR,
+                fileId + "." + System.nanoTime() + ".tmp");
+        boolean computeSha256 = storageProperties.getStorage().getLocal().isSha256Enabled();
+
+        try {
+            Files.createDirectories(stagingPath.getParent());
+
+            long maxFileSize = storageProperties.getStorage().getLocal().getMaxFileSize();
+            byte[] buffer = new byte[STAGE_BUFFER_SIZE];
+            try (InputStream in = inputStream;
+                 StreamingHashCalculator.HashingOutputStream out = new StreamingHashCalculator.HashingOutputStream(
+                         Files.newOutputStream(stagingPath, StandardOpenOption.CREATE_NEW), computeSha256)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    if (out.getBytesWritten() > maxFileSize) {
+                        throw new IllegalArgumentException(
+                                String.format("文件大小超出限制: 最大 %d bytes", maxFileSize));
+                    }
+                }
+
+                log.debug("文件暂存完成 - 文件ID: {}, 大小: {}, MD5: {}", fileId, out.getBytesWritten(), out.getMD5Hex());
+                return new StagedFile(stagingPath, out.getBytesWritten(), out.getMD5Hex(), out.getSHA256Hex());
+            }
+
+        } catch (Exception e) {
+            deleteQuietly(stagingPath);
+            log.error("文件暂存失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage(), e);
+            throw new RuntimeException("文件暂存失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String storeContent(StagedFile stagedFile, String originalFilename, String fileId) {
+        if (!storageProperties.getStorage().getLocal().isContentAddressed()) {
+            return store(stagedFile.getPath(), originalFilename, fileId);
+        }
+
+        try {
+            validateFileSize(stagedFile.getSize());
+            String storagePath = blobStore.put(stagedFile, fileId);
+            log.info("内容存储成功 - 文件ID: {}, 存储路径: {}", fileId, storagePath);
+            return storagePath;
+
+        } catch (Exception e) {
+            log.error("内容存储失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage(), e);
+            throw new RuntimeException("文件存储失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean retainContent(String storagePath, String fileId) {
+        if (!blobStore.isBlobPath(storagePath)) {
+            return false;
+        }
+        try {
+            return blobStore.addRef(storagePath, fileId);
+        } catch (Exception e) {
+            log.error("增加内容引用失败 - 路径: {}, 文件ID: {}, 错误: {}", storagePath, fileId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean releaseContent(String storagePath, String fileId) {
+        if (!blobStore.isBlobPath(storagePath)) {
+            return deleteFile(storagePath);
+        }
+        try {
+            return blobStore.removeRef(storagePath, fileId);
+        } catch (Exception e) {
+            log.error("释放内容引用失败 - 路径: {}, 文件ID: {}, 错误: {}", storagePath, fileId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isContentAddressed(String storagePath) {
+        return blobStore.isBlobPath(storagePath);
+    }
+
+    @Override
+    public void discardStaged(StagedFile stagedFile) {
+        if (stagedFile != null) {
+            deleteQuietly(stagedFile.getPath());
+        }
+    }
+
     @Override
     public String generateAccessUrl(String storagePath) {
         // 本地存储返回相对路径，由网关或静态资源服务器处理
@@ -87,11 +233,19 @@ public class LocalStorageServiceImpl implements StorageService {
 
     @Override
     public boolean deleteFile(String storagePath) {
+        if (blobStore.isBlobPath(storagePath)) {
+            // 共享内容不能直接删除，必须通过releaseContent释放引用
+            log.warn("拒绝直接删除内容寻址文件，请使用releaseContent - 路径: {}", storagePath);
+            return false;
+        }
+
         try {
             Path filePath = Paths.get(storageProperties.getStorage().getLocal().getBasePath(), storagePath);
+            long size = Files.exists(filePath) ? Files.size(filePath) : 0;
             boolean deleted = Files.deleteIfExists(filePath);
             
             if (deleted) {
+                statisticsLedger.recordPhysical(-1, -size);
                 log.info("文件删除成功 - 路径: {}", storagePath);
             } else {
                 log.warn("文件不存在或已删除 - 路径: {}", storagePath);
@@ -126,7 +280,9 @@ public class LocalStorageServiceImpl implements StorageService {
             // 创建目标目录
             Files.createDirectories(target.getParent());
             
+            long replacedSize = Files.exists(target) ? Files.size(target) : -1;
             Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            recordReplace(replacedSize, Files.size(target));
             log.info("文件复制成功 - 源: {}, 目标: {}", sourcePath, targetPath);
             return true;
             
@@ -145,7 +301,12 @@ public class LocalStorageServiceImpl implements StorageService {
             // 创建目标目录
             Files.createDirectories(target.getParent());
             
+            long replacedSize = Files.exists(target) ? Files.size(target) : -1;
             Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            if (replacedSize >= 0) {
+                // 覆盖已有文件，物理文件数减一
+                statisticsLedger.recordPhysical(-1, -replacedSize);
+            }
             log.info("文件移动成功 - 源: {}, 目标: {}", sourcePath, targetPath);
             return true;
             
@@ -192,30 +353,34 @@ public class LocalStorageServiceImpl implements StorageService {
     public StorageStatistics getStorageStatistics() {
         try {
             Path basePath = Paths.get(storageProperties.getStorage().getLocal().getBasePath());
-            
-            // 计算已用空间和文件数
-            final long[] stats = {0, 0}; // [totalSize, fileCount]
-            
-            Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    stats[0] += attrs.size(); // 累计文件大小
-                    stats[1]++; // 累计文件数
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-            
-            // 获取可用空间
+            long usedSpace = statisticsLedger.getPhysicalBytes();
             long usableSpace = Files.getFileStore(basePath).getUsableSpace();
-            
-            return new StorageStatistics(stats[1], stats[0], stats[0], usableSpace);
-            
+
+            return new StorageStatistics(statisticsLedger.getPhysicalFiles(), usedSpace, usedSpace, usableSpace);
+
         } catch (Exception e) {
             log.error("获取存储统计信息失败", e);
-            return new StorageStatistics(0, 0, 0, 0);
+            return new StorageStatistics(statisticsLedger.getPhysicalFiles(), statisticsLedger.getPhysicalBytes(),
+                    statisticsLedger.getPhysicalBytes(), 0);
         }
     }
 
+    @Override
+    public StorageStatistics getStorageStatistics(String organizationId) {
+        long[] totals = statisticsLedger.getOrganizationTotals(organizationId);
+        return new StorageStatistics(totals[0], totals[1], totals[1], 0);
+    }
+
+    @Override
+    public List<UsageBucket> getUsageBuckets(String organizationId) {
+        return statisticsLedger.getUsageBuckets(organizationId);
+    }
+
+    @Override
+    public void recordUsage(String organizationId, String fileType, long fileDelta, long sizeDelta) {
+        statisticsLedger.recordUsage(organizationId, LocalDate.now(), fileType, fileDelta, sizeDelta);
+    }
+
     @Override
     public StorageStrategy getStorageStrategy() {
         return StorageStrategy.LOCAL;
@@ -274,6 +439,22 @@ public class LocalStorageServiceImpl implements StorageService {
         return dateDir + "/" + filename;
     }
 
+    private void recordReplace(long replacedSize, long newSize) {
+        if (replacedSize >= 0) {
+            statisticsLedger.recordPhysical(0, newSize - replacedSize);
+        } else {
+            statisticsLedger.recordPhysical(1, newSize);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败 - 路径: {}, 错误: {}", path, e.getMessage());
+        }
+    }
+
     private String getFileExtension(String filename) {
         if (filename == null || filename.isEmpty()) {
             return "";
@@ -0,0 +1,389 @@
+package org.nan.cloud.file.infrastructure.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.api.enums.FileType;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.StorageService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储统计账本
+ *
+ * 替代每次查询都遍历整个存储目录的做法：
+ * 1. 物理用量（文件数/字节数）在存储、删除、回收时增量更新
+ * 2. 逻辑用量按 组织 / 月份 / 文件类型 分桶，在上传完成和删除时增量更新
+ * 3. 账本定期快照到 {basePath}/.stats/ledger.properties，重启后无需全量扫描
+ * 4. 后台对账扫描器限速遍历存储目录，每轮处理固定数量的文件并持久化检查点，
+ *    重启后从检查点继续；一轮完成后用扫描结果校正物理用量
+ *
+ * 所有查询只读取内存计数器，耗时与文件数量无关。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageStatisticsLedger {
+
+    static final String STATS_DIR = ".stats";
+    private static final String LEDGER_FILE = "ledger.properties";
+    private static final String CHECKPOINT_FILE = "scan.checkpoint";
+    private static final String KEY_SEPARATOR = "|";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final FileStorageProperties storageProperties;
+
+    /**
+     * 物理用量
+     */
+    private final LongAdder physicalFiles = new LongAdder();
+    private final LongAdder physicalBytes = new LongAdder();
+
+    /**
+     * 逻辑用量分桶：oid|yyyy-MM|fileType
+     */
+    private final ConcurrentHashMap<String, Counter> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * 组织汇总，保证组织维度查询为O(1)
+     */
+    private final ConcurrentHashMap<String, Counter> orgTotals = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "StorageStats-Ledger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 对账扫描状态，仅在executor线程中访问
+     */
+    private ScanCheckpoint scan;
+
+    @PostConstruct
+    public void initialize() {
+        boolean loaded = restore();
+
+        FileStorageProperties.Storage.Local local = storageProperties.getStorage().getLocal();
+        executor.scheduleWithFixedDelay(this::persistIfDirty, 1, 1, TimeUnit.MINUTES);
+        executor.scheduleWithFixedDelay(this::scanTick, 30_000, local.getStatsScanTickMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::startScanIfIdle,
+                local.getStatsScanIntervalHours(), local.getStatsScanIntervalHours(), TimeUnit.HOURS);
+
+        log.info("存储统计账本初始化完成 - 快照: {}, 物理文件数: {}, 物理大小: {}, 对账进行中: {}",
+                loaded, physicalFiles.sum(), physicalBytes.sum(), scan != null);
+    }
+
+    /**
+     * 加载账本快照和对账检查点；首次启动没有账本时立即开始全量对账
+     *
+     * @return 是否加载到快照
+     */
+    boolean restore() {
+        boolean loaded = loadSnapshot();
+        scan = loadCheckpoint();
+        if (scan == null && !loaded) {
+            scan = ScanCheckpoint.start();
+        }
+        return loaded;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        persistIfDirty();
+    }
+
+    // ==================== 增量更新 ====================
+
+    /**
+     * 记录物理用量变化
+     */
+    public void recordPhysical(long fileDelta, long byteDelta) {
+        physicalFiles.add(fileDelta);
+        physicalBytes.add(byteDelta);
+        dirty.set(true);
+    }
+
+    /**
+     * 记录组织逻辑用量变化
+     */
+    public void recordUsage(String organizationId, LocalDate date, String fileType, long fileDelta, long byteDelta) {
+        String org = organizationId == null ? "unknown" : organizationId;
+        String type = fileType == null ? FileType.OTHER.name() : fileType;
+        String key = org + KEY_SEPARATOR + (date == null ? LocalDate.now() : date).format(MONTH_FORMAT) + KEY_SEPARATOR + type;
+
+        buckets.computeIfAbsent(key, k -> new Counter()).add(fileDelta, byteDelta);
+        orgTotals.computeIfAbsent(org, k -> new Counter()).add(fileDelta, byteDelta);
+        dirty.set(true);
+    }
+
+    // ==================== 查询（常数时间） ====================
+
+    public long getPhysicalFiles() {
+        return physicalFiles.sum();
+    }
+
+    public long getPhysicalBytes() {
+        return physicalBytes.sum();
+    }
+
+    public long[] getOrganizationTotals(String organizationId) {
+        Counter counter = orgTotals.get(organizationId);
+        return counter == null ? new long[]{0, 0} : new long[]{counter.files.sum(), counter.bytes.sum()};
+    }
+
+    public List<StorageService.UsageBucket> getUsageBuckets(String organizationId) {
+        String prefix = organizationId + KEY_SEPARATOR;
+        List<StorageService.UsageBucket> result = new ArrayList<>();
+        buckets.forEach((key, counter) -> {
+            if (key.startsWith(prefix)) {
+                String[] parts = key.split("\\|");
+                result.add(new StorageService.UsageBucket(parts[1], parts[2], counter.files.sum(), counter.bytes.sum()));
+            }
+        });
+        result.sort(Comparator.comparing(StorageService.UsageBucket::getDateBucket)
+                .thenComparing(StorageService.UsageBucket::getFileType));
+        return result;
+    }
+
+    // ==================== 后台对账 ====================
+
+    void startScanIfIdle() {
+        if (scan == null) {
+            scan = ScanCheckpoint.start();
+            log.info("开始存储统计对账扫描");
+        }
+    }
+
+    /**
+     * 单轮扫描：按深度优先顺序处理目录，直到本轮文件数达到上限
+     */
+    void scanTick() {
+        if (scan == null) {
+            return;
+        }
+
+        Path root = Paths.get(storageProperties.getStorage().getLocal().getBasePath());
+        int budget = storageProperties.getStorage().getLocal().getStatsScanBatchSize();
+        int visited = 0;
+
+        try {
+            while (visited < budget && !scan.pending.isEmpty()) {
+                String relative = scan.pending.pop();
+                Path dir = relative.isEmpty() ? root : root.resolve(relative);
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+
+                List<String> subDirs = new ArrayList<>();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        String name = entry.getFileName().toString();
+                        if (attrs.isDirectory()) {
+                            if (!isExcludedDirectory(name)) {
+                                subDirs.add(relative.isEmpty() ? name : relative + "/" + name);
+                            }
+                        } else if (attrs.isRegularFile()) {
+                            scan.files++;
+                            scan.bytes += attrs.size();
+                            visited++;
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // 扫描期间目录被删除
+                }
+
+                // 逆序入栈，保证按名称顺序处理
+                subDirs.sort(Comparator.reverseOrder());
+                subDirs.forEach(scan.pending::push);
+            }
+
+            if (scan.pending.isEmpty()) {
+                finishScan();
+            } else {
+                persistCheckpoint();
+            }
+
+        } catch (Exception e) {
+            log.warn("存储统计对账扫描失败，稍后从检查点重试 - 错误: {}", e.getMessage());
+        }
+    }
+
+    boolean isScanInProgress() {
+        return scan != null;
+    }
+
+    private void finishScan() throws IOException {
+        long driftFiles = scan.files - physicalFiles.sum();
+        long driftBytes = scan.bytes - physicalBytes.sum();
+
+        // 以扫描结果为准校正物理用量；扫描期间的并发变更可能留下少量偏差，由下一轮对账消除
+        physicalFiles.add(driftFiles);
+        physicalBytes.add(driftBytes);
+        dirty.set(true);
+
+        log.info("存储统计对账完成 - 文件数: {}, 大小: {}, 校正: {}个文件 / {}字节, 耗时: {}ms",
+                scan.files, scan.bytes, driftFiles, driftBytes, System.currentTimeMillis() - scan.startTime);
+
+        scan = null;
+        Files.deleteIfExists(statsDir().resolve(CHECKPOINT_FILE));
+        persistIfDirty();
+    }
+
+    private static boolean isExcludedDirectory(String name) {
+        // 统计目录、暂存目录、回收候选和引用标记目录不计入物理文件
+        return name.startsWith(".") || name.endsWith(".refs");
+    }
+
+    // ==================== 持久化 ====================
+
+    private void persistIfDirty() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("physical.files", String.valueOf(physicalFiles.sum()));
+        props.setProperty("physical.bytes", String.valueOf(physicalBytes.sum()));
+        buckets.forEach((key, counter) ->
+                props.setProperty("bucket." + key, counter.files.sum() + "," + counter.bytes.sum()));
+        try {
+            writeAtomically(LEDGER_FILE, props);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("保存存储统计快照失败 - 错误: {}", e.getMessage());
+        }
+    }
+
+    private boolean loadSnapshot() {
+        Properties props = readProperties(LEDGER_FILE);
+        if (props == null) {
+            return false;
+        }
+        physicalFiles.add(Long.parseLong(props.getProperty("physical.files", "0")));
+        physicalBytes.add(Long.parseLong(props.getProperty("physical.bytes", "0")));
+        for (String name : props.stringPropertyNames()) {
+            if (!name.startsWith("bucket.")) {
+                continue;
+            }
+            String key = name.substring("bucket.".length());
+            String[] values = props.getProperty(name).split(",");
+            long files = Long.parseLong(values[0]);
+            long bytes = Long.parseLong(values[1]);
+            buckets.computeIfAbsent(key, k -> new Counter()).add(files, bytes);
+            orgTotals.computeIfAbsent(key.substring(0, key.indexOf(KEY_SEPARATOR)), k -> new Counter()).add(files, bytes);
+        }
+        return true;
+    }
+
+    private void persistCheckpoint() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("startTime", String.valueOf(scan.startTime));
+        props.setProperty("files", String.valueOf(scan.files));
+        props.setProperty("bytes", String.valueOf(scan.bytes));
+        props.setProperty("pending", String.join("\n", scan.pending));
+        writeAtomically(CHECKPOINT_FILE, props);
+    }
+
+    private ScanCheckpoint loadCheckpoint() {
+        Properties props = readProperties(CHECKPOINT_FILE);
+        if (props == null) {
+            return null;
+        }
+        ScanCheckpoint checkpoint = new ScanCheckpoint(Long.parseLong(props.getProperty("startTime")));
+        checkpoint.files = Long.parseLong(props.getProperty("files", "0"));
+        checkpoint.bytes = Long.parseLong(props.getProperty("bytes", "0"));
+        String pending = props.getProperty("pending", "");
+        if (!pending.isEmpty()) {
+            // 栈顶在前
+            checkpoint.pending.addAll(Arrays.asList(pending.split("\n")));
+        }
+        log.info("从检查点恢复存储统计对账 - 已扫描文件: {}, 待处理目录: {}", checkpoint.files, checkpoint.pending.size());
+        return checkpoint;
+    }
+
+    private Properties readProperties(String fileName) {
+        Path file = statsDir().resolve(fileName);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            props.load(reader);
+            return props;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("读取存储统计文件失败 - 文件: {}, 错误: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeAtomically(String fileName, Properties props) throws IOException {
+        Path dir = statsDir();
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(fileName + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            props.store(writer, null);
+        }
+        try {
+            Files.move(temp, dir.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path statsDir() {
+        return Paths.get(storageProperties.getStorage().getLocal().getBasePath(), STATS_DIR);
+    }
+
+    // ==================== 内部类 ====================
+
+    private static class Counter {
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        void add(long fileDelta, long byteDelta) {
+            files.add(fileDelta);
+            bytes.add(byteDelta);
+        }
+    }
+
+    private static class ScanCheckpoint {
+        private final long startTime;
+        private final Deque<String> pending = new ArrayDeque<>();
+        private long files;
+        private long bytes;
+
+        ScanCheckpoint(long startTime) {
+            this.startTime = startTime;
+        }
+
+        static ScanCheckpoint start() {
+            ScanCheckpoint checkpoint = new ScanCheckpoint(System.currentTimeMillis());
+            checkpoint.pending.push("");
+            return checkpoint;
+        }
+    }
+}
@@ -4,9 +4,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.application.service.StreamingService;
 import org.nan.cloud.file.application.service.StorageService;
-import org.nan.cloud.file.application.service.CacheService;
+import org.nan.cloud.file.application.domain.FileDescriptor;
 import org.nan.cloud.file.application.repository.FileInfoRepository;
-import org.nan.cloud.file.application.enums.FileCacheType;
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
@@ -18,10 +18,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.time.Duration;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -29,15 +31,15 @@ import java.util.concurrent.atomic.AtomicLong;
  * NIO流式服务实现
  * 
  * 基于Java NIO的高性能文件流式传输实现：
- * 1. 零拷贝传输 - 使用FileChannel.transferTo()
+ * 1. 通道读取 - 大文件经FileChannel和直接缓冲区读取，由Spring写出到响应流（经用户态缓冲，非零拷贝）
  * 2. 智能缓冲 - 根据文件大小动态调整缓冲区
  * 3. 范围请求支持 - HTTP Range请求支持
- * 4. 内存映射 - 大文件使用内存映射文件
+ * 4. 内存映射 - 范围请求从分段映射缓存读取（见StreamSegmentCache）
  * 5. 异步处理 - 非阻塞式IO操作
  * 
  * Backend可靠性保证：
  * - 内存使用限制：<100MB
- * - 并发控制：最大20个并发传输
+ * - 并发控制：准入控制按客户端公平排队，并发上限随磁盘吞吐自适应（见StreamAdmissionController）
  * - 错误恢复：自动重试机制
  * - 资源管理：及时释放文件句柄
  * 
@@ -50,14 +52,14 @@ import java.util.concurrent.atomic.AtomicLong;
 public class NIOStreamingServiceImpl implements StreamingService {
 
     private final StorageService storageService;
-    private final CacheService cacheService;
     private final FileInfoRepository fileInfoRepository;
+    private final StreamSegmentCache segmentCache;
+    private final StreamAdmissionController admissionController;
     
     // 性能统计
     private final AtomicLong totalTransferredBytes = new AtomicLong(0);
-    private final AtomicLong activeTransferCount = new AtomicLong(0);
-    private final AtomicLong cacheHitCount = new AtomicLong(0);
-    private final AtomicLong cacheMissCount = new AtomicLong(0);
+    private final AtomicLong responseTimeTotalMillis = new AtomicLong(0);
+    private final AtomicLong responseCount = new AtomicLong(0);
     
     // 传输跟踪
     private final ConcurrentHashMap<String, TransferProgress> activeTransfers = new ConcurrentHashMap<>();
@@ -67,77 +69,85 @@ public class NIOStreamingServiceImpl implements StreamingService {
     private static final long LARGE_FILE_THRESHOLD = 100 * 1024 * 1024; // 100MB
     private static final int DEFAULT_BUFFER_SIZE = 64 * 1024; // 64KB
     private static final int LARGE_FILE_BUFFER_SIZE = 1024 * 1024; // 1MB
-    private static final int MAX_CONCURRENT_TRANSFERS = 20;
+    private static final String TRANSFER_ID_HEADER = "X-Transfer-Id";
+    private static final String INTERNAL_CLIENT_ID = "internal";
     
     @Override
-    public ResponseEntity<Resource> streamDownload(String fileId, Long rangeStart, Long rangeEnd) {
+    public ResponseEntity<Resource> streamDownload(String fileId, Long rangeStart, Long rangeEnd, String clientId) {
         long startTime = System.currentTimeMillis();
         
+        // 申请传输许可，必要时公平排队；客户端标识由Web层解析后传入
+        if (clientId == null || clientId.isBlank()) {
+            clientId = INTERNAL_CLIENT_ID;
+        }
+        StreamAdmissionController.Permit permit = admissionController.acquire(clientId);
+        if (permit == null) {
+            log.warn("流式传输准入被拒绝 - fileId: {}, client: {}, active: {}, waiting: {}", 
+                    fileId, clientId, admissionController.getActiveCount(), admissionController.getWaitingCount());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        
+        // 许可随响应体移交给传输流，之后由流关闭时释放
+        boolean handedOff = false;
         try {
-            // 检查并发限制
-            if (activeTransferCount.get() >= MAX_CONCURRENT_TRANSFERS) {
-                log.warn("并发传输数量已达上限 - fileId: {}, active: {}", 
-                        fileId, activeTransferCount.get());
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
-            }
-            
-            activeTransferCount.incrementAndGet();
-            
-            // 首先尝试从缓存获取小文件
-            if (rangeStart == null && rangeEnd == null) {
-                byte[] cachedData = getCachedFileData(fileId);
-                if (cachedData != null) {
-                    cacheHitCount.incrementAndGet();
-                    Resource resource = new org.springframework.core.io.ByteArrayResource(cachedData);
-                    return buildFileResponse(resource, cachedData.length, null, null, getContentType(fileId));
-                }
-            }
-            
-            cacheMissCount.incrementAndGet();
-            
-            // 获取文件路径
-            String filePath = getFilePath(fileId);
-            if (filePath == null) {
+            // 获取文件描述符（本地缓存，预热后不访问数据库）
+            FileDescriptor descriptor = fileInfoRepository.findDescriptorByFileId(fileId).orElse(null);
+            if (descriptor == null) {
                 return ResponseEntity.notFound().build();
             }
             
-            Path path = Paths.get(filePath);
-            if (!Files.exists(path)) {
-                log.warn("文件不存在 - fileId: {}, path: {}", fileId, filePath);
+            // 一次stat同时获取存在性、大小和修改时间
+            Path path = Paths.get(storageService.getAbsolutePath(descriptor.getStoragePath()));
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                log.warn("文件不存在 - fileId: {}, path: {}", fileId, path);
                 return ResponseEntity.notFound().build();
             }
             
-            long fileSize = Files.size(path);
-            String contentType = getContentType(fileId);
+            long fileSize = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            String contentType = getContentType(descriptor);
             
-            // 处理范围请求
+            ResponseEntity<Resource> response;
             if (rangeStart != null || rangeEnd != null) {
-                return handleRangeRequest(path, fileSize, rangeStart, rangeEnd, contentType);
+                // 处理范围请求
+                response = handleRangeRequest(path, fileSize, lastModified, rangeStart, rangeEnd, contentType, descriptor);
+            } else {
+                // 全文件传输
+                Resource resource = createOptimizedResource(path, fileSize);
+                response = buildFileResponse(resource, fileSize, contentType, descriptor);
             }
             
-            // 全文件传输
-            Resource resource = createOptimizedResource(path, fileSize);
-            totalTransferredBytes.addAndGet(fileSize);
+            if (response.getBody() != null) {
+                response = attachTransfer(response, permit);
+                handedOff = true;
+            }
             
             long responseTime = System.currentTimeMillis() - startTime;
-            log.debug("文件流式传输完成 - fileId: {}, size: {}bytes, time: {}ms, throughput: {}MB/s", 
-                     fileId, fileSize, responseTime, 
-                     fileSize / 1024.0 / 1024.0 / (responseTime / 1000.0));
+            responseTimeTotalMillis.addAndGet(responseTime);
+            responseCount.incrementAndGet();
+            log.debug("文件流式响应就绪 - fileId: {}, size: {}bytes, time: {}ms", fileId, fileSize, responseTime);
             
-            return buildFileResponse(resource, fileSize, null, null, contentType);
+            return response;
             
         } catch (IOException e) {
             log.error("文件流式传输失败 - fileId: {}", fileId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         } finally {
-            activeTransferCount.decrementAndGet();
+            if (!handedOff) {
+                permit.release();
+            }
         }
     }
     
     @Override
     @Async("lightWeightTaskExecutor")
-    public CompletableFuture<ResponseEntity<Resource>> streamDownloadAsync(String fileId, Long rangeStart, Long rangeEnd) {
-        return CompletableFuture.completedFuture(streamDownload(fileId, rangeStart, rangeEnd));
+    public CompletableFuture<ResponseEntity<Resource>> streamDownloadAsync(String fileId, Long rangeStart, Long rangeEnd, String clientId) {
+        return CompletableFuture.completedFuture(streamDownload(fileId, rangeStart, rangeEnd, clientId));
     }
     
     @Override
@@ -185,12 +195,12 @@ public class NIOStreamingServiceImpl implements StreamingService {
     public StreamingStatistics getStreamingStatistics() {
         return new StreamingStatisticsImpl(
                 totalTransferredBytes.get(),
-                activeTransferCount.get(),
-                calculateAverageThroughput(),
-                0L, // Peak throughput需要额外跟踪
-                0.0, // Average response time需要额外跟踪
-                cacheHitCount.get(),
-                cacheMissCount.get(),
+                admissionController.getActiveCount(),
+                admissionController.getAggregateBytesPerSecond(),
+                admissionController.getPeakBytesPerSecond(),
+                calculateAverageResponseTime(),
+                segmentCache.getHitCount(),
+                segmentCache.getMissCount(),
                 calculateCacheHitRate()
         );
     }
@@ -215,13 +225,10 @@ public class NIOStreamingServiceImpl implements StreamingService {
                 return false;
             }
             
-            // 读取文件到内存并缓存
-            byte[] fileData = Files.readAllBytes(path);
-            String cacheKey = FileCacheType.PREVIEW_DATA.buildKey(fileId);
-            cacheService.putWithCacheTypeConfig(cacheKey, fileData, 
-                    FileCacheType.PREVIEW_DATA, Duration.ofMinutes(30));
+            // 映射文件分段并读入页缓存，后续范围请求直接命中
+            long warmed = segmentCache.warm(path, fileSize, Files.getLastModifiedTime(path).toMillis(), maxSize);
             
-            log.debug("文件预加载完成 - fileId: {}, size: {}bytes", fileId, fileSize);
+            log.debug("文件预加载完成 - fileId: {}, size: {}bytes, warmed: {}bytes", fileId, fileSize, warmed);
             return true;
             
         } catch (IOException e) {
@@ -236,6 +243,12 @@ public class NIOStreamingServiceImpl implements StreamingService {
         return progress != null ? progress.getProgress() : 0.0;
     }
     
+    @Override
+    public double getTransferRate(String transferId) {
+        TransferProgress progress = activeTransfers.get(transferId);
+        return progress != null ? progress.getBytesPerSecond() : 0.0;
+    }
+    
     @Override
     public boolean cancelTransfer(String transferId) {
         TransferProgress progress = activeTransfers.remove(transferId);
@@ -248,42 +261,28 @@ public class NIOStreamingServiceImpl implements StreamingService {
     
     // ==================== 私有辅助方法 ====================
     
-    /**
-     * 获取缓存的文件数据
-     */
-    private byte[] getCachedFileData(String fileId) {
-        String cacheKey = FileCacheType.PREVIEW_DATA.buildKey(fileId);
-        return cacheService.getWithCacheTypeConfig(cacheKey, FileCacheType.PREVIEW_DATA, byte[].class);
-    }
-    
     /**
      * 获取文件绝对路径
      */
     private String getFilePath(String fileId) {
-        var fileInfoOpt = fileInfoRepository.findByFileId(fileId);
-        if (fileInfoOpt.isEmpty()) {
-            return null;
-        }
-        String storagePath = fileInfoOpt.get().getStoragePath();
-        return storageService.getAbsolutePath(storagePath);
+        return fileInfoRepository.findDescriptorByFileId(fileId)
+                .map(descriptor -> storageService.getAbsolutePath(descriptor.getStoragePath()))
+                .orElse(null);
     }
     
     /**
      * 获取内容类型
      */
-    private String getContentType(String fileId) {
-        var fileInfoOpt = fileInfoRepository.findByFileId(fileId);
-        if (fileInfoOpt.isPresent() && fileInfoOpt.get().getMimeType() != null) {
-            return fileInfoOpt.get().getMimeType();
-        }
-        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    private String getContentType(FileDescriptor descriptor) {
+        return descriptor.getMimeType() != null ? descriptor.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
     }
     
     /**
      * 处理范围请求
      */
-    private ResponseEntity<Resource> handleRangeRequest(Path path, long fileSize, 
-                                                      Long rangeStart, Long rangeEnd, String contentType) throws IOException {
+    private ResponseEntity<Resource> handleRangeRequest(Path path, long fileSize, long lastModified,
+                                                      Long rangeStart, Long rangeEnd, String contentType,
+                                                      FileDescriptor descriptor) {
         long start = rangeStart != null ? rangeStart : 0;
         long end = rangeEnd != null ? rangeEnd : fileSize - 1;
         
@@ -296,12 +295,12 @@ public class NIOStreamingServiceImpl implements StreamingService {
         
         long contentLength = end - start + 1;
         
-        // 创建范围资源
-        Resource resource = new RangeResource(path, start, contentLength);
-        totalTransferredBytes.addAndGet(contentLength);
+        // 创建范围资源，数据从分段映射缓存读取
+        Resource resource = new RangeResource(path, segmentCache, fileSize, lastModified, start, contentLength);
         
         return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                 .header(HttpHeaders.CONTENT_TYPE, contentType)
+                .eTag(descriptor.getEtag())
                 .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(contentLength))
                 .header(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, fileSize))
                 .header(HttpHeaders.ACCEPT_RANGES, "bytes")
@@ -317,8 +316,8 @@ public class NIOStreamingServiceImpl implements StreamingService {
             // 小文件直接使用FileSystemResource - 简单快速
             return new FileSystemResource(path);
         } else {
-            // 大文件使用零拷贝资源实现 - 内存效率和传输性能
-            return new ZeroCopyFileResource(path, fileSize);
+            // 大文件使用通道读取的资源实现 - 固定大小的直接缓冲区
+            return new ChannelFileResource(path, fileSize);
         }
     }
     
@@ -326,31 +325,47 @@ public class NIOStreamingServiceImpl implements StreamingService {
      * 构建文件响应
      */
     private ResponseEntity<Resource> buildFileResponse(Resource resource, long contentLength, 
-                                                     Long rangeStart, Long rangeEnd, String contentType) {
+                                                     String contentType, FileDescriptor descriptor) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(contentType));
         headers.setContentLength(contentLength);
         headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
-        
-        if (rangeStart != null || rangeEnd != null) {
-            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                    .headers(headers)
-                    .body(resource);
-        } else {
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+        headers.setETag(descriptor.getEtag());
+        if (descriptor.getLastModified() > 0) {
+            headers.setLastModified(descriptor.getLastModified());
         }
+        
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(resource);
+    }
+    
+    /**
+     * 将响应体包装为计量资源：统计实际传输字节、登记传输进度，流关闭时释放许可
+     */
+    private ResponseEntity<Resource> attachTransfer(ResponseEntity<Resource> response, 
+                                                  StreamAdmissionController.Permit permit) throws IOException {
+        Resource body = response.getBody();
+        String transferId = UUID.randomUUID().toString();
+        TransferProgress progress = new TransferProgress(body.contentLength());
+        activeTransfers.put(transferId, progress);
+        
+        Resource metered = new MeteredResource(body, transferId, progress, permit);
+        
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(TRANSFER_ID_HEADER, transferId)
+                .body(metered);
     }
     
-    private double calculateAverageThroughput() {
-        // 简化实现，实际应该维护throughput历史记录
-        return 0.0;
+    private double calculateAverageResponseTime() {
+        long count = responseCount.get();
+        return count > 0 ? (double) responseTimeTotalMillis.get() / count : 0.0;
     }
     
     private double calculateCacheHitRate() {
-        long hits = cacheHitCount.get();
-        long misses = cacheMissCount.get();
+        long hits = segmentCache.getHitCount();
+        long misses = segmentCache.getMissCount();
         long total = hits + misses;
         return total > 0 ? (double) hits / total : 0.0;
     }
@@ -362,6 +377,7 @@ public class NIOStreamingServiceImpl implements StreamingService {
      */
     private static class TransferProgress {
         private final long totalBytes;
+        private final long startTime = System.nanoTime();
         private volatile long transferredBytes = 0;
         private volatile boolean cancelled = false;
         
@@ -377,6 +393,15 @@ public class NIOStreamingServiceImpl implements StreamingService {
             this.transferredBytes = Math.min(bytes, totalBytes);
         }
         
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+        
+        public double getBytesPerSecond() {
+            long elapsedNanos = System.nanoTime() - startTime;
+            return elapsedNanos > 0 ? transferredBytes * 1_000_000_000.0 / elapsedNanos : 0.0;
+        }
+        
         public void cancel() {
             this.cancelled = true;
         }
@@ -388,22 +413,28 @@ public class NIOStreamingServiceImpl implements StreamingService {
     
     /**
      * 高性能范围资源实现
-     * 基于FileChannel的零拷贝Range请求处理
+     * 基于分段映射缓存的Range请求处理，热点范围不再重复打开和读取文件
      */
     private static class RangeResource extends FileSystemResource {
+        private final StreamSegmentCache segmentCache;
+        private final long fileSize;
+        private final long lastModified;
         private final long start;
         private final long length;
         
-        public RangeResource(Path path, long start, long length) {
+        public RangeResource(Path path, StreamSegmentCache segmentCache, long fileSize, long lastModified,
+                             long start, long length) {
             super(path);
+            this.segmentCache = segmentCache;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
             this.start = start;
             this.length = length;
         }
         
         @Override
         public InputStream getInputStream() throws IOException {
-            // 使用FileChannel进行高效的范围读取，避免skip()的性能问题
-            return new RangeInputStream(getFile().toPath(), start, length);
+            return new SegmentRangeInputStream(getFile().toPath(), segmentCache, fileSize, lastModified, start, length);
         }
         
         @Override
@@ -413,46 +444,43 @@ public class NIOStreamingServiceImpl implements StreamingService {
     }
     
     /**
-     * 基于FileChannel的高性能范围输入流
-     * 专门优化Range请求的读取性能
+     * 基于分段映射的范围输入流
+     * 直接从映射分段拷贝到调用方缓冲区，不经过中间缓冲，也不持有文件句柄
      */
-    private static class RangeInputStream extends InputStream {
-        private final FileChannel channel;
-        private final ByteBuffer buffer;
-        private final long endPosition;
-        private long currentPosition;
+    private static class SegmentRangeInputStream extends InputStream {
+        private final Path path;
+        private final StreamSegmentCache segmentCache;
+        private final long fileSize;
+        private final long lastModified;
+        private final int segmentSize;
+        private long position;
         private long remainingBytes;
-        private boolean channelClosed = false;
+        private ByteBuffer segment;
+        private boolean closed = false;
         
-        public RangeInputStream(Path path, long start, long length) throws IOException {
-            this.channel = FileChannel.open(path, StandardOpenOption.READ);
-            this.channel.position(start); // 直接定位到起始位置，无需skip
-            this.currentPosition = start;
-            this.endPosition = start + length;
+        public SegmentRangeInputStream(Path path, StreamSegmentCache segmentCache, long fileSize,
+                                       long lastModified, long start, long length) {
+            this.path = path;
+            this.segmentCache = segmentCache;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.segmentSize = segmentCache.getSegmentSize();
+            this.position = start;
             this.remainingBytes = length;
-            
-            // 使用直接内存缓冲区，优化内存拷贝
-            int bufferSize = (int) Math.min(DEFAULT_BUFFER_SIZE, length);
-            this.buffer = ByteBuffer.allocateDirect(bufferSize);
-            this.buffer.flip(); // 初始状态为空
         }
         
         @Override
         public int read() throws IOException {
-            if (channelClosed || remainingBytes <= 0) return -1;
-            
-            if (!buffer.hasRemaining()) {
-                fillBuffer();
-                if (!buffer.hasRemaining()) return -1;
-            }
-            
+            if (closed || remainingBytes <= 0) return -1;
+            ensureSegment();
+            position++;
             remainingBytes--;
-            return buffer.get() & 0xFF;
+            return segment.get() & 0xFF;
         }
         
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
-            if (channelClosed || remainingBytes <= 0) return -1;
+            if (closed || remainingBytes <= 0) return -1;
             if (b == null) throw new NullPointerException();
             if (off < 0 || len < 0 || len > b.length - off) {
                 throw new IndexOutOfBoundsException();
@@ -460,84 +488,186 @@ public class NIOStreamingServiceImpl implements StreamingService {
             if (len == 0) return 0;
             
             int totalBytesRead = 0;
-            len = (int) Math.min(len, remainingBytes); // 限制读取长度
+            len = (int) Math.min(len, remainingBytes);
             
-            while (len > 0 && remainingBytes > 0) {
-                if (!buffer.hasRemaining()) {
-                    fillBuffer();
-                    if (!buffer.hasRemaining()) break;
-                }
-                
-                int bytesToRead = Math.min(len, buffer.remaining());
-                buffer.get(b, off, bytesToRead);
+            while (len > 0) {
+                ensureSegment();
+                int bytesToRead = Math.min(len, segment.remaining());
+                segment.get(b, off, bytesToRead);
                 off += bytesToRead;
                 len -= bytesToRead;
                 totalBytesRead += bytesToRead;
+                position += bytesToRead;
                 remainingBytes -= bytesToRead;
             }
             
-            return totalBytesRead > 0 ? totalBytesRead : -1;
+            return totalBytesRead;
         }
         
-        private void fillBuffer() throws IOException {
-            if (remainingBytes <= 0) return;
-            
-            buffer.clear();
-            int maxBytesToRead = (int) Math.min(buffer.capacity(), remainingBytes);
-            buffer.limit(maxBytesToRead);
-            
-            int bytesRead = channel.read(buffer);
-            if (bytesRead > 0) {
-                currentPosition += bytesRead;
+        private void ensureSegment() throws IOException {
+            if (segment != null && segment.hasRemaining()) {
+                return;
             }
-            buffer.flip();
+            long index = position / segmentSize;
+            segment = segmentCache.getSegment(path, fileSize, lastModified, index);
+            segment.position((int) (position - index * segmentSize));
         }
         
         @Override
-        public long skip(long n) throws IOException {
-            if (channelClosed || n <= 0) return 0;
+        public long skip(long n) {
+            if (closed || n <= 0) return 0;
             
             long bytesToSkip = Math.min(n, remainingBytes);
-            long newPosition = Math.min(currentPosition + bytesToSkip, endPosition);
-            
-            channel.position(newPosition);
-            long actualSkipped = newPosition - currentPosition;
-            currentPosition = newPosition;
-            remainingBytes -= actualSkipped;
-            
-            // 清空缓冲区
-            buffer.clear().flip();
-            
-            return actualSkipped;
+            position += bytesToSkip;
+            remainingBytes -= bytesToSkip;
+            // 下次读取时重新定位分段
+            segment = null;
+            return bytesToSkip;
         }
         
         @Override
-        public int available() throws IOException {
-            if (channelClosed) return 0;
-            return (int) Math.min(remainingBytes + buffer.remaining(), Integer.MAX_VALUE);
+        public int available() {
+            if (closed) return 0;
+            return (int) Math.min(remainingBytes, Integer.MAX_VALUE);
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            segment = null;
+        }
+    }
+    
+    /**
+     * 计量资源
+     * 委托原始资源提供内容，开始读取时标记许可已使用，读取过程中统计字节数
+     */
+    private class MeteredResource extends AbstractResource {
+        private final Resource delegate;
+        private final String transferId;
+        private final TransferProgress progress;
+        private final StreamAdmissionController.Permit permit;
+        
+        MeteredResource(Resource delegate, String transferId, TransferProgress progress, 
+                        StreamAdmissionController.Permit permit) {
+            this.delegate = delegate;
+            this.transferId = transferId;
+            this.progress = progress;
+            this.permit = permit;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            permit.markOpened();
+            try {
+                return new MeteredInputStream(delegate.getInputStream(), transferId, progress, permit);
+            } catch (IOException | RuntimeException e) {
+                activeTransfers.remove(transferId);
+                permit.release();
+                throw e;
+            }
+        }
+        
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+        
+        @Override
+        public String getFilename() {
+            return delegate.getFilename();
+        }
+        
+        @Override
+        public boolean exists() {
+            return delegate.exists();
+        }
+        
+        @Override
+        public String getDescription() {
+            return "Metered [" + delegate.getDescription() + "]";
+        }
+    }
+    
+    /**
+     * 计量输入流
+     * 统计实际传输字节、更新进度、响应取消；关闭时释放传输许可
+     */
+    private class MeteredInputStream extends FilterInputStream {
+        private final String transferId;
+        private final TransferProgress progress;
+        private final StreamAdmissionController.Permit permit;
+        private long transferred = 0;
+        private boolean closed = false;
+        
+        MeteredInputStream(InputStream delegate, String transferId, TransferProgress progress, 
+                           StreamAdmissionController.Permit permit) {
+            super(delegate);
+            this.transferId = transferId;
+            this.progress = progress;
+            this.permit = permit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            checkCancelled();
+            int result = super.read();
+            if (result != -1) {
+                record(1);
+            }
+            return result;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            int result = in.read(b, off, len);
+            if (result > 0) {
+                record(result);
+            }
+            return result;
+        }
+        
+        private void record(long bytes) {
+            transferred += bytes;
+            progress.updateProgress(transferred);
+            totalTransferredBytes.addAndGet(bytes);
+            admissionController.recordBytes(bytes);
+        }
+        
+        private void checkCancelled() throws IOException {
+            if (progress.isCancelled()) {
+                throw new IOException("传输已取消: " + transferId);
+            }
         }
         
         @Override
         public void close() throws IOException {
-            if (!channelClosed) {
-                channelClosed = true;
-                channel.close();
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                activeTransfers.remove(transferId);
+                permit.release();
+                log.debug("传输结束 - transferId: {}, bytes: {}, rate: {}KB/s", 
+                        transferId, transferred, String.format("%.1f", progress.getBytesPerSecond() / 1024));
             }
         }
     }
     
     /**
-     * 零拷贝优化的文件资源
+     * 大文件资源
      * 
-     * 基于FileChannel的高性能实现：
-     * 1. 直接内存映射 - 避免用户空间拷贝
-     * 2. Zero-Copy传输 - FileChannel.transferTo()
-     * 3. 大文件优化 - 分块传输策略
+     * 超大文件经FileChannel和直接缓冲区分块读取，其余使用大缓冲的文件流。
+     * 响应体由Spring从输入流复制到Servlet输出流，数据仍经过用户态缓冲，并非transferTo零拷贝。
      */
-    private static class ZeroCopyFileResource extends FileSystemResource {
+    private static class ChannelFileResource extends FileSystemResource {
         private final long fileSize;
         
-        public ZeroCopyFileResource(Path path, long fileSize) {
+        public ChannelFileResource(Path path, long fileSize) {
             super(path);
             this.fileSize = fileSize;
         }
@@ -546,7 +676,7 @@ public class NIOStreamingServiceImpl implements StreamingService {
         public InputStream getInputStream() throws IOException {
             // 对于大文件使用内存映射文件通道
             if (fileSize > LARGE_FILE_THRESHOLD) {
-                return new ZeroCopyInputStream(getFile().toPath());
+                return new ChannelInputStream(getFile().toPath());
             } else {
                 // 小文件仍使用优化的缓冲流
                 FileInputStream fis = new FileInputStream(getFile());
@@ -558,27 +688,20 @@ public class NIOStreamingServiceImpl implements StreamingService {
         public long contentLength() {
             return fileSize;
         }
-        
-        /**
-         * 获取底层FileChannel以支持零拷贝传输
-         */
-        public FileChannel getFileChannel() throws IOException {
-            return FileChannel.open(getFile().toPath(), StandardOpenOption.READ);
-        }
     }
     
     /**
-     * 零拷贝输入流实现
-     * 基于FileChannel和ByteBuffer的高性能读取
+     * 通道输入流实现
+     * 基于FileChannel和直接ByteBuffer分块读取
      */
-    private static class ZeroCopyInputStream extends InputStream {
+    private static class ChannelInputStream extends InputStream {
         private final FileChannel channel;
         private final ByteBuffer buffer;
         private boolean channelClosed = false;
         
-        public ZeroCopyInputStream(Path path) throws IOException {
+        public ChannelInputStream(Path path) throws IOException {
             this.channel = FileChannel.open(path, StandardOpenOption.READ);
-            // 使用直接内存缓冲区，减少内存拷贝
+            // 使用直接内存缓冲区，通道读取不再经过JDK内部临时缓冲
             this.buffer = ByteBuffer.allocateDirect(LARGE_FILE_BUFFER_SIZE);
             this.buffer.flip(); // 初始状态为空
         }
@@ -663,49 +786,6 @@ public class NIOStreamingServiceImpl implements StreamingService {
         }
     }
     
-    /**
-     * 限制读取长度的输入流
-     */
-    private static class LimitedInputStream extends InputStream {
-        private final InputStream delegate;
-        private long remaining;
-        
-        public LimitedInputStream(InputStream delegate, long limit) {
-            this.delegate = delegate;
-            this.remaining = limit;
-        }
-        
-        @Override
-        public int read() throws IOException {
-            if (remaining <= 0) {
-                return -1;
-            }
-            int result = delegate.read();
-            if (result != -1) {
-                remaining--;
-            }
-            return result;
-        }
-        
-        @Override
-        public int read(byte[] b, int off, int len) throws IOException {
-            if (remaining <= 0) {
-                return -1;
-            }
-            int toRead = (int) Math.min(len, remaining);
-            int result = delegate.read(b, off, toRead);
-            if (result > 0) {
-                remaining -= result;
-            }
-            return result;
-        }
-        
-        @Override
-        public void close() throws IOException {
-            delegate.close();
-        }
-    }
-    
     /**
      * 流式统计实现
      */
@@ -0,0 +1,358 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流式传输准入控制
+ *
+ * 1. 许可数量严格受限：检查和占用在同一把锁内完成，突发请求不会超出上限
+ * 2. 按客户端公平排队：每个客户端一个等待队列，许可释放时在有等待者的客户端之间轮转分配，
+ *    单个客户端的大量请求不会饿死其他客户端
+ * 3. 等待超时：超时的等待者在锁内退出队列，不会占用或泄漏许可
+ * 4. 自适应上限：周期性根据磁盘实际吞吐调整并发上限，仅在请求排队（需求超过上限）时调整
+ * 5. 许可租约：许可随响应体交给传输流，流关闭时释放；长时间未开始读取的许可由后台回收
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamAdmissionController {
+
+    private static final long ADAPT_INTERVAL_SECONDS = 5;
+
+    private final FileStorageProperties storageProperties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 有等待者的客户端轮转顺序，以及各客户端的等待队列，均由lock保护
+     */
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+    private final Map<String, ArrayDeque<Waiter>> waitQueues = new HashMap<>();
+    private int waitingCount = 0;
+    private int activeCount = 0;
+    private int limit;
+
+    /**
+     * 自适应状态，仅在executor线程中访问
+     */
+    private double bestThroughput = 0;
+    private volatile boolean saturated = false;
+
+    /**
+     * 已发放的许可，用于回收从未开始读取的租约
+     */
+    private final Set<Permit> outstanding = ConcurrentHashMap.newKeySet();
+
+    private final StreamRateMeter aggregateMeter = new StreamRateMeter(10);
+
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong timeoutCount = new AtomicLong(0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Stream-Admission");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        limit = storageProperties.getStreaming().getMaxConcurrentTransfers();
+        executor.scheduleWithFixedDelay(this::adaptLimit, ADAPT_INTERVAL_SECONDS, ADAPT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::reclaimStaleLeases, 30, 30, TimeUnit.SECONDS);
+        log.info("流式传输准入控制初始化完成 - 初始并发上限: {}, 排队超时: {}ms",
+                limit, storageProperties.getStreaming().getQueueTimeoutMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 申请传输许可，必要时按客户端公平排队等待
+     *
+     * @param clientId 客户端标识
+     * @return 许可；队列已满、等待超时或线程被中断时返回null
+     */
+    public Permit acquire(String clientId) {
+        FileStorageProperties.Streaming config = storageProperties.getStreaming();
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeoutMillis());
+
+        lock.lock();
+        try {
+            // 有人排队时新请求不能插队
+            if (waitingCount == 0 && activeCount < limit) {
+                activeCount++;
+                return issue(clientId);
+            }
+            saturated = true;
+
+            if (waitingCount >= config.getMaxQueuedRequests()) {
+                rejectedCount.incrementAndGet();
+                return null;
+            }
+
+            Waiter waiter = new Waiter(clientId, lock.newCondition());
+            enqueue(waiter);
+
+            try {
+                while (!waiter.granted) {
+                    if (remainingNanos <= 0) {
+                        dequeue(waiter);
+                        timeoutCount.incrementAndGet();
+                        return null;
+                    }
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    // 许可已分配但调用方放弃，归还给下一个等待者
+                    activeCount--;
+                    dispatch();
+                } else {
+                    dequeue(waiter);
+                }
+                return null;
+            }
+            return issue(clientId);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录传输字节数，用于吞吐统计和自适应上限
+     */
+    public void recordBytes(long bytes) {
+        aggregateMeter.record(bytes);
+    }
+
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return activeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waitingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getAggregateBytesPerSecond() {
+        return aggregateMeter.getBytesPerSecond();
+    }
+
+    public long getPeakBytesPerSecond() {
+        return aggregateMeter.getPeakBytesPerSecond();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private Permit issue(String clientId) {
+        Permit permit = new Permit(clientId);
+        outstanding.add(permit);
+        return permit;
+    }
+
+    private void releasePermit(Permit permit) {
+        outstanding.remove(permit);
+        lock.lock();
+        try {
+            activeCount--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在有等待者的客户端之间轮转分配空闲许可，调用方需持有lock
+     */
+    private void dispatch() {
+        while (activeCount < limit && !rotation.isEmpty()) {
+            String clientId = rotation.pollFirst();
+            ArrayDeque<Waiter> queue = waitQueues.get(clientId);
+            Waiter waiter = queue.pollFirst();
+            if (queue.isEmpty()) {
+                waitQueues.remove(clientId);
+            } else {
+                rotation.addLast(clientId);
+            }
+            waitingCount--;
+            activeCount++;
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private void enqueue(Waiter waiter) {
+        ArrayDeque<Waiter> queue = waitQueues.get(waiter.clientId);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            waitQueues.put(waiter.clientId, queue);
+            rotation.addLast(waiter.clientId);
+        }
+        queue.addLast(waiter);
+        waitingCount++;
+    }
+
+    private void dequeue(Waiter waiter) {
+        ArrayDeque<Waiter> queue = waitQueues.get(waiter.clientId);
+        if (queue != null && queue.remove(waiter)) {
+            waitingCount--;
+            if (queue.isEmpty()) {
+                waitQueues.remove(waiter.clientId);
+                rotation.remove(waiter.clientId);
+            }
+        }
+    }
+
+    /**
+     * 根据吞吐变化调整并发上限：
+     * 吞吐随上限提升而增长时继续加，吞吐明显下降（磁盘饱和、寻道放大）时减，否则保持
+     */
+    private void adaptLimit() {
+        try {
+            FileStorageProperties.Streaming config = storageProperties.getStreaming();
+            double throughput = aggregateMeter.getBytesPerSecond();
+            boolean demand = saturated;
+            saturated = false;
+
+            if (!demand || throughput <= 0) {
+                return;
+            }
+
+            int oldLimit;
+            int newLimit;
+            lock.lock();
+            try {
+                oldLimit = limit;
+                if (throughput > bestThroughput * 1.05) {
+                    bestThroughput = throughput;
+                    limit = Math.min(config.getMaxConcurrentTransfersCeiling(), limit + 1);
+                } else if (throughput < bestThroughput * 0.8) {
+                    limit = Math.max(config.getMinConcurrentTransfers(), limit - 1);
+                    // 逐步降低基准，允许后续重新探测
+                    bestThroughput *= 0.9;
+                }
+                newLimit = limit;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+
+            if (newLimit != oldLimit) {
+                log.info("调整流式传输并发上限 - {} -> {}, 吞吐: {}MB/s",
+                        oldLimit, newLimit, String.format("%.2f", throughput / 1024 / 1024));
+            }
+        } catch (Exception e) {
+            log.warn("调整流式传输并发上限失败 - 错误: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 回收发放后长时间未开始读取的许可（如客户端在写响应前断开或HEAD请求）
+     */
+    private void reclaimStaleLeases() {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(storageProperties.getStreaming().getLeaseOpenTimeoutSeconds());
+        long now = System.currentTimeMillis();
+        for (Permit permit : outstanding) {
+            if (!permit.opened && now - permit.issueTime > timeoutMillis && permit.release()) {
+                log.debug("回收未使用的传输许可 - 客户端: {}", permit.clientId);
+            }
+        }
+    }
+
+    // ==================== 内部类 ====================
+
+    private static class Waiter {
+        private final String clientId;
+        private final Condition condition;
+        private boolean granted = false;
+
+        Waiter(String clientId, Condition condition) {
+            this.clientId = clientId;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * 传输许可，release幂等
+     */
+    public class Permit {
+        private final String clientId;
+        private final long issueTime = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean opened = false;
+
+        Permit(String clientId) {
+            this.clientId = clientId;
+        }
+
+        /**
+         * 标记传输已开始，之后只能由传输流关闭时释放
+         */
+        public void markOpened() {
+            opened = true;
+        }
+
+        /**
+         * @return 本次调用实际释放了许可返回true
+         */
+        public boolean release() {
+            if (released.compareAndSet(false, true)) {
+                releasePermit(this);
+                return true;
+            }
+            return false;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+    }
+}
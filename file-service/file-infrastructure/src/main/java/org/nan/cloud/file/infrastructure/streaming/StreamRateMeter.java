@@ -0,0 +1,68 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口速率计
+ *
+ * 按秒分桶累计字节数，速率取最近若干个完整秒的平均值；
+ * 记录路径只有CAS和累加，可在传输线程中直接调用。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+public class StreamRateMeter {
+
+    private final int windowSeconds;
+    private final AtomicLongArray bucketBytes;
+    private final AtomicLongArray bucketSecond;
+    private final AtomicLong peakBytesPerSecond = new AtomicLong(0);
+
+    public StreamRateMeter(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        // 多一个桶存放当前未完成的秒
+        this.bucketBytes = new AtomicLongArray(windowSeconds + 1);
+        this.bucketSecond = new AtomicLongArray(windowSeconds + 1);
+    }
+
+    /**
+     * 记录传输字节数
+     */
+    public void record(long bytes) {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % bucketBytes.length());
+        long bucket = bucketSecond.get(index);
+        if (bucket != second) {
+            if (bucketSecond.compareAndSet(index, bucket, second)) {
+                // 桶被复用前，其中的数据是一个完整秒，用于更新峰值
+                long completed = bucketBytes.getAndSet(index, 0);
+                peakBytesPerSecond.accumulateAndGet(completed, Math::max);
+            }
+        }
+        bucketBytes.addAndGet(index, bytes);
+    }
+
+    /**
+     * 最近窗口内的平均速率（字节/秒），不含当前未完成的秒
+     */
+    public double getBytesPerSecond() {
+        long current = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < bucketBytes.length(); i++) {
+            long second = bucketSecond.get(i);
+            if (second < current && second >= current - windowSeconds) {
+                total += bucketBytes.get(i);
+                peakBytesPerSecond.accumulateAndGet(bucketBytes.get(i), Math::max);
+            }
+        }
+        return (double) total / windowSeconds;
+    }
+
+    /**
+     * 观测到的单秒峰值（字节/秒）
+     */
+    public long getPeakBytesPerSecond() {
+        return peakBytesPerSecond.get();
+    }
+}
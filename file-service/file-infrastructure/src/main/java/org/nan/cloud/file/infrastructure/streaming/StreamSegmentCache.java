@@ -0,0 +1,171 @@
+package org.nan.cloud.file.infrastructure.streaming;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式传输范围缓存
+ *
+ * 将热点文件按固定大小分段做只读内存映射，范围请求直接从映射读取：
+ * - 映射位于堆外，数据由操作系统页缓存承载，不占用JVM堆
+ * - 命中时无需重新打开文件和发起read系统调用，播放器频繁拖动时效果明显
+ * - 总映射字节数有上限，超出后按LRU淘汰最久未访问的分段
+ * - 分段键包含文件最后修改时间，文件变化后旧分段自然失效
+ *
+ * 注意：被淘汰的映射在GC回收后才真正解除，上限约束的是缓存持有的映射量。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamSegmentCache {
+
+    private final FileStorageProperties storageProperties;
+
+    /**
+     * 访问顺序的LinkedHashMap实现LRU，由自身锁保护
+     */
+    private final LinkedHashMap<SegmentKey, MappedByteBuffer> segments = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long cachedBytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final AtomicLong evictionCount = new AtomicLong(0);
+
+    /**
+     * 获取分段的只读视图，position为0
+     *
+     * @param path 文件路径
+     * @param fileSize 文件大小
+     * @param lastModified 文件最后修改时间
+     * @param index 分段序号
+     */
+    public ByteBuffer getSegment(Path path, long fileSize, long lastModified, long index) throws IOException {
+        SegmentKey key = new SegmentKey(path.toString(), lastModified, index);
+
+        synchronized (segments) {
+            MappedByteBuffer cached = segments.get(key);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached.asReadOnlyBuffer();
+            }
+        }
+
+        missCount.incrementAndGet();
+        MappedByteBuffer mapped = map(path, fileSize, index);
+
+        synchronized (segments) {
+            MappedByteBuffer existing = segments.putIfAbsent(key, mapped);
+            if (existing != null) {
+                // 并发映射了同一分段，使用先放入的
+                return existing.asReadOnlyBuffer();
+            }
+            cachedBytes += mapped.capacity();
+            evictIfNecessary();
+        }
+        return mapped.asReadOnlyBuffer();
+    }
+
+    /**
+     * 预热文件开头的分段，将数据读入页缓存
+     *
+     * @return 预热的字节数
+     */
+    public long warm(Path path, long fileSize, long lastModified, long maxBytes) throws IOException {
+        long limit = Math.min(fileSize, Math.min(maxBytes, storageProperties.getStreaming().getSegmentCacheMaxBytes()));
+        long warmed = 0;
+        for (long index = 0; warmed < limit; index++) {
+            ByteBuffer segment = getSegment(path, fileSize, lastModified, index);
+            if (segment instanceof MappedByteBuffer mappedSegment) {
+                mappedSegment.load();
+            }
+            warmed += segment.capacity();
+        }
+        return warmed;
+    }
+
+    /**
+     * 移除文件的所有分段（文件更新或删除时调用）
+     */
+    public void invalidate(Path path) {
+        String pathKey = path.toString();
+        synchronized (segments) {
+            Iterator<Map.Entry<SegmentKey, MappedByteBuffer>> iterator = segments.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<SegmentKey, MappedByteBuffer> entry = iterator.next();
+                if (entry.getKey().path().equals(pathKey)) {
+                    cachedBytes -= entry.getValue().capacity();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public int getSegmentSize() {
+        return storageProperties.getStreaming().getSegmentSize();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getCachedBytes() {
+        synchronized (segments) {
+            return cachedBytes;
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private MappedByteBuffer map(Path path, long fileSize, long index) throws IOException {
+        long segmentSize = getSegmentSize();
+        long position = index * segmentSize;
+        if (position >= fileSize) {
+            throw new IOException("分段超出文件范围: " + path + "#" + index);
+        }
+        long length = Math.min(segmentSize, fileSize - position);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+    }
+
+    private void evictIfNecessary() {
+        long maxBytes = storageProperties.getStreaming().getSegmentCacheMaxBytes();
+        Iterator<Map.Entry<SegmentKey, MappedByteBuffer>> iterator = segments.entrySet().iterator();
+        // 至少保留刚放入的分段
+        while (cachedBytes > maxBytes && segments.size() > 1 && iterator.hasNext()) {
+            Map.Entry<SegmentKey, MappedByteBuffer> eldest = iterator.next();
+            cachedBytes -= eldest.getValue().capacity();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private record SegmentKey(String path, long lastModified, long index) {
+    }
+}
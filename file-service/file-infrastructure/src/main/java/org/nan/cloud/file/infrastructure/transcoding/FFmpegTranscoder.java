@@ -2,6 +2,7 @@ package org.nan.cloud.file.infrastructure.transcoding;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.utils.StreamingHashCalculator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -9,9 +10,13 @@ import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,7 +26,9 @@ import java.util.regex.Pattern;
  * 基于FFmpeg命令行工具的视频转码实现：
  * - 支持多种视频格式转换
  * - GPU加速支持
- * - 实时进度监控
+ * - 实时进度监控（-progress键值输出）
+ * - 单次解码同时输出转码文件和封面帧，并从同一进程的输出中解析输出流元数据
+ * - 转码文件经stdout管道写入目标路径，写入时同步计算MD5，落盘后无需再读取
  * - 自动参数优化
  * - 异常处理和重试机制
  * 
@@ -48,15 +55,19 @@ public class FFmpegTranscoder {
     @Value("${file.transcoding.temp.dir:C:/temp/transcoding}")
     private String tempDir;
 
-    // 进度解析正则表达式
-    private static final Pattern PROGRESS_PATTERN = Pattern.compile(
-            "frame=\\s*(\\d+)\\s+fps=\\s*([\\d.]+)\\s+.*time=([\\d:.]+)"
-    );
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
 
     private static final Pattern DURATION_PATTERN = Pattern.compile(
             "Duration: ([\\d:.]+)"
     );
 
+    // 输出流信息解析正则表达式
+    private static final Pattern VIDEO_CODEC_PATTERN = Pattern.compile("Video: (\\w+)");
+    private static final Pattern AUDIO_CODEC_PATTERN = Pattern.compile("Audio: (\\w+)");
+    private static final Pattern RESOLUTION_PATTERN = Pattern.compile(", (\\d{2,5})x(\\d{2,5})");
+    private static final Pattern FPS_PATTERN = Pattern.compile("([\\d.]+) fps");
+    private static final Pattern SAMPLE_RATE_PATTERN = Pattern.compile("(\\d+) Hz, ([\\w.()]+)");
+
     /**
      * 转码视频文件
      * 
@@ -69,25 +80,46 @@ public class FFmpegTranscoder {
     public TranscodingResult transcode(String inputPath, String outputPath, 
                                      TranscodingConfig config, 
                                      ProgressCallback progressCallback) {
+        return transcode(inputPath, outputPath, config, progressCallback, null);
+    }
+
+    /**
+     * 转码视频文件，并在进程启动后回调进程句柄（供调度器取消时终止进程）
+     *
+     * @param inputPath 输入文件路径
+     * @param outputPath 输出文件路径
+     * @param config 转码配置
+     * @param progressCallback 进度回调
+     * @param processListener 进程启动回调，可为null
+     * @return 转码结果
+     */
+    public TranscodingResult transcode(String inputPath, String outputPath,
+                                     TranscodingConfig config,
+                                     ProgressCallback progressCallback,
+                                     Consumer<Process> processListener) {
         log.info("开始转码 - 输入: {}, 输出: {}", inputPath, outputPath);
 
         try {
             // 1. 构建FFmpeg命令
             List<String> command = buildFFmpegCommand(inputPath, outputPath, config);
             
-            // 2. 创建进程
+            // 2. 创建进程（stdout为转码文件，stderr为日志和进度）
             ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.redirectErrorStream(true);
             
             // 3. 设置工作目录
             processBuilder.directory(new File(tempDir));
 
             // 4. 启动进程
             Process process = processBuilder.start();
+            if (processListener != null) {
+                processListener.accept(process);
+            }
 
-            // 5. 异步监控进度
-            CompletableFuture<Void> progressMonitor = monitorProgress(
-                    process.getInputStream(), progressCallback);
+            // 5. 异步监控进度，同时收集输出流元数据和最终统计；转码文件边写入边计算MD5
+            CompletableFuture<OutputCollector> progressMonitor = monitorProgress(
+                    process.getErrorStream(), progressCallback);
+            CompletableFuture<StreamingHashCalculator.HashingOutputStream> outputWriter = writeOutput(
+                    process.getInputStream(), outputPath);
 
             // 6. 等待转码完成
             boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
@@ -98,12 +130,19 @@ public class FFmpegTranscoder {
             }
 
             int exitCode = process.exitValue();
-            progressMonitor.join();
+            OutputCollector collector = progressMonitor.join();
+            StreamingHashCalculator.HashingOutputStream written = outputWriter.join();
 
             // 7. 检查转码结果
             if (exitCode == 0) {
                 log.info("转码成功完成 - 输出: {}", outputPath);
-                return TranscodingResult.success(outputPath, getOutputFileSize(outputPath));
+                String posterPath = config.getPosterPath() != null && java.nio.file.Files.exists(Paths.get(config.getPosterPath()))
+                        ? config.getPosterPath() : null;
+                if (config.getPosterPath() != null && posterPath == null) {
+                    log.warn("封面帧未生成 - 输出: {}", config.getPosterPath());
+                }
+                return TranscodingResult.success(outputPath, written.getBytesWritten(), written.getMD5Hex(),
+                        posterPath, collector.toMetadata());
             } else {
                 String errorMessage = "FFmpeg进程异常退出，退出码: " + exitCode;
                 log.error("转码失败 - {}", errorMessage);
@@ -317,57 +356,133 @@ public class FFmpegTranscoder {
             command.add(formatTime(config.getDuration()));
         }
 
-        // 优化参数
-        command.add("-movflags");
-        command.add("+faststart"); // 优化网络播放
+        // 管道输出无法回写文件头，MP4使用分片格式：moov位于文件头，与faststart一样可边下边播
+        String muxer = muxerFor(outputPath);
+        if ("mp4".equals(muxer) || "mov".equals(muxer)) {
+            command.add("-movflags");
+            command.add("frag_keyframe+empty_moov+default_base_moof");
+        }
 
-        // 进度输出
+        // 进度输出（键值格式）与日志一起写到stderr，关闭统计行
         command.add("-progress");
+        command.add("pipe:2");
+        command.add("-nostats");
+
+        // 转码文件写到stdout，由调用方落盘
+        command.add("-f");
+        command.add(muxer);
         command.add("pipe:1");
 
-        // 输出文件
-        command.add(outputPath);
+        // 封面帧作为第二个输出，与转码共用同一次解码
+        if (config.getPosterPath() != null) {
+            double posterTime = config.getPosterTime() != null ? config.getPosterTime() : 1.0;
+            command.add("-map");
+            command.add("0:v:0");
+            command.add("-vf");
+            command.add("select=gte(t\\," + posterTime + "),scale=" + config.getPosterWidth() + ":" + config.getPosterHeight());
+            command.add("-frames:v");
+            command.add("1");
+            command.add("-q:v");
+            command.add("2");
+            command.add(config.getPosterPath());
+        }
 
         log.debug("FFmpeg命令: {}", String.join(" ", command));
         return command;
     }
 
+    /**
+     * 按输出扩展名选择封装格式（管道输出无法从文件名推断）
+     */
+    private static String muxerFor(String outputPath) {
+        String name = Paths.get(outputPath).getFileName().toString().toLowerCase();
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "mp4", "m4v" -> "mp4";
+            case "mkv" -> "matroska";
+            case "ts" -> "mpegts";
+            default -> extension;
+        };
+    }
+
+    /**
+     * 将stdout上的转码文件写入输出路径，写入时同步计算MD5和大小
+     */
+    private CompletableFuture<StreamingHashCalculator.HashingOutputStream> writeOutput(InputStream stdout, String outputPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = stdout;
+                 StreamingHashCalculator.HashingOutputStream out = new StreamingHashCalculator.HashingOutputStream(
+                         new FileOutputStream(outputPath))) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out;
+            } catch (Exception e) {
+                throw new CompletionException("写入转码文件失败: " + e.getMessage(), e);
+            }
+        });
+    }
+
     /**
      * 监控转码进度
+     *
+     * 读取stderr：日志行提供输入时长和输出流信息，
+     * -progress键值块每块以progress=continue/end结束
      */
-    private CompletableFuture<Void> monitorProgress(InputStream inputStream, ProgressCallback callback) {
-        return CompletableFuture.runAsync(() -> {
+    private CompletableFuture<OutputCollector> monitorProgress(InputStream inputStream, ProgressCallback callback) {
+        return CompletableFuture.supplyAsync(() -> {
+            OutputCollector collector = new OutputCollector();
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
                 String line;
-                Long totalDuration = null;
-                
+                Long totalDurationMillis = null;
+                long outTimeMicros = 0;
+                String outTime = null;
+                String fps = null;
+
                 while ((line = reader.readLine()) != null) {
                     log.debug("FFmpeg输出: {}", line);
 
                     // 解析总时长
-                    if (totalDuration == null) {
+                    if (totalDurationMillis == null) {
                         Matcher durationMatcher = DURATION_PATTERN.matcher(line);
                         if (durationMatcher.find()) {
-                            totalDuration = parseTimeToSeconds(durationMatcher.group(1));
+                            totalDurationMillis = parseTimeToMillis(durationMatcher.group(1));
+                            continue;
                         }
                     }
 
-                    // 解析当前进度
-                    Matcher progressMatcher = PROGRESS_PATTERN.matcher(line);
-                    if (progressMatcher.find() && totalDuration != null) {
-                        String currentTimeStr = progressMatcher.group(3);
-                        long currentTime = parseTimeToSeconds(currentTimeStr);
-                        
-                        int progress = (int) ((currentTime * 100) / totalDuration);
-                        progress = Math.min(100, Math.max(0, progress));
-
-                        String fps = progressMatcher.group(2);
-                        callback.onProgress(progress, fps, currentTimeStr);
+                    int eq = line.indexOf('=');
+                    if (eq <= 0 || line.indexOf(' ') >= 0 && line.indexOf(' ') < eq) {
+                        collector.onLogLine(line);
+                        continue;
                     }
+
+                    // 解析进度键值
+                    String key = line.substring(0, eq);
+                    String value = line.substring(eq + 1).trim();
+                    switch (key) {
+                        case "out_time_us", "out_time_ms" -> outTimeMicros = parseLong(value, outTimeMicros);
+                        case "out_time" -> outTime = value;
+                        case "fps" -> fps = value;
+                        case "progress" -> {
+                            if (totalDurationMillis != null && totalDurationMillis > 0) {
+                                // progress=end时输出时间可能略短于输入时长（最后一帧时长），直接视为完成
+                                int progress = "end".equals(value) ? 100
+                                        : (int) (outTimeMicros / 10 / totalDurationMillis);
+                                progress = Math.min(100, Math.max(0, progress));
+                                callback.onProgress(progress, fps, outTime);
+                            }
+                        }
+                        default -> { }
+                    }
+                    collector.onStat(key, value);
                 }
             } catch (IOException e) {
                 log.error("进度监控异常", e);
             }
+            return collector;
         });
     }
 
@@ -403,6 +518,28 @@ public class FFmpegTranscoder {
         return builder.build();
     }
 
+    /**
+     * 时间格式转换为毫秒
+     */
+    private long parseTimeToMillis(String timeStr) {
+        String[] parts = timeStr.split(":");
+        if (parts.length == 3) {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = Integer.parseInt(parts[1]);
+            double seconds = Double.parseDouble(parts[2]);
+            return (long) ((hours * 3600 + minutes * 60 + seconds) * 1000);
+        }
+        return 0;
+    }
+
+    private long parseLong(String value, long defaultValue) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /**
      * 时间格式转换为秒
      */
@@ -431,15 +568,82 @@ public class FFmpegTranscoder {
     }
 
     /**
-     * 获取输出文件大小
+     * 收集ffmpeg输出中的输出流信息和最终统计，替代转码后的ffprobe
      */
-    private long getOutputFileSize(String outputPath) {
-        try {
-            Path path = Paths.get(outputPath);
-            return java.nio.file.Files.size(path);
-        } catch (Exception e) {
-            log.warn("获取输出文件大小失败: {}", outputPath, e);
-            return 0L;
+    private static class OutputCollector {
+        private boolean inOutputSection = false;
+        private final Map<String, Object> metadata = new HashMap<>();
+        private final Map<String, String> stats = new HashMap<>();
+
+        void onLogLine(String line) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("Output #0")) {
+                inOutputSection = true;
+                int comma = trimmed.indexOf(',');
+                int to = trimmed.indexOf(", to ");
+                if (comma > 0 && to > comma) {
+                    metadata.put("formatName", trimmed.substring(comma + 1, to).trim());
+                }
+                return;
+            }
+            if (trimmed.startsWith("Output #") || trimmed.startsWith("Stream mapping") || trimmed.startsWith("Press [q]")) {
+                inOutputSection = false;
+                return;
+            }
+            if (!inOutputSection || !trimmed.startsWith("Stream #")) {
+                return;
+            }
+
+            Matcher videoMatcher = VIDEO_CODEC_PATTERN.matcher(trimmed);
+            if (videoMatcher.find() && !metadata.containsKey("videoCodec")) {
+                metadata.put("videoCodec", videoMatcher.group(1));
+                Matcher resolution = RESOLUTION_PATTERN.matcher(trimmed);
+                if (resolution.find()) {
+                    metadata.put("width", Integer.parseInt(resolution.group(1)));
+                    metadata.put("height", Integer.parseInt(resolution.group(2)));
+                }
+                Matcher fps = FPS_PATTERN.matcher(trimmed);
+                if (fps.find()) {
+                    metadata.put("frameRate", fps.group(1));
+                }
+                return;
+            }
+            Matcher audioMatcher = AUDIO_CODEC_PATTERN.matcher(trimmed);
+            if (audioMatcher.find() && !metadata.containsKey("audioCodec")) {
+                metadata.put("audioCodec", audioMatcher.group(1));
+                Matcher sampleRate = SAMPLE_RATE_PATTERN.matcher(trimmed);
+                if (sampleRate.find()) {
+                    metadata.put("sampleRate", sampleRate.group(1));
+                    metadata.put("channels", sampleRate.group(2));
+                }
+            }
+        }
+
+        void onStat(String key, String value) {
+            stats.put(key, value);
+        }
+
+        /**
+         * 输出流元数据，时长和码率取最后一个进度块的统计值
+         */
+        Map<String, Object> toMetadata() {
+            Map<String, Object> result = new HashMap<>(metadata);
+            String outTimeUs = stats.getOrDefault("out_time_us", stats.get("out_time_ms"));
+            if (outTimeUs != null) {
+                try {
+                    result.put("duration", String.format("%.3f", Long.parseLong(outTimeUs) / 1_000_000.0));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            String bitrate = stats.get("bitrate");
+            if (bitrate != null && bitrate.endsWith("kbits/s")) {
+                try {
+                    double kbps = Double.parseDouble(bitrate.substring(0, bitrate.length() - "kbits/s".length()));
+                    result.put("bitRate", String.valueOf((long) (kbps * 1000)));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return result;
         }
     }
 
@@ -471,6 +675,10 @@ public class FFmpegTranscoder {
         private boolean removeVideo;
         private Double startTime;
         private Double duration;
+        private String posterPath;
+        private Double posterTime;
+        private int posterWidth = 320;
+        private int posterHeight = 240;
 
         // 建造者模式构造器和getter/setter方法
         public static TranscodingConfig.Builder builder() {
@@ -552,6 +760,24 @@ public class FFmpegTranscoder {
                 return this;
             }
 
+            /**
+             * 同时输出封面帧
+             *
+             * @param posterPath 封面输出路径
+             * @param posterTime 取帧时间（秒），为null时取第1秒
+             */
+            public Builder poster(String posterPath, Double posterTime) {
+                config.posterPath = posterPath;
+                config.posterTime = posterTime;
+                return this;
+            }
+
+            public Builder posterSize(int width, int height) {
+                config.posterWidth = width;
+                config.posterHeight = height;
+                return this;
+            }
+
             public TranscodingConfig build() {
                 return config;
             }
@@ -574,6 +800,10 @@ public class FFmpegTranscoder {
         public boolean isRemoveVideo() { return removeVideo; }
         public Double getStartTime() { return startTime; }
         public Double getDuration() { return duration; }
+        public String getPosterPath() { return posterPath; }
+        public Double getPosterTime() { return posterTime; }
+        public int getPosterWidth() { return posterWidth; }
+        public int getPosterHeight() { return posterHeight; }
     }
 
     /**
@@ -584,26 +814,41 @@ public class FFmpegTranscoder {
         private final String outputPath;
         private final String errorMessage;
         private final long outputFileSize;
+        private final String outputMd5;
+        private final String posterPath;
+        private final Map<String, Object> outputMetadata;
 
-        private TranscodingResult(boolean success, String outputPath, String errorMessage, long outputFileSize) {
+        private TranscodingResult(boolean success, String outputPath, String errorMessage, long outputFileSize,
+                                  String outputMd5, String posterPath, Map<String, Object> outputMetadata) {
             this.success = success;
             this.outputPath = outputPath;
             this.errorMessage = errorMessage;
             this.outputFileSize = outputFileSize;
+            this.outputMd5 = outputMd5;
+            this.posterPath = posterPath;
+            this.outputMetadata = outputMetadata;
         }
 
         public static TranscodingResult success(String outputPath, long outputFileSize) {
-            return new TranscodingResult(true, outputPath, null, outputFileSize);
+            return new TranscodingResult(true, outputPath, null, outputFileSize, null, null, Map.of());
+        }
+
+        public static TranscodingResult success(String outputPath, long outputFileSize, String outputMd5,
+                                                String posterPath, Map<String, Object> outputMetadata) {
+            return new TranscodingResult(true, outputPath, null, outputFileSize, outputMd5, posterPath, outputMetadata);
         }
 
         public static TranscodingResult failure(String errorMessage) {
-            return new TranscodingResult(false, null, errorMessage, 0);
+            return new TranscodingResult(false, null, errorMessage, 0, null, null, Map.of());
         }
 
         public boolean isSuccess() { return success; }
         public String getOutputPath() { return outputPath; }
         public String getErrorMessage() { return errorMessage; }
         public long getOutputFileSize() { return outputFileSize; }
+        public String getOutputMd5() { return outputMd5; }
+        public String getPosterPath() { return posterPath; }
+        public Map<String, Object> getOutputMetadata() { return outputMetadata; }
     }
 
     /**
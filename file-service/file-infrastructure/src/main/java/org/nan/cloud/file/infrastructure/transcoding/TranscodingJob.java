@@ -0,0 +1,129 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Properties;
+
+/**
+ * 转码作业
+ *
+ * 调度器中排队和执行的单元。不可变字段描述作业本身，可写入作业日志以便重启后恢复；
+ * 取消/中止标志和ffmpeg进程句柄只存在于内存中。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Getter
+public class TranscodingJob {
+
+    /**
+     * 默认优先级（数值越大越优先）
+     */
+    public static final int DEFAULT_PRIORITY = 5;
+
+    private final String taskId;
+    private final Long oid;
+    private final Long uid;
+    private final Long sourceMaterialId;
+    private final String presetName;
+    private final String detailId;
+    private final int priority;
+
+    /**
+     * 入队时间（毫秒时间戳），恢复时保留原值，保证重启前后的排队顺序
+     */
+    private final long enqueueTime;
+
+    /**
+     * 用户取消
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 服务停止时被中断，作业日志保留，重启后重新执行
+     */
+    private volatile boolean aborted;
+
+    /**
+     * 正在运行的ffmpeg进程
+     */
+    private volatile Process process;
+
+    @Builder
+    private TranscodingJob(String taskId, Long oid, Long uid, Long sourceMaterialId, String presetName,
+                           String detailId, int priority, long enqueueTime) {
+        this.taskId = taskId;
+        this.oid = oid;
+        this.uid = uid;
+        this.sourceMaterialId = sourceMaterialId;
+        this.presetName = presetName;
+        this.detailId = detailId;
+        this.priority = priority;
+        this.enqueueTime = enqueueTime;
+    }
+
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    void markAborted() {
+        aborted = true;
+    }
+
+    /**
+     * 登记ffmpeg进程；作业在进程启动前已被取消或中止时立即终止进程
+     */
+    void attachProcess(Process process) {
+        this.process = process;
+        if (cancelled || aborted) {
+            killProcess();
+        }
+    }
+
+    /**
+     * 强制终止ffmpeg进程及其子进程
+     */
+    void killProcess() {
+        Process current = process;
+        if (current != null && current.isAlive()) {
+            current.descendants().forEach(ProcessHandle::destroyForcibly);
+            current.destroyForcibly();
+        }
+    }
+
+    /**
+     * 是否被取消或中止，执行器据此跳过正常的失败处理
+     */
+    public boolean isInterrupted() {
+        return cancelled || aborted;
+    }
+
+    Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("taskId", taskId);
+        properties.setProperty("oid", String.valueOf(oid));
+        properties.setProperty("uid", String.valueOf(uid));
+        properties.setProperty("sourceMaterialId", String.valueOf(sourceMaterialId));
+        if (presetName != null) {
+            properties.setProperty("presetName", presetName);
+        }
+        properties.setProperty("detailId", detailId);
+        properties.setProperty("priority", String.valueOf(priority));
+        properties.setProperty("enqueueTime", String.valueOf(enqueueTime));
+        return properties;
+    }
+
+    static TranscodingJob fromProperties(Properties properties) {
+        return TranscodingJob.builder()
+                .taskId(properties.getProperty("taskId"))
+                .oid(Long.valueOf(properties.getProperty("oid")))
+                .uid(Long.valueOf(properties.getProperty("uid")))
+                .sourceMaterialId(Long.valueOf(properties.getProperty("sourceMaterialId")))
+                .presetName(properties.getProperty("presetName"))
+                .detailId(properties.getProperty("detailId"))
+                .priority(Integer.parseInt(properties.getProperty("priority", String.valueOf(DEFAULT_PRIORITY))))
+                .enqueueTime(Long.parseLong(properties.getProperty("enqueueTime")))
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.TaskContextService;
+import org.nan.cloud.file.infrastructure.mq.producer.TranscodingEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 转码进度上报
+ *
+ * ffmpeg每输出一行进度都会回调，直接推送会产生大量MQ消息。上报器只记录最新进度，由后台周期性合并推送：
+ * 1. 采样：进度变化达到百分比阈值且距上次推送超过最小间隔时推送；变化不足阈值时按最长间隔推送
+ * 2. 合并：同一周期内每个任务最多推送一条最新进度，消息格式与单任务PROGRESS事件一致
+ * 3. 开始事件立即推送；任务结束时先注销，保证结束/失败事件之后不会再出现进度事件
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TranscodingProgressReporter {
+
+    private static final String STATUS_TRANSCODING = "TRANSCODING";
+
+    private final FileStorageProperties storageProperties;
+    private final TranscodingEventPublisher eventPublisher;
+    private final TaskContextService taskContextService;
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    /**
+     * 推送批次与任务注销互斥，任务注销后不会再有该任务的进度消息发出
+     */
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    private final AtomicLong receivedCount = new AtomicLong(0);
+    private final AtomicLong publishedCount = new AtomicLong(0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Transcoding-Progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        long interval = storageProperties.getTranscoding().getProgress().getFlushIntervalMillis();
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("转码进度上报初始化完成 - 推送周期: {}ms", interval);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 任务开始：注册进度跟踪并立即推送开始事件
+     */
+    public void started(TranscodingJob job) {
+        trackers.put(job.getTaskId(), new Tracker(job.getTaskId(), job.getOid(), job.getUid()));
+        eventPublisher.publishTranscodingStarted(job.getTaskId(), job.getOid(), job.getUid(), job.getSourceMaterialId());
+    }
+
+    /**
+     * 记录最新进度，由ffmpeg进度回调调用，不直接推送消息
+     */
+    public void progress(String taskId, int progress) {
+        receivedCount.incrementAndGet();
+        Tracker tracker = trackers.get(taskId);
+        if (tracker == null || progress == tracker.latest) {
+            return;
+        }
+        tracker.latest = progress;
+        try {
+            taskContextService.updateTaskProgress(taskId, progress);
+        } catch (Exception e) {
+            log.debug("更新任务进度失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 任务结束：注销进度跟踪，丢弃未推送的进度；调用方随后推送完成/失败事件
+     */
+    public void finished(String taskId) {
+        publishLock.lock();
+        try {
+            trackers.remove(taskId);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * 收到的进度回调次数
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * 实际推送的进度消息条数
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 采样到期的任务进度并逐个推送
+     */
+    private void flush() {
+        if (trackers.isEmpty()) {
+            return;
+        }
+        publishLock.lock();
+        try {
+            FileStorageProperties.Transcoding.Progress config = storageProperties.getTranscoding().getProgress();
+            long now = System.currentTimeMillis();
+            for (Tracker tracker : trackers.values()) {
+                if (!tracker.isDue(now, config)) {
+                    continue;
+                }
+                int progress = tracker.latest;
+                tracker.lastPublished = progress;
+                tracker.lastPublishTime = now;
+                try {
+                    eventPublisher.publishTranscodingProgress(tracker.taskId, tracker.oid, tracker.uid, progress, STATUS_TRANSCODING);
+                    publishedCount.incrementAndGet();
+                } catch (Exception e) {
+                    log.warn("推送转码进度失败 - 任务ID: {}, 错误: {}", tracker.taskId, e.getMessage());
+                }
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    // ==================== 内部类 ====================
+
+    private static class Tracker {
+        private final String taskId;
+        private final Long oid;
+        private final Long uid;
+        private volatile int latest = 0;
+        private int lastPublished = 0;
+        private long lastPublishTime = System.currentTimeMillis();
+
+        Tracker(String taskId, Long oid, Long uid) {
+            this.taskId = taskId;
+            this.oid = oid;
+            this.uid = uid;
+        }
+
+        boolean isDue(long now, FileStorageProperties.Transcoding.Progress config) {
+            int current = latest;
+            if (current == lastPublished) {
+                return false;
+            }
+            long elapsed = now - lastPublishTime;
+            if (Math.abs(current - lastPublished) >= config.getMinPercentDelta()) {
+                return elapsed >= config.getMinIntervalMillis();
+            }
+            return elapsed >= config.getMaxIntervalMillis();
+        }
+    }
+}
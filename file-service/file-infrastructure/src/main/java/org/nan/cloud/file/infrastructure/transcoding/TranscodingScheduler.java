@@ -0,0 +1,458 @@
+package org.nan.cloud.file.infrastructure.transcoding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.api.dto.TranscodingQueueStatusResponse;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.service.TaskContextService;
+import org.nan.cloud.file.application.service.TranscodingTaskService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 转码作业调度器
+ *
+ * 1. CPU预算：并发ffmpeg进程数 = min(配置上限, CPU核数 / 每个ffmpeg的线程数)，至少为1
+ * 2. 组织公平：每个组织一个等待队列，工作线程在有等待作业的组织之间轮转取作业，
+ *    单个组织批量提交的大任务不会阻塞其他组织
+ * 3. 优先级：启用时优先取队首有效优先级最高的组织，有效优先级随排队时间老化提升；
+ *    组织内部按优先级、入队时间排序
+ * 4. 作业日志：入队时写入{temp.dir}/jobs/{taskId}.job，作业结束后删除；
+ *    服务重启时重新加载，排队中和被中断的作业按原入队顺序恢复执行
+ * 5. 取消：排队作业直接出队；执行中的作业强制终止ffmpeg进程及其子进程
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TranscodingScheduler implements TranscodingTaskService {
+
+    private static final String JOURNAL_SUFFIX = ".job";
+
+    private final FileStorageProperties storageProperties;
+    private final TranscodingJobExecutor jobExecutor;
+    private final TaskContextService taskContextService;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobAvailable = lock.newCondition();
+
+    /**
+     * 有等待作业的组织轮转顺序、各组织的等待队列以及排队作业索引，均由lock保护
+     */
+    private final ArrayDeque<Long> rotation = new ArrayDeque<>();
+    private final Map<Long, PriorityQueue<TranscodingJob>> orgQueues = new HashMap<>();
+    private final Map<String, TranscodingJob> queuedJobs = new HashMap<>();
+
+    private final Map<String, TranscodingJob> runningJobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submittedCount = new AtomicLong(0);
+    private final AtomicLong finishedCount = new AtomicLong(0);
+    private final AtomicLong cancelledCount = new AtomicLong(0);
+
+    private Comparator<TranscodingJob> jobOrder;
+    private Path journalDir;
+    private int concurrency;
+    private ExecutorService workers;
+    private volatile boolean stopping = false;
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.Transcoding transcoding = storageProperties.getTranscoding();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threadsPerJob = Math.max(1, transcoding.getFfmpeg().getThreads());
+        int cpuSlots = Math.max(1, cores / threadsPerJob);
+        concurrency = Math.max(1, Math.min(transcoding.getQueue().getMaxConcurrentTasks(), cpuSlots));
+
+        jobOrder = transcoding.getQueue().isPriorityEnabled()
+                ? Comparator.comparingInt(TranscodingJob::getPriority).reversed()
+                        .thenComparingLong(TranscodingJob::getEnqueueTime)
+                        .thenComparing(TranscodingJob::getTaskId)
+                : Comparator.comparingLong(TranscodingJob::getEnqueueTime)
+                        .thenComparing(TranscodingJob::getTaskId);
+
+        journalDir = Path.of(transcoding.getTemp().getDir(), "jobs");
+        int recovered = recoverJournal();
+
+        AtomicInteger workerIndex = new AtomicInteger(0);
+        workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "Transcoding-Worker-" + workerIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(this::workerLoop);
+        }
+
+        log.info("转码调度器初始化完成 - 并发: {} (CPU核数: {}, ffmpeg线程: {}), 队列上限: {}, 恢复作业: {}",
+                concurrency, cores, threadsPerJob, transcoding.getQueue().getMaxQueueSize(), recovered);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        lock.lock();
+        try {
+            jobAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        // 中断执行中的作业，保留作业日志，重启后重新执行
+        for (TranscodingJob job : runningJobs.values()) {
+            job.markAborted();
+            job.killProcess();
+        }
+
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.shutdownNow();
+            }
+        }
+        log.info("转码调度器已停止 - 未完成作业: {}", getQueuedCount() + runningJobs.size());
+    }
+
+    /**
+     * 提交转码作业
+     *
+     * @return 已入队（或重复提交的作业已在队列/执行中）返回true；队列已满或调度器已停止返回false
+     */
+    public boolean submit(TranscodingJob job) {
+        lock.lock();
+        try {
+            if (stopping) {
+                return false;
+            }
+            if (queuedJobs.containsKey(job.getTaskId()) || runningJobs.containsKey(job.getTaskId())) {
+                log.warn("⚠️ 转码作业已在调度中，忽略重复提交 - taskId={}", job.getTaskId());
+                return true;
+            }
+            if (queuedJobs.size() >= storageProperties.getTranscoding().getQueue().getMaxQueueSize()) {
+                return false;
+            }
+            writeJournal(job);
+            enqueue(job);
+        } catch (IOException e) {
+            log.error("写入转码作业日志失败 - taskId={}", job.getTaskId(), e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+
+        submittedCount.incrementAndGet();
+        log.info("📋 转码作业已入队 - taskId={}, oid={}, priority={}, 排队: {}",
+                job.getTaskId(), job.getOid(), job.getPriority(), getQueuedCount());
+        return true;
+    }
+
+    /**
+     * 队列是否还能接收作业
+     */
+    public boolean hasCapacity() {
+        lock.lock();
+        try {
+            return !stopping && queuedJobs.size() < storageProperties.getTranscoding().getQueue().getMaxQueueSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 作业是否在排队或执行中
+     */
+    public boolean isScheduled(String taskId) {
+        if (runningJobs.containsKey(taskId)) {
+            return true;
+        }
+        lock.lock();
+        try {
+            return queuedJobs.containsKey(taskId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean cancelTask(String taskId) {
+        TranscodingJob queued;
+        lock.lock();
+        try {
+            queued = queuedJobs.remove(taskId);
+            if (queued != null) {
+                removeFromOrgQueue(queued);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (queued != null) {
+            queued.markCancelled();
+            deleteJournal(queued);
+            cancelledCount.incrementAndGet();
+            jobExecutor.recordCancelled(queued);
+            return true;
+        }
+
+        TranscodingJob running = runningJobs.get(taskId);
+        if (running != null) {
+            // 执行器检测到取消标志后记录取消状态
+            running.markCancelled();
+            running.killProcess();
+            cancelledCount.incrementAndGet();
+            log.info("🛑 已终止转码进程 - taskId={}", taskId);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public TranscodingQueueStatusResponse getQueueStatus() {
+        FileStorageProperties.Transcoding.Queue queueConfig = storageProperties.getTranscoding().getQueue();
+        int queued = getQueuedCount();
+        int running = runningJobs.size();
+        return TranscodingQueueStatusResponse.builder()
+                .queueName("transcoding")
+                .totalCapacity(queueConfig.getMaxQueueSize())
+                .currentSize(queued)
+                .availableCapacity(Math.max(0, queueConfig.getMaxQueueSize() - queued))
+                .processingCount(running)
+                .pendingCount(queued)
+                .status(stopping ? TranscodingQueueStatusResponse.QueueStatus.STOPPED
+                        : TranscodingQueueStatusResponse.QueueStatus.ACTIVE)
+                .healthStatus(queued >= queueConfig.getMaxQueueSize()
+                        ? TranscodingQueueStatusResponse.HealthStatus.CRITICAL
+                        : TranscodingQueueStatusResponse.HealthStatus.HEALTHY)
+                .lastUpdateTime(LocalDateTime.now())
+                .configuration(TranscodingQueueStatusResponse.QueueConfiguration.builder()
+                        .maxConcurrentTasks(concurrency)
+                        .priorityQueueEnabled(queueConfig.isPriorityEnabled())
+                        .gpuAccelerationEnabled(storageProperties.getTranscoding().getFfmpeg().isEnableGpu())
+                        .build())
+                .build();
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queuedJobs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunningCount() {
+        return runningJobs.size();
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getFinishedCount() {
+        return finishedCount.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void workerLoop() {
+        while (!stopping) {
+            TranscodingJob job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                return;
+            }
+
+            try {
+                jobExecutor.execute(job);
+            } catch (Exception e) {
+                log.error("转码作业执行异常 - taskId={}", job.getTaskId(), e);
+            } finally {
+                runningJobs.remove(job.getTaskId());
+                if (!job.isAborted()) {
+                    deleteJournal(job);
+                    finishedCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 取下一个作业，没有作业时阻塞；调度器停止时返回null
+     */
+    private TranscodingJob take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!stopping && rotation.isEmpty()) {
+                jobAvailable.await();
+            }
+            if (stopping) {
+                return null;
+            }
+
+            Long oid = selectOrganization();
+            rotation.remove(oid);
+            PriorityQueue<TranscodingJob> queue = orgQueues.get(oid);
+            TranscodingJob job = queue.poll();
+            if (queue.isEmpty()) {
+                orgQueues.remove(oid);
+            } else {
+                rotation.addLast(oid);
+            }
+            queuedJobs.remove(job.getTaskId());
+            runningJobs.put(job.getTaskId(), job);
+            return job;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 选择下一个出队的组织，调用方需持有lock：
+     * 未启用优先级时按轮转顺序；启用时选队首有效优先级最高的组织，相同优先级按轮转顺序
+     */
+    private Long selectOrganization() {
+        FileStorageProperties.Transcoding.Queue queueConfig = storageProperties.getTranscoding().getQueue();
+        if (!queueConfig.isPriorityEnabled()) {
+            return rotation.peekFirst();
+        }
+
+        long now = System.currentTimeMillis();
+        long agingMillis = TimeUnit.SECONDS.toMillis(Math.max(1, queueConfig.getPriorityAgingSeconds()));
+        Long selected = null;
+        long bestPriority = Long.MIN_VALUE;
+        for (Long oid : rotation) {
+            TranscodingJob head = orgQueues.get(oid).peek();
+            long effective = head.getPriority() + (now - head.getEnqueueTime()) / agingMillis;
+            if (effective > bestPriority) {
+                bestPriority = effective;
+                selected = oid;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 作业入队，调用方需持有lock
+     */
+    private void enqueue(TranscodingJob job) {
+        PriorityQueue<TranscodingJob> queue = orgQueues.get(job.getOid());
+        if (queue == null) {
+            queue = new PriorityQueue<>(jobOrder);
+            orgQueues.put(job.getOid(), queue);
+            rotation.addLast(job.getOid());
+        }
+        queue.add(job);
+        queuedJobs.put(job.getTaskId(), job);
+        jobAvailable.signal();
+    }
+
+    /**
+     * 从组织队列中移除作业，调用方需持有lock
+     */
+    private void removeFromOrgQueue(TranscodingJob job) {
+        PriorityQueue<TranscodingJob> queue = orgQueues.get(job.getOid());
+        if (queue != null && queue.remove(job) && queue.isEmpty()) {
+            orgQueues.remove(job.getOid());
+            rotation.remove(job.getOid());
+        }
+    }
+
+    /**
+     * 加载作业日志，按原入队顺序恢复排队
+     */
+    private int recoverJournal() {
+        List<TranscodingJob> jobs = new ArrayList<>();
+        try {
+            Files.createDirectories(journalDir);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalDir, "*" + JOURNAL_SUFFIX)) {
+                for (Path file : stream) {
+                    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        Properties properties = new Properties();
+                        properties.load(reader);
+                        jobs.add(TranscodingJob.fromProperties(properties));
+                    } catch (Exception e) {
+                        log.warn("作业日志损坏，已忽略 - 文件: {}, 错误: {}", file, e.getMessage());
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("加载转码作业日志失败 - 目录: {}", journalDir, e);
+            return 0;
+        }
+
+        jobs.sort(Comparator.comparingLong(TranscodingJob::getEnqueueTime));
+        lock.lock();
+        try {
+            for (TranscodingJob job : jobs) {
+                // 任务上下文只在内存中，重启后重新建立
+                if (!taskContextService.existsTask(job.getTaskId())) {
+                    taskContextService.createTaskContext(job.getTaskId(), null, job.getUid(), job.getOid(),
+                            "material-" + job.getSourceMaterialId(), 0L);
+                }
+                enqueue(job);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return jobs.size();
+    }
+
+    private void writeJournal(TranscodingJob job) throws IOException {
+        Path target = journalDir.resolve(job.getTaskId() + JOURNAL_SUFFIX);
+        Path temp = journalDir.resolve(job.getTaskId() + JOURNAL_SUFFIX + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            job.toProperties().store(writer, null);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteJournal(TranscodingJob job) {
+        try {
+            Files.deleteIfExists(journalDir.resolve(job.getTaskId() + JOURNAL_SUFFIX));
+        } catch (IOException e) {
+            log.warn("删除转码作业日志失败 - taskId={}, 错误: {}", job.getTaskId(), e.getMessage());
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package org.nan.cloud.file.infrastructure.vsn;
 
+import java.util.HexFormat;
+
 /**
  * VSN 格式工具：颜色与布尔值规范化
  */
 public final class VsnFormatUtils {
 
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
     private VsnFormatUtils() {}
 
     /**
@@ -12,8 +16,7 @@ public final class VsnFormatUtils {
      */
     public static String colorFromInt(Integer color) {
         if (color == null) return null;
-        long unsigned = color & 0xFFFFFFFFL;
-        return String.format("#%08X", unsigned);
+        return "#" + HEX.toHexDigits(color);
     }
 
     /**
@@ -42,7 +45,7 @@ public final class VsnFormatUtils {
         } catch (NumberFormatException e) {
             return s;
         }
-        return String.format("#%08X", val);
+        return "#" + HEX.toHexDigits((int) val);
     }
 
     /**
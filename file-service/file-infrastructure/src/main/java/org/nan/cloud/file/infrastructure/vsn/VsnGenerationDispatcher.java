@@ -0,0 +1,311 @@
+package org.nan.cloud.file.infrastructure.vsn;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nan.cloud.file.application.config.FileStorageProperties;
+import org.nan.cloud.file.application.port.VsnResultPublisher;
+import org.nan.cloud.file.application.service.VsnGenerationService;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * VSN生成调度
+ *
+ * 生成请求按节目合并后交给工作线程池并行执行：
+ * 1. 每个节目至多一个排队中的请求，新版本替换排队中的旧版本，不晚于已排队或进行中版本的请求直接丢弃
+ * 2. 同一节目同时只有一个生成在执行，执行完成后若有新请求则重新排到队尾，避免热点节目独占工作线程
+ * 3. 等待生成的节目数达到上限时，提交方阻塞等待空位，超时返回false由调用方重新入队
+ *
+ * 生成结果仍由{@link VsnGenerationService}发布；被合并的请求不单独发布结果，
+ * 节目的生成状态由最终执行的版本决定。
+ *
+ * 消息在请求被接受时即确认，因此停机时仍未执行的请求（排队中的，以及强制停止时进行中的）
+ * 由调度发布失败结果，core-service据此将节目标记为生成失败并可重新发起，请求不会静默丢失。
+ *
+ * @author LedDeviceCloudPlatform Team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VsnGenerationDispatcher {
+
+    private final VsnGenerationService vsnGenerationService;
+    private final VsnResultPublisher vsnResultPublisher;
+    private final FileStorageProperties storageProperties;
+
+    /**
+     * 节目ID -> 生成槽位，槽位字段只在slots.compute内读写
+     */
+    private final ConcurrentHashMap<Long, ProgramSlot> slots = new ConcurrentHashMap<>();
+
+    private Semaphore programPermits;
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong acceptedCount = new AtomicLong(0);
+    private final AtomicLong supersededCount = new AtomicLong(0);
+    private final AtomicLong generatedCount = new AtomicLong(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void initialize() {
+        FileStorageProperties.VsnGeneration config = storageProperties.getVsnGeneration();
+        programPermits = new Semaphore(config.getMaxPendingPrograms());
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        // 队列长度受programPermits限制，不会超过maxPendingPrograms
+        executor = new ThreadPoolExecutor(config.getWorkerThreads(), config.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "Vsn-Generation-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("VSN生成调度初始化完成 - 工作线程: {}, 等待节目上限: {}",
+                config.getWorkerThreads(), config.getMaxPendingPrograms());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        boolean terminated = false;
+        try {
+            long timeout = storageProperties.getVsnGeneration().getShutdownTimeoutSeconds();
+            terminated = executor.awaitTermination(timeout, TimeUnit.SECONDS);
+            if (!terminated) {
+                log.warn("VSN生成任务未在{}秒内完成，强制停止 - 未执行节目数: {}", timeout, slots.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // 正常结束时槽位已全部释放；强制停止时排队中和进行中的请求都不会再完成
+        failUnfinished(!terminated);
+    }
+
+    /**
+     * 提交生成请求
+     *
+     * @param payload 生成请求（programId、version等）
+     * @return 已接受（含被合并或丢弃）返回true；等待空位超时返回false
+     */
+    public boolean submit(Map<String, Object> payload) {
+        Long programId = toLong(payload.get("programId"));
+        if (programId == null) {
+            // 缺少节目ID无法合并，直接执行以便生成服务发布失败结果
+            vsnGenerationService.generate(payload);
+            return true;
+        }
+        Integer version = toInt(payload.get("version"));
+
+        // 已有槽位时合并，不占用新的空位
+        if (slots.computeIfPresent(programId, (id, slot) -> slot.offer(payload, version)) != null) {
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+
+        try {
+            long timeout = storageProperties.getVsnGeneration().getAcceptTimeoutSeconds();
+            if (!programPermits.tryAcquire(timeout, TimeUnit.SECONDS)) {
+                rejectedCount.incrementAndGet();
+                log.warn("VSN生成排队已满，请求重新入队 - programId: {}, version: {}", programId, version);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        boolean[] created = {false};
+        slots.compute(programId, (id, slot) -> {
+            if (slot == null) {
+                created[0] = true;
+                return new ProgramSlot().offer(payload, version);
+            }
+            // 等待空位期间其他线程已建立槽位
+            return slot.offer(payload, version);
+        });
+        acceptedCount.incrementAndGet();
+        if (!created[0]) {
+            programPermits.release();
+        } else if (!schedule(programId)) {
+            // 停机中，放弃未执行的请求并发布失败结果（消息已确认，不会重新投递）
+            ProgramSlot dropped = slots.remove(programId);
+            programPermits.release();
+            log.warn("VSN生成调度已停止，放弃请求 - programId: {}", programId);
+            if (dropped != null && dropped.pending != null) {
+                publishDropped(dropped.pending, "服务停止，VSN生成请求未执行");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 调度统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingPrograms", slots.size());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("accepted", acceptedCount.get());
+        stats.put("superseded", supersededCount.get());
+        stats.put("generated", generatedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * @return 线程池已停止时返回false
+     */
+    private boolean schedule(Long programId) {
+        try {
+            executor.execute(() -> runNext(programId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 执行节目排队中的请求，完成后若又有新请求则重新调度，否则释放槽位；
+     * 停机时无法重新调度，在当前线程继续执行
+     */
+    private void runNext(Long programId) {
+        while (runOnce(programId)) {
+            if (schedule(programId)) {
+                return;
+            }
+        }
+        programPermits.release();
+    }
+
+    /**
+     * 执行一次排队中的请求
+     *
+     * @return 执行期间有新请求时返回true，否则移除槽位并返回false
+     */
+    private boolean runOnce(Long programId) {
+        Object[] next = new Object[1];
+        slots.computeIfPresent(programId, (id, slot) -> {
+            next[0] = slot.take();
+            return slot;
+        });
+        if (next[0] != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = (Map<String, Object>) next[0];
+            try {
+                vsnGenerationService.generate(payload);
+                generatedCount.incrementAndGet();
+            } catch (Exception e) {
+                log.error("VSN生成任务异常 - programId: {}, 错误: {}", programId, e.getMessage(), e);
+            }
+        }
+
+        boolean[] more = {false};
+        slots.computeIfPresent(programId, (id, slot) -> {
+            slot.running = false;
+            slot.runningPayload = null;
+            more[0] = slot.pending != null;
+            return more[0] ? slot : null;
+        });
+        return more[0];
+    }
+
+    /**
+     * 为停机时未完成的请求发布失败结果
+     *
+     * @param includeRunning 是否包含进行中的请求（强制停止时进行中的生成已被中断）
+     */
+    private void failUnfinished(boolean includeRunning) {
+        List<Map<String, Object>> queued = new ArrayList<>();
+        List<Map<String, Object>> interrupted = new ArrayList<>();
+        for (Long programId : slots.keySet()) {
+            slots.computeIfPresent(programId, (id, slot) -> {
+                if (slot.pending != null) {
+                    queued.add(slot.pending);
+                }
+                if (includeRunning && slot.running && slot.runningPayload != null) {
+                    interrupted.add(slot.runningPayload);
+                }
+                return null;
+            });
+        }
+        queued.forEach(payload -> publishDropped(payload, "服务停止，VSN生成请求未执行"));
+        interrupted.forEach(payload -> publishDropped(payload, "服务停止，VSN生成被中断"));
+        if (!queued.isEmpty() || !interrupted.isEmpty()) {
+            log.warn("停机时未完成的VSN生成请求已发布失败结果 - 排队中: {}, 进行中: {}",
+                    queued.size(), interrupted.size());
+        }
+    }
+
+    private void publishDropped(Map<String, Object> payload, String reason) {
+        try {
+            vsnResultPublisher.publishResultFailed(toLong(payload.get("organizationId")),
+                    toLong(payload.get("programId")), toInt(payload.get("version")), reason, null);
+        } catch (Exception e) {
+            log.error("发布VSN生成失败结果失败 - programId: {}, 错误: {}", payload.get("programId"), e.getMessage(), e);
+        }
+    }
+
+    private Long toLong(Object v) { return v == null ? null : Long.valueOf(String.valueOf(v)); }
+    private Integer toInt(Object v) { return v == null ? null : Integer.valueOf(String.valueOf(v)); }
+
+    /**
+     * 单个节目的生成槽位
+     */
+    private final class ProgramSlot {
+        private Map<String, Object> pending;
+        private Integer pendingVersion;
+        private Map<String, Object> runningPayload;
+        private Integer runningVersion;
+        private boolean running;
+
+        /**
+         * 合并新请求，返回自身
+         */
+        ProgramSlot offer(Map<String, Object> payload, Integer version) {
+            Integer latest = pending != null ? pendingVersion : (running ? runningVersion : null);
+            if (pending == null && !running) {
+                pending = payload;
+                pendingVersion = version;
+            } else if (version != null && latest != null && version <= latest) {
+                // 不晚于已排队或进行中的版本
+                supersededCount.incrementAndGet();
+                log.debug("丢弃过期VSN生成请求 - version: {}, 最新: {}", version, latest);
+            } else {
+                if (pending != null) {
+                    supersededCount.incrementAndGet();
+                }
+                pending = payload;
+                pendingVersion = version;
+            }
+            return this;
+        }
+
+        /**
+         * 取出排队中的请求并标记为进行中
+         */
+        Map<String, Object> take() {
+            Map<String, Object> payload = pending;
+            if (payload != null) {
+                running = true;
+                runningPayload = payload;
+                runningVersion = pendingVersion;
+                pending = null;
+                pendingVersion = null;
+            }
+            return payload;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.nan.cloud.file.infrastructure.vsn.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.nan.cloud.file.application.port.StreamingVsnXmlWriter;
 import org.nan.cloud.program.document.ProgramItem;
@@ -9,281 +11,653 @@ import org.nan.cloud.program.document.VsnProgram;
 import org.nan.cloud.program.vsn.DisplayRect;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.nan.cloud.file.infrastructure.vsn.VsnFormatUtils.*;
 
 /**
  * 流式 VSN XML 写入器实现
  * 直接将XML内容写入输出流，避免大XML字符串在内存中存在
+ *
+ * XML写出与内容指纹共用同一套遍历（TagSink），指纹与写出内容一一对应：
+ * 1. 区域指纹：区域内全部标签和值的SHA-256
+ * 2. 内容指纹：节目骨架标签加各区域指纹
+ * 3. 区域片段缓存：按区域指纹缓存渲染好的XML字节，只有一个区域变化的节目只重新渲染该区域
+ *
+ * 页面由{@link PageSource}逐页提供，写出和指纹计算都只持有当前页，内存占用与节目页数无关。
+ * 写出时同时计算内容指纹，调用方不需要为指纹再读一遍页面。
  */
 @Slf4j
 @Component
 public class StreamingVsnXmlWriterImpl implements StreamingVsnXmlWriter {
     
-    private static final int BUFFER_SIZE = 16384; // 16KB 缓冲区
+    private static final int BUFFER_SIZE = 65536; // 64KB 缓冲区
+
+    private static final int FRAGMENT_BUFFER_SIZE = 4096;
+
+    private static final long FRAGMENT_CACHE_MAX_BYTES = 32L * 1024 * 1024; // 32MB
+
+    /**
+     * 区域XML片段缓存：区域指纹 -> UTF-8字节，按字节数加权
+     */
+    private final Cache<String, byte[]> fragmentCache = Caffeine.newBuilder()
+            .maximumWeight(FRAGMENT_CACHE_MAX_BYTES)
+            .weigher((String key, byte[] value) -> value.length)
+            .recordStats()
+            .build();
     
     @Override
-    public long writeToStream(List<VsnProgram> programs, OutputStream outputStream) throws Exception {
-        long totalBytes = 0;
+    public WriteResult writeToStream(List<VsnProgram> programs, PageSource pages,
+                                     OutputStream outputStream) throws Exception {
+        WriteResult result;
         
-        // 使用缓冲输出流和字符流写入器提升性能
-        try (BufferedOutputStream bufferedOut = new BufferedOutputStream(outputStream, BUFFER_SIZE);
-             OutputStreamWriter writer = new OutputStreamWriter(bufferedOut, StandardCharsets.UTF_8)) {
-            
-            totalBytes += writeString(writer, "<Programs>");
-            
-            for (VsnProgram program : programs) {
-                totalBytes += writeProgramToStream(writer, program);
-            }
+        // 直接按UTF-8写字节，区域片段可原样拷贝，字节数精确
+        XmlSink xml = new XmlSink(outputStream, BUFFER_SIZE);
+        HashSink hash = new HashSink();
+        HashSink regionHash = new HashSink();
+        emitPrograms(new TeeSink(xml, hash), programs, pages, region -> {
+            byte[] regionFingerprint = regionFingerprint(regionHash, region);
+            xml.raw(renderRegion(regionFingerprint, region));
+            hash.fold(regionFingerprint);
+        });
+        xml.flush();
+        outputStream.flush();
+        result = new WriteResult(xml.bytes(), HexFormat.of().formatHex(hash.digest()));
+        
+        log.debug("流式写入VSN XML完成，总字节数: {}", result.bytes());
+        return result;
+    }
+
+    @Override
+    public String fingerprint(List<VsnProgram> programs, PageSource pages) throws Exception {
+        HashSink sink = new HashSink();
+        HashSink regionHash = new HashSink();
+        emitPrograms(sink, programs, pages, region -> sink.fold(regionFingerprint(regionHash, region)));
+        return HexFormat.of().formatHex(sink.digest());
+    }
+
+    // ==================== 遍历 ====================
+
+    /**
+     * 区域输出方式：XML写出时输出片段，计算指纹时折叠区域指纹
+     */
+    @FunctionalInterface
+    private interface RegionEmitter {
+        void emit(ProgramRegion region) throws IOException;
+    }
+
+    private void emitPrograms(TagSink sink, List<VsnProgram> programs, PageSource pages,
+                              RegionEmitter regions) throws Exception {
+        sink.open("Programs");
+        for (int i = 0; i < programs.size(); i++) {
+            VsnProgram program = programs.get(i);
+            sink.open("Program");
             
-            totalBytes += writeString(writer, "</Programs>");
+            // Information
+            sink.open("Information");
+            sink.tag("Height", program.getInformation().getHeight());
+            sink.tag("Width", program.getInformation().getWidth());
+            sink.close("Information");
             
-            // 确保所有数据写入
-            writer.flush();
-            bufferedOut.flush();
+            // Pages
+            sink.open("Pages");
+            pages.forEachPage(i, program, page -> emitPage(sink, page, regions));
+            sink.close("Pages");
             
-            log.debug("流式写入VSN XML完成，总字节数: {}", totalBytes);
+            sink.close("Program");
         }
-        
-        return totalBytes;
+        sink.close("Programs");
     }
     
-    private long writeProgramToStream(Writer writer, VsnProgram program) throws Exception {
-        long bytes = 0;
-        
-        bytes += writeString(writer, "<Program>");
-        
-        // Information
-        bytes += writeString(writer, "<Information>");
-        bytes += writeTag(writer, "Height", program.getInformation().getHeight());
-        bytes += writeTag(writer, "Width", program.getInformation().getWidth());
-        bytes += writeString(writer, "</Information>");
-        
-        // Pages
-        bytes += writeString(writer, "<Pages>");
-        for (ProgramPage page : program.getPages()) {
-            bytes += writePageToStream(writer, page);
-        }
-        bytes += writeString(writer, "</Pages>");
-        
-        bytes += writeString(writer, "</Program>");
-        
-        return bytes;
-    }
-    
-    private long writePageToStream(Writer writer, ProgramPage page) throws Exception {
-        long bytes = 0;
-        
-        bytes += writeString(writer, "<Page>");
+    private void emitPage(TagSink sink, ProgramPage page, RegionEmitter regions) throws IOException {
+        sink.open("Page");
         
         if (page.getAppointDuration() != null) {
-            bytes += writeTag(writer, "AppointDuration", page.getAppointDuration());
+            sink.tag("AppointDuration", page.getAppointDuration());
         }
         if (page.getLoopType() != null) {
-            bytes += writeTag(writer, "LoopType", page.getLoopType());
+            sink.tag("LoopType", page.getLoopType());
         }
         if (page.getBgColor() != null) {
-            bytes += writeTag(writer, "bgColor", colorFromInt(page.getBgColor()));
+            sink.tag("bgColor", colorFromInt(page.getBgColor()));
         }
         
         // Regions
-        bytes += writeString(writer, "<Regions>");
+        sink.open("Regions");
         if (page.getRegions() != null) {
             for (ProgramRegion region : page.getRegions()) {
-                bytes += writeRegionToStream(writer, region);
+                regions.emit(region);
             }
         }
-        bytes += writeString(writer, "</Regions>");
-        
-        bytes += writeString(writer, "</Page>");
+        sink.close("Regions");
         
-        return bytes;
+        sink.close("Page");
     }
     
-    private long writeRegionToStream(Writer writer, ProgramRegion region) throws Exception {
-        long bytes = 0;
-        
-        bytes += writeString(writer, "<Region>");
+    private void emitRegion(TagSink sink, ProgramRegion region) throws IOException {
+        sink.open("Region");
         
         // Rect
         DisplayRect rect = region.getRect();
         if (rect != null) {
-            bytes += writeString(writer, "<Rect>");
-            bytes += writeTag(writer, "X", String.valueOf(rect.getX()));
-            bytes += writeTag(writer, "Y", String.valueOf(rect.getY()));
-            bytes += writeTag(writer, "Height", String.valueOf(rect.getHeight()));
-            bytes += writeTag(writer, "Width", String.valueOf(rect.getWidth()));
-            bytes += writeTag(writer, "BorderWidth", String.valueOf(rect.getBorderWidth()));
-            bytes += writeString(writer, "</Rect>");
+            sink.open("Rect");
+            sink.tag("X", rect.getX());
+            sink.tag("Y", rect.getY());
+            sink.tag("Height", rect.getHeight());
+            sink.tag("Width", rect.getWidth());
+            sink.tag("BorderWidth", rect.getBorderWidth());
+            sink.close("Rect");
         }
         
         if (region.getName() != null) {
-            bytes += writeTag(writer, "Name", region.getName());
+            sink.tag("Name", region.getName());
         }
         if (region.getIsScheduleRegion() != null) {
-            bytes += writeTag(writer, "isScheduleRegion", ensure01(region.getIsScheduleRegion()));
+            sink.tag("isScheduleRegion", ensure01(region.getIsScheduleRegion()));
         }
         if (region.getLayer() != null) {
-            bytes += writeTag(writer, "layer", region.getLayer());
+            sink.tag("layer", region.getLayer());
         }
         
         // Items
-        bytes += writeString(writer, "<Items>");
+        sink.open("Items");
         if (region.getItems() != null) {
             for (ProgramItem item : region.getItems()) {
-                bytes += writeItemToStream(writer, item);
+                emitItem(sink, item);
             }
         }
-        bytes += writeString(writer, "</Items>");
-        
-        bytes += writeString(writer, "</Region>");
+        sink.close("Items");
         
-        return bytes;
+        sink.close("Region");
     }
     
-    private long writeItemToStream(Writer writer, ProgramItem item) throws Exception {
-        long bytes = 0;
-        
-        bytes += writeString(writer, "<Item>");
+    private void emitItem(TagSink sink, ProgramItem item) throws IOException {
+        sink.open("Item");
         
         if (item.getType() != null) {
-            bytes += writeTag(writer, "Type", item.getType());
+            sink.tag("Type", item.getType());
         }
         if (item.getTextColor() != null) {
-            bytes += writeTag(writer, "TextColor", item.getTextColor());
+            sink.tag("TextColor", item.getTextColor());
         }
         if (item.getText() != null) {
-            bytes += writeTag(writer, "Text", item.getText());
+            sink.tag("Text", item.getText());
         }
         
         // LogFont
         if (item.getLogFont() != null && item.getLogFont().getLfHeight() != null) {
-            bytes += writeString(writer, "<LogFont>");
-            bytes += writeTag(writer, "lfHeight", item.getLogFont().getLfHeight());
+            sink.open("LogFont");
+            sink.tag("lfHeight", item.getLogFont().getLfHeight());
             if (item.getLogFont().getLfWeight() != null) {
-                bytes += writeTag(writer, "lfWeight", item.getLogFont().getLfWeight());
+                sink.tag("lfWeight", item.getLogFont().getLfWeight());
             }
             if (item.getLogFont().getLfItalic() != null) {
-                bytes += writeTag(writer, "lfItalic", item.getLogFont().getLfItalic());
+                sink.tag("lfItalic", item.getLogFont().getLfItalic());
             }
             if (item.getLogFont().getLfUnderline() != null) {
-                bytes += writeTag(writer, "lfUnderline", item.getLogFont().getLfUnderline());
+                sink.tag("lfUnderline", item.getLogFont().getLfUnderline());
             }
             if (item.getLogFont().getLfFaceName() != null) {
-                bytes += writeTag(writer, "lfFaceName", item.getLogFont().getLfFaceName());
+                sink.tag("lfFaceName", item.getLogFont().getLfFaceName());
             }
-            bytes += writeString(writer, "</LogFont>");
+            sink.close("LogFont");
         }
         
         if (item.getDuration() != null) {
-            bytes += writeTag(writer, "duration", item.getDuration());
+            sink.tag("duration", item.getDuration());
         }
         if (item.getAlpha() != null) {
-            bytes += writeTag(writer, "alpha", item.getAlpha());
+            sink.tag("alpha", item.getAlpha());
         }
         if (item.getCenterAlign() != null) {
-            bytes += writeTag(writer, "centeralalign", item.getCenterAlign());
+            sink.tag("centeralalign", item.getCenterAlign());
         }
         if (item.getIsScroll() != null) {
-            bytes += writeTag(writer, "isscroll", ensure01(item.getIsScroll()));
+            sink.tag("isscroll", ensure01(item.getIsScroll()));
         }
         
         // filesource
         if (item.getFileSource() != null) {
             var fs = item.getFileSource();
-            bytes += writeString(writer, "<filesource>");
+            sink.open("filesource");
             if (fs.getIsRelative() != null) {
-                bytes += writeTag(writer, "isrelative", ensure01(fs.getIsRelative()));
+                sink.tag("isrelative", ensure01(fs.getIsRelative()));
             }
             if (fs.getFilePath() != null) {
-                bytes += writeTag(writer, "filepath", fs.getFilePath());
+                sink.tag("filepath", fs.getFilePath());
             }
             if (fs.getMd5() != null) {
-                bytes += writeTag(writer, "MD5", fs.getMd5());
+                sink.tag("MD5", fs.getMd5());
             }
             if (fs.getOriginName() != null) {
-                bytes += writeTag(writer, "originName", fs.getOriginName());
+                sink.tag("originName", fs.getOriginName());
             }
             if (fs.getConvertPath() != null) {
-                bytes += writeTag(writer, "convertPath", fs.getConvertPath());
+                sink.tag("convertPath", fs.getConvertPath());
             }
-            bytes += writeString(writer, "</filesource>");
+            sink.close("filesource");
         }
         
         // schedule
         if (item.getSchedule() != null) {
             var sc = item.getSchedule();
-            bytes += writeString(writer, "<schedule>");
+            sink.open("schedule");
             if (sc.getIsLimitTime() != null) {
-                bytes += writeTag(writer, "isLimitTime", sc.getIsLimitTime());
+                sink.tag("isLimitTime", sc.getIsLimitTime());
             }
             if (sc.getStartTime() != null) {
-                bytes += writeTag(writer, "startTime", sc.getStartTime());
+                sink.tag("startTime", sc.getStartTime());
             }
             if (sc.getEndTime() != null) {
-                bytes += writeTag(writer, "endTime", sc.getEndTime());
+                sink.tag("endTime", sc.getEndTime());
             }
             if (sc.getIsLimitDate() != null) {
-                bytes += writeTag(writer, "isLimitDate", sc.getIsLimitDate());
+                sink.tag("isLimitDate", sc.getIsLimitDate());
             }
             if (sc.getStartDay() != null) {
-                bytes += writeTag(writer, "startDay", sc.getStartDay());
+                sink.tag("startDay", sc.getStartDay());
             }
             if (sc.getStartDayTime() != null) {
-                bytes += writeTag(writer, "startDayTime", sc.getStartDayTime());
+                sink.tag("startDayTime", sc.getStartDayTime());
             }
             if (sc.getEndDay() != null) {
-                bytes += writeTag(writer, "endDay", sc.getEndDay());
+                sink.tag("endDay", sc.getEndDay());
             }
             if (sc.getEndDayTime() != null) {
-                bytes += writeTag(writer, "endDayTime", sc.getEndDayTime());
+                sink.tag("endDayTime", sc.getEndDayTime());
             }
             if (sc.getIsLimitWeek() != null) {
-                bytes += writeTag(writer, "isLimitWeek", sc.getIsLimitWeek());
+                sink.tag("isLimitWeek", sc.getIsLimitWeek());
             }
             if (sc.getLimitWeek() != null) {
-                bytes += writeTag(writer, "limitWeek", sc.getLimitWeek());
+                sink.tag("limitWeek", sc.getLimitWeek());
             }
-            bytes += writeString(writer, "</schedule>");
+            sink.close("schedule");
         }
         
         // ineffect
         if (item.getInEffect() != null) {
             var ef = item.getInEffect();
-            bytes += writeString(writer, "<ineffect>");
+            sink.open("ineffect");
             if (ef.getType() != null) {
-                bytes += writeTag(writer, "Type", ef.getType());
+                sink.tag("Type", ef.getType());
             }
             if (ef.getTime() != null) {
-                bytes += writeTag(writer, "Time", ef.getTime());
+                sink.tag("Time", ef.getTime());
             }
-            bytes += writeString(writer, "</ineffect>");
+            sink.close("ineffect");
         }
         
-        bytes += writeString(writer, "</Item>");
-        
-        return bytes;
+        sink.close("Item");
     }
     
-    private long writeTag(Writer writer, String name, String value) throws Exception {
-        String tag = "<" + name + ">" + escape(value) + "</" + name + ">";
-        return writeString(writer, tag);
+    // ==================== 区域片段 ====================
+
+    /**
+     * @param sink 复用的摘要，计算完成后已重置
+     */
+    private byte[] regionFingerprint(HashSink sink, ProgramRegion region) throws IOException {
+        emitRegion(sink, region);
+        return sink.digest();
     }
-    
-    private long writeString(Writer writer, String content) throws Exception {
-        writer.write(content);
-        // UTF-8编码下估算字节数（实际可能略有差异）
-        return content.getBytes(StandardCharsets.UTF_8).length;
+
+    /**
+     * 按区域指纹取缓存的XML片段，未命中时渲染并缓存
+     */
+    private byte[] renderRegion(byte[] regionFingerprint, ProgramRegion region) throws IOException {
+        String key = HexFormat.of().formatHex(regionFingerprint);
+        byte[] fragment = fragmentCache.getIfPresent(key);
+        if (fragment == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(FRAGMENT_BUFFER_SIZE);
+            XmlSink sink = new XmlSink(out, FRAGMENT_BUFFER_SIZE);
+            emitRegion(sink, region);
+            sink.flush();
+            fragment = out.toByteArray();
+            fragmentCache.put(key, fragment);
+        }
+        return fragment;
     }
-    
-    private String escape(String v) {
-        if (v == null) return "";
-        return v.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+
+    // ==================== 输出 ====================
+
+    /**
+     * 标签输出
+     */
+    private interface TagSink {
+        void open(String name) throws IOException;
+
+        void close(String name) throws IOException;
+
+        void tag(String name, String value) throws IOException;
+
+        /**
+         * 整数值标签，输出与tag(name, String.valueOf(value))相同
+         */
+        void tag(String name, Integer value) throws IOException;
+    }
+
+    /**
+     * 标签名的UTF-8编码，标签名均为本类中的常量，按名称缓存一次
+     */
+    private record TagName(byte[] name, byte[] open, byte[] close) {
+        private static final ConcurrentHashMap<String, TagName> CACHE = new ConcurrentHashMap<>();
+
+        static TagName of(String name) {
+            TagName tag = CACHE.get(name);
+            return tag != null ? tag : CACHE.computeIfAbsent(name, TagName::encode);
+        }
+
+        private static TagName encode(String name) {
+            return new TagName(name.getBytes(StandardCharsets.UTF_8),
+                    ("<" + name + ">").getBytes(StandardCharsets.UTF_8),
+                    ("</" + name + ">").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * XML输出，按UTF-8直接编码到自有缓冲区，满时写入字节流
+     */
+    private static class XmlSink implements TagSink {
+        private final OutputStream out;
+        private final byte[] buffer;
+        private int position = 0;
+        private long flushed = 0;
+
+        XmlSink(OutputStream out, int bufferSize) {
+            this.out = out;
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        public void open(String name) throws IOException {
+            write(TagName.of(name).open());
+        }
+
+        @Override
+        public void close(String name) throws IOException {
+            write(TagName.of(name).close());
+        }
+
+        @Override
+        public void tag(String name, String value) throws IOException {
+            TagName tag = TagName.of(name);
+            write(tag.open());
+            if (value != null) {
+                writeEscaped(value);
+            }
+            write(tag.close());
+        }
+
+        @Override
+        public void tag(String name, Integer value) throws IOException {
+            if (value == null || value == Integer.MIN_VALUE) {
+                tag(name, String.valueOf(value));
+                return;
+            }
+            TagName tag = TagName.of(name);
+            write(tag.open());
+            if (buffer.length - position < MAX_INT_BYTES) {
+                flush();
+            }
+            position = encodeInt(value, buffer, position);
+            write(tag.close());
+        }
+
+        void raw(byte[] fragment) throws IOException {
+            write(fragment);
+        }
+
+        /**
+         * 已输出的字节数（含缓冲区中未写出的部分）
+         */
+        long bytes() {
+            return flushed + position;
+        }
+
+        void flush() throws IOException {
+            if (position > 0) {
+                out.write(buffer, 0, position);
+                flushed += position;
+                position = 0;
+            }
+        }
+
+        private void write(byte[] data) throws IOException {
+            if (data.length > buffer.length - position) {
+                flush();
+                if (data.length > buffer.length) {
+                    out.write(data);
+                    flushed += data.length;
+                    return;
+                }
+            }
+            System.arraycopy(data, 0, buffer, position, data.length);
+            position += data.length;
+        }
+
+        /**
+         * 按缓冲区剩余空间分段编码，分段不拆开代理对
+         */
+        private void writeEscaped(String value) throws IOException {
+            int i = 0;
+            int n = value.length();
+            while (i < n) {
+                int end = Math.min(n, i + (buffer.length - position) / MAX_CHAR_BYTES);
+                if (end < n && end > i && Character.isHighSurrogate(value.charAt(end - 1))) {
+                    end--;
+                }
+                if (end == i) {
+                    flush();
+                    continue;
+                }
+                position = encodeUtf8(value, i, end, buffer, position, XML_ESCAPES);
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * 同时输出到两个目标，写出XML时计算指纹
+     */
+    private record TeeSink(TagSink first, TagSink second) implements TagSink {
+        @Override
+        public void open(String name) throws IOException {
+            first.open(name);
+            second.open(name);
+        }
+
+        @Override
+        public void close(String name) throws IOException {
+            first.close(name);
+            second.close(name);
+        }
+
+        @Override
+        public void tag(String name, String value) throws IOException {
+            first.tag(name, value);
+            second.tag(name, value);
+        }
+
+        @Override
+        public void tag(String name, Integer value) throws IOException {
+            first.tag(name, value);
+            second.tag(name, value);
+        }
+    }
+
+    /**
+     * 指纹计算，标签名和值之间加分隔标记，避免不同结构拼接出相同字节
+     * 值先编码到复用的缓冲区再更新摘要；实例可复用，每次digest()后重置
+     */
+    private static class HashSink implements TagSink {
+        private static final byte OPEN = 1;
+        private static final byte CLOSE = 2;
+        private static final byte TAG = 3;
+        private static final byte VALUE = 4;
+        private static final byte NULL = 5;
+        private static final byte REGION = 6;
+
+        private final MessageDigest digest;
+        private byte[] scratch = new byte[256];
+
+        HashSink() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 不可用", e);
+            }
+        }
+
+        @Override
+        public void open(String name) {
+            digest.update(OPEN);
+            digest.update(TagName.of(name).name());
+        }
+
+        @Override
+        public void close(String name) {
+            digest.update(CLOSE);
+            digest.update(TagName.of(name).name());
+        }
+
+        @Override
+        public void tag(String name, String value) {
+            digest.update(TAG);
+            digest.update(TagName.of(name).name());
+            if (value == null) {
+                digest.update(NULL);
+                return;
+            }
+            int capacity = 4 + value.length() * 3;
+            if (scratch.length < capacity) {
+                scratch = new byte[Math.max(capacity, scratch.length * 2)];
+            }
+            updateValue(encodeUtf8(value, 0, value.length(), scratch, 4, NO_ESCAPES));
+        }
+
+        @Override
+        public void tag(String name, Integer value) {
+            if (value == null || value == Integer.MIN_VALUE) {
+                tag(name, String.valueOf(value));
+                return;
+            }
+            digest.update(TAG);
+            digest.update(TagName.of(name).name());
+            updateValue(encodeInt(value, scratch, 4));
+        }
+
+        void fold(byte[] regionFingerprint) {
+            digest.update(REGION);
+            digest.update(regionFingerprint);
+        }
+
+        byte[] digest() {
+            return digest.digest();
+        }
+
+        /**
+         * scratch[4, end)为值的UTF-8字节，前4字节填入长度后一并更新
+         */
+        private void updateValue(int end) {
+            int length = end - 4;
+            scratch[0] = (byte) (length >>> 24);
+            scratch[1] = (byte) (length >>> 16);
+            scratch[2] = (byte) (length >>> 8);
+            scratch[3] = (byte) length;
+            digest.update(VALUE);
+            digest.update(scratch, 0, end);
+        }
+    }
+
+    // ==================== 编码 ====================
+
+    /**
+     * 单个字符编码后的最大字节数（&amp;）
+     */
+    private static final int MAX_CHAR_BYTES = 5;
+
+    /**
+     * 整数编码后的最大字节数（-2147483647）
+     */
+    private static final int MAX_INT_BYTES = 11;
+
+    /**
+     * ASCII字符的XML转义表，与原有规则一致，只转义 &amp; &lt; &gt;
+     */
+    private static final byte[][] XML_ESCAPES = new byte[128][];
+
+    private static final byte[][] NO_ESCAPES = new byte[128][];
+
+    static {
+        XML_ESCAPES['&'] = "&amp;".getBytes(StandardCharsets.US_ASCII);
+        XML_ESCAPES['<'] = "&lt;".getBytes(StandardCharsets.US_ASCII);
+        XML_ESCAPES['>'] = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 将value[from, to)按UTF-8编码到dst，调用方保证剩余空间不少于(to - from) * MAX_CHAR_BYTES；
+     * 孤立的代理字符编码为'?'，与String.getBytes(UTF_8)一致
+     *
+     * @return 编码后的写入位置
+     */
+    private static int encodeUtf8(String value, int from, int to, byte[] dst, int pos, byte[][] escapes) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = escapes[c];
+                if (escape == null) {
+                    dst[pos++] = (byte) c;
+                } else {
+                    System.arraycopy(escape, 0, dst, pos, escape.length);
+                    pos += escape.length;
+                }
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xC0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                dst[pos++] = (byte) (0xE0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                dst[pos++] = (byte) (0xF0 | (cp >> 18));
+                dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                dst[pos++] = '?';
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 十进制写出整数（不含Integer.MIN_VALUE），与String.valueOf一致
+     *
+     * @return 编码后的写入位置
+     */
+    private static int encodeInt(int value, byte[] dst, int pos) {
+        if (value < 0) {
+            dst[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
     }
-}
\ No newline at end of file
+}